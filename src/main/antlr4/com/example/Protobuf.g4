@@ -87,25 +87,15 @@ keyType
     ;
 
 // field types
+//
+// NB: the scalar types are keywords, and keywords are also identifiers, so every scalar
+//     type is also a valid messageType. Listing them as separate alternatives (and
+//     messageType and enumType as two identical ones) made every field type an
+//     ambiguous decision that needed full LL prediction. The scalar types are recognized
+//     from the single token of an unqualified messageType instead.
 
 type
-    : DOUBLE
-    | FLOAT
-    | INT32
-    | INT64
-    | UINT32
-    | UINT64
-    | SINT32
-    | SINT64
-    | FIXED32
-    | FIXED64
-    | SFIXED32
-    | SFIXED64
-    | BOOL
-    | STRING
-    | BYTES
-    | messageType
-    | enumType
+    : messageType
     ;
 
 // Reserved
@@ -217,12 +207,13 @@ rpc
 
 // lexical
 
+// NB: true and false are keywords, so they are matched by fullIdent (a separate boolLit
+//     alternative was ambiguous with it, and never chosen)
 constant
     : fullIdent
     | (MINUS | PLUS)? intLit
     | ( MINUS | PLUS)? floatLit
     | strLit
-    | boolLit
     | blockLit
     ;
 
@@ -274,12 +265,9 @@ rpcName
     : ident
     ;
 
+// NB: not (ident DOT)* messageName, which needs two tokens of lookahead for every part
 messageType
-    : (DOT)? (ident DOT)* messageName
-    ;
-
-enumType
-    : (DOT)? (ident DOT)* enumName
+    : (DOT)? ident (DOT ident)*
     ;
 
 intLit
@@ -292,10 +280,6 @@ strLit
     | PROTO3_LIT_DOBULE
     ;
 
-boolLit
-    : BOOL_LIT
-    ;
-
 floatLit
     : FLOAT_LIT
     ;
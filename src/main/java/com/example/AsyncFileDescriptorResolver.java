@@ -0,0 +1,247 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.Descriptors.FileDescriptor;
+
+/**
+ * Non-blocking front end for {@link FileDescriptorProtoParser} and
+ * {@link FileDescriptorManager}. Work is run on a caller-supplied {@link Executor}, and
+ * concurrent requests for the same inputs share a single in-flight computation.
+ *
+ * <p>
+ * Each caller gets its own {@link CompletableFuture}. Cancelling it detaches that caller
+ * only; the shared computation is cancelled (and its worker interrupted) once every
+ * caller waiting on it has cancelled.
+ *
+ * <p>
+ * The underlying parser is not thread-safe, so parsing is serialized on it. Conversion is
+ * not, and runs concurrently.
+ *
+ * <p>
+ * <strong>Usage:</strong>
+ * </p>
+ * <pre>
+ * AsyncFileDescriptorResolver resolver = new AsyncFileDescriptorResolver(executor);
+ * resolver.resolve(Path.of("foo.proto"))
+ * 	.thenCompose(resolver::convert)
+ * 	.thenAccept(descriptors -&gt; ...);
+ * </pre>
+ */
+public class AsyncFileDescriptorResolver {
+
+	private final Map<Object, InFlight<?>> inFlight = new ConcurrentHashMap<>();
+
+	private final FileDescriptorProtoParser parser;
+
+	private final FileDescriptorManager manager;
+
+	private final Executor executor;
+
+	/**
+	 * Constructs a resolver with a default {@link FileDescriptorProtoParser}.
+	 * @param executor the executor to run parsing and conversion on
+	 */
+	public AsyncFileDescriptorResolver(Executor executor) {
+		this(new FileDescriptorProtoParser(), new FileDescriptorManager(), executor);
+	}
+
+	/**
+	 * Constructs a resolver that delegates to the given parser and manager. The parser
+	 * should not be used directly by other threads while this resolver is in use.
+	 * @param parser the parser to resolve with
+	 * @param manager the manager to convert with
+	 * @param executor the executor to run parsing and conversion on
+	 */
+	public AsyncFileDescriptorResolver(FileDescriptorProtoParser parser, FileDescriptorManager manager,
+			Executor executor) {
+		this.parser = parser;
+		this.manager = manager;
+		this.executor = executor;
+	}
+
+	/**
+	 * Asynchronous version of {@link FileDescriptorProtoParser#resolve(Path...)}.
+	 * @param inputs the paths to resolve
+	 * @return a future for the resolved {@link FileDescriptorSet}
+	 */
+	public CompletableFuture<FileDescriptorSet> resolve(Path... inputs) {
+		Path[] paths = inputs.clone();
+		return submit(List.of(Path.class, Arrays.asList(paths)), () -> {
+			synchronized (this.parser) {
+				return this.parser.resolve(paths);
+			}
+		});
+	}
+
+	/**
+	 * Asynchronous version of {@link FileDescriptorProtoParser#resolve(String, String)}.
+	 * @param name the name associated with the input
+	 * @param input the input string containing the protocol buffer definition
+	 * @return a future for the resolved {@link FileDescriptorSet}
+	 */
+	public CompletableFuture<FileDescriptorSet> resolve(String name, String input) {
+		return submit(List.of(String.class, name, input), () -> {
+			synchronized (this.parser) {
+				return this.parser.resolve(name, input);
+			}
+		});
+	}
+
+	/**
+	 * Asynchronous version of
+	 * {@link FileDescriptorProtoParser#resolve(FileDescriptorProto...)}.
+	 * @param inputs the descriptors to resolve
+	 * @return a future for the resolved {@link FileDescriptorSet}
+	 */
+	public CompletableFuture<FileDescriptorSet> resolve(FileDescriptorProto... inputs) {
+		FileDescriptorProto[] protos = inputs.clone();
+		return submit(List.of(FileDescriptorProto.class, Arrays.asList(protos)), () -> {
+			synchronized (this.parser) {
+				return this.parser.resolve(protos);
+			}
+		});
+	}
+
+	/**
+	 * Asynchronous version of {@link FileDescriptorManager#convert(FileDescriptorSet)}.
+	 * @param input the descriptor set to convert
+	 * @return a future for the converted descriptors
+	 */
+	public CompletableFuture<FileDescriptor[]> convert(FileDescriptorSet input) {
+		return submit(List.of(FileDescriptorSet.class, input), () -> this.manager.convert(input));
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> CompletableFuture<T> submit(Object key, Supplier<T> work) {
+		AtomicReference<InFlight<T>> created = new AtomicReference<>();
+		InFlight<T> task = (InFlight<T>) this.inFlight.compute(key, (k, existing) -> {
+			if (existing != null && existing.acquire()) {
+				return existing;
+			}
+			InFlight<T> fresh = new InFlight<>(k, work);
+			fresh.acquire();
+			created.set(fresh);
+			return fresh;
+		});
+		CompletableFuture<T> result = task.subscribe();
+		InFlight<T> fresh = created.get();
+		if (fresh != null) {
+			try {
+				this.executor.execute(fresh.task);
+			}
+			catch (RuntimeException e) {
+				this.inFlight.remove(key, fresh);
+				fresh.result.completeExceptionally(e);
+			}
+		}
+		return result;
+	}
+
+	private final class InFlight<T> {
+
+		private final Object key;
+
+		private final CompletableFuture<T> result = new CompletableFuture<>();
+
+		private final FutureTask<T> task;
+
+		private int waiters;
+
+		private boolean cancelled;
+
+		InFlight(Object key, Supplier<T> work) {
+			this.key = key;
+			this.task = new FutureTask<>(work::get) {
+				@Override
+				protected void done() {
+					complete(this);
+				}
+			};
+		}
+
+		synchronized boolean acquire() {
+			if (this.cancelled) {
+				return false;
+			}
+			this.waiters++;
+			return true;
+		}
+
+		CompletableFuture<T> subscribe() {
+			CompletableFuture<T> view = new CompletableFuture<>();
+			this.result.whenComplete((value, error) -> {
+				if (error != null) {
+					view.completeExceptionally(error);
+				}
+				else {
+					view.complete(value);
+				}
+			});
+			view.whenComplete((value, error) -> {
+				if (view.isCancelled()) {
+					release();
+				}
+			});
+			return view;
+		}
+
+		private void release() {
+			synchronized (this) {
+				if (--this.waiters > 0 || this.result.isDone()) {
+					return;
+				}
+				this.cancelled = true;
+			}
+			AsyncFileDescriptorResolver.this.inFlight.remove(this.key, this);
+			this.task.cancel(true);
+		}
+
+		private void complete(FutureTask<T> task) {
+			AsyncFileDescriptorResolver.this.inFlight.remove(this.key, this);
+			if (task.isCancelled()) {
+				this.result.cancel(false);
+				return;
+			}
+			try {
+				this.result.complete(task.get());
+			}
+			catch (ExecutionException e) {
+				this.result.completeExceptionally(e.getCause());
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				this.result.completeExceptionally(e);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+
+/**
+ * Holder for the precompiled descriptors (see {@link DescriptorCompiler}) that is
+ * initialized once, in a static initializer. The native image metadata shipped with this
+ * library marks it for build-time initialization, so in a native image the descriptors
+ * are decoded and built while the image is generated and live in the image heap. On a
+ * regular JVM it is initialized on first use.
+ *
+ * <p>
+ * By default every file in the artifact is built eagerly. Set the system property
+ * <code>protobuf.descriptors.prebuild</code> (at image build time) to a comma-separated
+ * list of file names to build only those files and their dependencies up front; the rest
+ * are built on demand at runtime. If there is no artifact on the classpath the set is
+ * empty.
+ *
+ * <p>
+ * <strong>Usage:</strong>
+ * </p>
+ * <pre>
+ * Descriptor type = BuildTimeDescriptors.get().findMessageTypeByName("sample.EchoRequest");
+ * </pre>
+ */
+public final class BuildTimeDescriptors {
+
+	/**
+	 * System property listing the files to build during initialization.
+	 */
+	public static final String PREBUILD_PROPERTY = "protobuf.descriptors.prebuild";
+
+	private static final LazyFileDescriptorSet DESCRIPTORS = initialize(BuildTimeDescriptors.class.getClassLoader(),
+			System.getProperty(PREBUILD_PROPERTY));
+
+	private BuildTimeDescriptors() {
+	}
+
+	/**
+	 * The precompiled descriptors.
+	 * @return the descriptors, possibly empty
+	 */
+	public static LazyFileDescriptorSet get() {
+		return DESCRIPTORS;
+	}
+
+	static LazyFileDescriptorSet initialize(ClassLoader classLoader, String prebuild) {
+		FileDescriptorSet files = FileDescriptorSet.getDefaultInstance();
+		// Decoded onto the heap rather than memory-mapped, because a mapped buffer cannot
+		// be stored in a native image heap
+		try (InputStream stream = classLoader.getResourceAsStream(PrecompiledDescriptors.LOCATION)) {
+			if (stream != null) {
+				files = FileDescriptorSet.parseFrom(stream);
+			}
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Failed to read descriptors: " + PrecompiledDescriptors.LOCATION, e);
+		}
+		LazyFileDescriptorSet descriptors = new FileDescriptorManager().lazy(files);
+		if (prebuild == null || prebuild.isBlank()) {
+			descriptors.getFileNames().forEach(descriptors::findFileByName);
+		}
+		else {
+			for (String name : prebuild.split(",")) {
+				if (descriptors.findFileByName(name.trim()) == null) {
+					throw new IllegalStateException("No precompiled descriptor for: " + name.trim());
+				}
+			}
+		}
+		return descriptors;
+	}
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+/**
+ * A decoded message with a fixed layout computed by a {@link MessageCodec}. Singular
+ * scalar fields are stored as raw bits in a <code>long[]</code>, and everything else
+ * (strings, bytes, nested messages and repeated values) in an <code>Object[]</code>, so
+ * there are no per-field maps and no boxing. Fields are read and written through the
+ * {@link MessageCodec.Field} handles of the codec that created the message.
+ */
+public final class CompactMessage {
+
+	final MessageCodec codec;
+
+	final long[] scalars;
+
+	final Object[] references;
+
+	final long[] presence;
+
+	/**
+	 * Serialized size, cached by the codec while encoding.
+	 */
+	int size = -1;
+
+	CompactMessage(MessageCodec codec, int scalars, int references, int fields) {
+		this.codec = codec;
+		this.scalars = new long[scalars];
+		this.references = new Object[references];
+		this.presence = new long[(fields + 63) >>> 6];
+	}
+
+	/**
+	 * The codec that defines the layout of this message.
+	 * @return the codec
+	 */
+	public MessageCodec getCodec() {
+		return this.codec;
+	}
+
+	boolean isPresent(int index) {
+		return (this.presence[index >>> 6] & (1L << index)) != 0;
+	}
+
+	void setPresent(int index, boolean present) {
+		if (present) {
+			this.presence[index >>> 6] |= 1L << index;
+		}
+		else {
+			this.presence[index >>> 6] &= ~(1L << index);
+		}
+	}
+
+}
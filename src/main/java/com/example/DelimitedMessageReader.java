@@ -0,0 +1,369 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.DynamicMessage;
+
+/**
+ * A reader for files of length-delimited messages (each one prefixed with its size as a
+ * varint, as written by {@link com.google.protobuf.MessageLite#writeDelimitedTo}). The
+ * file is memory-mapped a window at a time, so heap use does not depend on the size of
+ * the file, and each record is exposed as a read-only slice of the mapping without
+ * copying. Records can be decoded as {@link DynamicMessage}, as {@link CompactMessage} or
+ * into {@link FieldProjection} columns.
+ *
+ * <p>
+ * The streams returned by this reader split at record boundaries, so they can be made
+ * parallel. Because the format has no sync markers, the first split reads the size
+ * prefixes of all the records in one forward scan and keeps a record boundary about every
+ * megabyte, and all splits then pick the boundary closest to the middle of their range
+ * from that index.
+ * </p>
+ *
+ * <p>
+ * <strong>Usage:</strong>
+ * </p>
+ * <pre>
+ * try (DelimitedMessageReader reader = DelimitedMessageReader.open(Path.of("events.bin"))) {
+ *     long count = reader.decode(MessageCodec.compile(descriptor)).parallel().filter(...).count();
+ * }
+ * </pre>
+ */
+public final class DelimitedMessageReader implements Closeable {
+
+	private static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+	private static final long MIN_SPLIT_SIZE = 1024 * 1024;
+
+	private final Path path;
+
+	private final FileChannel channel;
+
+	private final long size;
+
+	private final int windowSize;
+
+	private final long minSplitSize;
+
+	private volatile long[] boundaries;
+
+	DelimitedMessageReader(Path path, int windowSize, long minSplitSize) {
+		this.path = path;
+		this.windowSize = windowSize;
+		this.minSplitSize = minSplitSize;
+		try {
+			this.channel = FileChannel.open(path, StandardOpenOption.READ);
+			this.size = this.channel.size();
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Failed to read: " + path, e);
+		}
+	}
+
+	/**
+	 * Opens a file of length-delimited messages.
+	 * @param path the path to the file
+	 * @return a reader for the file
+	 */
+	public static DelimitedMessageReader open(Path path) {
+		return new DelimitedMessageReader(path, DEFAULT_WINDOW_SIZE, MIN_SPLIT_SIZE);
+	}
+
+	/**
+	 * The size of the file in bytes.
+	 * @return the size
+	 */
+	public long size() {
+		return this.size;
+	}
+
+	/**
+	 * A stream of the serialized records in the file. Each buffer is a read-only slice of
+	 * a memory mapping, positioned at the start of the record and limited to its end.
+	 * @return the records
+	 */
+	public Stream<ByteBuffer> records() {
+		return StreamSupport.stream(new RecordSpliterator(0, this.size), false);
+	}
+
+	/**
+	 * A stream of the records in the file decoded as dynamic messages.
+	 * @param type the message type of the records
+	 * @return the messages
+	 */
+	public Stream<DynamicMessage> decode(Descriptor type) {
+		return records().map(buffer -> {
+			try {
+				return DynamicMessage.parseFrom(type, CodedInputStream.newInstance(buffer));
+			}
+			catch (IOException e) {
+				throw new IllegalStateException("Failed to decode: " + type.getFullName(), e);
+			}
+		});
+	}
+
+	/**
+	 * A stream of the records in the file decoded with a precompiled codec.
+	 * @param codec the codec for the message type of the records
+	 * @return the messages
+	 */
+	public Stream<CompactMessage> decode(MessageCodec codec) {
+		return records().map(codec::decode);
+	}
+
+	/**
+	 * A stream of batches of projected records. Each batch holds the selected fields of
+	 * up to <code>batchSize</code> consecutive records, so the per-record cost is only
+	 * that of decoding the selected fields.
+	 * @param projection the projection to apply to each record
+	 * @param batchSize the maximum number of rows in each batch
+	 * @return the batches
+	 */
+	public Stream<FieldProjection.Columns> project(FieldProjection projection, int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Invalid batch size: " + batchSize);
+		}
+		return StreamSupport.stream(new BatchSpliterator(new RecordSpliterator(0, this.size), projection, batchSize),
+				false);
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+
+	/**
+	 * Record boundaries roughly <code>minSplitSize</code> apart, in order, found by
+	 * reading the size prefixes of all the records once.
+	 */
+	private long[] boundaries() {
+		long[] result = this.boundaries;
+		if (result == null) {
+			synchronized (this) {
+				result = this.boundaries;
+				if (result == null) {
+					result = scan();
+					this.boundaries = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	private long[] scan() {
+		Window window = new Window();
+		LongList result = new LongList();
+		long next = this.minSplitSize;
+		long position = 0;
+		while (position < this.size) {
+			if (position >= next) {
+				result.add(position);
+				next = position + this.minSplitSize;
+			}
+			long header = window.header(position, this.size);
+			position += (header & 0xff) + (header >>> 8);
+		}
+		return result.toArray();
+	}
+
+	/**
+	 * A memory-mapped window over part of the file that is remapped as a cursor moves
+	 * past it.
+	 */
+	private final class Window {
+
+		private ByteBuffer buffer;
+
+		private long start;
+
+		private ByteBuffer slice(long position, int length) {
+			if (this.buffer == null || position < this.start
+					|| position + length > this.start + this.buffer.capacity()) {
+				map(position, length);
+			}
+			return this.buffer.slice((int) (position - this.start), length);
+		}
+
+		private void map(long position, int length) {
+			long size = Math.min(Math.max(DelimitedMessageReader.this.windowSize, length),
+					DelimitedMessageReader.this.size - position);
+			try {
+				this.buffer = DelimitedMessageReader.this.channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+			}
+			catch (IOException e) {
+				throw new IllegalStateException("Failed to read: " + DelimitedMessageReader.this.path, e);
+			}
+			this.start = position;
+		}
+
+		/**
+		 * Reads the size prefix of the record at a position.
+		 * @return the size of the record, shifted left by 8 bits, plus the size of the
+		 * prefix
+		 */
+		private long header(long position, long end) {
+			int available = (int) Math.min(5, end - position);
+			ByteBuffer bytes = slice(position, available);
+			int result = 0;
+			for (int i = 0; i < available; i++) {
+				byte b = bytes.get(i);
+				if (i == 4 && (b & 0xf0) != 0) {
+					// Only 4 bits of the 5th byte fit in an int
+					break;
+				}
+				result |= (b & 0x7f) << (7 * i);
+				if (b >= 0) {
+					if (result < 0) {
+						break;
+					}
+					return ((long) result << 8) | (i + 1);
+				}
+			}
+			throw new IllegalStateException(
+					"Invalid record size at offset " + position + ": " + DelimitedMessageReader.this.path);
+		}
+
+	}
+
+	private final class RecordSpliterator implements Spliterator<ByteBuffer> {
+
+		private final Window window = new Window();
+
+		private long position;
+
+		private final long end;
+
+		private RecordSpliterator(long position, long end) {
+			this.position = position;
+			this.end = end;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super ByteBuffer> action) {
+			if (this.position >= this.end) {
+				return false;
+			}
+			long header = this.window.header(this.position, this.end);
+			int length = (int) (header >>> 8);
+			long start = this.position + (header & 0xff);
+			if (start + length > this.end) {
+				throw new IllegalStateException(
+						"Truncated record at offset " + this.position + ": " + DelimitedMessageReader.this.path);
+			}
+			this.position = start + length;
+			action.accept(this.window.slice(start, length).asReadOnlyBuffer());
+			return true;
+		}
+
+		@Override
+		public Spliterator<ByteBuffer> trySplit() {
+			long remaining = this.end - this.position;
+			if (remaining < DelimitedMessageReader.this.minSplitSize) {
+				return null;
+			}
+			long[] boundaries = boundaries();
+			long middle = this.position + remaining / 2;
+			int index = Arrays.binarySearch(boundaries, middle);
+			if (index < 0) {
+				// The boundaries on either side of the middle, whichever is closer
+				index = -index - 1;
+				if (index == boundaries.length
+						|| (index > 0 && middle - boundaries[index - 1] < boundaries[index] - middle)) {
+					index--;
+				}
+			}
+			if (index < 0 || boundaries[index] <= this.position || boundaries[index] >= this.end) {
+				return null;
+			}
+			long boundary = boundaries[index];
+			RecordSpliterator prefix = new RecordSpliterator(this.position, boundary);
+			this.position = boundary;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return this.end - this.position;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | NONNULL | IMMUTABLE;
+		}
+
+	}
+
+	private static final class BatchSpliterator implements Spliterator<FieldProjection.Columns> {
+
+		private final Spliterator<ByteBuffer> records;
+
+		private final FieldProjection projection;
+
+		private final int batchSize;
+
+		private BatchSpliterator(Spliterator<ByteBuffer> records, FieldProjection projection, int batchSize) {
+			this.records = records;
+			this.projection = projection;
+			this.batchSize = batchSize;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super FieldProjection.Columns> action) {
+			FieldProjection.Columns columns = this.projection.newColumns();
+			boolean more = true;
+			while (more && columns.size() < this.batchSize) {
+				more = this.records.tryAdvance(buffer -> this.projection.decode(buffer, columns));
+			}
+			if (columns.size() == 0) {
+				return false;
+			}
+			action.accept(columns);
+			return true;
+		}
+
+		@Override
+		public Spliterator<FieldProjection.Columns> trySplit() {
+			Spliterator<ByteBuffer> prefix = this.records.trySplit();
+			return prefix != null ? new BatchSpliterator(prefix, this.projection, this.batchSize) : null;
+		}
+
+		@Override
+		public long estimateSize() {
+			return this.records.estimateSize();
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | NONNULL;
+		}
+
+	}
+
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.protobuf.DescriptorProtos.DescriptorProto;
+import com.google.protobuf.DescriptorProtos.EnumDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FieldDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.DescriptorProtos.MethodDescriptorProto;
+import com.google.protobuf.DescriptorProtos.ServiceDescriptorProto;
+
+/**
+ * A reverse index of the imports and type references between files, for impact queries
+ * like "which RPC methods are affected if this file changes". Forward references are easy
+ * to follow in a {@link FileDescriptorProto}, but finding what refers to a file or type
+ * would otherwise mean searching every file. The index keeps the reverse edges (imported
+ * file to importing files, type to the message types with a field of that type, type to
+ * the methods that use it as input or output), so a query only visits the files, types
+ * and methods in its result.
+ *
+ * <p>
+ * A message type depends on the types of its fields, and transitively on their
+ * dependencies. Map entries are followed, but not reported, so a message with a map of
+ * some type depends on that type. Type names are resolved with the same scoping rules as
+ * protoc, against all the types that have been added so far, so a file should be added
+ * after its dependencies (as {@link FileDescriptorProtoParser} does). Adding a file with
+ * the same name again replaces the old version in the index.
+ * </p>
+ *
+ * <p>
+ * {@link FileDescriptorProtoParser} keeps an index of everything it has parsed, including
+ * imports. The index is thread-safe: updates and queries are synchronized, and queries
+ * return copies, so it can be queried while another thread is parsing (e.g. with an
+ * {@link AsyncFileDescriptorResolver}).
+ * </p>
+ *
+ * <p>
+ * <strong>Usage:</strong>
+ * </p>
+ * <pre>
+ * FileDescriptorProtoParser parser = new FileDescriptorProtoParser(base);
+ * parser.resolve(Path.of("."));
+ * DependencyIndex.Impact impact = parser.getDependencyIndex().getImpact("common/money.proto");
+ * impact.methods().forEach(System.out::println);
+ * </pre>
+ */
+public class DependencyIndex {
+
+	private final Map<String, Contribution> files = new HashMap<>();
+
+	private final Map<String, Set<String>> importers = new HashMap<>();
+
+	private final Map<String, Set<String>> referrers = new HashMap<>();
+
+	private final Map<String, Set<String>> methods = new HashMap<>();
+
+	private final Set<String> types = new HashSet<>();
+
+	private final Set<String> mapEntries = new HashSet<>();
+
+	/**
+	 * Creates an index of all the files in a set, which should be in dependency order.
+	 * @param files the files to index
+	 * @return the index
+	 */
+	public static DependencyIndex of(FileDescriptorSet files) {
+		DependencyIndex index = new DependencyIndex();
+		files.getFileList().forEach(index::add);
+		return index;
+	}
+
+	/**
+	 * Adds a file to the index, replacing any previous file with the same name.
+	 * @param file the file to add
+	 */
+	public synchronized void add(FileDescriptorProto file) {
+		remove(file.getName());
+		Contribution contribution = new Contribution();
+		String scope = file.getPackage();
+		for (DescriptorProto type : file.getMessageTypeList()) {
+			declare(contribution, scope, type);
+		}
+		for (EnumDescriptorProto type : file.getEnumTypeList()) {
+			contribution.types.add(declare(scope, type.getName()));
+		}
+		for (DescriptorProto type : file.getMessageTypeList()) {
+			reference(contribution, scope, type);
+		}
+		for (ServiceDescriptorProto service : file.getServiceList()) {
+			String name = qualify(scope, service.getName());
+			for (MethodDescriptorProto method : service.getMethodList()) {
+				String methodName = name + "." + method.getName();
+				contribution.methods.add(methodName);
+				for (String type : List.of(method.getInputType(), method.getOutputType())) {
+					String resolved = resolve(scope, type);
+					if (resolved != null) {
+						link(this.methods, resolved, methodName, contribution);
+					}
+				}
+			}
+		}
+		for (String dependency : file.getDependencyList()) {
+			link(this.importers, dependency, file.getName(), contribution);
+		}
+		this.files.put(file.getName(), contribution);
+	}
+
+	/**
+	 * Removes a file from the index.
+	 * @param name the name of the file
+	 * @return true if the file was in the index
+	 */
+	public synchronized boolean remove(String name) {
+		Contribution contribution = this.files.remove(name);
+		if (contribution == null) {
+			return false;
+		}
+		for (Link link : contribution.links) {
+			Set<String> values = link.map().get(link.key());
+			values.remove(link.value());
+			if (values.isEmpty()) {
+				link.map().remove(link.key());
+			}
+		}
+		for (String type : contribution.types) {
+			this.types.remove(type);
+			this.mapEntries.remove(type);
+		}
+		return true;
+	}
+
+	/**
+	 * The files that import the given file, directly or transitively.
+	 * @param file the name of the file
+	 * @return the names of the dependent files, nearest first (empty if there are none)
+	 */
+	public synchronized Set<String> getDependentFiles(String file) {
+		return closure(this.importers, List.of(file), false);
+	}
+
+	/**
+	 * The message types that depend on the given type, directly or transitively, through
+	 * their fields.
+	 * @param type the fully qualified name of a message or enum type
+	 * @return the names of the dependent message types, nearest first (empty if there are
+	 * none)
+	 */
+	public synchronized Set<String> getDependentTypes(String type) {
+		return closure(this.referrers, List.of(type), true);
+	}
+
+	/**
+	 * The RPC methods whose input or output type is the given type, or depends on it.
+	 * @param type the fully qualified name of a message or enum type
+	 * @return the full names (<code>package.Service.Method</code>) of the dependent
+	 * methods (empty if there are none)
+	 */
+	public synchronized Set<String> getDependentMethods(String type) {
+		return methods(closure(this.referrers, List.of(type), false), Set.of(type));
+	}
+
+	/**
+	 * Everything that is affected if the given file changes: the files that import it,
+	 * the types that depend on the types that it declares, and the methods that use any
+	 * of those types (or that are declared in the file).
+	 * @param file the name of the file
+	 * @return the impact of the file (empty if the file is not in the index)
+	 */
+	public synchronized Impact getImpact(String file) {
+		Contribution contribution = this.files.get(file);
+		if (contribution == null) {
+			return new Impact(Set.of(), Set.of(), Set.of());
+		}
+		Set<String> types = closure(this.referrers, contribution.types, false);
+		types.addAll(contribution.types);
+		Set<String> methods = new LinkedHashSet<>(contribution.methods);
+		methods.addAll(methods(types, Set.of()));
+		types.removeAll(this.mapEntries);
+		return new Impact(Collections.unmodifiableSet(getDependentFiles(file)), Collections.unmodifiableSet(types),
+				Collections.unmodifiableSet(methods));
+	}
+
+	private Set<String> methods(Set<String> types, Set<String> extra) {
+		Set<String> result = new LinkedHashSet<>();
+		for (Set<String> names : List.of(extra, types)) {
+			for (String type : names) {
+				result.addAll(this.methods.getOrDefault(type, Set.of()));
+			}
+		}
+		return result;
+	}
+
+	private Set<String> closure(Map<String, Set<String>> edges, Iterable<String> start, boolean hideMapEntries) {
+		Set<String> result = new LinkedHashSet<>();
+		Deque<String> queue = new ArrayDeque<>();
+		start.forEach(queue::add);
+		while (!queue.isEmpty()) {
+			for (String next : edges.getOrDefault(queue.poll(), Set.of())) {
+				if (result.add(next)) {
+					queue.add(next);
+				}
+			}
+		}
+		if (hideMapEntries) {
+			result.removeAll(this.mapEntries);
+		}
+		return result;
+	}
+
+	private void declare(Contribution contribution, String scope, DescriptorProto type) {
+		String name = declare(scope, type.getName());
+		contribution.types.add(name);
+		if (type.getOptions().getMapEntry()) {
+			this.mapEntries.add(name);
+		}
+		for (DescriptorProto nested : type.getNestedTypeList()) {
+			declare(contribution, name, nested);
+		}
+		for (EnumDescriptorProto nested : type.getEnumTypeList()) {
+			contribution.types.add(declare(name, nested.getName()));
+		}
+	}
+
+	private String declare(String scope, String name) {
+		String result = qualify(scope, name);
+		this.types.add(result);
+		return result;
+	}
+
+	private void reference(Contribution contribution, String scope, DescriptorProto type) {
+		String name = qualify(scope, type.getName());
+		for (FieldDescriptorProto field : type.getFieldList()) {
+			if (field.hasTypeName()) {
+				String resolved = resolve(name, field.getTypeName());
+				if (resolved != null) {
+					link(this.referrers, resolved, name, contribution);
+				}
+			}
+		}
+		for (DescriptorProto nested : type.getNestedTypeList()) {
+			reference(contribution, name, nested);
+		}
+	}
+
+	private void link(Map<String, Set<String>> map, String key, String value, Contribution contribution) {
+		if (map.computeIfAbsent(key, (k) -> new LinkedHashSet<>()).add(value)) {
+			contribution.links.add(new Link(map, key, value));
+		}
+	}
+
+	/**
+	 * Resolves a type name relative to a scope, searching from the innermost scope
+	 * outwards like protoc.
+	 * @param scope the fully qualified name of the scope (a package or message)
+	 * @param name the name to resolve, which is fully qualified if it starts with a dot
+	 * @return the fully qualified name of the type, or null if it is not known
+	 */
+	private String resolve(String scope, String name) {
+		if (name.startsWith(".")) {
+			name = name.substring(1);
+			return this.types.contains(name) ? name : null;
+		}
+		while (true) {
+			String candidate = qualify(scope, name);
+			if (this.types.contains(candidate)) {
+				return candidate;
+			}
+			if (scope.isEmpty()) {
+				return null;
+			}
+			scope = scope.substring(0, Math.max(scope.lastIndexOf('.'), 0));
+		}
+	}
+
+	private static String qualify(String scope, String name) {
+		return scope.isEmpty() ? name : scope + "." + name;
+	}
+
+	/**
+	 * Everything that is affected by a change to a file.
+	 *
+	 * @param files the names of the files that import the file, directly or transitively
+	 * @param types the fully qualified names of the types declared in the file and the
+	 * message types that depend on them
+	 * @param methods the full names of the methods declared in the file and the methods
+	 * that use any of the types
+	 */
+	public record Impact(Set<String> files, Set<String> types, Set<String> methods) {
+	}
+
+	private record Link(Map<String, Set<String>> map, String key, String value) {
+	}
+
+	/**
+	 * What a single file added to the index, so that it can be removed again.
+	 */
+	private static final class Contribution {
+
+		private final List<Link> links = new ArrayList<>();
+
+		private final Set<String> types = new LinkedHashSet<>();
+
+		private final Set<String> methods = new LinkedHashSet<>();
+
+	}
+
+}
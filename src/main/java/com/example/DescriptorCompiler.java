@@ -0,0 +1,98 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+
+/**
+ * Build-time entry point that parses all the .proto files in a source directory and
+ * writes them, with their dependencies, as a serialized {@link FileDescriptorSet}. Every
+ * file is converted with {@link FileDescriptorManager} before it is written, so invalid
+ * schemas fail the build rather than the application. At runtime
+ * {@link PrecompiledDescriptors} loads the result without parsing anything.
+ *
+ * <p>
+ * The <code>precompile</code> Maven profile runs this in the <code>process-classes</code>
+ * phase whenever <code>src/main/proto</code> exists. It can also be run directly:
+ * </p>
+ * <pre>
+ * java com.example.DescriptorCompiler src/main/proto target/classes/META-INF/protobuf/descriptors.pb
+ * </pre>
+ */
+public class DescriptorCompiler {
+
+	private final Path source;
+
+	/**
+	 * Constructs a compiler for the .proto files in the given directory.
+	 * @param source the directory to scan, also used as the base path for imports
+	 */
+	public DescriptorCompiler(Path source) {
+		this.source = source;
+	}
+
+	/**
+	 * Parses and validates all the .proto files in the source directory.
+	 * @return the resolved files in dependency order
+	 * @throws IllegalStateException if a file cannot be parsed or is invalid
+	 */
+	public FileDescriptorSet compile() {
+		FileDescriptorSet files = new FileDescriptorProtoParser(this.source).resolve(Path.of("."));
+		new FileDescriptorManager().convert(files);
+		return files;
+	}
+
+	/**
+	 * Compiles the source directory and writes the result to a file, creating parent
+	 * directories as needed.
+	 * @param output the file to write
+	 * @return the files that were written
+	 */
+	public FileDescriptorSet compile(Path output) {
+		FileDescriptorSet files = compile();
+		try {
+			if (output.getParent() != null) {
+				Files.createDirectories(output.getParent());
+			}
+			try (OutputStream stream = Files.newOutputStream(output);
+					FileDescriptorSetWriter writer = new FileDescriptorSetWriter(stream)) {
+				writer.write(files);
+			}
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Failed to write descriptors: " + output, e);
+		}
+		return files;
+	}
+
+	/**
+	 * Compiles a source directory to an output file.
+	 * @param args the source directory (default <code>src/main/proto</code>) and the
+	 * output file (default <code>target/classes/META-INF/protobuf/descriptors.pb</code>)
+	 */
+	public static void main(String[] args) {
+		Path source = Path.of(args.length > 0 ? args[0] : "src/main/proto");
+		Path output = Path.of(args.length > 1 ? args[1] : "target/classes/" + PrecompiledDescriptors.LOCATION);
+		FileDescriptorSet files = new DescriptorCompiler(source).compile(output);
+		System.out.println("Wrote " + files.getFileCount() + " descriptors to " + output);
+	}
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.FileDescriptor;
+import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+/**
+ * Training run for an AppCDS archive (or a native image agent). It exercises the parser,
+ * resolver and converter, the precompiled descriptor loaders and a dynamic message round
+ * trip, so that the classes they need are loaded and can be archived. For example:
+ *
+ * <pre>
+ * java -XX:ArchiveClassesAtExit=app.jsa -cp ... com.example.DescriptorTraining src/main/proto
+ * java -XX:SharedArchiveFile=app.jsa -cp ... com.example.MyApplication
+ * </pre>
+ *
+ * With no arguments the well-known types bundled with protobuf-java are used.
+ */
+public class DescriptorTraining {
+
+	/**
+	 * Runs the training workload.
+	 * @param args source directories of .proto files
+	 * @return the number of files that were converted
+	 */
+	public static int train(String... args) {
+		FileDescriptorSet.Builder builder = FileDescriptorSet.newBuilder();
+		if (args.length == 0) {
+			builder.mergeFrom(new FileDescriptorProtoParser().resolve(Path.of("google/protobuf/type.proto")));
+		}
+		for (String arg : args) {
+			builder.mergeFrom(new DescriptorCompiler(Path.of(arg)).compile());
+		}
+		FileDescriptorSet files = builder.build();
+		FileDescriptor[] descriptors = new FileDescriptorManager().convert(files);
+		FileDescriptorSetIndex index = FileDescriptorSetIndex.of(ByteBuffer.wrap(files.toByteArray()));
+		for (FileDescriptor descriptor : descriptors) {
+			index.findFileByName(descriptor.getName());
+			for (Descriptor type : descriptor.getMessageTypes()) {
+				roundTrip(type);
+			}
+		}
+		BuildTimeDescriptors.get();
+		return descriptors.length;
+	}
+
+	private static void roundTrip(Descriptor type) {
+		try {
+			DynamicMessage message = DynamicMessage.getDefaultInstance(type);
+			DynamicMessage.parseFrom(type, message.toByteArray());
+		}
+		catch (InvalidProtocolBufferException e) {
+			throw new IllegalStateException("Failed to round trip: " + type.getFullName(), e);
+		}
+	}
+
+	/**
+	 * Runs the training workload and exits.
+	 * @param args source directories of .proto files
+	 */
+	public static void main(String[] args) {
+		System.out.println("Converted " + train(args) + " descriptors");
+	}
+
+}
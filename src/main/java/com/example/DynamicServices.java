@@ -0,0 +1,352 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.DescriptorProtos.MethodOptions.IdempotencyLevel;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.FileDescriptor;
+import com.google.protobuf.DynamicMessage;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.MethodDescriptor.Marshaller;
+import io.grpc.MethodDescriptor.MethodType;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.ServiceDescriptor;
+import io.grpc.Status;
+import io.grpc.protobuf.ProtoMethodDescriptorSupplier;
+import io.grpc.protobuf.ProtoServiceDescriptorSupplier;
+import io.grpc.protobuf.ProtoUtils;
+
+/**
+ * gRPC method and service descriptors for the services in a set of schemas, with
+ * {@link DynamicMessage} requests and responses, for servers and proxies that do not have
+ * generated classes. Everything is computed once, when this is created: every method gets
+ * a {@link MethodDescriptor} with the right {@link MethodType} (from the streaming
+ * flags), safe and idempotent flags (from the <code>idempotency_level</code> option) and
+ * a schema descriptor (so that <code>ProtoReflectionService</code> can find it), and
+ * every message type gets a single marshaller shared by all the methods that use it. The
+ * marshallers are the ones from <code>ProtoUtils</code>, which reuse a per-thread buffer
+ * when parsing and write straight to the transport when serializing. All the descriptors
+ * are immutable, so they can be shared by any number of threads and calls.
+ *
+ * <p>
+ * Requires <code>io.grpc:grpc-services</code> (or just <code>grpc-protobuf</code> and
+ * <code>grpc-stub</code>), which is an optional dependency.
+ * </p>
+ *
+ * <p>
+ * <strong>Usage:</strong>
+ * </p>
+ * <pre>
+ * DynamicServices services = new DynamicServices(parser.resolve(Path.of("echo.proto")));
+ * // Forward every call to the Echo service to a backend
+ * Server proxy = ServerBuilder.forPort(9090).addService(services.proxy("sample.Echo", backend)).build();
+ * // Or call it directly
+ * MethodDescriptor&lt;DynamicMessage, DynamicMessage&gt; echo = services.getMethod("sample.Echo/Echo");
+ * DynamicMessage response = ClientCalls.blockingUnaryCall(channel, echo, CallOptions.DEFAULT, request);
+ * </pre>
+ */
+public class DynamicServices {
+
+	private final Map<String, ServiceDescriptor> services = new LinkedHashMap<>();
+
+	private final Map<String, MethodDescriptor<DynamicMessage, DynamicMessage>> methods = new LinkedHashMap<>();
+
+	private final Map<Descriptor, Marshaller<DynamicMessage>> marshallers = new HashMap<>();
+
+	/**
+	 * Creates descriptors for all the services in a set of files.
+	 * @param input the files, with all their dependencies
+	 * @throws IllegalStateException if a file is invalid or has a missing dependency
+	 */
+	public DynamicServices(FileDescriptorSet input) {
+		this(new FileDescriptorManager().convert(input));
+	}
+
+	/**
+	 * Creates descriptors for all the services in the given files.
+	 * @param files the files
+	 */
+	public DynamicServices(FileDescriptor... files) {
+		for (FileDescriptor file : files) {
+			for (Descriptors.ServiceDescriptor service : file.getServices()) {
+				if (!this.services.containsKey(service.getFullName())) {
+					this.services.put(service.getFullName(), build(service));
+				}
+			}
+		}
+	}
+
+	/**
+	 * The fully qualified names of all the services.
+	 * @return the service names
+	 */
+	public Collection<String> getServiceNames() {
+		return Collections.unmodifiableSet(this.services.keySet());
+	}
+
+	/**
+	 * Finds a service by its fully qualified name.
+	 * @param name the service name, e.g. <code>sample.Echo</code>
+	 * @return the service descriptor, or null if there is no such service
+	 */
+	public ServiceDescriptor getService(String name) {
+		return this.services.get(name);
+	}
+
+	/**
+	 * Finds a method by its full gRPC name.
+	 * @param fullMethodName the method name, e.g. <code>sample.Echo/Echo</code>
+	 * @return the method descriptor, or null if there is no such method
+	 */
+	public MethodDescriptor<DynamicMessage, DynamicMessage> getMethod(String fullMethodName) {
+		return this.methods.get(fullMethodName);
+	}
+
+	/**
+	 * The marshaller for a message type, shared by all the methods that use it.
+	 * @param type the message type
+	 * @return the marshaller
+	 */
+	public synchronized Marshaller<DynamicMessage> getMarshaller(Descriptor type) {
+		return this.marshallers.computeIfAbsent(type,
+				(key) -> ProtoUtils.marshaller(DynamicMessage.getDefaultInstance(key)));
+	}
+
+	/**
+	 * Binds a service to handlers, one for each method.
+	 * @param service the fully qualified service name
+	 * @param handlers a function that returns the handler for each method
+	 * @return the service definition to add to a server
+	 * @throws IllegalArgumentException if there is no such service
+	 */
+	public ServerServiceDefinition bindService(String service,
+			Function<MethodDescriptor<DynamicMessage, DynamicMessage>, ServerCallHandler<DynamicMessage, DynamicMessage>> handlers) {
+		ServiceDescriptor descriptor = this.services.get(service);
+		if (descriptor == null) {
+			throw new IllegalArgumentException("Unknown service: " + service);
+		}
+		ServerServiceDefinition.Builder builder = ServerServiceDefinition.builder(descriptor);
+		for (MethodDescriptor<?, ?> method : descriptor.getMethods()) {
+			MethodDescriptor<DynamicMessage, DynamicMessage> dynamic = this.methods.get(method.getFullMethodName());
+			builder.addMethod(dynamic, handlers.apply(dynamic));
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Binds a service to handlers that forward every call to the same method on another
+	 * channel. Cancellation and deadlines are propagated to the forwarded call through
+	 * the gRPC context, and the status and trailers of the forwarded call are passed
+	 * back. Messages are forwarded with flow control in both directions: the proxy asks
+	 * for one message at a time, and only asks for the next one once the call it is
+	 * forwarding to is ready to send it, so a slow client or backend makes the proxy stop
+	 * reading instead of buffering.
+	 * @param service the fully qualified service name
+	 * @param target the channel to forward to
+	 * @return the service definition to add to a server
+	 * @throws IllegalArgumentException if there is no such service
+	 */
+	public ServerServiceDefinition proxy(String service, Channel target) {
+		return bindService(service, (method) -> (call,
+				headers) -> new ForwardingCall(call, target.newCall(method, CallOptions.DEFAULT)).start());
+	}
+
+	private ServiceDescriptor build(Descriptors.ServiceDescriptor service) {
+		ServiceDescriptor.Builder builder = ServiceDescriptor.newBuilder(service.getFullName())
+			.setSchemaDescriptor(new ServiceSchema(service));
+		for (Descriptors.MethodDescriptor method : service.getMethods()) {
+			IdempotencyLevel level = method.getOptions().getIdempotencyLevel();
+			MethodDescriptor<DynamicMessage, DynamicMessage> descriptor = MethodDescriptor
+				.<DynamicMessage, DynamicMessage>newBuilder()
+				.setType(type(method))
+				.setFullMethodName(MethodDescriptor.generateFullMethodName(service.getFullName(), method.getName()))
+				.setRequestMarshaller(getMarshaller(method.getInputType()))
+				.setResponseMarshaller(getMarshaller(method.getOutputType()))
+				.setSafe(level == IdempotencyLevel.NO_SIDE_EFFECTS)
+				.setIdempotent(level == IdempotencyLevel.NO_SIDE_EFFECTS || level == IdempotencyLevel.IDEMPOTENT)
+				.setSchemaDescriptor(new MethodSchema(method))
+				.build();
+			this.methods.put(descriptor.getFullMethodName(), descriptor);
+			builder.addMethod(descriptor);
+		}
+		return builder.build();
+	}
+
+	private static MethodType type(Descriptors.MethodDescriptor method) {
+		if (method.isClientStreaming()) {
+			return method.isServerStreaming() ? MethodType.BIDI_STREAMING : MethodType.CLIENT_STREAMING;
+		}
+		return method.isServerStreaming() ? MethodType.SERVER_STREAMING : MethodType.UNARY;
+	}
+
+	/**
+	 * One call forwarded from a server call to a client call. Each side is only asked for
+	 * a message once the previous one has been sent on, and the other side is ready for
+	 * more. If it is not ready yet, the request is held back until its
+	 * <code>onReady</code> callback.
+	 */
+	private static final class ForwardingCall extends ServerCall.Listener<DynamicMessage> {
+
+		private final ServerCall<DynamicMessage, DynamicMessage> server;
+
+		private final ClientCall<DynamicMessage, DynamicMessage> client;
+
+		private boolean requestPending;
+
+		private boolean responsePending;
+
+		ForwardingCall(ServerCall<DynamicMessage, DynamicMessage> server,
+				ClientCall<DynamicMessage, DynamicMessage> client) {
+			this.server = server;
+			this.client = client;
+		}
+
+		ServerCall.Listener<DynamicMessage> start() {
+			this.client.start(new Responses(), new Metadata());
+			this.server.request(1);
+			this.client.request(1);
+			return this;
+		}
+
+		@Override
+		public void onMessage(DynamicMessage message) {
+			this.client.sendMessage(message);
+			synchronized (this) {
+				if (this.client.isReady()) {
+					this.server.request(1);
+				}
+				else {
+					this.requestPending = true;
+				}
+			}
+		}
+
+		@Override
+		public void onHalfClose() {
+			this.client.halfClose();
+		}
+
+		@Override
+		public void onCancel() {
+			this.client.cancel("Server call cancelled", null);
+		}
+
+		@Override
+		public void onReady() {
+			synchronized (this) {
+				if (this.responsePending) {
+					this.responsePending = false;
+					this.client.request(1);
+				}
+			}
+		}
+
+		private final class Responses extends ClientCall.Listener<DynamicMessage> {
+
+			@Override
+			public void onHeaders(Metadata headers) {
+				ForwardingCall.this.server.sendHeaders(new Metadata());
+			}
+
+			@Override
+			public void onMessage(DynamicMessage message) {
+				ForwardingCall.this.server.sendMessage(message);
+				synchronized (ForwardingCall.this) {
+					if (ForwardingCall.this.server.isReady()) {
+						ForwardingCall.this.client.request(1);
+					}
+					else {
+						ForwardingCall.this.responsePending = true;
+					}
+				}
+			}
+
+			@Override
+			public void onClose(Status status, Metadata trailers) {
+				ForwardingCall.this.server.close(status, trailers);
+			}
+
+			@Override
+			public void onReady() {
+				synchronized (ForwardingCall.this) {
+					if (ForwardingCall.this.requestPending) {
+						ForwardingCall.this.requestPending = false;
+						ForwardingCall.this.server.request(1);
+					}
+				}
+			}
+
+		}
+
+	}
+
+	/**
+	 * The schema of a service, so that tools like reflection can find the protobuf
+	 * descriptors.
+	 */
+	private record ServiceSchema(Descriptors.ServiceDescriptor service) implements ProtoServiceDescriptorSupplier {
+
+		@Override
+		public FileDescriptor getFileDescriptor() {
+			return this.service.getFile();
+		}
+
+		@Override
+		public Descriptors.ServiceDescriptor getServiceDescriptor() {
+			return this.service;
+		}
+
+	}
+
+	/**
+	 * The schema of a method.
+	 */
+	private record MethodSchema(Descriptors.MethodDescriptor method) implements ProtoMethodDescriptorSupplier {
+
+		@Override
+		public FileDescriptor getFileDescriptor() {
+			return this.method.getFile();
+		}
+
+		@Override
+		public Descriptors.ServiceDescriptor getServiceDescriptor() {
+			return this.method.getService();
+		}
+
+		@Override
+		public Descriptors.MethodDescriptor getMethodDescriptor() {
+			return this.method;
+		}
+
+	}
+
+}
@@ -0,0 +1,580 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor.Type;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
+
+/**
+ * A decoder that reads only selected fields of a message type, compiled from its
+ * {@link Descriptor} and a set of field paths (field names separated by dots, e.g.
+ * <code>user.id</code>). Every other field, including whole nested messages that contain
+ * no selected field, is skipped by its wire length without being decoded. The values of
+ * each path are appended, one row per record, to a {@link Column} that keeps scalars as
+ * unboxed raw bits (see {@link MessageCodec} for the encoding).
+ *
+ * <p>
+ * Paths must lead through singular message fields to a singular non-message field. When a
+ * field appears more than once in a record the last value wins, as it would when parsing
+ * the full message.
+ * </p>
+ *
+ * <p>
+ * <strong>Usage:</strong>
+ * </p>
+ * <pre>
+ * FieldProjection projection = FieldProjection.compile(descriptor, "id", "user.name");
+ * FieldProjection.Columns columns = projection.newColumns();
+ * for (byte[] record : records) {
+ *     projection.decode(record, columns);
+ * }
+ * LongList ids = columns.getColumn("id").getLongs();
+ * </pre>
+ */
+public final class FieldProjection {
+
+	private static final int MAX_DENSE_FIELD_NUMBER = 1024;
+
+	// The same as the default recursion limit of CodedInputStream
+	private static final int MAX_DEPTH = 100;
+
+	private final Descriptor descriptor;
+
+	private final Node root;
+
+	private final Step[] leaves;
+
+	private FieldProjection(Descriptor descriptor, Node root, Step[] leaves) {
+		this.descriptor = descriptor;
+		this.root = root;
+		this.leaves = leaves;
+	}
+
+	/**
+	 * Compiles a projection of the given message type.
+	 * @param descriptor the message type
+	 * @param paths the field paths to select
+	 * @return a projection that decodes only the selected fields
+	 * @throws IllegalArgumentException if a path does not exist or cannot be projected
+	 */
+	public static FieldProjection compile(Descriptor descriptor, String... paths) {
+		return compile(descriptor, Arrays.asList(paths));
+	}
+
+	/**
+	 * Compiles a projection of the given message type.
+	 * @param descriptor the message type
+	 * @param paths the field paths to select
+	 * @return a projection that decodes only the selected fields
+	 * @throws IllegalArgumentException if a path does not exist or cannot be projected
+	 */
+	public static FieldProjection compile(Descriptor descriptor, Collection<String> paths) {
+		Builder root = new Builder();
+		List<Step> leaves = new ArrayList<>();
+		for (String path : new LinkedHashSet<>(paths)) {
+			Builder node = root;
+			Descriptor type = descriptor;
+			String[] names = path.split("\\.");
+			for (int i = 0; i < names.length; i++) {
+				FieldDescriptor field = type.findFieldByName(names[i]);
+				if (field == null) {
+					throw new IllegalArgumentException("Unknown field: " + path);
+				}
+				if (field.isRepeated() || field.getType() == Type.GROUP) {
+					throw new IllegalArgumentException("Cannot project repeated field: " + path);
+				}
+				boolean leaf = i == names.length - 1;
+				if (leaf == (field.getType() == Type.MESSAGE)) {
+					throw new IllegalArgumentException(
+							(leaf ? "Cannot project message field: " : "Not a message field: ") + path);
+				}
+				if (leaf) {
+					Step step = new Step(field, path, leaves.size());
+					node.steps.put(field.getNumber(), step);
+					leaves.add(step);
+				}
+				else {
+					node = node.children.computeIfAbsent(field, key -> new Builder());
+					type = field.getMessageType();
+				}
+			}
+		}
+		return new FieldProjection(descriptor, root.build(), leaves.toArray(new Step[0]));
+	}
+
+	/**
+	 * The message type of this projection.
+	 * @return the descriptor
+	 */
+	public Descriptor getDescriptor() {
+		return this.descriptor;
+	}
+
+	/**
+	 * The selected field paths, in the order they were given.
+	 * @return the paths
+	 */
+	public List<String> getPaths() {
+		List<String> paths = new ArrayList<>();
+		for (Step leaf : this.leaves) {
+			paths.add(leaf.path);
+		}
+		return Collections.unmodifiableList(paths);
+	}
+
+	/**
+	 * Creates an empty set of columns to decode into, one per selected path.
+	 * @return new columns
+	 */
+	public Columns newColumns() {
+		return new Columns(this);
+	}
+
+	/**
+	 * Decodes the selected fields of a serialized message and appends them as a row.
+	 * @param bytes the serialized message
+	 * @param columns the columns to append to
+	 */
+	public void decode(byte[] bytes, Columns columns) {
+		decode(CodedInputStream.newInstance(bytes), columns);
+	}
+
+	/**
+	 * Decodes the selected fields of a serialized message, from the current position to
+	 * the limit of the buffer, and appends them as a row.
+	 * @param buffer the serialized message
+	 * @param columns the columns to append to
+	 */
+	public void decode(ByteBuffer buffer, Columns columns) {
+		decode(CodedInputStream.newInstance(buffer), columns);
+	}
+
+	/**
+	 * Decodes the selected fields of a serialized message, reading the input until it is
+	 * exhausted (or its current limit is reached), and appends them as a row. If the
+	 * input is malformed no row is appended.
+	 * @param input the input to read from
+	 * @param columns the columns to append to
+	 */
+	public void decode(CodedInputStream input, Columns columns) {
+		if (columns.projection != this) {
+			throw new IllegalArgumentException("Columns belong to a different projection");
+		}
+		columns.reset();
+		try {
+			read(this.root, input, columns, 0);
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Failed to decode: " + this.descriptor.getFullName(), e);
+		}
+		columns.append();
+	}
+
+	private void read(Node node, CodedInputStream input, Columns columns, int depth) throws IOException {
+		if (depth > MAX_DEPTH) {
+			throw new InvalidProtocolBufferException("Message nested too deeply: " + this.descriptor.getFullName());
+		}
+		int tag;
+		while ((tag = input.readTag()) != 0) {
+			Step step = node.find(WireFormat.getTagFieldNumber(tag));
+			if (step == null || WireFormat.getTagWireType(tag) != step.wireType) {
+				if (!input.skipField(tag)) {
+					break;
+				}
+				continue;
+			}
+			if (step.child != null) {
+				int limit = input.pushLimit(input.readRawVarint32());
+				read(step.child, input, columns, depth + 1);
+				input.checkLastTagWas(0);
+				input.popLimit(limit);
+				continue;
+			}
+			if (step.type == Type.STRING) {
+				columns.references[step.column] = step.utf8 ? input.readStringRequireUtf8() : input.readString();
+			}
+			else if (step.type == Type.BYTES) {
+				columns.references[step.column] = input.readBytes();
+			}
+			else {
+				columns.scalars[step.column] = WireScalars.read(input, step.type);
+			}
+			columns.present[step.column] = true;
+		}
+	}
+
+	/**
+	 * The decoded values of all the selected paths, one {@link Column} per path. Not
+	 * thread-safe: use one instance per thread.
+	 */
+	public static final class Columns {
+
+		private final FieldProjection projection;
+
+		private final Column[] columns;
+
+		private final Map<String, Column> paths = new LinkedHashMap<>();
+
+		private final long[] scalars;
+
+		private final Object[] references;
+
+		private final boolean[] present;
+
+		private int size;
+
+		private Columns(FieldProjection projection) {
+			this.projection = projection;
+			int count = projection.leaves.length;
+			this.columns = new Column[count];
+			this.scalars = new long[count];
+			this.references = new Object[count];
+			this.present = new boolean[count];
+			for (int i = 0; i < count; i++) {
+				this.columns[i] = new Column(projection.leaves[i]);
+				this.paths.put(projection.leaves[i].path, this.columns[i]);
+			}
+		}
+
+		/**
+		 * The column for a selected path.
+		 * @param path the field path
+		 * @return the column, or null if the path was not selected
+		 */
+		public Column getColumn(String path) {
+			return this.paths.get(path);
+		}
+
+		/**
+		 * All the columns, in the order their paths were given.
+		 * @return the columns
+		 */
+		public List<Column> getColumns() {
+			return Collections.unmodifiableList(Arrays.asList(this.columns));
+		}
+
+		/**
+		 * The number of rows decoded so far.
+		 * @return the number of rows
+		 */
+		public int size() {
+			return this.size;
+		}
+
+		/**
+		 * Removes all rows, keeping the allocated capacity.
+		 */
+		public void clear() {
+			for (Column column : this.columns) {
+				column.clear();
+			}
+			this.size = 0;
+		}
+
+		private void reset() {
+			for (int i = 0; i < this.columns.length; i++) {
+				this.scalars[i] = this.columns[i].defaultBits;
+				this.references[i] = this.columns[i].defaultValue;
+				this.present[i] = false;
+			}
+		}
+
+		private void append() {
+			for (int i = 0; i < this.columns.length; i++) {
+				this.columns[i].add(this.size, this.scalars[i], this.references[i], this.present[i]);
+			}
+			this.size++;
+		}
+
+	}
+
+	/**
+	 * The values of one selected path, one row per decoded record. Rows where the field
+	 * was not on the wire hold its default value.
+	 */
+	public static final class Column {
+
+		private final String path;
+
+		private final FieldDescriptor descriptor;
+
+		private final boolean scalar;
+
+		private final long defaultBits;
+
+		private final Object defaultValue;
+
+		private final LongList scalars = new LongList();
+
+		private final List<Object> references = new ArrayList<>();
+
+		private final BitSet present = new BitSet();
+
+		private Column(Step leaf) {
+			this.path = leaf.path;
+			this.descriptor = leaf.field;
+			this.scalar = WireScalars.isScalar(leaf.type);
+			this.defaultBits = this.scalar ? WireScalars.bits(leaf.field.getDefaultValue()) : 0;
+			this.defaultValue = this.scalar ? null : leaf.field.getDefaultValue();
+		}
+
+		/**
+		 * The field path of this column.
+		 * @return the path
+		 */
+		public String getPath() {
+			return this.path;
+		}
+
+		/**
+		 * The descriptor of the field at the end of the path.
+		 * @return the field descriptor
+		 */
+		public FieldDescriptor getDescriptor() {
+			return this.descriptor;
+		}
+
+		/**
+		 * The number of rows in the column.
+		 * @return the number of rows
+		 */
+		public int size() {
+			return this.scalar ? this.scalars.size() : this.references.size();
+		}
+
+		/**
+		 * Whether the field was on the wire for a row.
+		 * @param row the row
+		 * @return true if the field was present
+		 */
+		public boolean isPresent(int row) {
+			checkRow(row);
+			return this.present.get(row);
+		}
+
+		/**
+		 * All the raw bits of a scalar column, for bulk access without boxing.
+		 * @return the values
+		 */
+		public LongList getLongs() {
+			checkScalar();
+			return this.scalars;
+		}
+
+		/**
+		 * The raw bits of a scalar value.
+		 * @param row the row
+		 * @return the raw value
+		 */
+		public long getLong(int row) {
+			checkScalar();
+			return this.scalars.get(row);
+		}
+
+		/**
+		 * The value of a 32-bit integer or enum field.
+		 * @param row the row
+		 * @return the value
+		 */
+		public int getInt(int row) {
+			return (int) getLong(row);
+		}
+
+		/**
+		 * The value of a boolean field.
+		 * @param row the row
+		 * @return the value
+		 */
+		public boolean getBoolean(int row) {
+			return getLong(row) != 0;
+		}
+
+		/**
+		 * The value of a float field.
+		 * @param row the row
+		 * @return the value
+		 */
+		public float getFloat(int row) {
+			return Float.intBitsToFloat((int) getLong(row));
+		}
+
+		/**
+		 * The value of a double field.
+		 * @param row the row
+		 * @return the value
+		 */
+		public double getDouble(int row) {
+			return Double.longBitsToDouble(getLong(row));
+		}
+
+		/**
+		 * The value of a string field.
+		 * @param row the row
+		 * @return the value
+		 */
+		public String getString(int row) {
+			return (String) getReference(row);
+		}
+
+		/**
+		 * The value of a bytes field.
+		 * @param row the row
+		 * @return the value
+		 */
+		public ByteString getBytes(int row) {
+			return (ByteString) getReference(row);
+		}
+
+		private Object getReference(int row) {
+			if (this.scalar) {
+				throw new IllegalStateException("Scalar field: " + this.path);
+			}
+			return this.references.get(row);
+		}
+
+		private void add(int row, long bits, Object value, boolean present) {
+			if (this.scalar) {
+				this.scalars.add(bits);
+			}
+			else {
+				this.references.add(value);
+			}
+			this.present.set(row, present);
+		}
+
+		private void clear() {
+			this.scalars.clear();
+			this.references.clear();
+			this.present.clear();
+		}
+
+		private void checkRow(int row) {
+			if (row < 0 || row >= size()) {
+				throw new IndexOutOfBoundsException(row);
+			}
+		}
+
+		private void checkScalar() {
+			if (!this.scalar) {
+				throw new IllegalStateException("Not a scalar field: " + this.path);
+			}
+		}
+
+	}
+
+	private static final class Step {
+
+		private final FieldDescriptor field;
+
+		private final Type type;
+
+		private final int wireType;
+
+		private final boolean utf8;
+
+		private final String path;
+
+		private final int column;
+
+		private final Node child;
+
+		private Step(FieldDescriptor field, String path, int column) {
+			this(field, path, column, null);
+		}
+
+		private Step(FieldDescriptor field, String path, int column, Node child) {
+			this.field = field;
+			this.type = field.getType();
+			this.wireType = WireScalars.wireType(this.type);
+			this.utf8 = "proto3".equals(field.getFile().toProto().getSyntax());
+			this.path = path;
+			this.column = column;
+			this.child = child;
+		}
+
+	}
+
+	private static final class Node {
+
+		private final Step[] dense;
+
+		private final int[] numbers;
+
+		private final Step[] sorted;
+
+		private Node(Map<Integer, Step> steps) {
+			this.numbers = new int[steps.size()];
+			this.sorted = new Step[steps.size()];
+			int i = 0;
+			for (Map.Entry<Integer, Step> entry : steps.entrySet()) {
+				this.numbers[i] = entry.getKey();
+				this.sorted[i++] = entry.getValue();
+			}
+			int max = this.numbers.length == 0 ? 0 : this.numbers[this.numbers.length - 1];
+			if (max <= MAX_DENSE_FIELD_NUMBER) {
+				this.dense = new Step[max + 1];
+				for (Step step : this.sorted) {
+					this.dense[step.field.getNumber()] = step;
+				}
+			}
+			else {
+				this.dense = null;
+			}
+		}
+
+		private Step find(int number) {
+			if (this.dense != null) {
+				return number < this.dense.length ? this.dense[number] : null;
+			}
+			int index = Arrays.binarySearch(this.numbers, number);
+			return index < 0 ? null : this.sorted[index];
+		}
+
+	}
+
+	private static final class Builder {
+
+		private final Map<Integer, Step> steps = new TreeMap<>();
+
+		private final Map<FieldDescriptor, Builder> children = new LinkedHashMap<>();
+
+		private Node build() {
+			this.children.forEach((field, child) -> this.steps.put(field.getNumber(),
+					new Step(field, field.getFullName(), -1, child.build())));
+			return new Node(this.steps);
+		}
+
+	}
+
+}
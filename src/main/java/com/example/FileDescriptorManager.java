@@ -15,11 +15,15 @@
  */
 package com.example;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
 import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
-import com.google.protobuf.Descriptors.DescriptorValidationException;
 import com.google.protobuf.Descriptors.FileDescriptor;
-import com.google.protobuf.ProtocolStringList;
 
 /**
  * The {@code FileDescriptorManager} class provides functionality to convert
@@ -27,6 +31,16 @@ import com.google.protobuf.ProtocolStringList;
  * dependencies between file descriptors within the set.
  *
  * <p>
+ * A manager remembers the descriptors that it has converted, keyed by file name and
+ * {@link SchemaFingerprint transitive fingerprint}, so converting a set again reuses the
+ * descriptors for files that (including their dependencies) have not changed, and a set
+ * where nothing has changed is not validated again at all. A fingerprint match is only a
+ * pre-check: a descriptor is reused only if its file is equal to the new one and its
+ * dependencies are the descriptors being reused for them. The manager keeps the most
+ * recently used descriptors, up to a fixed number of files.
+ * </p>
+ *
+ * <p>
  * <strong>Usage:</strong>
  * </p>
  * <pre>
@@ -36,46 +50,217 @@ import com.google.protobuf.ProtocolStringList;
  */
 public class FileDescriptorManager {
 
+	private static final int DEFAULT_CAPACITY = 1024;
+
+	private final Map<String, Entry> converted;
+
+	private final SchemaMetrics metrics;
+
+	/**
+	 * Creates a manager that does not report any metrics.
+	 */
+	public FileDescriptorManager() {
+		this(SchemaMetrics.NONE);
+	}
+
+	/**
+	 * Creates a manager that reports the time taken to build each file, and hits and
+	 * misses for previously converted files, to the given metrics.
+	 * @param metrics the metrics to report to
+	 */
+	public FileDescriptorManager(SchemaMetrics metrics) {
+		this(metrics, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a manager that reports to the given metrics and remembers the descriptors
+	 * of at most the given number of files (the least recently used are dropped first).
+	 * @param metrics the metrics to report to
+	 * @param capacity the maximum number of converted files to remember
+	 */
+	public FileDescriptorManager(SchemaMetrics metrics, int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("Invalid capacity: " + capacity);
+		}
+		this.metrics = metrics;
+		this.converted = Collections.synchronizedMap(new LruMap<>(capacity));
+	}
+
+	/**
+	 * Converts all the files in the set, validating and building each one. Files that are
+	 * shared dependencies are only built once, and files that were converted before by
+	 * this manager with the same transitive fingerprint are not built again.
+	 * @param input the files to convert
+	 * @return the converted files, in the same order as the input
+	 * @throws IllegalStateException if a file is invalid or has a missing dependency
+	 */
 	public FileDescriptor[] convert(FileDescriptorSet input) {
+		Map<String, FileDescriptorProto> protos = new LinkedHashMap<>();
+		Map<String, String> packages = new LinkedHashMap<>();
+		for (FileDescriptorProto file : input.getFileList()) {
+			if (protos.putIfAbsent(file.getName(), file) == null) {
+				packages.put(file.getName(), file.getPackage());
+			}
+		}
+		Fingerprints fingerprints = new Fingerprints(protos);
+		Map<String, FileDescriptor> reused = new HashMap<>();
+		Map<String, Boolean> checked = new HashMap<>();
+		for (String name : protos.keySet()) {
+			if (reusable(name, protos, fingerprints, reused, checked)) {
+				this.metrics.cacheHit("converter", name);
+			}
+			else {
+				this.metrics.cacheMiss("converter", name);
+			}
+		}
 		FileDescriptor[] output = new FileDescriptor[input.getFileCount()];
+		LazyFileDescriptorSet files = reused.size() < protos.size()
+				? new LazyFileDescriptorSet(packages, protos::get, reused, this.metrics) : null;
 		for (int i = 0; i < input.getFileCount(); i++) {
-			try {
-				FileDescriptorProto file = input.getFile(i);
-				FileDescriptor fd = FileDescriptor.buildFrom(file, dependencies(input, file.getDependencyList()));
-				output[i] = fd;
-			}
-			catch (DescriptorValidationException e) {
-				throw new IllegalStateException("Invalid descriptor: " + input.getFile(i).getName(), e);
+			String name = input.getFile(i).getName();
+			output[i] = files != null ? files.findFileByName(name) : reused.get(name);
+			Long fingerprint = fingerprints.transitive(name);
+			if (fingerprint != null && !reused.containsKey(name)) {
+				this.converted.put(name,
+						new Entry(protos.get(name), fingerprints.structural(name), fingerprint, output[i]));
 			}
 		}
 		return output;
 	}
 
-	private FileDescriptor[] dependencies(FileDescriptorSet input, ProtocolStringList list) {
-		FileDescriptor[] deps = new FileDescriptor[list.size()];
-		for (int i = 0; i < list.size(); i++) {
-			String name = list.get(i);
-			FileDescriptorProto file = findFileByName(input, name);
-			if (file == null) {
-				throw new IllegalStateException("Missing dependency: " + name);
-			}
-			try {
-				deps[i] = FileDescriptor.buildFrom(file, dependencies(input, file.getDependencyList()));
-			}
-			catch (DescriptorValidationException e) {
-				throw new IllegalStateException("Invalid descriptor: " + file.getName(), e);
+	/**
+	 * Whether the descriptor converted before for a file can be reused, adding it to the
+	 * reused descriptors if so. Fingerprints are not collision resistant, so a match is
+	 * confirmed by comparing the files, and a file is only reused if all its dependencies
+	 * are.
+	 */
+	private boolean reusable(String name, Map<String, FileDescriptorProto> protos, Fingerprints fingerprints,
+			Map<String, FileDescriptor> reused, Map<String, Boolean> checked) {
+		Boolean result = checked.get(name);
+		if (result != null) {
+			return result;
+		}
+		// Not reusable while it is being checked, in case of a cycle
+		checked.put(name, false);
+		result = false;
+		Long fingerprint = fingerprints.transitive(name);
+		Entry entry = this.converted.get(name);
+		FileDescriptorProto proto = protos.get(name);
+		if (fingerprint != null && entry != null && entry.transitive() == fingerprint && entry.proto().equals(proto)) {
+			List<FileDescriptor> dependencies = entry.descriptor().getDependencies();
+			result = dependencies.size() == proto.getDependencyCount();
+			for (int i = 0; result && i < dependencies.size(); i++) {
+				String dependency = proto.getDependency(i);
+				result = reusable(dependency, protos, fingerprints, reused, checked)
+						&& reused.get(dependency) == dependencies.get(i);
 			}
 		}
-		return deps;
+		if (result) {
+			reused.put(name, entry.descriptor());
+		}
+		checked.put(name, result);
+		return result;
 	}
 
-	private FileDescriptorProto findFileByName(FileDescriptorSet input, String name) {
+	/**
+	 * Creates a view of the set that converts files on demand, so that only the files
+	 * that are actually used (and their dependencies) are validated and built. Use
+	 * {@link #convert(FileDescriptorSet)} instead to validate the whole set eagerly.
+	 * @param input the files to convert
+	 * @return a lazy view of the converted files
+	 */
+	public LazyFileDescriptorSet lazy(FileDescriptorSet input) {
+		Map<String, FileDescriptorProto> files = new LinkedHashMap<>();
+		Map<String, String> packages = new LinkedHashMap<>();
 		for (FileDescriptorProto file : input.getFileList()) {
-			if (file.getName().equals(name)) {
-				return file;
+			if (files.putIfAbsent(file.getName(), file) == null) {
+				packages.put(file.getName(), file.getPackage());
 			}
 		}
-		return null;
+		return new LazyFileDescriptorSet(packages, files::get, Collections.emptyMap(), this.metrics);
+	}
+
+	/**
+	 * A map that drops the least recently used entry when it grows past its capacity. A
+	 * named class (rather than an anonymous one) so that it can be listed for build-time
+	 * initialization in the native image metadata.
+	 */
+	private static final class LruMap<K, V> extends LinkedHashMap<K, V> {
+
+		private final int capacity;
+
+		LruMap(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+			return size() > this.capacity;
+		}
+
+	}
+
+	private record Entry(FileDescriptorProto proto, long fingerprint, long transitive, FileDescriptor descriptor) {
+	}
+
+	/**
+	 * The fingerprints of the files in a set, computed on demand.
+	 */
+	private final class Fingerprints {
+
+		private final Map<String, FileDescriptorProto> protos;
+
+		private final Map<String, Long> structural = new HashMap<>();
+
+		private final Map<String, Long> transitive = new HashMap<>();
+
+		private Fingerprints(Map<String, FileDescriptorProto> protos) {
+			this.protos = protos;
+		}
+
+		private long structural(String name) {
+			Long result = this.structural.get(name);
+			if (result == null) {
+				FileDescriptorProto proto = this.protos.get(name);
+				Entry entry = FileDescriptorManager.this.converted.get(name);
+				// Parsers hand out the same instance for an unchanged file, so there is
+				// no need to serialize it again
+				result = (entry != null && entry.proto() == proto) ? entry.fingerprint() : SchemaFingerprint.of(proto);
+				this.structural.put(name, result);
+			}
+			return result;
+		}
+
+		/**
+		 * The transitive fingerprint of a file, or null if it (or one of its
+		 * dependencies) is missing from the set.
+		 */
+		private Long transitive(String name) {
+			if (this.transitive.containsKey(name)) {
+				return this.transitive.get(name);
+			}
+			Long result = compute(name);
+			this.transitive.put(name, result);
+			return result;
+		}
+
+		private Long compute(String name) {
+			FileDescriptorProto proto = this.protos.get(name);
+			if (proto == null) {
+				return null;
+			}
+			long[] dependencies = new long[proto.getDependencyCount()];
+			for (int i = 0; i < dependencies.length; i++) {
+				Long dependency = transitive(proto.getDependency(i));
+				if (dependency == null) {
+					return null;
+				}
+				dependencies[i] = dependency;
+			}
+			return SchemaFingerprint.transitive(structural(name), dependencies);
+		}
+
 	}
 
 }
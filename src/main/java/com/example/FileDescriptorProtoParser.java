@@ -19,33 +19,62 @@ package com.example;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import org.antlr.v4.runtime.BaseErrorListener;
 import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ParserRuleContext;
 import org.antlr.v4.runtime.RecognitionException;
 import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.tree.TerminalNode;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 
+import com.example.ProtobufParser.ConstantContext;
 import com.example.ProtobufParser.EnumDefContext;
+import com.example.ProtobufParser.EnumElementContext;
 import com.example.ProtobufParser.EnumFieldContext;
+import com.example.ProtobufParser.EnumValueOptionContext;
+import com.example.ProtobufParser.ExtendDefContext;
 import com.example.ProtobufParser.FieldContext;
 import com.example.ProtobufParser.FieldLabelContext;
+import com.example.ProtobufParser.FieldNameContext;
+import com.example.ProtobufParser.FieldNumberContext;
+import com.example.ProtobufParser.FieldOptionContext;
+import com.example.ProtobufParser.FieldOptionsContext;
 import com.example.ProtobufParser.ImportStatementContext;
+import com.example.ProtobufParser.MapFieldContext;
+import com.example.ProtobufParser.MessageDefContext;
+import com.example.ProtobufParser.MessageElementContext;
+import com.example.ProtobufParser.MessageTypeContext;
+import com.example.ProtobufParser.OneofContext;
+import com.example.ProtobufParser.OneofFieldContext;
+import com.example.ProtobufParser.OptionNameContext;
+import com.example.ProtobufParser.OptionStatementContext;
 import com.example.ProtobufParser.PackageStatementContext;
+import com.example.ProtobufParser.ProtoContext;
 import com.example.ProtobufParser.RpcContext;
 import com.example.ProtobufParser.ServiceDefContext;
 import com.example.ProtobufParser.TypeContext;
+import com.google.protobuf.DescriptorProtos;
 import com.google.protobuf.DescriptorProtos.DescriptorProto;
 import com.google.protobuf.DescriptorProtos.EnumDescriptorProto;
 import com.google.protobuf.DescriptorProtos.EnumValueDescriptorProto;
@@ -53,8 +82,12 @@ import com.google.protobuf.DescriptorProtos.FieldDescriptorProto;
 import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
 import com.google.protobuf.DescriptorProtos.FileDescriptorProto.Builder;
 import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.DescriptorProtos.MessageOptions;
 import com.google.protobuf.DescriptorProtos.MethodDescriptorProto;
+import com.google.protobuf.DescriptorProtos.OneofDescriptorProto;
 import com.google.protobuf.DescriptorProtos.ServiceDescriptorProto;
+import com.google.protobuf.DescriptorProtos.SourceCodeInfo;
+import com.google.protobuf.Message;
 
 /**
  * A parser for Protocol Buffers (.proto) files that can parse, resolve
@@ -75,7 +108,10 @@ import com.google.protobuf.DescriptorProtos.ServiceDescriptorProto;
  * <li>Resolves dependencies between .proto files.</li>
  * <li>Supports parsing from strings, input streams, and file paths.</li>
  * <li>Handles imports and package definitions in .proto files.</li>
- * <li>Maintains a cache of parsed files to avoid redundant parsing.</li>
+ * <li>Maintains a cache of parsed files to avoid redundant parsing. A file is
+ * only parsed again if its source changes.</li>
+ * <li>Optionally records the locations and comments of declarations as
+ * {@link SourceCodeInfo}, computed only when it is requested.</li>
  * </ul>
  *
  * <p>
@@ -119,12 +155,61 @@ public class FileDescriptorProtoParser {
 
 	private Map<String, FileDescriptorProto> cache = new HashMap<>();
 
+	private Map<String, Source> sources = new HashMap<>();
+
+	private Map<String, Long> fingerprints = new HashMap<>();
+
 	private Set<String> enumNames = new HashSet<>();
 
+	private Map<String, SourceCodeInfoBuilder> locations = new HashMap<>();
+
+	private boolean sourceCodeInfo;
+
+	private final DependencyIndex dependencies = new DependencyIndex();
+
 	private final Path base;
 
-	private static final boolean IS_SPRING = FileDescriptorProtoParser.class.getClassLoader()
-			.getResource("org/springframework/core/io/support/PathMatchingResourcePatternResolver.class") != null;
+	private final SchemaMetrics metrics;
+
+	// Class files are not resources in a native image, so look for the class itself
+	private static final boolean IS_SPRING = isPresent(
+			"org.springframework.core.io.support.PathMatchingResourcePatternResolver");
+
+	/**
+	 * A SHA-256 digest of the code points of some source text, read from the start
+	 * without consuming it, in chunks so that the text is not copied.
+	 */
+	private static byte[] digest(CharStream stream) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("No SHA-256 digest available", e);
+		}
+		byte[] buffer = new byte[3 * 4096];
+		int length = 0;
+		for (int i = 1; i <= stream.size(); i++) {
+			int c = stream.LA(i);
+			buffer[length++] = (byte) (c >> 16);
+			buffer[length++] = (byte) (c >> 8);
+			buffer[length++] = (byte) c;
+			if (length == buffer.length) {
+				digest.update(buffer, 0, length);
+				length = 0;
+			}
+		}
+		digest.update(buffer, 0, length);
+		return digest.digest();
+	}
+
+	private static boolean isPresent(String className) {
+		try {
+			Class.forName(className, false, FileDescriptorProtoParser.class.getClassLoader());
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
 
 	/**
 	 * Constructs a new {@code FileDescriptorProtoParser} with a default path. This
@@ -144,7 +229,24 @@ public class FileDescriptorProtoParser {
 	 * @param base the base path to be used by the parser
 	 */
 	public FileDescriptorProtoParser(Path base) {
+		this(base, SchemaMetrics.NONE);
+	}
+
+	/**
+	 * Constructs a new {@code FileDescriptorProtoParser} with the specified base
+	 * path, reporting the duration of each stage of parsing, cache hits and bytes
+	 * read to the given metrics.
+	 * 
+	 * @param base    the base path to be used by the parser
+	 * @param metrics the metrics to report to
+	 */
+	public FileDescriptorProtoParser(Path base, SchemaMetrics metrics) {
 		this.base = base;
+		this.metrics = metrics;
+		// Needed for custom options, and written in proto2 so it can't be parsed here
+		FileDescriptorProto options = DescriptorProtos.getDescriptor().toProto();
+		this.cache.put(options.getName(), options);
+		this.dependencies.add(options);
 	}
 
 	/**
@@ -174,7 +276,7 @@ public class FileDescriptorProtoParser {
 	 */
 	public FileDescriptorProto parse(String name, InputStream input) {
 		try {
-			return parse(name, CharStreams.fromStream(input));
+			return parse(name, read(name, SchemaStageEvent.start(metrics), input));
 		} catch (IOException e) {
 			throw new IllegalStateException("Failed to read input stream: " + input, e);
 		}
@@ -193,11 +295,49 @@ public class FileDescriptorProtoParser {
 	 */
 	public FileDescriptorSet resolve(FileDescriptorProto... inputs) {
 		FileDescriptorSet.Builder builder = FileDescriptorSet.newBuilder();
+		resolve(builder::addFile, inputs);
+		return builder.build();
+	}
+
+	/**
+	 * Resolves a set of {@link FileDescriptorProto} inputs, passing each resolved
+	 * file to the consumer as soon as its dependencies have been passed, instead
+	 * of collecting them into a {@link FileDescriptorSet}. The consumer sees the
+	 * same files in the same order as {@link #resolve(FileDescriptorProto...)}
+	 * would add them.
+	 * 
+	 * @see FileDescriptorSetWriter for writing the files to a stream
+	 * @param consumer the consumer of resolved files, in dependency order
+	 * @param inputs   an array of {@link FileDescriptorProto} objects to be
+	 *                 resolved
+	 * @throws IllegalArgumentException if the there are unresolved dependencies
+	 */
+	public void resolve(Consumer<FileDescriptorProto> consumer, FileDescriptorProto... inputs) {
 		Set<String> names = new HashSet<>();
 		for (FileDescriptorProto input : inputs) {
-			resolve(builder, input, names);
+			resolve(consumer, input, names);
 		}
-		return builder.build();
+	}
+
+	/**
+	 * Resolves each of the given {@link FileDescriptorProto} inputs into its own
+	 * {@link FileDescriptorSet}, in the same order as the inputs. The result for
+	 * each input is the same as calling {@link #resolve(FileDescriptorProto...)}
+	 * with that input alone, but the transitive closure of every file is computed
+	 * once and shared, so dependencies common to many inputs are only traversed
+	 * once.
+	 * 
+	 * @param inputs an array of {@link FileDescriptorProto} objects to be resolved
+	 * @return an array of {@link FileDescriptorSet}, one per input
+	 * @throws IllegalArgumentException if the there are unresolved dependencies
+	 */
+	public FileDescriptorSet[] resolveEach(FileDescriptorProto... inputs) {
+		Map<String, List<FileDescriptorProto>> closures = new HashMap<>();
+		FileDescriptorSet[] result = new FileDescriptorSet[inputs.length];
+		for (int i = 0; i < inputs.length; i++) {
+			result[i] = FileDescriptorSet.newBuilder().addAllFile(closure(inputs[i], closures)).build();
+		}
+		return result;
 	}
 
 	/**
@@ -218,7 +358,7 @@ public class FileDescriptorProtoParser {
 	 */
 	public FileDescriptorSet resolve(String name, InputStream input) {
 		try {
-			FileDescriptorProto proto = parse(name, CharStreams.fromStream(input));
+			FileDescriptorProto proto = parse(name, read(name, SchemaStageEvent.start(metrics), input));
 			return resolve(proto);
 		} catch (IOException e) {
 			throw new IllegalStateException("Failed to read input stream: " + input, e);
@@ -277,7 +417,128 @@ public class FileDescriptorProtoParser {
 		return builder.build();
 	}
 
-	private void resolve(FileDescriptorSet.Builder builder, FileDescriptorProto proto, Set<String> names) {
+	/**
+	 * The structural fingerprint of a file that has been parsed (or imported) by
+	 * this parser. It only depends on the content of the file, not on its
+	 * dependencies.
+	 * 
+	 * @see SchemaFingerprint#of(FileDescriptorProto)
+	 * @param name the name of the file
+	 * @return the fingerprint
+	 * @throws IllegalArgumentException if the file has not been parsed
+	 */
+	public long fingerprint(String name) {
+		FileDescriptorProto proto = cache.get(name);
+		if (proto == null) {
+			throw new IllegalArgumentException("Unknown file: " + name);
+		}
+		return fingerprints.computeIfAbsent(name, key -> SchemaFingerprint.of(proto));
+	}
+
+	/**
+	 * The transitive fingerprint of a file that has been parsed by this parser,
+	 * which covers the file and all its dependencies. If it has not changed since
+	 * a {@link com.google.protobuf.Descriptors.FileDescriptor} was built for the
+	 * file, that descriptor can be reused.
+	 * 
+	 * @see SchemaFingerprint#transitive(long, long...)
+	 * @param name the name of the file
+	 * @return the fingerprint
+	 * @throws IllegalArgumentException if the file has not been parsed or there are
+	 *                                  unresolved dependencies
+	 */
+	public long transitiveFingerprint(String name) {
+		return transitiveFingerprint(name, new HashMap<>());
+	}
+
+	/**
+	 * Whether to keep what is needed to compute the {@link SourceCodeInfo} (locations
+	 * and comments) of the files parsed from now on. It is off by default, because
+	 * it keeps the tokens and parse tree of every file in memory. When it is on, the
+	 * descriptors returned by {@link #parse(String, String)} are the same, and the
+	 * source code info is computed the first time it is requested with
+	 * {@link #getSourceCodeInfo(String)} or
+	 * {@link #withSourceCodeInfo(FileDescriptorSet)}.
+	 * 
+	 * @param sourceCodeInfo whether to record source code info
+	 */
+	public void setSourceCodeInfo(boolean sourceCodeInfo) {
+		this.sourceCodeInfo = sourceCodeInfo;
+		if (!sourceCodeInfo) {
+			locations.clear();
+		}
+	}
+
+	/**
+	 * The source code info (locations and comments) of a file that has been parsed
+	 * (or imported) by this parser, computed on first use from the tokens of the
+	 * file. Only files parsed after {@link #setSourceCodeInfo(boolean)} was turned
+	 * on have any locations.
+	 * 
+	 * @param name the name of the file
+	 * @return the source code info, empty if it was not recorded
+	 * @throws IllegalArgumentException if the file has not been parsed
+	 */
+	public SourceCodeInfo getSourceCodeInfo(String name) {
+		FileDescriptorProto proto = cache.get(name);
+		if (proto == null) {
+			throw new IllegalArgumentException("Unknown file: " + name);
+		}
+		SourceCodeInfoBuilder builder = locations.get(name);
+		return builder == null ? SourceCodeInfo.getDefaultInstance() : builder.build(proto);
+	}
+
+	/**
+	 * Adds the source code info to the files in a set that were parsed by this
+	 * parser with {@link #setSourceCodeInfo(boolean) source code info} on, for
+	 * example for documentation tools that need the comments. Other files are
+	 * unchanged.
+	 * 
+	 * @param files the files, e.g. from {@link #resolve(FileDescriptorProto...)}
+	 * @return the files with source code info
+	 */
+	public FileDescriptorSet withSourceCodeInfo(FileDescriptorSet files) {
+		FileDescriptorSet.Builder result = files.toBuilder();
+		for (int i = 0; i < files.getFileCount(); i++) {
+			FileDescriptorProto file = files.getFile(i);
+			SourceCodeInfoBuilder builder = locations.get(file.getName());
+			if (builder != null && file.equals(cache.get(file.getName()))) {
+				result.setFile(i, file.toBuilder().setSourceCodeInfo(builder.build(file)));
+			}
+		}
+		return result.build();
+	}
+
+	/**
+	 * A reverse index of the imports and type references between all the files that
+	 * have been parsed (or imported) by this parser, for finding what is affected
+	 * when a file or type changes. It is kept up to date as files are parsed, and
+	 * it is the live index, not a snapshot, but it is synchronized, so it can be
+	 * queried while files are being parsed by another thread.
+	 * 
+	 * @return the dependency index
+	 */
+	public DependencyIndex getDependencyIndex() {
+		return this.dependencies;
+	}
+
+	private long transitiveFingerprint(String name, Map<String, Long> memo) {
+		Long result = memo.get(name);
+		if (result != null) {
+			return result;
+		}
+		long fingerprint = fingerprint(name);
+		FileDescriptorProto proto = cache.get(name);
+		long[] dependencies = new long[proto.getDependencyCount()];
+		for (int i = 0; i < dependencies.length; i++) {
+			dependencies[i] = transitiveFingerprint(findDependency(proto.getDependency(i)).getName(), memo);
+		}
+		result = SchemaFingerprint.transitive(fingerprint, dependencies);
+		memo.put(name, result);
+		return result;
+	}
+
+	private void resolve(Consumer<FileDescriptorProto> consumer, FileDescriptorProto proto, Set<String> names) {
 		if (names.contains(proto.getName())) {
 			return; // Already processed
 		}
@@ -285,32 +546,64 @@ public class FileDescriptorProtoParser {
 			if (names.contains(name)) {
 				continue; // Already processed
 			}
-			FileDescriptorProto dependency;
-			if (cache.containsKey(name)) {
-				dependency = cache.get(name);
-			} else {
-				try (InputStream stream = findImport(name)) {
-					dependency = parse(name, CharStreams.fromStream(stream));
-				} catch (IOException e) {
-					throw new IllegalStateException("Failed to read import: " + name, e);
-				}
-			}
-			resolve(builder, dependency, names);
+			resolve(consumer, findDependency(name), names);
 		}
-		builder.addFile(proto);
+		consumer.accept(proto);
 		names.add(proto.getName());
 	}
 
+	private List<FileDescriptorProto> closure(FileDescriptorProto proto,
+			Map<String, List<FileDescriptorProto>> closures) {
+		List<FileDescriptorProto> closure = closures.get(proto.getName());
+		if (closure != null) {
+			return closure; // Already traversed
+		}
+		Map<String, FileDescriptorProto> files = new LinkedHashMap<>();
+		for (String name : proto.getDependencyList()) {
+			for (FileDescriptorProto file : closure(findDependency(name), closures)) {
+				files.putIfAbsent(file.getName(), file);
+			}
+		}
+		files.put(proto.getName(), proto);
+		closure = List.copyOf(files.values());
+		closures.put(proto.getName(), closure);
+		return closure;
+	}
+
+	private FileDescriptorProto findDependency(String name) {
+		if (cache.containsKey(name)) {
+			return cache.get(name);
+		}
+		return parse(name, readImport(name));
+	}
+
+	private CharStream readImport(String path) {
+		SchemaStageEvent event = SchemaStageEvent.start(metrics);
+		try (InputStream stream = findImport(path)) {
+			return read(path, event, stream);
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed to read import: " + path, e);
+		}
+	}
+
+	private CharStream read(String name, SchemaStageEvent event, InputStream input) throws IOException {
+		byte[] bytes = input.readAllBytes();
+		metrics.bytesRead(name, bytes.length);
+		event.finish(metrics, SchemaMetrics.Stage.READ, name, bytes.length);
+		return CharStreams.fromString(new String(bytes, StandardCharsets.UTF_8), name);
+	}
+
 	private FileDescriptorSet parse(Path path) {
 		if (path.toString().endsWith(".proto")) {
 			String location = path.toString();
 			if (location.startsWith("/")) {
 				location = location.substring(1); // Ensure it doesn't start with a slash
 			}
+			SchemaStageEvent event = SchemaStageEvent.start(metrics);
 			InputStream resource = getClass().getClassLoader().getResourceAsStream(path.toString());
 			if (resource != null) {
-				try {
-					FileDescriptorProto proto = parse(path.toString(), CharStreams.fromStream(resource));
+				try (resource) {
+					FileDescriptorProto proto = parse(path.toString(), read(path.toString(), event, resource));
 					return resolve(proto);
 				} catch (IOException e) {
 					throw new IllegalStateException("Failed to read resource: " + path, e);
@@ -326,8 +619,9 @@ public class FileDescriptorProtoParser {
 				}
 				if (input.toString().endsWith(".proto")) {
 					URL url = resources.nextElement();
+					SchemaStageEvent event = SchemaStageEvent.start(metrics);
 					try (InputStream stream = url.openStream()) {
-						FileDescriptorProto proto = parse(path.toString(), CharStreams.fromStream(stream));
+						FileDescriptorProto proto = parse(path.toString(), read(path.toString(), event, stream));
 						return resolve(proto);
 					} catch (IOException e) {
 						throw new IllegalStateException("Failed to read resource: " + input, e);
@@ -350,7 +644,7 @@ public class FileDescriptorProtoParser {
 						.forEach(file -> {
 							try {
 								Path name = base.relativize(file.normalize());
-								FileDescriptorProto proto = parse(name.toString(), CharStreams.fromPath(file));
+								FileDescriptorProto proto = parse(name.toString(), read(name.toString(), file));
 								for (FileDescriptorProto resolved : resolve(proto).getFileList()) {
 									if (!names.contains(resolved.getName())) {
 										// Avoid duplicates
@@ -364,7 +658,7 @@ public class FileDescriptorProtoParser {
 						});
 				return builder.build();
 			}
-			FileDescriptorProto proto = parse(path.toString(), CharStreams.fromPath(input));
+			FileDescriptorProto proto = parse(path.toString(), read(path.toString(), input));
 			for (FileDescriptorProto resolved : resolve(proto).getFileList()) {
 				builder.addFile(resolved);
 			}
@@ -374,6 +668,13 @@ public class FileDescriptorProtoParser {
 		}
 	}
 
+	private CharStream read(String name, Path path) throws IOException {
+		SchemaStageEvent event = SchemaStageEvent.start(metrics);
+		try (InputStream stream = Files.newInputStream(path)) {
+			return read(name, event, stream);
+		}
+	}
+
 	private Path[] findResources(String path) {
 		PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
 		Resource[] resources;
@@ -403,12 +704,25 @@ public class FileDescriptorProtoParser {
 
 	private FileDescriptorProto parse(String name, CharStream stream) {
 
-		if (cache.containsKey(name)) {
-			return cache.get(name);
+		// The fingerprint is a fast check, and a match is confirmed with a digest, so a
+		// colliding source can't reuse the cached file
+		long fingerprint = SchemaFingerprint.of(stream);
+		Source previous = sources.get(name);
+		byte[] digest = previous != null && previous.fingerprint() == fingerprint ? digest(stream) : null;
+		FileDescriptorProto cached = cache.get(name);
+		if (cached != null && (previous == null || Arrays.equals(previous.digest(), digest))
+				&& (!sourceCodeInfo || locations.containsKey(name) || previous == null)) {
+			metrics.cacheHit("parser", name);
+			return cached;
 		}
+		metrics.cacheMiss("parser", name);
+		Source source = new Source(fingerprint, digest != null ? digest : digest(stream));
 
+		SchemaStageEvent event = SchemaStageEvent.start(metrics);
 		ProtobufLexer lexer = new ProtobufLexer(stream);
 		CommonTokenStream tokens = new CommonTokenStream(lexer);
+		tokens.fill();
+		event.finish(metrics, SchemaMetrics.Stage.LEX, name, stream.size());
 		ProtobufParser parser = new ProtobufParser(tokens);
 
 		FileDescriptorProto.Builder builder = FileDescriptorProto.newBuilder();
@@ -437,27 +751,63 @@ public class FileDescriptorProtoParser {
 			@Override
 			public void exitEnumDef(EnumDefContext ctx) {
 				// TODO: bug here if the enum name is re-used in another package
-				enumNames.add(ctx.enumName().getText());
+				String name = ctx.enumName().getText();
+				enumNames.add(name);
+				// Nested enums can also be referred to by their (partly) qualified name
+				for (ParserRuleContext parent = ctx.getParent(); parent != null; parent = parent.getParent()) {
+					if (parent instanceof MessageDefContext message) {
+						name = message.messageName().getText() + "." + name;
+						enumNames.add(name);
+					}
+				}
 				if (this.packageName != null) {
-					enumNames.add(this.packageName + "." + ctx.enumName().getText());
+					enumNames.add(this.packageName + "." + name);
 				}
 			}
 		});
 
-		parser.proto().accept(new ProtobufBaseVisitor<>() {
+		event = SchemaStageEvent.start(metrics);
+		ProtoContext tree = parser.proto();
+		event.finish(metrics, SchemaMetrics.Stage.PARSE, name, tokens.size());
+		// Imports are parsed before visiting, so that their enums are known
+		tree.accept(new ProtobufBaseVisitor<>() {
 			@Override
 			public Object visitImportStatement(ImportStatementContext ctx) {
 				String path = ctx.strLit().getText();
 				path = path.replace("\"", "").replace("'", "");
 				if (!cache.containsKey(path)) {
-					parse(path, findImport(path));
+					parse(path, readImport(path));
 				}
 				return super.visitImportStatement(ctx);
 			}
 		});
-		parser.reset();
-		FileDescriptorProto proto = parser.proto().accept(new ProtobufDescriptorVisitor(builder)).build();
+		event = SchemaStageEvent.start(metrics);
+		ProtobufDescriptorVisitor visitor = new ProtobufDescriptorVisitor(builder, null);
+		FileDescriptorProto proto = tree.accept(visitor).build();
+		if (visitor.hasOptions) {
+			// Options can refer to types and extensions declared anywhere in the file or
+			// its dependencies, so they are applied in a second pass over the same tree
+			OptionInterpreter options = new OptionInterpreter(closure(proto, new HashMap<>()));
+			builder = FileDescriptorProto.newBuilder().setName(name).setSyntax("proto3");
+			proto = tree.accept(new ProtobufDescriptorVisitor(builder, options)).build();
+		}
+		event.finish(metrics, SchemaMetrics.Stage.VISIT, name, tokens.size());
+		long structure = SchemaFingerprint.of(proto);
+		if (cached != null && structure == fingerprint(name) && proto.equals(cached)) {
+			// Only comments or formatting changed, so keep the same instance
+			proto = cached;
+		} else {
+			dependencies.add(proto);
+		}
 		cache.put(name, proto);
+		sources.put(name, source);
+		fingerprints.put(name, structure);
+		if (sourceCodeInfo) {
+			// Comments are not in the descriptor, so they are attached later if needed
+			locations.put(name, new SourceCodeInfoBuilder(tree, tokens));
+		} else {
+			locations.remove(name);
+		}
 		return proto;
 	}
 
@@ -490,8 +840,24 @@ public class FileDescriptorProtoParser {
 
 		private Stack<FieldDescriptorProto.Builder> field = new Stack<>();
 
-		public ProtobufDescriptorVisitor(FileDescriptorProto.Builder builder) {
+		private final OptionInterpreter options;
+
+		private String extendee;
+
+		private int oneof = -1;
+
+		private boolean hasOptions;
+
+		/**
+		 * Creates a visitor that builds a file descriptor.
+		 * 
+		 * @param builder the builder for the file
+		 * @param options the interpreter for option statements, or null to only record
+		 *                whether there are any (in {@link #hasOptions})
+		 */
+		public ProtobufDescriptorVisitor(FileDescriptorProto.Builder builder, OptionInterpreter options) {
 			this.builder = builder;
+			this.options = options;
 		}
 
 		@Override
@@ -526,80 +892,240 @@ public class FileDescriptorProtoParser {
 
 		@Override
 		public FileDescriptorProto.Builder visitField(FieldContext ctx) {
-			// TODO: handle field options if needed
-			FieldDescriptorProto.Type fieldType = findType(ctx.type());
-			FieldDescriptorProto.Builder field = FieldDescriptorProto.newBuilder()
-					.setName(ctx.fieldName().getText())
-					.setNumber(Integer.valueOf(ctx.fieldNumber().getText()))
-					.setType(fieldType);
+			FieldDescriptorProto.Builder field = field(ctx.type(), ctx.fieldName(), ctx.fieldNumber(),
+					ctx.fieldOptions());
 			this.field.push(field);
-			if (fieldType == FieldDescriptorProto.Type.TYPE_MESSAGE
-					|| fieldType == FieldDescriptorProto.Type.TYPE_ENUM) {
-				field.setTypeName(ctx.type().messageType().getText());
-			}
 			FileDescriptorProto.Builder result = super.visitField(ctx);
-			this.type.peek().addField(field.build());
+			if (this.extendee != null) {
+				field.setExtendee(this.extendee);
+				if (this.type.isEmpty()) {
+					builder.addExtension(field.build());
+				} else {
+					this.type.peek().addExtension(field.build());
+				}
+			} else {
+				if (field.getLabel() == FieldDescriptorProto.Label.LABEL_OPTIONAL && ctx.fieldLabel() != null) {
+					// The synthetic oneof is added when the message is complete
+					field.setProto3Optional(true);
+				}
+				this.type.peek().addField(field.build());
+			}
 			this.field.pop();
 			return result;
 		}
 
-		private FieldDescriptorProto.Type findType(TypeContext ctx) {
-			if (ctx.STRING() != null) {
-				return FieldDescriptorProto.Type.TYPE_STRING;
-			}
-			if (ctx.INT32() != null) {
-				return FieldDescriptorProto.Type.TYPE_INT32;
-			}
-			if (ctx.INT64() != null) {
-				return FieldDescriptorProto.Type.TYPE_INT64;
-			}
-			if (ctx.BOOL() != null) {
-				return FieldDescriptorProto.Type.TYPE_BOOL;
-			}
-			if (ctx.FLOAT() != null) {
-				return FieldDescriptorProto.Type.TYPE_FLOAT;
-			}
-			if (ctx.DOUBLE() != null) {
-				return FieldDescriptorProto.Type.TYPE_DOUBLE;
-			}
-			if (ctx.BYTES() != null) {
-				return FieldDescriptorProto.Type.TYPE_BYTES;
+		@Override
+		public FileDescriptorProto.Builder visitOneof(OneofContext ctx) {
+			DescriptorProto.Builder type = this.type.peek();
+			this.oneof = type.getOneofDeclCount();
+			type.addOneofDecl(OneofDescriptorProto.newBuilder().setName(ctx.oneofName().getText()));
+			FileDescriptorProto.Builder result = super.visitOneof(ctx);
+			this.oneof = -1;
+			return result;
+		}
+
+		@Override
+		public FileDescriptorProto.Builder visitOneofField(OneofFieldContext ctx) {
+			FieldDescriptorProto.Builder field = field(ctx.type(), ctx.fieldName(), ctx.fieldNumber(),
+					ctx.fieldOptions());
+			this.type.peek().addField(field.setOneofIndex(this.oneof));
+			return super.visitOneofField(ctx);
+		}
+
+		@Override
+		public FileDescriptorProto.Builder visitMapField(MapFieldContext ctx) {
+			String name = ctx.mapName().getText();
+			String entryName = mapEntryName(name);
+			FieldDescriptorProto.Builder value = FieldDescriptorProto.newBuilder()
+					.setName("value")
+					.setNumber(2)
+					.setLabel(FieldDescriptorProto.Label.LABEL_OPTIONAL)
+					.setType(findType(ctx.type()));
+			if (value.getType() == FieldDescriptorProto.Type.TYPE_MESSAGE
+					|| value.getType() == FieldDescriptorProto.Type.TYPE_ENUM) {
+				value.setTypeName(ctx.type().messageType().getText());
 			}
-			if (ctx.FIXED32() != null) {
-				return FieldDescriptorProto.Type.TYPE_FIXED32;
+			DescriptorProto.Builder type = this.type.peek();
+			type.addNestedType(DescriptorProto.newBuilder()
+					.setName(entryName)
+					.setOptions(MessageOptions.newBuilder().setMapEntry(true))
+					.addField(FieldDescriptorProto.newBuilder()
+							.setName("key")
+							.setNumber(1)
+							.setLabel(FieldDescriptorProto.Label.LABEL_OPTIONAL)
+							.setType(FieldDescriptorProto.Type
+									.valueOf("TYPE_" + ctx.keyType().getText().toUpperCase(Locale.ROOT))))
+					.addField(value));
+			FieldDescriptorProto.Builder field = FieldDescriptorProto.newBuilder()
+					.setName(name)
+					.setNumber(Integer.valueOf(ctx.fieldNumber().getText()))
+					.setLabel(FieldDescriptorProto.Label.LABEL_REPEATED)
+					.setType(FieldDescriptorProto.Type.TYPE_MESSAGE)
+					.setTypeName(entryName);
+			if (ctx.fieldOptions() != null) {
+				fieldOptions(field, ctx.fieldOptions());
 			}
-			if (ctx.FIXED64() != null) {
-				return FieldDescriptorProto.Type.TYPE_FIXED64;
+			type.addField(field);
+			return super.visitMapField(ctx);
+		}
+
+		/**
+		 * The name of the synthetic entry type for a map field, following the same rules
+		 * as protoc (so that the names of generated classes match).
+		 * 
+		 * @param name the name of the map field
+		 * @return the name of the entry type
+		 */
+		private String mapEntryName(String name) {
+			StringBuilder result = new StringBuilder(name.length() + 5);
+			boolean upper = true;
+			for (int i = 0; i < name.length(); i++) {
+				char c = name.charAt(i);
+				if (c == '_') {
+					upper = true;
+				} else if (upper) {
+					result.append(Character.toUpperCase(c));
+					upper = false;
+				} else {
+					result.append(c);
+				}
 			}
-			if (ctx.SFIXED32() != null) {
-				return FieldDescriptorProto.Type.TYPE_SFIXED32;
+			return result.append("Entry").toString();
+		}
+
+		private FieldDescriptorProto.Builder field(TypeContext type, FieldNameContext name,
+				FieldNumberContext number, FieldOptionsContext options) {
+			FieldDescriptorProto.Type fieldType = findType(type);
+			FieldDescriptorProto.Builder field = FieldDescriptorProto.newBuilder()
+					.setName(name.getText())
+					.setNumber(Integer.valueOf(number.getText()))
+					.setType(fieldType);
+			if (fieldType == FieldDescriptorProto.Type.TYPE_MESSAGE
+					|| fieldType == FieldDescriptorProto.Type.TYPE_ENUM) {
+				field.setTypeName(type.messageType().getText());
 			}
-			if (ctx.SFIXED64() != null) {
-				return FieldDescriptorProto.Type.TYPE_SFIXED64;
+			if (options != null) {
+				fieldOptions(field, options);
 			}
-			if (ctx.UINT32() != null) {
-				return FieldDescriptorProto.Type.TYPE_UINT32;
+			return field;
+		}
+
+		@Override
+		public FileDescriptorProto.Builder visitExtendDef(ExtendDefContext ctx) {
+			this.extendee = ctx.messageType().getText();
+			FileDescriptorProto.Builder result = super.visitExtendDef(ctx);
+			this.extendee = null;
+			return result;
+		}
+
+		@Override
+		public FileDescriptorProto.Builder visitOptionStatement(OptionStatementContext ctx) {
+			ParserRuleContext parent = ctx.getParent();
+			if (parent instanceof ProtoContext) {
+				option(builder::getOptionsBuilder, ctx.optionName(), ctx.constant());
+			} else if (parent instanceof MessageElementContext) {
+				DescriptorProto.Builder type = this.type.peek();
+				option(type::getOptionsBuilder, ctx.optionName(), ctx.constant());
+			} else if (parent instanceof EnumElementContext) {
+				EnumDescriptorProto.Builder enumType = this.enumType.peek();
+				option(enumType::getOptionsBuilder, ctx.optionName(), ctx.constant());
+			} else if (parent instanceof OneofContext) {
+				OneofDescriptorProto.Builder oneof = this.type.peek().getOneofDeclBuilder(this.oneof);
+				option(oneof::getOptionsBuilder, ctx.optionName(), ctx.constant());
 			}
-			if (ctx.UINT64() != null) {
-				return FieldDescriptorProto.Type.TYPE_UINT64;
+			// Service and method options are handled with the service
+			return super.visitOptionStatement(ctx);
+		}
+
+		private void fieldOptions(FieldDescriptorProto.Builder field, FieldOptionsContext ctx) {
+			for (FieldOptionContext option : ctx.fieldOption()) {
+				String name = option.optionName().getText();
+				if (name.equals("json_name")) {
+					this.hasOptions = true;
+					if (this.options != null) {
+						field.setJsonName(OptionInterpreter.string(option.constant()));
+					}
+				} else if (name.equals("default")) {
+					// Only proto2 has explicit defaults, and this parser only supports proto3
+					throw new IllegalStateException("Explicit default values are not allowed in proto3 at line "
+							+ option.getStart().getLine());
+				} else {
+					option(field::getOptionsBuilder, option.optionName(), option.constant());
+				}
 			}
-			if (ctx.SINT32() != null) {
-				return FieldDescriptorProto.Type.TYPE_SINT32;
+		}
+
+		/**
+		 * Applies an option, if there is an interpreter, or else just records that
+		 * there is one.
+		 * 
+		 * @param options a supplier for the options builder, only called if the option
+		 *                is applied, so that options are not created empty
+		 * @param name    the name of the option
+		 * @param value   the value of the option
+		 */
+		private void option(Supplier<? extends Message.Builder> options, OptionNameContext name,
+				ConstantContext value) {
+			this.hasOptions = true;
+			if (this.options != null) {
+				this.options.apply(options.get(), scope(), name, value);
 			}
-			if (ctx.SINT64() != null) {
-				return FieldDescriptorProto.Type.TYPE_SINT64;
+		}
+
+		private String scope() {
+			StringBuilder scope = new StringBuilder(builder.getPackage());
+			for (DescriptorProto.Builder type : this.type) {
+				if (scope.length() > 0) {
+					scope.append('.');
+				}
+				scope.append(type.getName());
 			}
-			if (ctx.messageType() != null) {
-				if (FileDescriptorProtoParser.this.enumNames.contains(ctx.messageType().getText())) {
-					return FieldDescriptorProto.Type.TYPE_ENUM;
+			return scope.toString();
+		}
+
+		private FieldDescriptorProto.Type findType(TypeContext ctx) {
+			MessageTypeContext type = ctx.messageType();
+			if (type.DOT().isEmpty()) {
+				// A single keyword might be a scalar type
+				switch (type.getStart().getType()) {
+				case ProtobufParser.STRING:
+					return FieldDescriptorProto.Type.TYPE_STRING;
+				case ProtobufParser.INT32:
+					return FieldDescriptorProto.Type.TYPE_INT32;
+				case ProtobufParser.INT64:
+					return FieldDescriptorProto.Type.TYPE_INT64;
+				case ProtobufParser.BOOL:
+					return FieldDescriptorProto.Type.TYPE_BOOL;
+				case ProtobufParser.FLOAT:
+					return FieldDescriptorProto.Type.TYPE_FLOAT;
+				case ProtobufParser.DOUBLE:
+					return FieldDescriptorProto.Type.TYPE_DOUBLE;
+				case ProtobufParser.BYTES:
+					return FieldDescriptorProto.Type.TYPE_BYTES;
+				case ProtobufParser.FIXED32:
+					return FieldDescriptorProto.Type.TYPE_FIXED32;
+				case ProtobufParser.FIXED64:
+					return FieldDescriptorProto.Type.TYPE_FIXED64;
+				case ProtobufParser.SFIXED32:
+					return FieldDescriptorProto.Type.TYPE_SFIXED32;
+				case ProtobufParser.SFIXED64:
+					return FieldDescriptorProto.Type.TYPE_SFIXED64;
+				case ProtobufParser.UINT32:
+					return FieldDescriptorProto.Type.TYPE_UINT32;
+				case ProtobufParser.UINT64:
+					return FieldDescriptorProto.Type.TYPE_UINT64;
+				case ProtobufParser.SINT32:
+					return FieldDescriptorProto.Type.TYPE_SINT32;
+				case ProtobufParser.SINT64:
+					return FieldDescriptorProto.Type.TYPE_SINT64;
+				default:
+					break;
 				}
-				return FieldDescriptorProto.Type.TYPE_MESSAGE;
 			}
-			if (ctx.enumType() != null) {
-				// Doesn't happen
+			if (FileDescriptorProtoParser.this.enumNames.contains(type.getText())) {
 				return FieldDescriptorProto.Type.TYPE_ENUM;
 			}
-			throw new IllegalStateException("Unknown type: " + ctx.getText());
+			return FieldDescriptorProto.Type.TYPE_MESSAGE;
 		}
 
 		@Override
@@ -607,7 +1133,11 @@ public class FileDescriptorProtoParser {
 			EnumDescriptorProto.Builder enumType = EnumDescriptorProto.newBuilder().setName(ctx.enumName().getText());
 			this.enumType.push(enumType);
 			FileDescriptorProto.Builder result = super.visitEnumDef(ctx);
-			builder.addEnumType(enumType.build());
+			if (this.type.isEmpty()) {
+				builder.addEnumType(enumType.build());
+			} else {
+				this.type.peek().addEnumType(enumType.build());
+			}
 			this.enumType.pop();
 			return result;
 		}
@@ -618,27 +1148,73 @@ public class FileDescriptorProtoParser {
 			EnumValueDescriptorProto.Builder field = EnumValueDescriptorProto.newBuilder()
 					.setName(ctx.ident().IDENTIFIER().getText())
 					.setNumber(Integer.valueOf(ctx.intLit().INT_LIT().getText()));
+			if (ctx.enumValueOptions() != null) {
+				for (EnumValueOptionContext option : ctx.enumValueOptions().enumValueOption()) {
+					option(field::getOptionsBuilder, option.optionName(), option.constant());
+				}
+			}
 			this.enumType.peek().addValue(field.build());
 			return super.visitEnumField(ctx);
 		}
 
 		@Override
-		public FileDescriptorProto.Builder visitMessageDef(ProtobufParser.MessageDefContext ctx) {
+		public FileDescriptorProto.Builder visitMessageDef(MessageDefContext ctx) {
 			// System.err.println("Message: " + ctx.messageName().getText());
 			DescriptorProto.Builder type = DescriptorProto.newBuilder().setName(ctx.messageName().getText());
 			this.type.push(type);
+			int oneof = this.oneof;
+			this.oneof = -1;
 			FileDescriptorProto.Builder result = super.visitMessageDef(ctx);
-			builder.addMessageType(type);
+			syntheticOneofs(type);
 			this.type.pop();
+			this.oneof = oneof;
+			if (this.type.isEmpty()) {
+				builder.addMessageType(type);
+			} else {
+				this.type.peek().addNestedType(type);
+			}
 			return result;
 		}
 
+		/**
+		 * Adds a synthetic oneof for each proto3 optional field, after all the real ones
+		 * (as required by descriptor validation).
+		 * 
+		 * @param type the message type
+		 */
+		private void syntheticOneofs(DescriptorProto.Builder type) {
+			for (FieldDescriptorProto.Builder field : type.getFieldBuilderList()) {
+				if (field.getProto3Optional()) {
+					String name = "_" + field.getName();
+					while (hasName(type, name)) {
+						name = "X" + name;
+					}
+					field.setOneofIndex(type.getOneofDeclCount());
+					type.addOneofDecl(OneofDescriptorProto.newBuilder().setName(name));
+				}
+			}
+		}
+
+		private boolean hasName(DescriptorProto.Builder type, String name) {
+			for (FieldDescriptorProto field : type.getFieldList()) {
+				if (field.getName().equals(name)) {
+					return true;
+				}
+			}
+			for (OneofDescriptorProto oneof : type.getOneofDeclList()) {
+				if (oneof.getName().equals(name)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
 		@Override
 		public FileDescriptorProto.Builder visitImportStatement(ImportStatementContext ctx) {
 			String path = ctx.strLit().getText();
 			path = path.replace("\"", "").replace("'", "");
 			if (!cache.containsKey(path)) {
-				parse(path, findImport(path));
+				parse(path, readImport(path));
 			}
 			builder.addDependency(path);
 			return super.visitImportStatement(ctx);
@@ -652,26 +1228,47 @@ public class FileDescriptorProtoParser {
 				if (element.rpc() != null) {
 					service.addMethod(buildRpc(element.rpc()));
 				}
+				if (element.optionStatement() != null) {
+					option(service::getOptionsBuilder, element.optionStatement().optionName(),
+							element.optionStatement().constant());
+				}
 			}
 			builder.addService(service.build());
 			return super.visitServiceDef(ctx);
 		}
 
+		private String simpleName(MessageTypeContext type) {
+			return type.ident(type.ident().size() - 1).getText();
+		}
+
 		private MethodDescriptorProto buildRpc(RpcContext rpc) {
 			String rpcName = rpc.rpcName().getText();
 			MethodDescriptorProto.Builder method = MethodDescriptorProto.newBuilder()
 					.setName(rpcName)
-					.setInputType(rpc.messageType(0).messageName().getText())
-					.setOutputType(rpc.messageType(1).messageName().getText());
-			if (rpc.STREAM(0) != null) {
-				method.setServerStreaming(true);
+					.setInputType(simpleName(rpc.messageType(0)))
+					.setOutputType(simpleName(rpc.messageType(1)));
+			int input = rpc.messageType(0).getStart().getTokenIndex();
+			for (TerminalNode stream : rpc.STREAM()) {
+				// A stream before the input type streams requests, otherwise responses
+				if (stream.getSymbol().getTokenIndex() < input) {
+					method.setClientStreaming(true);
+				} else {
+					method.setServerStreaming(true);
+				}
 			}
-			if (rpc.STREAM(1) != null) {
-				method.setClientStreaming(true);
+			for (OptionStatementContext option : rpc.optionStatement()) {
+				option(method::getOptionsBuilder, option.optionName(), option.constant());
 			}
 			return method.build();
 		}
 
 	}
 
+	/**
+	 * What is kept of the source text of a parsed file to tell if it has changed: a
+	 * fast fingerprint, and a digest to confirm a match.
+	 */
+	private record Source(long fingerprint, byte[] digest) {
+	}
+
 }
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.EnumDescriptor;
+import com.google.protobuf.Descriptors.FileDescriptor;
+import com.google.protobuf.Descriptors.ServiceDescriptor;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
+
+/**
+ * A read-only view of a serialized {@link FileDescriptorSet} that decodes files only when
+ * they are needed. Opening the index records the name, package and byte range of each
+ * {@link FileDescriptorProto} and skips the rest of its content. A file is decoded and
+ * built into a {@link FileDescriptor}, together with its dependencies, the first time it
+ * (or a type in it) is requested. Built files are memoized.
+ *
+ * <p>
+ * <strong>Usage:</strong>
+ * </p>
+ * <pre>
+ * FileDescriptorSetIndex index = FileDescriptorSetIndex.map(Path.of("descriptors.pb"));
+ * Descriptor type = index.findMessageTypeByName("sample.EchoRequest");
+ * </pre>
+ */
+public class FileDescriptorSetIndex {
+
+	private static final int FILE_TAG = FileDescriptorSet.FILE_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+
+	private final Map<String, Entry> files = new LinkedHashMap<>();
+
+	private final Map<String, String> packages = new LinkedHashMap<>();
+
+	private final ByteBuffer buffer;
+
+	private final LazyFileDescriptorSet descriptors;
+
+	FileDescriptorSetIndex(ByteBuffer buffer) {
+		// Offsets are relative to the position of the buffer
+		this.buffer = buffer.slice().asReadOnlyBuffer();
+		index();
+		this.descriptors = new LazyFileDescriptorSet(this.packages, this::getFileProto);
+	}
+
+	/**
+	 * Memory-maps a serialized {@link FileDescriptorSet} and indexes it.
+	 * @param path the path to the file
+	 * @return an index over the file
+	 */
+	public static FileDescriptorSetIndex map(Path path) {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return new FileDescriptorSetIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Failed to read descriptor set: " + path, e);
+		}
+	}
+
+	/**
+	 * Indexes a serialized {@link FileDescriptorSet} that is already in memory.
+	 * @param buffer the serialized descriptor set
+	 * @return an index over the buffer
+	 */
+	public static FileDescriptorSetIndex of(ByteBuffer buffer) {
+		return new FileDescriptorSetIndex(buffer);
+	}
+
+	/**
+	 * The names of all the files in the set, in the order they were serialized.
+	 * @return the file names
+	 */
+	public Set<String> getFileNames() {
+		return Collections.unmodifiableSet(this.files.keySet());
+	}
+
+	/**
+	 * Decodes the file with the given name, without building it.
+	 * @param name the file name
+	 * @return the decoded file, or null if there is no such file
+	 */
+	public FileDescriptorProto getFileProto(String name) {
+		Entry entry = this.files.get(name);
+		if (entry == null) {
+			return null;
+		}
+		try {
+			return FileDescriptorProto.parseFrom(this.buffer.slice(entry.offset(), entry.length()));
+		}
+		catch (InvalidProtocolBufferException e) {
+			throw new IllegalStateException("Invalid descriptor: " + name, e);
+		}
+	}
+
+	/**
+	 * Finds a file by name, building it and its dependencies if necessary.
+	 * @param name the file name
+	 * @return the file, or null if there is no such file
+	 */
+	public FileDescriptor findFileByName(String name) {
+		return this.descriptors.findFileByName(name);
+	}
+
+	/**
+	 * Finds a message type by its fully qualified name (without a leading dot), building
+	 * only the files that might contain it.
+	 * @param name the fully qualified type name
+	 * @return the message type, or null if it was not found
+	 */
+	public Descriptor findMessageTypeByName(String name) {
+		return this.descriptors.findMessageTypeByName(name);
+	}
+
+	/**
+	 * Finds an enum type by its fully qualified name (without a leading dot), building
+	 * only the files that might contain it.
+	 * @param name the fully qualified type name
+	 * @return the enum type, or null if it was not found
+	 */
+	public EnumDescriptor findEnumTypeByName(String name) {
+		return this.descriptors.findEnumTypeByName(name);
+	}
+
+	/**
+	 * Finds a service by its fully qualified name (without a leading dot), building only
+	 * the files that might contain it.
+	 * @param name the fully qualified service name
+	 * @return the service, or null if it was not found
+	 */
+	public ServiceDescriptor findServiceByName(String name) {
+		return this.descriptors.findServiceByName(name);
+	}
+
+	/**
+	 * A lazy view of all the files in the set, which is where the lookups in this index
+	 * are delegated.
+	 * @return the lazy view
+	 */
+	public LazyFileDescriptorSet getDescriptors() {
+		return this.descriptors;
+	}
+
+	boolean isBuilt(String name) {
+		return this.descriptors.isBuilt(name);
+	}
+
+	private void index() {
+		CodedInputStream input = CodedInputStream.newInstance(this.buffer.duplicate());
+		try {
+			int tag;
+			while ((tag = input.readTag()) != 0) {
+				if (tag != FILE_TAG) {
+					input.skipField(tag);
+					continue;
+				}
+				int length = input.readRawVarint32();
+				int offset = input.getTotalBytesRead();
+				int limit = input.pushLimit(length);
+				String name = "";
+				String pkg = "";
+				while ((tag = input.readTag()) != 0) {
+					int field = WireFormat.getTagFieldNumber(tag);
+					if (field == FileDescriptorProto.NAME_FIELD_NUMBER) {
+						name = input.readStringRequireUtf8();
+					}
+					else if (field == FileDescriptorProto.PACKAGE_FIELD_NUMBER) {
+						pkg = input.readStringRequireUtf8();
+					}
+					else {
+						// Name and package come first, so the rest is not needed
+						input.skipRawBytes(input.getBytesUntilLimit());
+					}
+				}
+				input.popLimit(limit);
+				this.files.put(name, new Entry(offset, length));
+				this.packages.put(name, pkg);
+			}
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Invalid descriptor set", e);
+		}
+	}
+
+	private record Entry(int offset, int length) {
+	}
+
+}
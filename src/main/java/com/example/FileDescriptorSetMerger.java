@@ -0,0 +1,210 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+
+/**
+ * Merges any number of {@link FileDescriptorSet file descriptor sets} into one, for
+ * example the outputs of several
+ * {@link FileDescriptorProtoParser#resolve(java.nio.file.Path...)} calls or the
+ * descriptor sets of other builds. Files are indexed by name, so adding a file is a hash
+ * lookup: a file that is equal to the one already in the set with the same name is
+ * dropped, and a different file with the same name is a conflict. A
+ * {@link SchemaFingerprint structural fingerprint} is kept for each file as a fast
+ * pre-check, so only files that look identical are compared in full. Source code info is
+ * not part of the comparison, so the same file with and without comments is not a
+ * conflict (the first one added is kept).
+ *
+ * <p>
+ * {@link #merge()} returns the files in dependency order (every file after its
+ * dependencies, otherwise in the order they were added), which is what
+ * {@link com.google.protobuf.Descriptors.FileDescriptor#buildFrom} and
+ * <code>protoc --descriptor_set_in</code> expect. The order is computed with a single
+ * depth-first traversal, in time linear in the number of files and imports.
+ * </p>
+ *
+ * <p>
+ * <strong>Usage:</strong>
+ * </p>
+ * <pre>
+ * FileDescriptorSet merged = new FileDescriptorSetMerger().add(parser.resolve(Path.of("a.proto")))
+ *     .add(FileDescriptorSet.parseFrom(otherBuild))
+ *     .merge();
+ * </pre>
+ */
+public class FileDescriptorSetMerger {
+
+	private final Map<String, Entry> files = new LinkedHashMap<>();
+
+	private int duplicates;
+
+	/**
+	 * Merges the given sets.
+	 * @param sets the sets to merge
+	 * @return the merged set, in dependency order
+	 * @throws IllegalStateException if two files with the same name are different, or a
+	 * dependency is missing or cyclic
+	 */
+	public static FileDescriptorSet merge(FileDescriptorSet... sets) {
+		FileDescriptorSetMerger merger = new FileDescriptorSetMerger();
+		for (FileDescriptorSet set : sets) {
+			merger.add(set);
+		}
+		return merger.merge();
+	}
+
+	/**
+	 * Adds all the files in a set.
+	 * @param set the files to add
+	 * @return this merger
+	 * @throws IllegalStateException if a file conflicts with a file that was already
+	 * added
+	 */
+	public FileDescriptorSetMerger add(FileDescriptorSet set) {
+		for (FileDescriptorProto file : set.getFileList()) {
+			add(file);
+		}
+		return this;
+	}
+
+	/**
+	 * Adds a file, unless an identical file with the same name was already added.
+	 * @param file the file to add
+	 * @return this merger
+	 * @throws IllegalStateException if a different file with the same name was already
+	 * added
+	 */
+	public FileDescriptorSetMerger add(FileDescriptorProto file) {
+		FileDescriptorProto structure = file.hasSourceCodeInfo() ? file.toBuilder().clearSourceCodeInfo().build()
+				: file;
+		long fingerprint = SchemaFingerprint.of(structure);
+		Entry existing = this.files.putIfAbsent(file.getName(), new Entry(file, structure, fingerprint));
+		if (existing != null) {
+			// Fingerprints can collide, so a match is confirmed by comparing the files
+			if (existing.fingerprint() != fingerprint || !existing.structure().equals(structure)) {
+				throw new IllegalStateException("Conflicting definitions of file: " + file.getName());
+			}
+			this.duplicates++;
+		}
+		return this;
+	}
+
+	/**
+	 * The names of the distinct files added so far, in the order they were added.
+	 * @return the file names
+	 */
+	public Set<String> getFileNames() {
+		return Collections.unmodifiableSet(this.files.keySet());
+	}
+
+	/**
+	 * The number of files that were dropped because an identical file was already added.
+	 * @return the number of duplicates
+	 */
+	public int getDuplicateCount() {
+		return this.duplicates;
+	}
+
+	/**
+	 * Returns all the distinct files, each one after its dependencies.
+	 * @return the merged set
+	 * @throws IllegalStateException if a dependency is missing or cyclic
+	 */
+	public FileDescriptorSet merge() {
+		FileDescriptorSet.Builder output = FileDescriptorSet.newBuilder();
+		Set<String> done = new HashSet<>();
+		// The files on the current path, in order, to report cycles
+		Set<String> path = new LinkedHashSet<>();
+		Deque<Visit> stack = new ArrayDeque<>();
+		for (Entry root : this.files.values()) {
+			if (done.contains(root.file().getName())) {
+				continue;
+			}
+			path.add(root.file().getName());
+			stack.push(new Visit(root.file()));
+			while (!stack.isEmpty()) {
+				Visit visit = stack.peek();
+				if (visit.next < visit.file.getDependencyCount()) {
+					String dependency = visit.file.getDependency(visit.next++);
+					if (done.contains(dependency)) {
+						continue;
+					}
+					if (!path.add(dependency)) {
+						throw new IllegalStateException("Cyclic dependency: " + cycle(path, dependency));
+					}
+					Entry entry = this.files.get(dependency);
+					if (entry == null) {
+						throw new IllegalStateException(
+								"Missing dependency: " + dependency + " (imported by " + visit.file.getName() + ")");
+					}
+					stack.push(new Visit(entry.file()));
+				}
+				else {
+					stack.pop();
+					path.remove(visit.file.getName());
+					done.add(visit.file.getName());
+					output.addFile(visit.file);
+				}
+			}
+		}
+		return output.build();
+	}
+
+	private static String cycle(Set<String> path, String repeated) {
+		List<String> names = new ArrayList<>();
+		boolean inCycle = false;
+		for (String name : path) {
+			inCycle = inCycle || name.equals(repeated);
+			if (inCycle) {
+				names.add(name);
+			}
+		}
+		names.add(repeated);
+		return String.join(" -> ", names);
+	}
+
+	private record Entry(FileDescriptorProto file, FileDescriptorProto structure, long fingerprint) {
+	}
+
+	/**
+	 * A file on the traversal stack, and the index of its next dependency to visit.
+	 */
+	private static final class Visit {
+
+		private final FileDescriptorProto file;
+
+		private int next;
+
+		private Visit(FileDescriptorProto file) {
+			this.file = file;
+		}
+
+	}
+
+}
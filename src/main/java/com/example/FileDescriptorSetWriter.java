@@ -0,0 +1,140 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+
+/**
+ * Writes {@link FileDescriptorProto} objects one at a time in the wire format of a
+ * {@link FileDescriptorSet}, without building the set in memory first. Each file is
+ * written as a length-delimited field 1, so the output is byte for byte the same as
+ * {@link FileDescriptorSet#writeTo(OutputStream)} for the same files (and the same as
+ * <code>protoc --descriptor_set_out</code> for the same descriptors). Files with a name
+ * that has already been written are skipped.
+ *
+ * <p>
+ * <strong>Usage:</strong>
+ * </p>
+ * <pre>
+ * try (FileDescriptorSetWriter writer = new FileDescriptorSetWriter(output)) {
+ * 	parser.resolve(writer::write, protos);
+ * }
+ * </pre>
+ */
+public class FileDescriptorSetWriter implements Closeable {
+
+	private final Set<String> names = new HashSet<>();
+
+	private final OutputStream stream;
+
+	private final CodedOutputStream output;
+
+	/**
+	 * Constructs a writer for the given stream. The stream is closed when the writer is
+	 * closed.
+	 * @param stream the stream to write to
+	 */
+	public FileDescriptorSetWriter(OutputStream stream) {
+		this.stream = stream;
+		this.output = CodedOutputStream.newInstance(stream);
+	}
+
+	/**
+	 * Creates a writer for the given channel, e.g. a
+	 * {@link java.nio.channels.FileChannel}.
+	 * @param channel the channel to write to
+	 * @return a new writer
+	 */
+	public static FileDescriptorSetWriter of(WritableByteChannel channel) {
+		return new FileDescriptorSetWriter(Channels.newOutputStream(channel));
+	}
+
+	/**
+	 * Creates a writer that gzip-compresses its output.
+	 * @param stream the stream to write compressed data to
+	 * @return a new writer
+	 */
+	public static FileDescriptorSetWriter gzip(OutputStream stream) {
+		try {
+			return new FileDescriptorSetWriter(new GZIPOutputStream(stream));
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Failed to open gzip stream", e);
+		}
+	}
+
+	/**
+	 * Writes a single file. Callers are responsible for writing dependencies first, e.g.
+	 * by using
+	 * {@link FileDescriptorProtoParser#resolve(java.util.function.Consumer, FileDescriptorProto...)}.
+	 * @param file the file to write
+	 * @return true if the file was written, false if a file with the same name had
+	 * already been written
+	 */
+	public boolean write(FileDescriptorProto file) {
+		if (!this.names.add(file.getName())) {
+			return false;
+		}
+		try {
+			this.output.writeMessage(FileDescriptorSet.FILE_FIELD_NUMBER, file);
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Failed to write descriptor: " + file.getName(), e);
+		}
+		return true;
+	}
+
+	/**
+	 * Writes all the files in a set, in order.
+	 * @param files the files to write
+	 */
+	public void write(FileDescriptorSet files) {
+		for (FileDescriptorProto file : files.getFileList()) {
+			write(file);
+		}
+	}
+
+	/**
+	 * Flushes buffered output to the underlying stream.
+	 */
+	public void flush() {
+		try {
+			this.output.flush();
+			this.stream.flush();
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Failed to flush descriptors", e);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.output.flush();
+		this.stream.close();
+	}
+
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.atn.DecisionInfo;
+
+/**
+ * Profiles the decisions that the generated {@link ProtobufParser} makes over a corpus of
+ * .proto files, using ANTLR's {@link org.antlr.v4.runtime.atn.ParseInfo}. For each
+ * decision (a point in a rule where the parser has to choose between alternatives) the
+ * report shows how often it was made, how many tokens of lookahead it needed, how often
+ * SLL prediction had a conflict and fell back to full LL, and how many of those were real
+ * ambiguities. Decisions with deep lookahead, LL fallbacks or ambiguities are the ones
+ * that make parsing slow.
+ *
+ * <p>
+ * <strong>Usage:</strong>
+ * </p>
+ * <pre>
+ * java -cp ... com.example.GrammarProfiler src/main/proto [more files or directories]
+ * </pre>
+ * <p>
+ * With no arguments the well-known types from the classpath are profiled.
+ * </p>
+ */
+public final class GrammarProfiler {
+
+	private static final String[] WELL_KNOWN_TYPES = { "any", "api", "duration", "empty", "field_mask",
+			"source_context", "struct", "timestamp", "type", "wrappers" };
+
+	private final long[][] totals = new long[ProtobufParser._ATN.getNumberOfDecisions()][Column.values().length];
+
+	private int files;
+
+	private int errors;
+
+	private long tokens;
+
+	/**
+	 * Parses a file with profiling enabled and adds its decisions to the totals.
+	 * @param name the name of the file
+	 * @param input the source of the file
+	 */
+	public void profile(String name, CharStream input) {
+		CommonTokenStream stream = new CommonTokenStream(new ProtobufLexer(input));
+		ProtobufParser parser = new ProtobufParser(stream);
+		parser.removeErrorListeners();
+		parser.addErrorListener(new BaseErrorListener() {
+			@Override
+			public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+					int charPositionInLine, String msg, RecognitionException e) {
+				GrammarProfiler.this.errors++;
+			}
+		});
+		parser.setProfile(true);
+		parser.proto();
+		for (DecisionInfo info : parser.getParseInfo().getDecisionInfo()) {
+			long[] row = this.totals[info.decision];
+			row[Column.INVOCATIONS.ordinal()] += info.invocations;
+			row[Column.SLL_LOOK.ordinal()] += info.SLL_TotalLook;
+			row[Column.SLL_MAX_LOOK.ordinal()] = Math.max(row[Column.SLL_MAX_LOOK.ordinal()], info.SLL_MaxLook);
+			row[Column.LL_FALLBACK.ordinal()] += info.LL_Fallback;
+			row[Column.LL_LOOK.ordinal()] += info.LL_TotalLook;
+			row[Column.LL_MAX_LOOK.ordinal()] = Math.max(row[Column.LL_MAX_LOOK.ordinal()], info.LL_MaxLook);
+			row[Column.AMBIGUITIES.ordinal()] += info.ambiguities.size();
+			row[Column.CONTEXT_SENSITIVITIES.ordinal()] += info.contextSensitivities.size();
+			row[Column.NANOS.ordinal()] += info.timeInPrediction;
+		}
+		this.tokens += stream.size();
+		this.files++;
+	}
+
+	/**
+	 * Profiles a .proto file, or all the .proto files in a directory (recursively).
+	 * @param path the file or directory
+	 */
+	public void profile(Path path) {
+		try (Stream<Path> paths = Files.walk(path)) {
+			for (Path file : paths.filter(file -> file.toString().endsWith(".proto")).sorted().toList()) {
+				profile(file.toString(), CharStreams.fromPath(file));
+			}
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Failed to read: " + path, e);
+		}
+	}
+
+	/**
+	 * The totals for each decision that was made at least once, with the most expensive
+	 * (by total lookahead) first.
+	 * @return the decisions
+	 */
+	public List<Decision> getDecisions() {
+		List<Decision> result = new ArrayList<>();
+		for (int i = 0; i < this.totals.length; i++) {
+			long[] row = this.totals[i];
+			if (row[Column.INVOCATIONS.ordinal()] > 0) {
+				String rule = ProtobufParser.ruleNames[ProtobufParser._ATN.getDecisionState(i).ruleIndex];
+				result
+					.add(new Decision(i, rule, row[0], row[1], row[2], row[3], row[4], row[5], row[6], row[7], row[8]));
+			}
+		}
+		result.sort(Comparator.comparingLong(Decision::totalLook).reversed());
+		return result;
+	}
+
+	/**
+	 * A report of the totals, as a table with a row for each decision and a summary.
+	 * @param limit the maximum number of decisions to show
+	 * @return the report
+	 */
+	public String report(int limit) {
+		List<Decision> decisions = getDecisions();
+		StringBuilder report = new StringBuilder();
+		report.append(String.format("%-24s %10s %8s %8s %10s %8s %6s %6s%n", "decision", "invocations", "avgLook",
+				"maxLook", "fallbacks", "llMax", "ambig", "ctxSen"));
+		long invocations = 0;
+		long look = 0;
+		long fallbacks = 0;
+		long ambiguities = 0;
+		long nanos = 0;
+		for (Decision decision : decisions) {
+			invocations += decision.invocations();
+			look += decision.totalLook();
+			fallbacks += decision.llFallbacks();
+			ambiguities += decision.ambiguities();
+			nanos += decision.nanos();
+		}
+		for (Decision decision : decisions.subList(0, Math.min(limit, decisions.size()))) {
+			report.append(String.format("%-24s %10d %8.2f %8d %10d %8d %6d %6d%n",
+					decision.rule() + "#" + decision.decision(), decision.invocations(),
+					(double) decision.totalLook() / decision.invocations(), decision.sllMaxLook(),
+					decision.llFallbacks(), decision.llMaxLook(), decision.ambiguities(),
+					decision.contextSensitivities()));
+		}
+		report.append(String.format(
+				"%d files, %d tokens, %d errors: %d decisions, %.3f lookahead per token, %d LL fallbacks, %d ambiguities, %.1f ms in prediction%n",
+				this.files, this.tokens, this.errors, invocations, this.tokens == 0 ? 0.0 : (double) look / this.tokens,
+				fallbacks, ambiguities, nanos / 1e6));
+		return report.toString();
+	}
+
+	public static void main(String[] args) throws IOException {
+		GrammarProfiler profiler = new GrammarProfiler();
+		if (args.length == 0) {
+			for (String type : WELL_KNOWN_TYPES) {
+				String name = "google/protobuf/" + type + ".proto";
+				try (InputStream stream = GrammarProfiler.class.getClassLoader().getResourceAsStream(name)) {
+					profiler.profile(name, CharStreams.fromStream(stream));
+				}
+			}
+		}
+		for (String arg : args) {
+			profiler.profile(Path.of(arg));
+		}
+		System.out.print(profiler.report(20));
+	}
+
+	private enum Column {
+
+		INVOCATIONS, SLL_LOOK, SLL_MAX_LOOK, LL_FALLBACK, LL_LOOK, LL_MAX_LOOK, AMBIGUITIES, CONTEXT_SENSITIVITIES,
+		NANOS
+
+	}
+
+	/**
+	 * The totals for one decision over all the files that were profiled.
+	 *
+	 * @param decision the decision number
+	 * @param rule the rule that the decision is in
+	 * @param invocations the number of times the decision was made
+	 * @param sllLook the total number of tokens of lookahead in SLL prediction
+	 * @param sllMaxLook the most tokens of lookahead needed by SLL prediction
+	 * @param llFallbacks the number of times SLL prediction had a conflict and full LL
+	 * prediction was needed
+	 * @param llLook the total number of tokens of lookahead in LL prediction
+	 * @param llMaxLook the most tokens of lookahead needed by LL prediction
+	 * @param ambiguities the number of real ambiguities (more than one alternative
+	 * matched the input)
+	 * @param contextSensitivities the number of times SLL and LL prediction disagreed
+	 * @param nanos the time spent in prediction
+	 */
+	public record Decision(int decision, String rule, long invocations, long sllLook, long sllMaxLook, long llFallbacks,
+			long llLook, long llMaxLook, long ambiguities, long contextSensitivities, long nanos) {
+
+		/**
+		 * The total tokens of lookahead for this decision.
+		 * @return the total lookahead
+		 */
+		public long totalLook() {
+			return this.sllLook + this.llLook;
+		}
+
+	}
+
+}
@@ -0,0 +1,1095 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.EnumValueDescriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor.Type;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
+
+/**
+ * A transcoder between the binary wire format and the canonical JSON mapping of one
+ * message type, compiled from its {@link Descriptor}. It writes JSON directly while
+ * reading the wire bytes, and writes wire bytes directly while reading JSON tokens, so no
+ * intermediate message is built. Field names are looked up in precomputed tables, and the
+ * escaped, quoted form of each JSON name is computed once at compile time.
+ *
+ * <p>
+ * The output follows {@link com.google.protobuf.util.JsonFormat} with insignificant
+ * whitespace omitted, with two differences that follow from streaming. Fields are written
+ * in wire order, which is field-number order for standard serializers. A singular field
+ * that occurs more than once on the wire is written once per occurrence. Well-known types
+ * that have a special JSON mapping (like <code>google.protobuf.Timestamp</code>) and
+ * groups are not supported. Unknown fields are skipped on the wire and rejected in JSON.
+ * </p>
+ *
+ * <p>
+ * <strong>Usage:</strong>
+ * </p>
+ * <pre>
+ * JsonTranscoder transcoder = JsonTranscoder.compile(descriptor);
+ * byte[] json = transcoder.toJson(wireBytes);
+ * byte[] wire = transcoder.fromJson(json);
+ * </pre>
+ */
+public final class JsonTranscoder {
+
+	private static final int MAX_DENSE_FIELD_NUMBER = 1024;
+
+	// The same as the default recursion limit of CodedInputStream and JsonFormat
+	private static final int MAX_DEPTH = 100;
+
+	private static final Set<String> SPECIAL_TYPES = Set.of("google.protobuf.Any", "google.protobuf.Timestamp",
+			"google.protobuf.Duration", "google.protobuf.FieldMask", "google.protobuf.Struct", "google.protobuf.Value",
+			"google.protobuf.ListValue", "google.protobuf.NullValue", "google.protobuf.DoubleValue",
+			"google.protobuf.FloatValue", "google.protobuf.Int64Value", "google.protobuf.UInt64Value",
+			"google.protobuf.Int32Value", "google.protobuf.UInt32Value", "google.protobuf.BoolValue",
+			"google.protobuf.StringValue", "google.protobuf.BytesValue");
+
+	private final Descriptor descriptor;
+
+	private final Field[] sorted;
+
+	private final int[] numbers;
+
+	private final Field[] dense;
+
+	private final byte[][] names;
+
+	private final Field[] named;
+
+	private JsonTranscoder(Descriptor descriptor) {
+		this.descriptor = descriptor;
+		List<FieldDescriptor> fields = descriptor.getFields();
+		this.sorted = new Field[fields.size()];
+		for (int i = 0; i < this.sorted.length; i++) {
+			FieldDescriptor field = fields.get(i);
+			if (field.getType() == Type.GROUP) {
+				throw new IllegalArgumentException("Groups are not supported: " + field.getFullName());
+			}
+			if (field.getType() == Type.ENUM && SPECIAL_TYPES.contains(field.getEnumType().getFullName())) {
+				throw new IllegalArgumentException("Unsupported well-known type: " + field.getEnumType().getFullName());
+			}
+			this.sorted[i] = new Field(field);
+		}
+		Arrays.sort(this.sorted, Comparator.comparingInt(field -> field.number));
+		this.numbers = new int[this.sorted.length];
+		int max = 0;
+		for (int i = 0; i < this.sorted.length; i++) {
+			this.numbers[i] = this.sorted[i].number;
+			max = Math.max(max, this.numbers[i]);
+		}
+		if (max <= MAX_DENSE_FIELD_NUMBER) {
+			this.dense = new Field[max + 1];
+			for (Field field : this.sorted) {
+				this.dense[field.number] = field;
+			}
+		}
+		else {
+			this.dense = null;
+		}
+		// Both the JSON name and the original name are accepted when parsing
+		int capacity = Integer.highestOneBit(Math.max(this.sorted.length, 1) * 4) * 2;
+		this.names = new byte[capacity][];
+		this.named = new Field[capacity];
+		for (Field field : this.sorted) {
+			index(field.descriptor.getJsonName().getBytes(StandardCharsets.UTF_8), field);
+			index(field.descriptor.getName().getBytes(StandardCharsets.UTF_8), field);
+		}
+	}
+
+	/**
+	 * Compiles a transcoder for the given message type and all the message types it
+	 * refers to.
+	 * @param descriptor the message type
+	 * @return a transcoder for the message type
+	 * @throws IllegalArgumentException if the message type uses groups or well-known
+	 * types with a special JSON mapping
+	 */
+	public static JsonTranscoder compile(Descriptor descriptor) {
+		return compile(descriptor, new HashMap<>());
+	}
+
+	private static JsonTranscoder compile(Descriptor descriptor, Map<Descriptor, JsonTranscoder> transcoders) {
+		JsonTranscoder transcoder = transcoders.get(descriptor);
+		if (transcoder != null) {
+			return transcoder;
+		}
+		if (SPECIAL_TYPES.contains(descriptor.getFullName())) {
+			throw new IllegalArgumentException("Unsupported well-known type: " + descriptor.getFullName());
+		}
+		transcoder = new JsonTranscoder(descriptor);
+		transcoders.put(descriptor, transcoder);
+		for (Field field : transcoder.sorted) {
+			if (field.type == Type.MESSAGE) {
+				field.message = compile(field.descriptor.getMessageType(), transcoders);
+				if (field.map) {
+					field.key = field.message.find(1);
+					field.value = field.message.find(2);
+				}
+			}
+		}
+		return transcoder;
+	}
+
+	/**
+	 * The message type of this transcoder.
+	 * @return the descriptor
+	 */
+	public Descriptor getDescriptor() {
+		return this.descriptor;
+	}
+
+	/**
+	 * Converts a serialized message to JSON.
+	 * @param message the serialized message
+	 * @return the JSON, encoded as UTF-8
+	 */
+	public byte[] toJson(byte[] message) {
+		CodedInputStream input = CodedInputStream.newInstance(message);
+		input.enableAliasing(true);
+		WireSink output = new WireSink(message.length * 2 + 16);
+		print(input, output);
+		return output.toByteArray();
+	}
+
+	/**
+	 * Converts a serialized message to JSON, reading the input until it is exhausted (or
+	 * its current limit is reached).
+	 * @param input the serialized message
+	 * @param output the stream to write the JSON to, encoded as UTF-8
+	 * @throws IOException if the output cannot be written
+	 */
+	public void toJson(CodedInputStream input, OutputStream output) throws IOException {
+		WireSink sink = new WireSink(256);
+		print(input, sink);
+		sink.writeTo(output);
+	}
+
+	/**
+	 * Converts JSON to a serialized message.
+	 * @param json the JSON, encoded as UTF-8
+	 * @return the serialized message
+	 * @throws IllegalArgumentException if the JSON is malformed or does not match the
+	 * message type
+	 */
+	public byte[] fromJson(byte[] json) {
+		Parser parser = new Parser(json);
+		WireSink output = new WireSink(json.length);
+		parse(parser, output, 0);
+		parser.finish();
+		return output.toByteArray();
+	}
+
+	/**
+	 * Converts JSON to a serialized message.
+	 * @param json the JSON
+	 * @return the serialized message
+	 * @throws IllegalArgumentException if the JSON is malformed or does not match the
+	 * message type
+	 */
+	public byte[] fromJson(String json) {
+		return fromJson(json.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private Field find(int number) {
+		if (this.dense != null) {
+			return number < this.dense.length ? this.dense[number] : null;
+		}
+		int index = Arrays.binarySearch(this.numbers, number);
+		return index < 0 ? null : this.sorted[index];
+	}
+
+	private void index(byte[] name, Field field) {
+		int mask = this.names.length - 1;
+		int slot = hash(name, 0, name.length) & mask;
+		while (this.names[slot] != null) {
+			if (Arrays.equals(this.names[slot], name)) {
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		this.names[slot] = name;
+		this.named[slot] = field;
+	}
+
+	private Field lookup(byte[] bytes, int from, int to) {
+		int mask = this.names.length - 1;
+		int slot = hash(bytes, from, to) & mask;
+		byte[] name;
+		while ((name = this.names[slot]) != null) {
+			if (Arrays.equals(name, 0, name.length, bytes, from, to)) {
+				return this.named[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		return null;
+	}
+
+	private static int hash(byte[] bytes, int from, int to) {
+		int hash = 0;
+		for (int i = from; i < to; i++) {
+			hash = 31 * hash + bytes[i];
+		}
+		return hash ^ (hash >>> 16);
+	}
+
+	private void print(CodedInputStream input, WireSink output) {
+		try {
+			write(input, output, 0);
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Failed to decode: " + this.descriptor.getFullName(), e);
+		}
+	}
+
+	private void write(CodedInputStream input, WireSink output, int depth) throws IOException {
+		if (depth > MAX_DEPTH) {
+			throw new InvalidProtocolBufferException("Message nested too deeply: " + this.descriptor.getFullName());
+		}
+		output.write('{');
+		boolean first = true;
+		Field open = null;
+		int tag;
+		while ((tag = input.readTag()) != 0) {
+			Field field = find(WireFormat.getTagFieldNumber(tag));
+			int wireType = WireFormat.getTagWireType(tag);
+			boolean packed = field != null && field.repeated && field.scalar
+					&& wireType == WireFormat.WIRETYPE_LENGTH_DELIMITED;
+			if (field == null || (wireType != field.wireType && !packed)) {
+				if (!input.skipField(tag)) {
+					break;
+				}
+				continue;
+			}
+			if (!field.repeated) {
+				if (open != null) {
+					output.write(open.map ? '}' : ']');
+					open = null;
+				}
+				first = writeSingular(field, input, output, first, depth);
+				continue;
+			}
+			int limit = 0;
+			if (packed) {
+				int length = input.readRawVarint32();
+				if (length == 0) {
+					continue;
+				}
+				limit = input.pushLimit(length);
+			}
+			if (open != field) {
+				if (open != null) {
+					output.write(open.map ? '}' : ']');
+				}
+				if (!first) {
+					output.write(',');
+				}
+				first = false;
+				output.write(field.name);
+				output.write(field.map ? '{' : '[');
+				open = field;
+			}
+			else {
+				output.write(',');
+			}
+			if (packed) {
+				writeScalar(field, WireScalars.read(input, field.type), output);
+				while (input.getBytesUntilLimit() > 0) {
+					output.write(',');
+					writeScalar(field, WireScalars.read(input, field.type), output);
+				}
+				input.popLimit(limit);
+			}
+			else if (field.map) {
+				writeEntry(field, input.readByteArray(), output, depth);
+			}
+			else {
+				writeValue(field, input, output, depth);
+			}
+		}
+		if (open != null) {
+			output.write(open.map ? '}' : ']');
+		}
+		output.write('}');
+	}
+
+	private boolean writeSingular(Field field, CodedInputStream input, WireSink output, boolean first, int depth)
+			throws IOException {
+		if (field.scalar) {
+			long value = WireScalars.read(input, field.type);
+			if (value == 0 && !field.presence) {
+				return first;
+			}
+			writeName(field, output, first);
+			writeScalar(field, value, output);
+		}
+		else if (field.type == Type.MESSAGE) {
+			writeName(field, output, first);
+			writeMessage(field, input, output, depth);
+		}
+		else {
+			ByteBuffer value = input.readByteBuffer();
+			if (!value.hasRemaining() && !field.presence) {
+				return first;
+			}
+			writeName(field, output, first);
+			writeBytes(field, value, output);
+		}
+		return false;
+	}
+
+	private void writeName(Field field, WireSink output, boolean first) {
+		if (!first) {
+			output.write(',');
+		}
+		output.write(field.name);
+	}
+
+	private void writeValue(Field field, CodedInputStream input, WireSink output, int depth) throws IOException {
+		if (field.scalar) {
+			writeScalar(field, WireScalars.read(input, field.type), output);
+		}
+		else if (field.type == Type.MESSAGE) {
+			writeMessage(field, input, output, depth);
+		}
+		else {
+			writeBytes(field, input.readByteBuffer(), output);
+		}
+	}
+
+	private void writeMessage(Field field, CodedInputStream input, WireSink output, int depth) throws IOException {
+		int limit = input.pushLimit(input.readRawVarint32());
+		field.message.write(input, output, depth + 1);
+		input.checkLastTagWas(0);
+		input.popLimit(limit);
+	}
+
+	private void writeEntry(Field field, byte[] entry, WireSink output, int depth) throws IOException {
+		// The key has to be written first, but it is not guaranteed to come first
+		CodedInputStream input = CodedInputStream.newInstance(entry);
+		Field key = field.key;
+		long number = 0;
+		ByteBuffer text = null;
+		int tag;
+		while ((tag = input.readTag()) != 0) {
+			if (WireFormat.getTagFieldNumber(tag) != 1 || WireFormat.getTagWireType(tag) != key.wireType) {
+				input.skipField(tag);
+			}
+			else if (key.scalar) {
+				number = WireScalars.read(input, key.type);
+			}
+			else {
+				text = input.readByteBuffer();
+			}
+		}
+		output.write('"');
+		if (key.type == Type.BOOL) {
+			output.writeAscii((number != 0) ? "true" : "false");
+		}
+		else if (key.scalar) {
+			writeNumber(key, number, output);
+		}
+		else if (text != null) {
+			escape(key, text, output);
+		}
+		output.write('"');
+		output.write(':');
+		Field value = field.value;
+		input = CodedInputStream.newInstance(entry);
+		int start = output.size();
+		boolean found = false;
+		while ((tag = input.readTag()) != 0) {
+			if (WireFormat.getTagFieldNumber(tag) != 2 || WireFormat.getTagWireType(tag) != value.wireType) {
+				input.skipField(tag);
+				continue;
+			}
+			// The last value wins
+			output.truncate(start);
+			writeValue(value, input, output, depth);
+			found = true;
+		}
+		if (!found) {
+			writeDefault(value, output);
+		}
+	}
+
+	private void writeDefault(Field field, WireSink output) {
+		if (field.scalar) {
+			writeScalar(field, 0, output);
+		}
+		else if (field.type == Type.MESSAGE) {
+			output.write('{');
+			output.write('}');
+		}
+		else {
+			output.write('"');
+			output.write('"');
+		}
+	}
+
+	private void writeScalar(Field field, long value, WireSink output) {
+		switch (field.type) {
+			case BOOL -> output.writeAscii(value != 0 ? "true" : "false");
+			case INT64, SINT64, SFIXED64, UINT64, FIXED64 -> {
+				output.write('"');
+				writeNumber(field, value, output);
+				output.write('"');
+			}
+			case FLOAT -> writeFloatingPoint(Float.intBitsToFloat((int) value), output);
+			case DOUBLE -> writeFloatingPoint(Double.longBitsToDouble(value), output);
+			case ENUM -> {
+				int index = Arrays.binarySearch(field.enumNumbers, (int) value);
+				if (index >= 0) {
+					output.write(field.enumNames[index]);
+				}
+				else {
+					output.writeDecimal((int) value);
+				}
+			}
+			default -> writeNumber(field, value, output);
+		}
+	}
+
+	private void writeNumber(Field field, long value, WireSink output) {
+		switch (field.type) {
+			case UINT32, FIXED32 -> output.writeDecimal(value & 0xffffffffL);
+			case INT32, SINT32, SFIXED32 -> output.writeDecimal((int) value);
+			case UINT64, FIXED64 -> {
+				if (value < 0) {
+					output.writeAscii(Long.toUnsignedString(value));
+				}
+				else {
+					output.writeDecimal(value);
+				}
+			}
+			default -> output.writeDecimal(value);
+		}
+	}
+
+	private void writeFloatingPoint(double value, WireSink output) {
+		if (Double.isNaN(value)) {
+			output.writeAscii("\"NaN\"");
+		}
+		else if (Double.isInfinite(value)) {
+			output.writeAscii(value > 0 ? "\"Infinity\"" : "\"-Infinity\"");
+		}
+		else {
+			output.writeAscii(Double.toString(value));
+		}
+	}
+
+	private void writeFloatingPoint(float value, WireSink output) {
+		if (Float.isNaN(value) || Float.isInfinite(value)) {
+			writeFloatingPoint((double) value, output);
+		}
+		else {
+			output.writeAscii(Float.toString(value));
+		}
+	}
+
+	private void writeBytes(Field field, ByteBuffer value, WireSink output) {
+		output.write('"');
+		if (field.type == Type.STRING) {
+			escape(field, value, output);
+		}
+		else {
+			output.write(Base64.getEncoder().encode(value));
+		}
+		output.write('"');
+	}
+
+	/**
+	 * Copies UTF-8 text into a JSON string, escaping the same characters as
+	 * {@link com.google.protobuf.util.JsonFormat}.
+	 */
+	private static void escape(Field field, ByteBuffer value, WireSink output) {
+		int limit = value.limit();
+		for (int i = value.position(); i < limit; i++) {
+			int b = value.get(i) & 0xff;
+			if (b >= 0x80) {
+				int length = (b >= 0xf0) ? 4 : (b >= 0xe0) ? 3 : (b >= 0xc0) ? 2 : 0;
+				if (length == 0 || i + length > limit) {
+					throw new IllegalStateException("Invalid UTF-8 in field: " + field.descriptor.getFullName());
+				}
+				for (int j = 1; j < length; j++) {
+					if ((value.get(i + j) & 0xc0) != 0x80) {
+						throw new IllegalStateException("Invalid UTF-8 in field: " + field.descriptor.getFullName());
+					}
+				}
+				if (b == 0xe2 && value.get(i + 1) == (byte) 0x80 && (value.get(i + 2) & 0xfe) == 0xa8) {
+					// U+2028 and U+2029
+					output.writeUnicodeEscape(0x2000 | (value.get(i + 2) & 0xff) - 0x80);
+				}
+				else {
+					for (int j = 0; j < length; j++) {
+						output.write(value.get(i + j));
+					}
+				}
+				i += length - 1;
+				continue;
+			}
+			switch (b) {
+				case '"' -> output.writeAscii("\\\"");
+				case '\\' -> output.writeAscii("\\\\");
+				case '\b' -> output.writeAscii("\\b");
+				case '\f' -> output.writeAscii("\\f");
+				case '\n' -> output.writeAscii("\\n");
+				case '\r' -> output.writeAscii("\\r");
+				case '\t' -> output.writeAscii("\\t");
+				case '<', '>', '&', '=', '\'' -> output.writeUnicodeEscape(b);
+				default -> {
+					if (b < 0x20) {
+						output.writeUnicodeEscape(b);
+					}
+					else {
+						output.write(b);
+					}
+				}
+			}
+		}
+	}
+
+	private void parse(Parser input, WireSink output, int depth) {
+		if (depth > MAX_DEPTH) {
+			throw input.error("message nested too deeply");
+		}
+		input.expect('{');
+		if (input.consume('}')) {
+			return;
+		}
+		do {
+			Field field = input.readName(this);
+			input.expect(':');
+			if (input.consumeNull()) {
+				continue;
+			}
+			if (field.map) {
+				parseMap(field, input, output, depth);
+			}
+			else if (field.repeated) {
+				parseArray(field, input, output, depth);
+			}
+			else {
+				int start = output.size();
+				if (parseValue(field, input, output, depth) && !field.presence) {
+					// Default values of fields without presence are not serialized
+					output.truncate(start);
+				}
+			}
+		}
+		while (input.consume(','));
+		input.expect('}');
+	}
+
+	private void parseArray(Field field, Parser input, WireSink output, int depth) {
+		input.expect('[');
+		if (input.consume(']')) {
+			return;
+		}
+		if (field.packed) {
+			output.writeTag(field.number, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+			int mark = output.begin();
+			do {
+				output.writeScalar(field.type, parseScalar(field, input));
+			}
+			while (input.consume(','));
+			output.end(mark);
+		}
+		else {
+			do {
+				parseValue(field, input, output, depth);
+			}
+			while (input.consume(','));
+		}
+		input.expect(']');
+	}
+
+	private void parseMap(Field field, Parser input, WireSink output, int depth) {
+		input.expect('{');
+		if (input.consume('}')) {
+			return;
+		}
+		do {
+			output.writeTag(field.number, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+			int mark = output.begin();
+			Field key = field.key;
+			output.writeTag(1, key.wireType);
+			if (key.type == Type.STRING) {
+				int length = output.begin();
+				input.readString(output);
+				output.end(length);
+			}
+			else {
+				output.writeScalar(key.type, parseKey(key, input.readStringValue(), input));
+			}
+			input.expect(':');
+			if (!input.consumeNull()) {
+				parseValue(field.value, input, output, depth);
+			}
+			output.end(mark);
+		}
+		while (input.consume(','));
+		input.expect('}');
+	}
+
+	/**
+	 * Parses a value and writes it with its tag.
+	 * @return true if the value is a scalar default or empty
+	 */
+	private boolean parseValue(Field field, Parser input, WireSink output, int depth) {
+		output.writeTag(field.number, field.wireType);
+		if (field.scalar) {
+			long value = parseScalar(field, input);
+			output.writeScalar(field.type, value);
+			return value == 0;
+		}
+		int mark = output.begin();
+		if (field.type == Type.MESSAGE) {
+			field.message.parse(input, output, depth + 1);
+		}
+		else if (field.type == Type.STRING) {
+			input.readString(output);
+		}
+		else {
+			String text = input.readStringValue().replace('-', '+').replace('_', '/');
+			try {
+				output.write(Base64.getDecoder().decode(text + "==".substring(0, (4 - text.length() % 4) % 4 % 3)));
+			}
+			catch (IllegalArgumentException e) {
+				throw input.error("invalid base64 for " + field.descriptor.getName());
+			}
+		}
+		int length = output.size() - mark - 1;
+		output.end(mark);
+		return length == 0 && field.type != Type.MESSAGE;
+	}
+
+	private long parseScalar(Field field, Parser input) {
+		return switch (field.type) {
+			case BOOL -> parseBoolean(field, input);
+			case FLOAT, DOUBLE -> parseFloatingPoint(field, input);
+			case ENUM -> parseEnum(field, input);
+			default -> parseInteger(field, input);
+		};
+	}
+
+	private long parseBoolean(Field field, Parser input) {
+		if (input.consumeLiteral("true")) {
+			return 1;
+		}
+		if (input.consumeLiteral("false")) {
+			return 0;
+		}
+		throw input.error("expected boolean for " + field.descriptor.getName());
+	}
+
+	private long parseFloatingPoint(Field field, Parser input) {
+		String text = (input.peek() == '"') ? input.readStringValue() : input.readNumber();
+		double value = switch (text) {
+			case "NaN" -> Double.NaN;
+			case "Infinity" -> Double.POSITIVE_INFINITY;
+			case "-Infinity" -> Double.NEGATIVE_INFINITY;
+			default -> {
+				try {
+					yield Double.parseDouble(text);
+				}
+				catch (NumberFormatException e) {
+					throw input.error("invalid number for " + field.descriptor.getName() + ": " + text);
+				}
+			}
+		};
+		if (field.type == Type.DOUBLE) {
+			return Double.doubleToRawLongBits(value);
+		}
+		if (Double.isFinite(value) && Math.abs(value) > Float.MAX_VALUE) {
+			throw input.error("float out of range for " + field.descriptor.getName() + ": " + text);
+		}
+		return Float.floatToRawIntBits((float) value);
+	}
+
+	private long parseEnum(Field field, Parser input) {
+		if (input.peek() != '"') {
+			return parseInteger(field, input.readNumber(), input);
+		}
+		String name = input.readStringValue();
+		EnumValueDescriptor value = field.descriptor.getEnumType().findValueByName(name);
+		if (value == null) {
+			throw input.error("unknown value for " + field.descriptor.getName() + ": " + name);
+		}
+		return value.getNumber();
+	}
+
+	private long parseInteger(Field field, Parser input) {
+		if (input.peek() == '"') {
+			return parseInteger(field, input.readStringValue(), input);
+		}
+		long value = input.readInteger();
+		if (!input.isInteger()) {
+			return parseInteger(field, input.readNumber(), input);
+		}
+		boolean valid = switch (field.type) {
+			case INT32, SINT32, SFIXED32 -> value == (int) value;
+			case UINT32, FIXED32 -> value >= 0 && value <= 0xffffffffL;
+			case UINT64, FIXED64 -> value >= 0;
+			default -> true;
+		};
+		if (!valid) {
+			throw input.error("integer out of range for " + field.descriptor.getName() + ": " + value);
+		}
+		return value;
+	}
+
+	private static long parseKey(Field key, String text, Parser input) {
+		if (key.type != Type.BOOL) {
+			return parseInteger(key, text, input);
+		}
+		return switch (text) {
+			case "true" -> 1;
+			case "false" -> 0;
+			default -> throw input.error("invalid boolean key: " + text);
+		};
+	}
+
+	private static long parseInteger(Field field, String text, Parser input) {
+		BigInteger value;
+		try {
+			value = new BigDecimal(text).toBigIntegerExact();
+		}
+		catch (ArithmeticException | NumberFormatException e) {
+			throw input.error("invalid integer for " + field.descriptor.getName() + ": " + text);
+		}
+		checkRange(field, value, input);
+		return value.longValue();
+	}
+
+	private static void checkRange(Field field, BigInteger value, Parser input) {
+		int bits = switch (field.type) {
+			case INT32, SINT32, SFIXED32, ENUM -> -32;
+			case UINT32, FIXED32 -> 32;
+			case UINT64, FIXED64 -> 64;
+			default -> -64;
+		};
+		boolean valid = (bits > 0) ? value.signum() >= 0 && value.bitLength() <= bits : value.bitLength() < -bits;
+		if (!valid) {
+			throw input.error("integer out of range for " + field.descriptor.getName() + ": " + value);
+		}
+	}
+
+	private static final class Field {
+
+		private final FieldDescriptor descriptor;
+
+		private final Type type;
+
+		private final int number;
+
+		private final int wireType;
+
+		private final boolean scalar;
+
+		private final boolean repeated;
+
+		private final boolean packed;
+
+		private final boolean presence;
+
+		private final boolean map;
+
+		/**
+		 * The quoted and escaped JSON name followed by a colon.
+		 */
+		private final byte[] name;
+
+		private final int[] enumNumbers;
+
+		private final byte[][] enumNames;
+
+		private JsonTranscoder message;
+
+		private Field key;
+
+		private Field value;
+
+		private Field(FieldDescriptor descriptor) {
+			this.descriptor = descriptor;
+			this.type = descriptor.getType();
+			this.number = descriptor.getNumber();
+			this.wireType = WireScalars.wireType(this.type);
+			this.scalar = WireScalars.isScalar(this.type);
+			this.repeated = descriptor.isRepeated();
+			this.packed = descriptor.isPacked();
+			this.presence = descriptor.hasPresence();
+			this.map = descriptor.isMapField();
+			this.name = quote(descriptor.getJsonName(), ":");
+			if (this.type == Type.ENUM) {
+				List<EnumValueDescriptor> values = descriptor.getEnumType().getValues();
+				this.enumNumbers = values.stream()
+					.mapToInt(EnumValueDescriptor::getNumber)
+					.distinct()
+					.sorted()
+					.toArray();
+				this.enumNames = new byte[this.enumNumbers.length][];
+				for (int i = 0; i < this.enumNumbers.length; i++) {
+					this.enumNames[i] = quote(descriptor.getEnumType().findValueByNumber(this.enumNumbers[i]).getName(),
+							"");
+				}
+			}
+			else {
+				this.enumNumbers = null;
+				this.enumNames = null;
+			}
+		}
+
+		private static byte[] quote(String value, String suffix) {
+			WireSink sink = new WireSink(value.length() + 8);
+			sink.write('"');
+			escape(null, ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8)), sink);
+			sink.write('"');
+			sink.writeAscii(suffix);
+			return sink.toByteArray();
+		}
+
+	}
+
+	/**
+	 * A JSON tokenizer over UTF-8 bytes.
+	 */
+	private static final class Parser {
+
+		private final byte[] json;
+
+		private int position;
+
+		private boolean integer;
+
+		private Parser(byte[] json) {
+			this.json = json;
+		}
+
+		private IllegalArgumentException error(String message) {
+			return new IllegalArgumentException("Invalid JSON at offset " + this.position + ": " + message);
+		}
+
+		private int peek() {
+			while (this.position < this.json.length) {
+				byte b = this.json[this.position];
+				if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+					return b;
+				}
+				this.position++;
+			}
+			return -1;
+		}
+
+		private boolean consume(char c) {
+			if (peek() == c) {
+				this.position++;
+				return true;
+			}
+			return false;
+		}
+
+		private void expect(char c) {
+			if (!consume(c)) {
+				throw error("expected '" + c + "'");
+			}
+		}
+
+		private boolean consumeLiteral(String literal) {
+			peek();
+			int end = this.position + literal.length();
+			if (end > this.json.length) {
+				return false;
+			}
+			for (int i = 0; i < literal.length(); i++) {
+				if (this.json[this.position + i] != literal.charAt(i)) {
+					return false;
+				}
+			}
+			this.position = end;
+			return true;
+		}
+
+		private boolean consumeNull() {
+			return consumeLiteral("null");
+		}
+
+		private void finish() {
+			if (peek() != -1) {
+				throw error("unexpected content after the end of the message");
+			}
+		}
+
+		private Field readName(JsonTranscoder owner) {
+			expect('"');
+			int start = this.position;
+			while (this.position < this.json.length && this.json[this.position] != '"'
+					&& this.json[this.position] != '\\') {
+				this.position++;
+			}
+			Field field;
+			if (this.position < this.json.length && this.json[this.position] == '"') {
+				field = owner.lookup(this.json, start, this.position++);
+			}
+			else {
+				this.position = start - 1;
+				WireSink name = new WireSink(32);
+				readString(name);
+				field = owner.lookup(name.array(), 0, name.size());
+			}
+			if (field == null) {
+				this.position = start;
+				throw error("unknown field in " + owner.descriptor.getFullName());
+			}
+			return field;
+		}
+
+		private void readString(WireSink output) {
+			expect('"');
+			while (true) {
+				if (this.position >= this.json.length) {
+					throw error("unterminated string");
+				}
+				int b = this.json[this.position++];
+				if (b == '"') {
+					return;
+				}
+				if (b == '\\') {
+					unescape(output);
+				}
+				else if (b >= 0 && b < 0x20) {
+					throw error("control character in string");
+				}
+				else {
+					output.write(b);
+				}
+			}
+		}
+
+		private String readStringValue() {
+			WireSink value = new WireSink(32);
+			readString(value);
+			return new String(value.array(), 0, value.size(), StandardCharsets.UTF_8);
+		}
+
+		private void unescape(WireSink output) {
+			if (this.position >= this.json.length) {
+				throw error("unterminated string");
+			}
+			int c = this.json[this.position++];
+			switch (c) {
+				case '"', '\\', '/' -> output.write(c);
+				case 'b' -> output.write('\b');
+				case 'f' -> output.write('\f');
+				case 'n' -> output.write('\n');
+				case 'r' -> output.write('\r');
+				case 't' -> output.write('\t');
+				case 'u' -> {
+					int codePoint = readHex();
+					if (Character.isHighSurrogate((char) codePoint) && this.position + 1 < this.json.length
+							&& this.json[this.position] == '\\' && this.json[this.position + 1] == 'u') {
+						this.position += 2;
+						int low = readHex();
+						if (!Character.isLowSurrogate((char) low)) {
+							throw error("invalid surrogate pair");
+						}
+						codePoint = Character.toCodePoint((char) codePoint, (char) low);
+					}
+					output.writeUtf8(codePoint);
+				}
+				default -> throw error("invalid escape");
+			}
+		}
+
+		private int readHex() {
+			if (this.position + 4 > this.json.length) {
+				throw error("invalid unicode escape");
+			}
+			int value = 0;
+			for (int i = 0; i < 4; i++) {
+				int digit = Character.digit(this.json[this.position++], 16);
+				if (digit < 0) {
+					throw error("invalid unicode escape");
+				}
+				value = value << 4 | digit;
+			}
+			return value;
+		}
+
+		/**
+		 * Reads an integer without allocating, if the next token is a plain integer that
+		 * fits in a long. Otherwise leaves the position unchanged. Check
+		 * {@link #isInteger()} for the outcome.
+		 */
+		private long readInteger() {
+			peek();
+			int start = this.position;
+			int index = start;
+			boolean negative = index < this.json.length && this.json[index] == '-';
+			if (negative) {
+				index++;
+			}
+			long value = 0;
+			int digits = 0;
+			while (index < this.json.length && this.json[index] >= '0' && this.json[index] <= '9' && digits < 18) {
+				value = value * 10 + (this.json[index++] - '0');
+				digits++;
+			}
+			this.integer = digits > 0 && (index == this.json.length || ",}] \t\r\n".indexOf(this.json[index]) >= 0);
+			if (this.integer) {
+				this.position = index;
+				return negative ? -value : value;
+			}
+			return 0;
+		}
+
+		private boolean isInteger() {
+			return this.integer;
+		}
+
+		private String readNumber() {
+			peek();
+			int start = this.position;
+			while (this.position < this.json.length && "+-.eE0123456789".indexOf(this.json[this.position]) >= 0) {
+				this.position++;
+			}
+			if (start == this.position) {
+				throw error("expected number");
+			}
+			return new String(this.json, start, this.position - start, StandardCharsets.US_ASCII);
+		}
+
+	}
+
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.DescriptorValidationException;
+import com.google.protobuf.Descriptors.EnumDescriptor;
+import com.google.protobuf.Descriptors.FileDescriptor;
+import com.google.protobuf.Descriptors.ServiceDescriptor;
+
+/**
+ * A view of a set of files that builds each {@link FileDescriptor} on first access,
+ * together with its dependency closure, and memoizes the result. Files that are never
+ * asked for (directly or as a dependency) are never validated or built. All methods are
+ * thread-safe.
+ *
+ * <p>
+ * <strong>Usage:</strong>
+ * </p>
+ * <pre>
+ * LazyFileDescriptorSet files = new FileDescriptorManager().lazy(fileDescriptorSet);
+ * Descriptor type = files.findMessageTypeByName("sample.EchoRequest");
+ * </pre>
+ *
+ * @see FileDescriptorManager#lazy(FileDescriptorSet)
+ * @see FileDescriptorSetIndex
+ */
+public class LazyFileDescriptorSet {
+
+	private final Map<String, List<String>> packages = new HashMap<>();
+
+	private final Map<String, FileDescriptor> built = new HashMap<>();
+
+	private final Map<String, String> files;
+
+	private final Function<String, FileDescriptorProto> source;
+
+	private final SchemaMetrics metrics;
+
+	/**
+	 * Creates a lazy view over files that can be looked up by name.
+	 * @param files the file names, in order, mapped to their packages
+	 * @param source a function to look up the file with a given name
+	 */
+	LazyFileDescriptorSet(Map<String, String> files, Function<String, FileDescriptorProto> source) {
+		this(files, source, Collections.emptyMap(), SchemaMetrics.NONE);
+	}
+
+	/**
+	 * Creates a lazy view over files that can be looked up by name, some of which have
+	 * already been built.
+	 * @param files the file names, in order, mapped to their packages
+	 * @param source a function to look up the file with a given name
+	 * @param built descriptors to use instead of building the files with the same names
+	 * @param metrics the metrics to report the time taken to build each file to
+	 */
+	LazyFileDescriptorSet(Map<String, String> files, Function<String, FileDescriptorProto> source,
+			Map<String, FileDescriptor> built, SchemaMetrics metrics) {
+		this.files = files;
+		this.source = source;
+		this.metrics = metrics;
+		this.built.putAll(built);
+		files.forEach((name, pkg) -> this.packages.computeIfAbsent(pkg, key -> new ArrayList<>()).add(name));
+	}
+
+	/**
+	 * The names of all the files in the set, in order.
+	 * @return the file names
+	 */
+	public Set<String> getFileNames() {
+		return Collections.unmodifiableSet(this.files.keySet());
+	}
+
+	/**
+	 * Finds a file by name, building it and its dependencies if necessary.
+	 * @param name the file name
+	 * @return the file, or null if there is no such file
+	 * @throws IllegalStateException if the file or one of its dependencies is invalid or
+	 * missing
+	 */
+	public synchronized FileDescriptor findFileByName(String name) {
+		if (!this.files.containsKey(name)) {
+			return null;
+		}
+		return build(name);
+	}
+
+	/**
+	 * Finds a message type by its fully qualified name (without a leading dot), building
+	 * only the files that might contain it.
+	 * @param name the fully qualified type name
+	 * @return the message type, or null if it was not found
+	 */
+	public synchronized Descriptor findMessageTypeByName(String name) {
+		for (String file : candidates(name)) {
+			Descriptor type = findMessageTypeByName(build(file), relativeName(file, name));
+			if (type != null) {
+				return type;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Finds an enum type by its fully qualified name (without a leading dot), building
+	 * only the files that might contain it.
+	 * @param name the fully qualified type name
+	 * @return the enum type, or null if it was not found
+	 */
+	public synchronized EnumDescriptor findEnumTypeByName(String name) {
+		for (String file : candidates(name)) {
+			String relative = relativeName(file, name);
+			int index = relative.lastIndexOf('.');
+			FileDescriptor descriptor = build(file);
+			EnumDescriptor type = null;
+			if (index < 0) {
+				type = descriptor.findEnumTypeByName(relative);
+			}
+			else {
+				Descriptor parent = findMessageTypeByName(descriptor, relative.substring(0, index));
+				if (parent != null) {
+					type = parent.findEnumTypeByName(relative.substring(index + 1));
+				}
+			}
+			if (type != null) {
+				return type;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Finds a service by its fully qualified name (without a leading dot), building only
+	 * the files that might contain it.
+	 * @param name the fully qualified service name
+	 * @return the service, or null if it was not found
+	 */
+	public synchronized ServiceDescriptor findServiceByName(String name) {
+		for (String file : candidates(name)) {
+			ServiceDescriptor service = build(file).findServiceByName(relativeName(file, name));
+			if (service != null) {
+				return service;
+			}
+		}
+		return null;
+	}
+
+	synchronized boolean isBuilt(String name) {
+		return this.built.containsKey(name);
+	}
+
+	private List<String> candidates(String name) {
+		List<String> result = new ArrayList<>();
+		int index = name.length();
+		while ((index = name.lastIndexOf('.', index - 1)) > 0) {
+			result.addAll(this.packages.getOrDefault(name.substring(0, index), Collections.emptyList()));
+		}
+		result.addAll(this.packages.getOrDefault("", Collections.emptyList()));
+		return result;
+	}
+
+	private String relativeName(String file, String name) {
+		String pkg = this.files.get(file);
+		return pkg.isEmpty() ? name : name.substring(pkg.length() + 1);
+	}
+
+	private Descriptor findMessageTypeByName(FileDescriptor file, String name) {
+		String[] path = name.split("\\.");
+		Descriptor type = file.findMessageTypeByName(path[0]);
+		for (int i = 1; i < path.length && type != null; i++) {
+			type = type.findNestedTypeByName(path[i]);
+		}
+		return type;
+	}
+
+	private FileDescriptor build(String name) {
+		FileDescriptor result = this.built.get(name);
+		if (result != null) {
+			return result;
+		}
+		FileDescriptorProto proto = this.files.containsKey(name) ? this.source.apply(name) : null;
+		if (proto == null) {
+			throw new IllegalStateException("Missing dependency: " + name);
+		}
+		FileDescriptor[] dependencies = new FileDescriptor[proto.getDependencyCount()];
+		for (int i = 0; i < dependencies.length; i++) {
+			dependencies[i] = build(proto.getDependency(i));
+		}
+		SchemaStageEvent event = SchemaStageEvent.start(this.metrics);
+		try {
+			result = FileDescriptor.buildFrom(proto, dependencies);
+		}
+		catch (DescriptorValidationException e) {
+			throw new IllegalStateException("Invalid descriptor: " + name, e);
+		}
+		event.finish(this.metrics, SchemaMetrics.Stage.BUILD, name, proto.getSerializedSize());
+		this.built.put(name, result);
+		return result;
+	}
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import java.util.Arrays;
+
+/**
+ * A growable array of unboxed <code>long</code> values, used to hold repeated scalar
+ * fields as raw bits (see {@link MessageCodec}) and primitive columns (see
+ * {@link FieldProjection}).
+ */
+public final class LongList {
+
+	private long[] values;
+
+	private int size;
+
+	/**
+	 * Constructs an empty list.
+	 */
+	public LongList() {
+		this(8);
+	}
+
+	/**
+	 * Constructs an empty list with the given initial capacity.
+	 * @param capacity the initial capacity
+	 */
+	public LongList(int capacity) {
+		this.values = new long[Math.max(capacity, 1)];
+	}
+
+	/**
+	 * Appends a value.
+	 * @param value the value to add
+	 */
+	public void add(long value) {
+		if (this.size == this.values.length) {
+			this.values = Arrays.copyOf(this.values, this.size * 2);
+		}
+		this.values[this.size++] = value;
+	}
+
+	/**
+	 * The value at an index.
+	 * @param index the index
+	 * @return the value
+	 */
+	public long get(int index) {
+		if (index >= this.size) {
+			throw new IndexOutOfBoundsException(index);
+		}
+		return this.values[index];
+	}
+
+	/**
+	 * The number of values in the list.
+	 * @return the size
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Removes all values, keeping the allocated capacity.
+	 */
+	public void clear() {
+		this.size = 0;
+	}
+
+	/**
+	 * A copy of the values.
+	 * @return the values as an array
+	 */
+	public long[] toArray() {
+		return Arrays.copyOf(this.values, this.size);
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(toArray());
+	}
+
+}
@@ -0,0 +1,775 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor.Type;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
+
+/**
+ * A binary codec for one message type, compiled from its {@link Descriptor}. Compiling
+ * assigns every field a fixed slot in a {@link CompactMessage} and builds a dispatch
+ * table indexed by field number, so decoding and encoding need no per-field map lookups
+ * and no boxing of scalar values. Codecs for nested message types are compiled at the
+ * same time. Unknown fields are skipped when decoding and are not preserved. Groups are
+ * not supported.
+ *
+ * <p>
+ * <strong>Usage:</strong>
+ * </p>
+ * <pre>
+ * MessageCodec codec = MessageCodec.compile(descriptor);
+ * MessageCodec.Field count = codec.findFieldByName("count");
+ * CompactMessage message = codec.decode(bytes);
+ * long value = count.getLong(message);
+ * </pre>
+ */
+public final class MessageCodec {
+
+	private static final int MAX_DENSE_FIELD_NUMBER = 1024;
+
+	// The same as the default recursion limit of CodedInputStream
+	private static final int MAX_DEPTH = 100;
+
+	private final Descriptor descriptor;
+
+	private final Field[] fields;
+
+	private final Field[] sorted;
+
+	private final Field[] dense;
+
+	private final int[] numbers;
+
+	private final Map<String, Field> names = new HashMap<>();
+
+	private final Field[][] oneofs;
+
+	private final int scalarSlots;
+
+	private final int referenceSlots;
+
+	private MessageCodec(Descriptor descriptor) {
+		this.descriptor = descriptor;
+		boolean utf8 = "proto3".equals(descriptor.getFile().toProto().getSyntax());
+		List<FieldDescriptor> list = descriptor.getFields();
+		this.fields = new Field[list.size()];
+		int scalars = 0;
+		int references = 0;
+		int max = 0;
+		for (int i = 0; i < this.fields.length; i++) {
+			FieldDescriptor field = list.get(i);
+			if (field.getType() == Type.GROUP) {
+				throw new IllegalArgumentException("Groups are not supported: " + field.getFullName());
+			}
+			boolean scalar = !field.isRepeated() && WireScalars.isScalar(field.getType());
+			this.fields[i] = new Field(this, field, i, scalar ? scalars++ : references++, scalar, utf8);
+			this.names.put(field.getName(), this.fields[i]);
+			max = Math.max(max, field.getNumber());
+		}
+		this.scalarSlots = scalars;
+		this.referenceSlots = references;
+		this.sorted = this.fields.clone();
+		Arrays.sort(this.sorted, Comparator.comparingInt(field -> field.number));
+		this.numbers = new int[this.sorted.length];
+		for (int i = 0; i < this.sorted.length; i++) {
+			this.numbers[i] = this.sorted[i].number;
+		}
+		if (max <= MAX_DENSE_FIELD_NUMBER) {
+			this.dense = new Field[max + 1];
+			for (Field field : this.fields) {
+				this.dense[field.number] = field;
+			}
+		}
+		else {
+			this.dense = null;
+		}
+		this.oneofs = new Field[descriptor.getOneofs().size()][];
+		for (int i = 0; i < this.oneofs.length; i++) {
+			List<FieldDescriptor> members = descriptor.getOneofs().get(i).getFields();
+			this.oneofs[i] = new Field[members.size()];
+			for (int j = 0; j < members.size(); j++) {
+				this.oneofs[i][j] = this.fields[members.get(j).getIndex()];
+			}
+		}
+	}
+
+	/**
+	 * Compiles a codec for the given message type and all the message types it refers to.
+	 * @param descriptor the message type
+	 * @return a codec for the message type
+	 */
+	public static MessageCodec compile(Descriptor descriptor) {
+		return compile(descriptor, new HashMap<>());
+	}
+
+	private static MessageCodec compile(Descriptor descriptor, Map<Descriptor, MessageCodec> codecs) {
+		MessageCodec codec = codecs.get(descriptor);
+		if (codec != null) {
+			return codec;
+		}
+		codec = new MessageCodec(descriptor);
+		codecs.put(descriptor, codec);
+		for (Field field : codec.fields) {
+			if (field.type == Type.MESSAGE) {
+				field.codec = compile(field.descriptor.getMessageType(), codecs);
+			}
+		}
+		return codec;
+	}
+
+	/**
+	 * The message type of this codec.
+	 * @return the descriptor
+	 */
+	public Descriptor getDescriptor() {
+		return this.descriptor;
+	}
+
+	/**
+	 * The fields of the message type, in declaration order.
+	 * @return the fields
+	 */
+	public List<Field> getFields() {
+		return Collections.unmodifiableList(Arrays.asList(this.fields));
+	}
+
+	/**
+	 * Finds a field by name.
+	 * @param name the field name
+	 * @return the field, or null if there is no such field
+	 */
+	public Field findFieldByName(String name) {
+		return this.names.get(name);
+	}
+
+	/**
+	 * Finds a field by number.
+	 * @param number the field number
+	 * @return the field, or null if there is no such field
+	 */
+	public Field findFieldByNumber(int number) {
+		if (this.dense != null) {
+			return number < this.dense.length ? this.dense[number] : null;
+		}
+		int index = Arrays.binarySearch(this.numbers, number);
+		return index < 0 ? null : this.sorted[index];
+	}
+
+	/**
+	 * Creates an empty message.
+	 * @return a new message with all fields at their default values
+	 */
+	public CompactMessage newMessage() {
+		return new CompactMessage(this, this.scalarSlots, this.referenceSlots, this.fields.length);
+	}
+
+	/**
+	 * Decodes a message from its serialized form.
+	 * @param bytes the serialized message
+	 * @return the decoded message
+	 */
+	public CompactMessage decode(byte[] bytes) {
+		return decode(CodedInputStream.newInstance(bytes));
+	}
+
+	/**
+	 * Decodes a message from its serialized form, from the current position to the limit
+	 * of the buffer.
+	 * @param buffer the serialized message
+	 * @return the decoded message
+	 */
+	public CompactMessage decode(ByteBuffer buffer) {
+		return decode(CodedInputStream.newInstance(buffer));
+	}
+
+	/**
+	 * Decodes a message, reading the input until it is exhausted (or its current limit is
+	 * reached).
+	 * @param input the input to read from
+	 * @return the decoded message
+	 */
+	public CompactMessage decode(CodedInputStream input) {
+		CompactMessage message = newMessage();
+		try {
+			merge(message, input, 0);
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Failed to decode: " + this.descriptor.getFullName(), e);
+		}
+		return message;
+	}
+
+	/**
+	 * Encodes a message.
+	 * @param message the message to encode
+	 * @return the serialized message
+	 */
+	public byte[] encode(CompactMessage message) {
+		byte[] bytes = new byte[size(message)];
+		CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+		encode(message, output);
+		output.checkNoSpaceLeft();
+		return bytes;
+	}
+
+	/**
+	 * Encodes a message to an output stream.
+	 * @param message the message to encode
+	 * @param output the output to write to
+	 */
+	public void encode(CompactMessage message, CodedOutputStream output) {
+		check(message);
+		size(message);
+		try {
+			write(message, output);
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Failed to encode: " + this.descriptor.getFullName(), e);
+		}
+	}
+
+	/**
+	 * The serialized size of a message.
+	 * @param message the message
+	 * @return the size in bytes
+	 */
+	public int size(CompactMessage message) {
+		check(message);
+		int size = 0;
+		for (Field field : this.sorted) {
+			size += field.size(message);
+		}
+		message.size = size;
+		return size;
+	}
+
+	void merge(CompactMessage message, CodedInputStream input, int depth) throws IOException {
+		if (depth > MAX_DEPTH) {
+			throw new InvalidProtocolBufferException("Message nested too deeply: " + this.descriptor.getFullName());
+		}
+		int tag;
+		while ((tag = input.readTag()) != 0) {
+			Field field = findFieldByNumber(WireFormat.getTagFieldNumber(tag));
+			int wireType = WireFormat.getTagWireType(tag);
+			if (field == null || (wireType != field.wireType && !field.isPackable(wireType))) {
+				if (!input.skipField(tag)) {
+					break;
+				}
+				continue;
+			}
+			field.read(message, input, wireType, depth);
+		}
+	}
+
+	private void write(CompactMessage message, CodedOutputStream output) throws IOException {
+		for (Field field : this.sorted) {
+			field.write(message, output);
+		}
+	}
+
+	private void check(CompactMessage message) {
+		if (message.codec != this) {
+			throw new IllegalArgumentException("Message of type " + message.codec.descriptor.getFullName()
+					+ " is not a " + this.descriptor.getFullName());
+		}
+	}
+
+	/**
+	 * A handle for reading and writing one field of a {@link CompactMessage}. Scalar
+	 * values are exposed as raw bits through {@link #getLong(CompactMessage)} and
+	 * {@link #setLong(CompactMessage, long)}, with typed convenience methods on top.
+	 */
+	public static final class Field {
+
+		private final MessageCodec owner;
+
+		private final FieldDescriptor descriptor;
+
+		private final Type type;
+
+		private final int number;
+
+		private final int index;
+
+		private final int slot;
+
+		private final int wireType;
+
+		private final int tag;
+
+		private final boolean scalar;
+
+		private final boolean repeated;
+
+		private final boolean packed;
+
+		private final boolean presence;
+
+		private final boolean utf8;
+
+		private final int oneof;
+
+		private MessageCodec codec;
+
+		Field(MessageCodec owner, FieldDescriptor descriptor, int index, int slot, boolean scalar, boolean utf8) {
+			this.owner = owner;
+			this.descriptor = descriptor;
+			this.type = descriptor.getType();
+			this.number = descriptor.getNumber();
+			this.index = index;
+			this.slot = slot;
+			this.scalar = scalar;
+			this.repeated = descriptor.isRepeated();
+			this.packed = descriptor.isPacked();
+			this.presence = descriptor.hasPresence();
+			this.utf8 = utf8;
+			this.wireType = WireScalars.wireType(this.type);
+			this.tag = WireScalars.tag(this.number, this.wireType);
+			this.oneof = descriptor.getContainingOneof() != null ? descriptor.getContainingOneof().getIndex() : -1;
+		}
+
+		/**
+		 * The descriptor of this field.
+		 * @return the field descriptor
+		 */
+		public FieldDescriptor getDescriptor() {
+			return this.descriptor;
+		}
+
+		/**
+		 * The codec for the message type of this field, if it is a message field.
+		 * @return the codec, or null
+		 */
+		public MessageCodec getCodec() {
+			return this.codec;
+		}
+
+		/**
+		 * Whether the field is set: present (for fields with presence), non-default (for
+		 * singular fields without presence) or non-empty (for repeated fields).
+		 * @param message the message
+		 * @return true if the field is set
+		 */
+		public boolean has(CompactMessage message) {
+			this.owner.check(message);
+			if (this.presence) {
+				return message.isPresent(this.index);
+			}
+			if (this.scalar) {
+				return message.scalars[this.slot] != 0;
+			}
+			Object value = message.references[this.slot];
+			if (value instanceof LongList list) {
+				return list.size() > 0;
+			}
+			if (value instanceof List<?> list) {
+				return !list.isEmpty();
+			}
+			if (value instanceof String string) {
+				return !string.isEmpty();
+			}
+			if (value instanceof ByteString bytes) {
+				return !bytes.isEmpty();
+			}
+			return value != null;
+		}
+
+		/**
+		 * Clears the field.
+		 * @param message the message
+		 */
+		public void clear(CompactMessage message) {
+			this.owner.check(message);
+			if (this.scalar) {
+				message.scalars[this.slot] = 0;
+			}
+			else {
+				message.references[this.slot] = null;
+			}
+			message.setPresent(this.index, false);
+		}
+
+		/**
+		 * The raw bits of a singular scalar field.
+		 * @param message the message
+		 * @return the raw value
+		 */
+		public long getLong(CompactMessage message) {
+			this.owner.check(message);
+			checkScalar();
+			return message.scalars[this.slot];
+		}
+
+		/**
+		 * The value of a singular 32-bit integer or enum field.
+		 * @param message the message
+		 * @return the value
+		 */
+		public int getInt(CompactMessage message) {
+			return (int) getLong(message);
+		}
+
+		/**
+		 * The value of a singular boolean field.
+		 * @param message the message
+		 * @return the value
+		 */
+		public boolean getBoolean(CompactMessage message) {
+			return getLong(message) != 0;
+		}
+
+		/**
+		 * The value of a singular float field.
+		 * @param message the message
+		 * @return the value
+		 */
+		public float getFloat(CompactMessage message) {
+			return Float.intBitsToFloat((int) getLong(message));
+		}
+
+		/**
+		 * The value of a singular double field.
+		 * @param message the message
+		 * @return the value
+		 */
+		public double getDouble(CompactMessage message) {
+			return Double.longBitsToDouble(getLong(message));
+		}
+
+		/**
+		 * The value of a singular string field.
+		 * @param message the message
+		 * @return the value, or an empty string if it is not set
+		 */
+		public String getString(CompactMessage message) {
+			Object value = getReference(message);
+			return value == null ? "" : (String) value;
+		}
+
+		/**
+		 * The value of a singular bytes field.
+		 * @param message the message
+		 * @return the value, or empty bytes if it is not set
+		 */
+		public ByteString getBytes(CompactMessage message) {
+			Object value = getReference(message);
+			return value == null ? ByteString.EMPTY : (ByteString) value;
+		}
+
+		/**
+		 * The value of a singular message field.
+		 * @param message the message
+		 * @return the value, or null if it is not set
+		 */
+		public CompactMessage getMessage(CompactMessage message) {
+			return (CompactMessage) getReference(message);
+		}
+
+		/**
+		 * The raw bits of the values of a repeated scalar field.
+		 * @param message the message
+		 * @return the values, never null
+		 */
+		public LongList getLongs(CompactMessage message) {
+			this.owner.check(message);
+			checkRepeated(true);
+			LongList list = (LongList) message.references[this.slot];
+			if (list == null) {
+				list = new LongList();
+				message.references[this.slot] = list;
+			}
+			return list;
+		}
+
+		/**
+		 * The values of a repeated string, bytes or message field.
+		 * @param <T> the element type ({@link String}, {@link ByteString} or
+		 * {@link CompactMessage})
+		 * @param message the message
+		 * @return the values, never null
+		 */
+		@SuppressWarnings("unchecked")
+		public <T> List<T> getList(CompactMessage message) {
+			this.owner.check(message);
+			checkRepeated(false);
+			List<T> list = (List<T>) message.references[this.slot];
+			if (list == null) {
+				list = new ArrayList<>();
+				message.references[this.slot] = list;
+			}
+			return list;
+		}
+
+		/**
+		 * Sets the raw bits of a singular scalar field.
+		 * @param message the message
+		 * @param value the raw value
+		 */
+		public void setLong(CompactMessage message, long value) {
+			this.owner.check(message);
+			checkScalar();
+			message.scalars[this.slot] = value;
+			present(message);
+		}
+
+		/**
+		 * Sets a singular 32-bit integer or enum field.
+		 * @param message the message
+		 * @param value the value
+		 */
+		public void setInt(CompactMessage message, int value) {
+			setLong(message, value);
+		}
+
+		/**
+		 * Sets a singular boolean field.
+		 * @param message the message
+		 * @param value the value
+		 */
+		public void setBoolean(CompactMessage message, boolean value) {
+			setLong(message, value ? 1 : 0);
+		}
+
+		/**
+		 * Sets a singular float field.
+		 * @param message the message
+		 * @param value the value
+		 */
+		public void setFloat(CompactMessage message, float value) {
+			setLong(message, Float.floatToRawIntBits(value));
+		}
+
+		/**
+		 * Sets a singular double field.
+		 * @param message the message
+		 * @param value the value
+		 */
+		public void setDouble(CompactMessage message, double value) {
+			setLong(message, Double.doubleToRawLongBits(value));
+		}
+
+		/**
+		 * Sets a singular string, bytes or message field.
+		 * @param message the message
+		 * @param value a {@link String}, {@link ByteString} or {@link CompactMessage}
+		 */
+		public void setObject(CompactMessage message, Object value) {
+			this.owner.check(message);
+			if (this.scalar || this.repeated) {
+				throw new IllegalStateException("Not a singular reference field: " + this.descriptor.getFullName());
+			}
+			message.references[this.slot] = value;
+			present(message);
+		}
+
+		boolean isPackable(int wireType) {
+			return this.repeated && wireType == WireFormat.WIRETYPE_LENGTH_DELIMITED && WireScalars.isScalar(this.type);
+		}
+
+		void read(CompactMessage message, CodedInputStream input, int wireType, int depth) throws IOException {
+			if (this.scalar) {
+				message.scalars[this.slot] = WireScalars.read(input, this.type);
+				present(message);
+				return;
+			}
+			if (this.repeated && WireScalars.isScalar(this.type)) {
+				LongList list = getLongs(message);
+				if (wireType == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+					int limit = input.pushLimit(input.readRawVarint32());
+					while (input.getBytesUntilLimit() > 0) {
+						list.add(WireScalars.read(input, this.type));
+					}
+					input.popLimit(limit);
+				}
+				else {
+					list.add(WireScalars.read(input, this.type));
+				}
+				return;
+			}
+			Object value;
+			if (this.type == Type.STRING) {
+				value = this.utf8 ? input.readStringRequireUtf8() : input.readString();
+			}
+			else if (this.type == Type.BYTES) {
+				value = input.readBytes();
+			}
+			else {
+				CompactMessage child = this.repeated ? null : (CompactMessage) message.references[this.slot];
+				if (child == null) {
+					child = this.codec.newMessage();
+				}
+				int limit = input.pushLimit(input.readRawVarint32());
+				this.codec.merge(child, input, depth + 1);
+				input.checkLastTagWas(0);
+				input.popLimit(limit);
+				value = child;
+			}
+			if (this.repeated) {
+				getList(message).add(value);
+			}
+			else {
+				message.references[this.slot] = value;
+				present(message);
+			}
+		}
+
+		int size(CompactMessage message) {
+			if (!has(message)) {
+				return 0;
+			}
+			int tagSize = CodedOutputStream.computeTagSize(this.number);
+			if (this.scalar) {
+				return tagSize + WireScalars.sizeNoTag(this.type, message.scalars[this.slot]);
+			}
+			Object value = message.references[this.slot];
+			if (value instanceof LongList list) {
+				int size = 0;
+				for (int i = 0; i < list.size(); i++) {
+					size += WireScalars.sizeNoTag(this.type, list.get(i));
+				}
+				if (this.packed) {
+					return tagSize + CodedOutputStream.computeUInt32SizeNoTag(size) + size;
+				}
+				return size + tagSize * list.size();
+			}
+			if (value instanceof List<?> list) {
+				int size = 0;
+				for (Object item : list) {
+					size += tagSize + referenceSizeNoTag(item);
+				}
+				return size;
+			}
+			return tagSize + referenceSizeNoTag(value);
+		}
+
+		private int referenceSizeNoTag(Object value) {
+			if (value instanceof String string) {
+				return CodedOutputStream.computeStringSizeNoTag(string);
+			}
+			if (value instanceof ByteString bytes) {
+				return CodedOutputStream.computeBytesSizeNoTag(bytes);
+			}
+			CompactMessage child = (CompactMessage) value;
+			int size = this.codec.size(child);
+			return CodedOutputStream.computeUInt32SizeNoTag(size) + size;
+		}
+
+		void write(CompactMessage message, CodedOutputStream output) throws IOException {
+			if (!has(message)) {
+				return;
+			}
+			if (this.scalar) {
+				output.writeUInt32NoTag(this.tag);
+				WireScalars.writeNoTag(output, this.type, message.scalars[this.slot]);
+				return;
+			}
+			Object value = message.references[this.slot];
+			if (value instanceof LongList list) {
+				if (this.packed) {
+					int size = 0;
+					for (int i = 0; i < list.size(); i++) {
+						size += WireScalars.sizeNoTag(this.type, list.get(i));
+					}
+					output.writeTag(this.number, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+					output.writeUInt32NoTag(size);
+					for (int i = 0; i < list.size(); i++) {
+						WireScalars.writeNoTag(output, this.type, list.get(i));
+					}
+				}
+				else {
+					for (int i = 0; i < list.size(); i++) {
+						output.writeUInt32NoTag(this.tag);
+						WireScalars.writeNoTag(output, this.type, list.get(i));
+					}
+				}
+				return;
+			}
+			if (value instanceof List<?> list) {
+				for (Object item : list) {
+					writeReference(output, item);
+				}
+				return;
+			}
+			writeReference(output, value);
+		}
+
+		private void writeReference(CodedOutputStream output, Object value) throws IOException {
+			output.writeUInt32NoTag(this.tag);
+			if (value instanceof String string) {
+				output.writeStringNoTag(string);
+			}
+			else if (value instanceof ByteString bytes) {
+				output.writeBytesNoTag(bytes);
+			}
+			else {
+				CompactMessage child = (CompactMessage) value;
+				// Size was cached by the sizing pass
+				output.writeUInt32NoTag(child.size);
+				this.codec.write(child, output);
+			}
+		}
+
+		private Object getReference(CompactMessage message) {
+			this.owner.check(message);
+			if (this.scalar || this.repeated) {
+				throw new IllegalStateException("Not a singular reference field: " + this.descriptor.getFullName());
+			}
+			return message.references[this.slot];
+		}
+
+		private void present(CompactMessage message) {
+			if (this.oneof >= 0) {
+				for (Field other : this.owner.oneofs[this.oneof]) {
+					if (other != this) {
+						other.clear(message);
+					}
+				}
+			}
+			message.setPresent(this.index, true);
+		}
+
+		private void checkScalar() {
+			if (!this.scalar) {
+				throw new IllegalStateException("Not a singular scalar field: " + this.descriptor.getFullName());
+			}
+		}
+
+		private void checkRepeated(boolean scalar) {
+			if (!this.repeated || WireScalars.isScalar(this.type) != scalar) {
+				throw new IllegalStateException("Not a repeated " + (scalar ? "scalar" : "reference") + " field: "
+						+ this.descriptor.getFullName());
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.DescriptorProtos.MethodDescriptorProto;
+import com.google.protobuf.DescriptorProtos.ServiceDescriptorProto;
+
+/**
+ * Routes gRPC request paths (<code>/package.Service/Method</code>) to the methods in a
+ * set of schemas without allocating. The paths are compiled into a perfect hash table
+ * (hash and displace): a path is hashed once, the hash picks a bucket, the bucket's
+ * displacement picks the only slot the path can be in, and the path in that slot is
+ * compared with the input. So a lookup is one pass over the input to hash it and one to
+ * compare it, directly on the raw bytes (or characters) of the request, with no
+ * {@link String} created and no collisions to probe.
+ *
+ * <p>
+ * The compiled table is immutable. {@link #reload(FileDescriptorSet)} compiles a new one
+ * and swaps it in atomically, so every lookup sees either the old routes or the new ones,
+ * and lookups never wait for a reload.
+ * </p>
+ *
+ * <p>
+ * <strong>Usage:</strong>
+ * </p>
+ * <pre>
+ * MethodRouter router = MethodRouter.of(parser.resolve(Path.of(".")));
+ * MethodRouter.Route route = router.find(headers.path());
+ * if (route == null) {
+ *     // UNIMPLEMENTED
+ * }
+ * </pre>
+ */
+public final class MethodRouter {
+
+	private static final long PRIME = 0x100000001b3L;
+
+	private static final long OFFSET = 0xcbf29ce484222325L;
+
+	private static final long GOLDEN = 0x9e3779b97f4a7c15L;
+
+	private static final int MAX_DISPLACEMENT = 1 << 20;
+
+	private volatile Table table;
+
+	private MethodRouter(Table table) {
+		this.table = table;
+	}
+
+	/**
+	 * Compiles a router for all the methods of all the services in a set of files.
+	 * @param files the files
+	 * @return the router
+	 */
+	public static MethodRouter of(FileDescriptorSet files) {
+		return new MethodRouter(Table.compile(files));
+	}
+
+	/**
+	 * Compiles the routes for a new set of files and swaps them in. Lookups that are
+	 * already running finish with the old routes.
+	 * @param files the new files
+	 */
+	public void reload(FileDescriptorSet files) {
+		this.table = Table.compile(files);
+	}
+
+	/**
+	 * The number of methods that can be routed to.
+	 * @return the number of routes
+	 */
+	public int size() {
+		return this.table.routes.size();
+	}
+
+	/**
+	 * All the routes, in the order of the files and services they were compiled from.
+	 * @return the routes
+	 */
+	public List<Route> getRoutes() {
+		return this.table.routes;
+	}
+
+	/**
+	 * Finds the route for a path given as (ASCII or UTF-8) bytes.
+	 * @param path the buffer containing the path
+	 * @param offset the start of the path in the buffer
+	 * @param length the length of the path
+	 * @return the route, or null if there is no method with that path
+	 */
+	public Route find(byte[] path, int offset, int length) {
+		Table table = this.table;
+		long hash = OFFSET;
+		for (int i = offset; i < offset + length; i++) {
+			hash = (hash ^ (path[i] & 0xff)) * PRIME;
+		}
+		int slot = table.slot(hash);
+		byte[] key = table.keys[slot];
+		if (key != null && Arrays.equals(key, 0, key.length, path, offset, offset + length)) {
+			return table.slots[slot];
+		}
+		return null;
+	}
+
+	/**
+	 * Finds the route for a path given as characters, for example a header value that has
+	 * not been decoded into a {@link String}.
+	 * @param path the path
+	 * @return the route, or null if there is no method with that path
+	 */
+	public Route find(CharSequence path) {
+		Table table = this.table;
+		int length = path.length();
+		long hash = OFFSET;
+		for (int i = 0; i < length; i++) {
+			char c = path.charAt(i);
+			if (c >= 0x80) {
+				// Method paths are ASCII
+				return null;
+			}
+			hash = (hash ^ c) * PRIME;
+		}
+		int slot = table.slot(hash);
+		byte[] key = table.keys[slot];
+		if (key == null || key.length != length) {
+			return null;
+		}
+		for (int i = 0; i < length; i++) {
+			if (key[i] != path.charAt(i)) {
+				return null;
+			}
+		}
+		return table.slots[slot];
+	}
+
+	private static long mix(long hash) {
+		hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+		hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+		return hash ^ (hash >>> 31);
+	}
+
+	/**
+	 * A method that can be routed to.
+	 *
+	 * @param path the request path, <code>/package.Service/Method</code>
+	 * @param service the fully qualified name of the service
+	 * @param file the file that declares the service
+	 * @param method the method
+	 */
+	public record Route(String path, String service, FileDescriptorProto file, MethodDescriptorProto method) {
+	}
+
+	/**
+	 * The compiled routes. Each key is hashed once (FNV-1a, then mixed), the high bits of
+	 * the hash select a bucket, and the slot is the mixed hash plus the bucket's
+	 * displacement. Displacements are chosen when compiling, biggest buckets first, so
+	 * that every key has a slot of its own.
+	 */
+	private static final class Table {
+
+		private final List<Route> routes;
+
+		private final int[] displacements;
+
+		private final int bucketShift;
+
+		private final int mask;
+
+		private final byte[][] keys;
+
+		private final Route[] slots;
+
+		private Table(List<Route> routes, int[] displacements, int bucketShift, byte[][] keys, Route[] slots) {
+			this.routes = routes;
+			this.displacements = displacements;
+			this.bucketShift = bucketShift;
+			this.mask = slots.length - 1;
+			this.keys = keys;
+			this.slots = slots;
+		}
+
+		private int slot(long hash) {
+			hash = mix(hash);
+			int displacement = this.displacements[(int) (hash >>> this.bucketShift)];
+			return (int) mix(hash + displacement * GOLDEN) & this.mask;
+		}
+
+		static Table compile(FileDescriptorSet files) {
+			List<Route> routes = new ArrayList<>();
+			Set<String> paths = new HashSet<>();
+			for (FileDescriptorProto file : files.getFileList()) {
+				String prefix = file.getPackage().isEmpty() ? "" : file.getPackage() + ".";
+				for (ServiceDescriptorProto service : file.getServiceList()) {
+					String name = prefix + service.getName();
+					for (MethodDescriptorProto method : service.getMethodList()) {
+						String path = "/" + name + "/" + method.getName();
+						if (paths.add(path)) {
+							routes.add(new Route(path, name, file, method));
+						}
+					}
+				}
+			}
+			int size = Integer.highestOneBit(Math.max(routes.size(), 1) * 2 - 1) * 2;
+			int buckets = Math.max(Integer.highestOneBit(Math.max(routes.size() / 2, 1)), 2);
+			int bucketShift = 64 - Integer.numberOfTrailingZeros(buckets);
+			long[] hashes = new long[routes.size()];
+			List<List<Integer>> members = new ArrayList<>();
+			for (int i = 0; i < buckets; i++) {
+				members.add(new ArrayList<>());
+			}
+			for (int i = 0; i < hashes.length; i++) {
+				long hash = OFFSET;
+				for (byte b : routes.get(i).path().getBytes(StandardCharsets.UTF_8)) {
+					hash = (hash ^ (b & 0xff)) * PRIME;
+				}
+				hashes[i] = mix(hash);
+				members.get((int) (hashes[i] >>> bucketShift)).add(i);
+			}
+			List<Integer> order = new ArrayList<>();
+			for (int i = 0; i < buckets; i++) {
+				order.add(i);
+			}
+			order.sort(Comparator.comparingInt((Integer bucket) -> members.get(bucket).size()).reversed());
+			int[] displacements = new int[buckets];
+			byte[][] keys = new byte[size][];
+			Route[] slots = new Route[size];
+			int[] candidate = new int[routes.size()];
+			for (int bucket : order) {
+				List<Integer> keysInBucket = members.get(bucket);
+				if (keysInBucket.isEmpty()) {
+					break;
+				}
+				int displacement = 0;
+				while (!fits(keysInBucket, hashes, displacement, size - 1, slots, candidate)) {
+					if (++displacement == MAX_DISPLACEMENT) {
+						// Two paths with the same 64-bit hash
+						throw new IllegalStateException("Cannot compile routes: " + keysInBucket.size()
+								+ " paths have the same hash in a table of " + size);
+					}
+				}
+				displacements[bucket] = displacement;
+				for (int j = 0; j < keysInBucket.size(); j++) {
+					Route route = routes.get(keysInBucket.get(j));
+					slots[candidate[j]] = route;
+					keys[candidate[j]] = route.path().getBytes(StandardCharsets.UTF_8);
+				}
+			}
+			return new Table(List.copyOf(routes), displacements, bucketShift, keys, slots);
+		}
+
+		private static boolean fits(List<Integer> bucket, long[] hashes, int displacement, int mask, Route[] slots,
+				int[] candidate) {
+			for (int j = 0; j < bucket.size(); j++) {
+				int slot = (int) mix(hashes[bucket.get(j)] + displacement * GOLDEN) & mask;
+				if (slots[slot] != null) {
+					return false;
+				}
+				for (int k = 0; k < j; k++) {
+					if (candidate[k] == slot) {
+						return false;
+					}
+				}
+				candidate[j] = slot;
+			}
+			return true;
+		}
+
+	}
+
+}
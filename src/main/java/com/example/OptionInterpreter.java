@@ -0,0 +1,426 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+
+import com.example.ProtobufParser.BlockLitContext;
+import com.example.ProtobufParser.ConstantContext;
+import com.example.ProtobufParser.OptionNameContext;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.DescriptorProtos;
+import com.google.protobuf.DescriptorProtos.DescriptorProto;
+import com.google.protobuf.DescriptorProtos.EnumDescriptorProto;
+import com.google.protobuf.DescriptorProtos.EnumValueDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FieldDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+
+/**
+ * Applies option statements to the option messages of a descriptor (e.g.
+ * {@link DescriptorProtos.FieldOptions}). Standard options are looked up in the schema of
+ * <code>descriptor.proto</code> and custom options in the <code>extend</code> blocks of a
+ * set of files, so both kinds are handled the same way. Each option is encoded to the
+ * wire format and merged into the options message, which keeps standard options as
+ * regular fields and custom options as unknown fields, as they would be if the descriptor
+ * had been compiled by <code>protoc</code> and parsed without an extension registry.
+ */
+class OptionInterpreter {
+
+	private static final BigInteger UINT64_MAX = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+
+	private final Map<String, DescriptorProto> messages = new HashMap<>();
+
+	private final Map<String, EnumDescriptorProto> enums = new HashMap<>();
+
+	private final Map<String, Scoped> extensions = new HashMap<>();
+
+	/**
+	 * Creates an interpreter for options that can refer to the types and extensions in
+	 * the given files, and in <code>descriptor.proto</code>.
+	 * @param files the files that declare the types and custom options
+	 */
+	OptionInterpreter(Iterable<FileDescriptorProto> files) {
+		index(DescriptorProtos.getDescriptor().toProto());
+		for (FileDescriptorProto file : files) {
+			index(file);
+		}
+	}
+
+	/**
+	 * Applies an option statement to an options message.
+	 * @param options the options builder
+	 * @param scope the fully qualified name of the scope that contains the statement
+	 * @param name the option name
+	 * @param value the option value
+	 */
+	void apply(Message.Builder options, String scope, OptionNameContext name, ConstantContext value) {
+		String type = options.getDescriptorForType().getFullName();
+		List<Scoped> path = new ArrayList<>();
+		String rest;
+		if (name.LP() != null) {
+			String extension = name.fullIdent(0).getText();
+			Scoped field = findExtension(extension, scope, type);
+			if (field == null) {
+				throw error(name, "Unknown option: (" + extension + ")");
+			}
+			path.add(field);
+			rest = (name.fullIdent().size() > 1) ? name.fullIdent(1).getText() : null;
+		}
+		else {
+			path.add(new Scoped(null, type));
+			rest = name.fullIdent(0).getText();
+		}
+		if (rest != null) {
+			for (String part : rest.split("\\.")) {
+				Scoped parent = path.get(path.size() - 1);
+				DescriptorProto message = (parent.field() == null) ? this.messages.get(type)
+						: this.messages.get(resolve(parent));
+				Scoped field = (message != null) ? findField(message, parent, part) : null;
+				if (field == null) {
+					throw error(name, "Unknown option: " + name.getText());
+				}
+				if (parent.field() == null) {
+					path.set(0, field);
+				}
+				else {
+					path.add(field);
+				}
+			}
+		}
+		try {
+			byte[] bytes = encode(path.get(path.size() - 1), value);
+			for (int i = path.size() - 2; i >= 0; i--) {
+				bytes = wrap(path.get(i).field().getNumber(), bytes);
+			}
+			options.mergeFrom(bytes);
+		}
+		catch (InvalidProtocolBufferException e) {
+			throw error(name, "Invalid option: " + name.getText());
+		}
+	}
+
+	/**
+	 * The text of a string literal, with quotes removed and escapes replaced.
+	 * @param value a string constant
+	 * @return the string value
+	 */
+	static String string(ConstantContext value) {
+		if (value.strLit() == null) {
+			throw error(value, "Expected string: " + value.getText());
+		}
+		return unescape(value.getText()).toStringUtf8();
+	}
+
+	private void index(FileDescriptorProto file) {
+		String prefix = file.getPackage().isEmpty() ? "" : file.getPackage() + ".";
+		for (DescriptorProto message : file.getMessageTypeList()) {
+			index(prefix, message);
+		}
+		for (EnumDescriptorProto type : file.getEnumTypeList()) {
+			this.enums.put(prefix + type.getName(), type);
+		}
+		for (FieldDescriptorProto extension : file.getExtensionList()) {
+			this.extensions.put(prefix + extension.getName(), new Scoped(extension, file.getPackage()));
+		}
+	}
+
+	private void index(String prefix, DescriptorProto message) {
+		String name = prefix + message.getName();
+		this.messages.put(name, message);
+		for (DescriptorProto nested : message.getNestedTypeList()) {
+			index(name + ".", nested);
+		}
+		for (EnumDescriptorProto type : message.getEnumTypeList()) {
+			this.enums.put(name + "." + type.getName(), type);
+		}
+		for (FieldDescriptorProto extension : message.getExtensionList()) {
+			this.extensions.put(name + "." + extension.getName(), new Scoped(extension, name));
+		}
+	}
+
+	private Scoped findExtension(String name, String scope, String extendee) {
+		for (String candidate : candidates(name, scope)) {
+			Scoped extension = this.extensions.get(candidate);
+			if (extension != null) {
+				String target = resolveName(extension.field().getExtendee(), extension.scope());
+				return extendee.equals(target) ? extension : null;
+			}
+		}
+		return null;
+	}
+
+	private Scoped findField(DescriptorProto message, Scoped parent, String name) {
+		String scope = (parent.field() == null) ? parent.scope() : resolve(parent);
+		for (FieldDescriptorProto field : message.getFieldList()) {
+			if (field.getName().equals(name)) {
+				return new Scoped(field, scope);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * The fully qualified name of the message or enum type of a field.
+	 */
+	private String resolve(Scoped field) {
+		return resolveName(field.field().getTypeName(), field.scope());
+	}
+
+	private String resolveName(String name, String scope) {
+		for (String candidate : candidates(name, scope)) {
+			if (this.messages.containsKey(candidate) || this.enums.containsKey(candidate)) {
+				return candidate;
+			}
+		}
+		return name.startsWith(".") ? name.substring(1) : name;
+	}
+
+	/**
+	 * The fully qualified names that a (possibly relative) name could refer to, from the
+	 * innermost scope outwards.
+	 */
+	private static List<String> candidates(String name, String scope) {
+		List<String> result = new ArrayList<>();
+		if (name.startsWith(".")) {
+			result.add(name.substring(1));
+			return result;
+		}
+		String prefix = scope;
+		while (!prefix.isEmpty()) {
+			result.add(prefix + "." + name);
+			int index = prefix.lastIndexOf('.');
+			prefix = (index < 0) ? "" : prefix.substring(0, index);
+		}
+		result.add(name);
+		return result;
+	}
+
+	private byte[] encode(Scoped target, ConstantContext value) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+		try {
+			write(output, target, value);
+			output.flush();
+		}
+		catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	private void write(CodedOutputStream output, Scoped target, ConstantContext value) throws IOException {
+		FieldDescriptorProto field = target.field();
+		int number = field.getNumber();
+		String text = value.getText();
+		String type = field.hasTypeName() ? resolve(target) : null;
+		if (type != null && this.enums.containsKey(type)) {
+			output.writeEnum(number, enumNumber(this.enums.get(type), value));
+			return;
+		}
+		switch (field.getType()) {
+			case TYPE_BOOL -> output.writeBool(number, bool(value));
+			case TYPE_INT32 -> output.writeInt32(number, integer(value, 32, true).intValue());
+			case TYPE_SINT32 -> output.writeSInt32(number, integer(value, 32, true).intValue());
+			case TYPE_SFIXED32 -> output.writeSFixed32(number, integer(value, 32, true).intValue());
+			case TYPE_UINT32 -> output.writeUInt32(number, integer(value, 32, false).intValue());
+			case TYPE_FIXED32 -> output.writeFixed32(number, integer(value, 32, false).intValue());
+			case TYPE_INT64 -> output.writeInt64(number, integer(value, 64, true).longValue());
+			case TYPE_SINT64 -> output.writeSInt64(number, integer(value, 64, true).longValue());
+			case TYPE_SFIXED64 -> output.writeSFixed64(number, integer(value, 64, true).longValue());
+			case TYPE_UINT64 -> output.writeUInt64(number, integer(value, 64, false).longValue());
+			case TYPE_FIXED64 -> output.writeFixed64(number, integer(value, 64, false).longValue());
+			case TYPE_FLOAT -> output.writeFloat(number, (float) floatingPoint(value));
+			case TYPE_DOUBLE -> output.writeDouble(number, floatingPoint(value));
+			case TYPE_STRING, TYPE_BYTES -> {
+				if (value.strLit() == null) {
+					throw error(value, "Expected string: " + text);
+				}
+				output.writeBytes(number, unescape(text));
+			}
+			case TYPE_MESSAGE -> {
+				DescriptorProto message = this.messages.get(type);
+				BlockLitContext block = value.blockLit();
+				if (message == null || block == null) {
+					throw error(value, "Expected message value: " + text);
+				}
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				CodedOutputStream nested = CodedOutputStream.newInstance(bytes);
+				Scoped scope = new Scoped(null, type);
+				for (int i = 0; i < block.ident().size(); i++) {
+					String name = block.ident(i).getText();
+					Scoped child = findField(message, scope, name);
+					if (child == null) {
+						throw error(block.ident(i), "Unknown field: " + type + "." + name);
+					}
+					write(nested, child, block.constant(i));
+				}
+				nested.flush();
+				output.writeByteArray(number, bytes.toByteArray());
+			}
+			default -> throw error(value, "Unsupported option type: " + field.getType());
+		}
+	}
+
+	private static byte[] wrap(int number, byte[] value) {
+		byte[] result = new byte[CodedOutputStream.computeByteArraySize(number, value)];
+		CodedOutputStream output = CodedOutputStream.newInstance(result);
+		try {
+			output.writeByteArray(number, value);
+		}
+		catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return result;
+	}
+
+	private static int enumNumber(EnumDescriptorProto type, ConstantContext value) {
+		String text = value.getText();
+		for (EnumValueDescriptorProto candidate : type.getValueList()) {
+			if (candidate.getName().equals(text)) {
+				return candidate.getNumber();
+			}
+		}
+		if (value.intLit() != null) {
+			return integer(value, 32, true).intValue();
+		}
+		throw error(value, "Unknown value for " + type.getName() + ": " + text);
+	}
+
+	private static boolean bool(ConstantContext value) {
+		return switch (value.getText()) {
+			case "true" -> true;
+			case "false" -> false;
+			default -> throw error(value, "Expected boolean: " + value.getText());
+		};
+	}
+
+	private static BigInteger integer(ConstantContext value, int bits, boolean signed) {
+		if (value.intLit() == null) {
+			throw error(value, "Expected integer: " + value.getText());
+		}
+		String text = value.intLit().getText();
+		BigInteger result;
+		if (text.startsWith("0x") || text.startsWith("0X")) {
+			result = new BigInteger(text.substring(2), 16);
+		}
+		else if (text.length() > 1 && text.startsWith("0")) {
+			result = new BigInteger(text.substring(1), 8);
+		}
+		else {
+			result = new BigInteger(text);
+		}
+		if (value.MINUS() != null) {
+			result = result.negate();
+		}
+		BigInteger min = signed ? BigInteger.ONE.shiftLeft(bits - 1).negate() : BigInteger.ZERO;
+		BigInteger max = signed ? BigInteger.ONE.shiftLeft(bits - 1).subtract(BigInteger.ONE)
+				: (bits == 64) ? UINT64_MAX : BigInteger.ONE.shiftLeft(bits).subtract(BigInteger.ONE);
+		if (result.compareTo(min) < 0 || result.compareTo(max) > 0) {
+			throw error(value, "Integer out of range: " + value.getText());
+		}
+		return result;
+	}
+
+	private static double floatingPoint(ConstantContext value) {
+		String text = value.getText();
+		if (value.intLit() != null) {
+			return integer(value, 64, true).doubleValue();
+		}
+		String unsigned = text.startsWith("-") || text.startsWith("+") ? text.substring(1) : text;
+		double result = switch (unsigned) {
+			case "inf" -> Double.POSITIVE_INFINITY;
+			case "nan" -> Double.NaN;
+			default -> {
+				try {
+					yield Double.parseDouble(unsigned);
+				}
+				catch (NumberFormatException e) {
+					throw error(value, "Expected number: " + text);
+				}
+			}
+		};
+		return text.startsWith("-") ? -result : result;
+	}
+
+	/**
+	 * Removes the quotes from a string literal and replaces escape sequences. The result
+	 * is bytes because octal and hex escapes can produce invalid UTF-8.
+	 */
+	private static ByteString unescape(String literal) {
+		String text = literal.substring(1, literal.length() - 1);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(text.length());
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c != '\\') {
+				int end = i + 1;
+				while (end < text.length() && text.charAt(end) != '\\') {
+					end++;
+				}
+				bytes.writeBytes(text.substring(i, end).getBytes(StandardCharsets.UTF_8));
+				i = end - 1;
+				continue;
+			}
+			c = text.charAt(++i);
+			switch (c) {
+				case 'a' -> bytes.write(7);
+				case 'b' -> bytes.write('\b');
+				case 'f' -> bytes.write('\f');
+				case 'n' -> bytes.write('\n');
+				case 'r' -> bytes.write('\r');
+				case 't' -> bytes.write('\t');
+				case 'v' -> bytes.write(11);
+				case 'x', 'X' -> {
+					bytes.write(Integer.parseInt(text.substring(i + 1, i + 3), 16));
+					i += 2;
+				}
+				default -> {
+					if (c >= '0' && c <= '7') {
+						bytes.write(Integer.parseInt(text.substring(i, i + 3), 8));
+						i += 2;
+					}
+					else {
+						bytes.write(c);
+					}
+				}
+			}
+		}
+		return ByteString.copyFrom(bytes.toByteArray());
+	}
+
+	private static IllegalStateException error(ParserRuleContext context, String message) {
+		return new IllegalStateException(message + " at line " + context.getStart().getLine());
+	}
+
+	/**
+	 * A field together with the fully qualified name of the scope it was declared in,
+	 * which is needed to resolve its (possibly relative) type name.
+	 */
+	private record Scoped(FieldDescriptorProto field, String scope) {
+	}
+
+}
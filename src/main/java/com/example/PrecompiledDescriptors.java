@@ -0,0 +1,96 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * Runtime loader for descriptors written by {@link DescriptorCompiler}. If the
+ * precompiled artifact is on the classpath it is indexed with
+ * {@link FileDescriptorSetIndex} and nothing is parsed (the ANTLR parser is not even
+ * loaded). Otherwise the loader falls back to parsing the given .proto sources.
+ *
+ * <p>
+ * <strong>Usage:</strong>
+ * </p>
+ * <pre>
+ * LazyFileDescriptorSet files = PrecompiledDescriptors.load(Path.of("src/main/proto"));
+ * Descriptor type = files.findMessageTypeByName("sample.EchoRequest");
+ * </pre>
+ */
+public final class PrecompiledDescriptors {
+
+	/**
+	 * The classpath location of the precompiled descriptors.
+	 */
+	public static final String LOCATION = "META-INF/protobuf/descriptors.pb";
+
+	private PrecompiledDescriptors() {
+	}
+
+	/**
+	 * Loads the precompiled descriptors from the default classpath location, falling back
+	 * to parsing the sources if there are none.
+	 * @param sources paths to resolve if there are no precompiled descriptors
+	 * @return a lazy view of the descriptors
+	 */
+	public static LazyFileDescriptorSet load(Path... sources) {
+		return load(PrecompiledDescriptors.class.getClassLoader(), LOCATION, sources);
+	}
+
+	/**
+	 * Loads precompiled descriptors from a classpath location, falling back to parsing
+	 * the sources if there are none.
+	 * @param classLoader the class loader to find the descriptors with
+	 * @param location the classpath location of the descriptors
+	 * @param sources paths to resolve if there are no precompiled descriptors
+	 * @return a lazy view of the descriptors
+	 */
+	public static LazyFileDescriptorSet load(ClassLoader classLoader, String location, Path... sources) {
+		URL url = classLoader.getResource(location);
+		if (url != null) {
+			return index(url).getDescriptors();
+		}
+		if (sources.length == 0) {
+			throw new IllegalStateException("No precompiled descriptors found at: " + location);
+		}
+		return new FileDescriptorManager().lazy(new FileDescriptorProtoParser().resolve(sources));
+	}
+
+	private static FileDescriptorSetIndex index(URL url) {
+		if ("file".equals(url.getProtocol())) {
+			try {
+				return FileDescriptorSetIndex.map(Path.of(url.toURI()));
+			}
+			catch (URISyntaxException e) {
+				// Fall through and read it as a stream
+			}
+		}
+		try (InputStream stream = url.openStream()) {
+			byte[] bytes = stream.readAllBytes();
+			return FileDescriptorSetIndex.of(ByteBuffer.allocateDirect(bytes.length).put(bytes).flip());
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Failed to read descriptors: " + url, e);
+		}
+	}
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+import org.antlr.v4.runtime.CharStream;
+
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+
+/**
+ * Stable 64-bit fingerprints of schema files. The structural fingerprint of a
+ * {@link FileDescriptorProto} depends only on its content (it is a hash of the serialized
+ * form, which is deterministic for descriptors), so two files with the same fingerprint
+ * build identical {@link com.google.protobuf.Descriptors.FileDescriptor descriptors}
+ * given identical dependencies. The transitive fingerprint also covers the dependencies,
+ * so when it matches a previously built descriptor can be reused as it is.
+ *
+ * <p>
+ * <strong>Usage:</strong>
+ * </p>
+ * <pre>
+ * long fingerprint = SchemaFingerprint.of(file);
+ * long transitive = SchemaFingerprint.transitive(fingerprint, dependencyFingerprints);
+ * </pre>
+ *
+ * @see FileDescriptorProtoParser#transitiveFingerprint(String)
+ * @see FileDescriptorManager
+ */
+public final class SchemaFingerprint {
+
+	private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+	private static final long SEED = 0x9e3779b97f4a7c15L;
+
+	private static final long MULTIPLIER = 0xbf58476d1ce4e5b9L;
+
+	private SchemaFingerprint() {
+	}
+
+	/**
+	 * The structural fingerprint of a file.
+	 * @param file the file
+	 * @return the fingerprint
+	 */
+	public static long of(FileDescriptorProto file) {
+		return hash(file.toByteArray());
+	}
+
+	/**
+	 * Combines the structural fingerprint of a file with the transitive fingerprints of
+	 * its dependencies (in declaration order).
+	 * @param fingerprint the structural fingerprint of the file
+	 * @param dependencies the transitive fingerprints of its dependencies
+	 * @return the transitive fingerprint of the file
+	 */
+	public static long transitive(long fingerprint, long... dependencies) {
+		long result = mix(SEED ^ fingerprint);
+		for (long dependency : dependencies) {
+			result = mix(result * MULTIPLIER + dependency);
+		}
+		return result;
+	}
+
+	/**
+	 * A fingerprint of some source text, used to detect that a file has not changed
+	 * without parsing it (or copying the text).
+	 * @param text the text, read from the start without consuming it
+	 * @return the fingerprint
+	 */
+	static long of(CharStream text) {
+		int size = text.size();
+		long result = SEED ^ size;
+		int i = 1;
+		// Three code points (21 bits each) per chunk
+		for (; i + 2 <= size; i += 3) {
+			long chunk = text.LA(i) | (long) text.LA(i + 1) << 21 | (long) text.LA(i + 2) << 42;
+			result = mix(result ^ chunk) * MULTIPLIER;
+		}
+		for (; i <= size; i++) {
+			result = mix(result ^ text.LA(i)) * MULTIPLIER;
+		}
+		return mix(result);
+	}
+
+	static long hash(byte[] bytes) {
+		long result = SEED ^ bytes.length;
+		int i = 0;
+		for (; i + 8 <= bytes.length; i += 8) {
+			result = mix(result ^ (long) LONGS.get(bytes, i)) * MULTIPLIER;
+		}
+		for (; i < bytes.length; i++) {
+			result = mix(result ^ (bytes[i] & 0xff)) * MULTIPLIER;
+		}
+		return mix(result);
+	}
+
+	/**
+	 * The finalizer from SplitMix64, so that every input bit affects every output bit.
+	 */
+	private static long mix(long value) {
+		value = (value ^ (value >>> 30)) * MULTIPLIER;
+		value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+		return value ^ (value >>> 31);
+	}
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+/**
+ * A callback for metrics about loading schemas, so that they can be recorded in a metrics
+ * library such as Micrometer: each method maps naturally to a timer or counter tagged
+ * with the stage or cache name (the rate of files parsed per second is the rate of the
+ * {@link Stage#PARSE} timer). All the methods do nothing by default, and {@link #NONE}
+ * (the default for the parser and converter) is detected and skipped, so that there is no
+ * overhead when metrics are not wanted.
+ *
+ * <p>
+ * Independently of this callback, every stage is also recorded as a
+ * <code>com.example.SchemaStage</code> JDK Flight Recorder event (with the file name and
+ * size) when that event is enabled in a recording.
+ * </p>
+ *
+ * <p>
+ * <strong>Usage:</strong>
+ * </p>
+ * <pre>
+ * SchemaMetrics metrics = new SchemaMetrics() {
+ *     public void stage(Stage stage, String file, long nanos) {
+ *         registry.timer("schema.stage", "stage", stage.name()).record(nanos, TimeUnit.NANOSECONDS);
+ *     }
+ * };
+ * FileDescriptorProtoParser parser = new FileDescriptorProtoParser(base, metrics);
+ * </pre>
+ */
+public interface SchemaMetrics {
+
+	/**
+	 * Metrics that are not recorded anywhere.
+	 */
+	SchemaMetrics NONE = new SchemaMetrics() {
+	};
+
+	/**
+	 * Called when a stage of loading a file completes.
+	 * @param stage the stage
+	 * @param file the name of the file
+	 * @param nanos the duration of the stage in nanoseconds
+	 */
+	default void stage(Stage stage, String file, long nanos) {
+	}
+
+	/**
+	 * Called when a file is found in a cache, so does not need to be parsed or built
+	 * again.
+	 * @param cache the name of the cache ("parser" or "converter")
+	 * @param file the name of the file
+	 */
+	default void cacheHit(String cache, String file) {
+	}
+
+	/**
+	 * Called when a file is not found in a cache.
+	 * @param cache the name of the cache ("parser" or "converter")
+	 * @param file the name of the file
+	 */
+	default void cacheMiss(String cache, String file) {
+	}
+
+	/**
+	 * Called when the source of a file has been read from a stream or the file system.
+	 * @param file the name of the file
+	 * @param bytes the number of bytes read
+	 */
+	default void bytesRead(String file, long bytes) {
+	}
+
+	/**
+	 * The stages of loading a file.
+	 */
+	enum Stage {
+
+		/**
+		 * Reading the source of a file (including finding imports).
+		 */
+		READ,
+
+		/**
+		 * Splitting the source into tokens.
+		 */
+		LEX,
+
+		/**
+		 * Building the parse tree from the tokens.
+		 */
+		PARSE,
+
+		/**
+		 * Building a {@link com.google.protobuf.DescriptorProtos.FileDescriptorProto}
+		 * from the parse tree.
+		 */
+		VISIT,
+
+		/**
+		 * Validating and building a
+		 * {@link com.google.protobuf.Descriptors.FileDescriptor}.
+		 */
+		BUILD
+
+	}
+
+}
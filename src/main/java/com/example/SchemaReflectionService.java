@@ -0,0 +1,245 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.EnumDescriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Descriptors.FileDescriptor;
+import com.google.protobuf.Descriptors.MethodDescriptor;
+import com.google.protobuf.Descriptors.ServiceDescriptor;
+
+import io.grpc.Status;
+import io.grpc.reflection.v1.ErrorResponse;
+import io.grpc.reflection.v1.ExtensionNumberResponse;
+import io.grpc.reflection.v1.ExtensionRequest;
+import io.grpc.reflection.v1.FileDescriptorResponse;
+import io.grpc.reflection.v1.ListServiceResponse;
+import io.grpc.reflection.v1.ServerReflectionGrpc;
+import io.grpc.reflection.v1.ServerReflectionRequest;
+import io.grpc.reflection.v1.ServerReflectionResponse;
+import io.grpc.reflection.v1.ServiceResponse;
+import io.grpc.stub.StreamObserver;
+
+/**
+ * A gRPC server reflection service (<code>grpc.reflection.v1.ServerReflection</code>)
+ * that serves a set of schemas, for example ones parsed from .proto source with
+ * {@link FileDescriptorProtoParser}, instead of the generated classes that
+ * <code>ProtoReflectionService</code> uses. The files are validated and indexed once,
+ * when the service is created: every service, method, message, enum and extension is
+ * mapped to the file that declares it, and every file is serialized once. The response
+ * for a file (the file and all its transitive dependencies) is assembled from those
+ * serialized files the first time it is requested and then cached, so answering a request
+ * never encodes a descriptor again.
+ *
+ * <p>
+ * All the services in the files are listed, whether or not they are implemented by the
+ * server. Requires <code>io.grpc:grpc-services</code>, which is an optional dependency.
+ * </p>
+ *
+ * <p>
+ * <strong>Usage:</strong>
+ * </p>
+ * <pre>
+ * FileDescriptorProtoParser parser = new FileDescriptorProtoParser(base);
+ * Server server = ServerBuilder.forPort(9090)
+ *     .addService(new SchemaReflectionService(parser.resolve(Path.of("."))))
+ *     .addService(...)
+ *     .build();
+ * </pre>
+ */
+public class SchemaReflectionService extends ServerReflectionGrpc.ServerReflectionImplBase {
+
+	private final Map<String, FileDescriptor> files = new HashMap<>();
+
+	private final Map<String, ByteString> serialized = new HashMap<>();
+
+	private final Map<String, FileDescriptor> symbols = new HashMap<>();
+
+	private final Map<String, Map<Integer, FileDescriptor>> extensions = new HashMap<>();
+
+	private final Map<String, FileDescriptorResponse> responses = new ConcurrentHashMap<>();
+
+	private final ListServiceResponse services;
+
+	/**
+	 * Creates a reflection service for the given files.
+	 * @param input the files to serve, with all their dependencies
+	 * @throws IllegalStateException if a file is invalid or has a missing dependency
+	 */
+	public SchemaReflectionService(FileDescriptorSet input) {
+		FileDescriptor[] descriptors = new FileDescriptorManager().convert(input);
+		ListServiceResponse.Builder services = ListServiceResponse.newBuilder();
+		for (int i = 0; i < descriptors.length; i++) {
+			FileDescriptorProto proto = input.getFile(i);
+			FileDescriptor file = descriptors[i];
+			if (this.files.putIfAbsent(proto.getName(), file) != null) {
+				continue;
+			}
+			this.serialized.put(proto.getName(), proto.toByteString());
+			for (ServiceDescriptor service : file.getServices()) {
+				services.addService(ServiceResponse.newBuilder().setName(service.getFullName()));
+				this.symbols.put(service.getFullName(), file);
+				for (MethodDescriptor method : service.getMethods()) {
+					this.symbols.put(method.getFullName(), file);
+				}
+			}
+			for (Descriptor type : file.getMessageTypes()) {
+				index(file, type);
+			}
+			for (EnumDescriptor type : file.getEnumTypes()) {
+				this.symbols.put(type.getFullName(), file);
+			}
+			for (FieldDescriptor extension : file.getExtensions()) {
+				index(file, extension);
+			}
+		}
+		this.services = services.build();
+	}
+
+	@Override
+	public StreamObserver<ServerReflectionRequest> serverReflectionInfo(
+			StreamObserver<ServerReflectionResponse> responseObserver) {
+		return new StreamObserver<>() {
+
+			@Override
+			public void onNext(ServerReflectionRequest request) {
+				responseObserver.onNext(respond(request));
+			}
+
+			@Override
+			public void onError(Throwable error) {
+				// The client went away, so there is nobody to respond to
+			}
+
+			@Override
+			public void onCompleted() {
+				responseObserver.onCompleted();
+			}
+
+		};
+	}
+
+	ServerReflectionResponse respond(ServerReflectionRequest request) {
+		ServerReflectionResponse.Builder response = ServerReflectionResponse.newBuilder()
+			.setValidHost(request.getHost())
+			.setOriginalRequest(request);
+		switch (request.getMessageRequestCase()) {
+			case FILE_BY_FILENAME -> {
+				FileDescriptor file = this.files.get(request.getFileByFilename());
+				if (file == null) {
+					return error(response, Status.Code.NOT_FOUND, "File not found: " + request.getFileByFilename());
+				}
+				response.setFileDescriptorResponse(files(file));
+			}
+			case FILE_CONTAINING_SYMBOL -> {
+				FileDescriptor file = this.symbols.get(request.getFileContainingSymbol());
+				if (file == null) {
+					return error(response, Status.Code.NOT_FOUND,
+							"Symbol not found: " + request.getFileContainingSymbol());
+				}
+				response.setFileDescriptorResponse(files(file));
+			}
+			case FILE_CONTAINING_EXTENSION -> {
+				ExtensionRequest extension = request.getFileContainingExtension();
+				FileDescriptor file = this.extensions.getOrDefault(extension.getContainingType(), Map.of())
+					.get(extension.getExtensionNumber());
+				if (file == null) {
+					return error(response, Status.Code.NOT_FOUND, "Extension not found: "
+							+ extension.getContainingType() + "(" + extension.getExtensionNumber() + ")");
+				}
+				response.setFileDescriptorResponse(files(file));
+			}
+			case ALL_EXTENSION_NUMBERS_OF_TYPE -> {
+				String type = request.getAllExtensionNumbersOfType();
+				if (!this.symbols.containsKey(type)) {
+					return error(response, Status.Code.NOT_FOUND, "Type not found: " + type);
+				}
+				response.setAllExtensionNumbersResponse(ExtensionNumberResponse.newBuilder()
+					.setBaseTypeName(type)
+					.addAllExtensionNumber(this.extensions.getOrDefault(type, Map.of()).keySet()));
+			}
+			case LIST_SERVICES -> response.setListServicesResponse(this.services);
+			default -> {
+				return error(response, Status.Code.UNIMPLEMENTED,
+						"Unsupported request: " + request.getMessageRequestCase());
+			}
+		}
+		return response.build();
+	}
+
+	private ServerReflectionResponse error(ServerReflectionResponse.Builder response, Status.Code code,
+			String message) {
+		return response.setErrorResponse(ErrorResponse.newBuilder().setErrorCode(code.value()).setErrorMessage(message))
+			.build();
+	}
+
+	/**
+	 * The response for a file: the file itself followed by all its transitive
+	 * dependencies, nearest first.
+	 */
+	private FileDescriptorResponse files(FileDescriptor file) {
+		return this.responses.computeIfAbsent(file.getName(), (name) -> {
+			Set<String> names = new LinkedHashSet<>();
+			Deque<FileDescriptor> queue = new ArrayDeque<>();
+			queue.add(file);
+			while (!queue.isEmpty()) {
+				FileDescriptor next = queue.poll();
+				if (names.add(next.getName())) {
+					queue.addAll(next.getDependencies());
+				}
+			}
+			FileDescriptorResponse.Builder response = FileDescriptorResponse.newBuilder();
+			for (String dependency : names) {
+				// Every dependency is in the input, since it was converted successfully
+				response.addFileDescriptorProto(this.serialized.get(dependency));
+			}
+			return response.build();
+		});
+	}
+
+	private void index(FileDescriptor file, Descriptor type) {
+		this.symbols.put(type.getFullName(), file);
+		for (Descriptor nested : type.getNestedTypes()) {
+			index(file, nested);
+		}
+		for (EnumDescriptor nested : type.getEnumTypes()) {
+			this.symbols.put(nested.getFullName(), file);
+		}
+		for (FieldDescriptor extension : type.getExtensions()) {
+			index(file, extension);
+		}
+	}
+
+	private void index(FileDescriptor file, FieldDescriptor extension) {
+		this.symbols.put(extension.getFullName(), file);
+		this.extensions.computeIfAbsent(extension.getContainingType().getFullName(), (key) -> new TreeMap<>())
+			.put(extension.getNumber(), file);
+	}
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One stage of loading a schema file, recorded as a JDK Flight Recorder event and
+ * reported to {@link SchemaMetrics} (if there are any). When Flight Recorder is not
+ * running and there are no metrics, starting and finishing a stage costs next to nothing
+ * (nothing is allocated once the JIT has inlined it). The event class itself is only
+ * loaded once Flight Recorder is running, because loading a JFR event class is slow
+ * (hundreds of milliseconds on a small machine) and would dominate the time to the first
+ * descriptor of a short-lived process.
+ *
+ * <p>
+ * <strong>Usage:</strong>
+ * </p>
+ * <pre>
+ * SchemaStageEvent event = SchemaStageEvent.start(metrics);
+ * // ... do the work ...
+ * event.finish(metrics, SchemaMetrics.Stage.PARSE, name, size);
+ * </pre>
+ */
+final class SchemaStageEvent {
+
+	private final Recorded event;
+
+	private final long start;
+
+	private SchemaStageEvent(Recorded event, long start) {
+		this.event = event;
+		this.start = start;
+	}
+
+	/**
+	 * Starts timing a stage.
+	 * @param metrics the metrics to report to
+	 * @return the event
+	 */
+	static SchemaStageEvent start(SchemaMetrics metrics) {
+		Recorded event = null;
+		if (FlightRecorder.isInitialized()) {
+			event = new Recorded();
+			event.begin();
+		}
+		return new SchemaStageEvent(event, (metrics != SchemaMetrics.NONE) ? System.nanoTime() : 0);
+	}
+
+	/**
+	 * Finishes timing a stage, committing the event if it is enabled and reporting the
+	 * duration to the metrics.
+	 * @param metrics the metrics to report to
+	 * @param stage the stage
+	 * @param file the name of the file
+	 * @param size the size of the input to the stage (characters, tokens or bytes
+	 * depending on the stage), or -1 if it is not known
+	 */
+	void finish(SchemaMetrics metrics, SchemaMetrics.Stage stage, String file, long size) {
+		if (this.event != null) {
+			this.event.finish(stage, file, size);
+		}
+		if (metrics != SchemaMetrics.NONE) {
+			metrics.stage(stage, file, System.nanoTime() - this.start);
+		}
+	}
+
+	@Name("com.example.SchemaStage")
+	@Label("Schema Stage")
+	@Category({ "Protobuf", "Schema" })
+	@Description("A stage of loading a protobuf schema file")
+	static final class Recorded extends Event {
+
+		@Label("Stage")
+		String stage;
+
+		@Label("File")
+		String file;
+
+		@Label("Size")
+		@Description("The size of the input to the stage: characters, tokens or bytes")
+		long size;
+
+		private void finish(SchemaMetrics.Stage stage, String file, long size) {
+			end();
+			if (shouldCommit()) {
+				this.stage = stage.name();
+				this.file = file;
+				this.size = size;
+				commit();
+			}
+		}
+
+	}
+
+}
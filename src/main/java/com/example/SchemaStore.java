@@ -0,0 +1,551 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.Descriptors.DescriptorValidationException;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Descriptors.FileDescriptor;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+
+/**
+ * A store for the schemas of many tenants that keeps the retained heap per schema small.
+ * Each tenant's schema is a set of files, and identical files are stored once however
+ * many tenants use them. Files are looked up by {@link SchemaFingerprint structural
+ * fingerprint}, and a match is confirmed by comparing the content, so files that only
+ * collide are stored side by side. Files that are kept as objects have their names
+ * interned, so that names repeated across different files (package prefixes, type names
+ * and so on) are also only stored once.
+ *
+ * <p>
+ * Depending on the {@link Storage}, files are kept as {@link FileDescriptorProto}
+ * objects, or as serialized bytes on or off the heap that are inflated when they are
+ * used. Built {@link FileDescriptor descriptors} are shared by all tenants with the same
+ * file and the same dependencies (found by transitive fingerprint, and confirmed), and
+ * only a bounded number of them are retained (the rest are built again on access).
+ * </p>
+ *
+ * <p>
+ * <strong>Usage:</strong>
+ * </p>
+ * <pre>
+ * SchemaStore store = new SchemaStore(SchemaStore.Storage.OFF_HEAP, 1000);
+ * store.put("tenant-1", parser.resolve(proto));
+ * FileDescriptor file = store.findFileByName("tenant-1", "sample.proto");
+ * </pre>
+ */
+public class SchemaStore {
+
+	private final Storage storage;
+
+	private final Map<String, Tenant> tenants = new HashMap<>();
+
+	/**
+	 * The stored files by structural fingerprint, with any files whose fingerprints
+	 * collide chained to the first.
+	 */
+	private final Map<Long, Entry> files = new HashMap<>();
+
+	private int fileCount;
+
+	/**
+	 * The distinct files and dependencies (closures) of all the tenants by transitive
+	 * fingerprint, with collisions chained like the files.
+	 */
+	private final Map<Long, Node> nodes = new HashMap<>();
+
+	private final Map<Node, FileDescriptor> descriptors;
+
+	private final Map<String, Name> names = new HashMap<>();
+
+	/**
+	 * Creates a store that keeps all files as objects and retains every descriptor that
+	 * it builds.
+	 */
+	public SchemaStore() {
+		this(Storage.HEAP, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Creates a store with the given storage for files.
+	 * @param storage how to store the files
+	 * @param capacity the maximum number of built descriptors to retain, least recently
+	 * used first out
+	 */
+	public SchemaStore(Storage storage, int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Invalid capacity: " + capacity);
+		}
+		this.storage = storage;
+		this.descriptors = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Node, FileDescriptor> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Stores the schema of a tenant, replacing any previous one.
+	 * @param key the tenant
+	 * @param input the files in the schema, with each file's dependencies before it (as
+	 * returned by {@link FileDescriptorProtoParser#resolve(FileDescriptorProto...)})
+	 * @throws IllegalArgumentException if a file has a missing dependency
+	 */
+	public synchronized void put(String key, FileDescriptorSet input) {
+		Map<String, Integer> indexes = new HashMap<>();
+		Entry[] entries = new Entry[input.getFileCount()];
+		Node[] nodes = new Node[entries.length];
+		try {
+			for (int i = 0; i < entries.length; i++) {
+				FileDescriptorProto file = input.getFile(i);
+				Node[] dependencies = new Node[file.getDependencyCount()];
+				long[] transitive = new long[dependencies.length];
+				for (int j = 0; j < dependencies.length; j++) {
+					Integer index = indexes.get(file.getDependency(j));
+					if (index == null) {
+						throw new IllegalArgumentException("Missing dependency: " + file.getDependency(j));
+					}
+					dependencies[j] = nodes[index];
+					transitive[j] = nodes[index].transitive;
+				}
+				entries[i] = entry(file);
+				nodes[i] = node(SchemaFingerprint.transitive(entries[i].fingerprint, transitive), entries[i],
+						dependencies);
+				indexes.put(entries[i].name, i);
+			}
+		}
+		catch (RuntimeException e) {
+			// Files added for this schema are not referenced by anything yet
+			for (int i = 0; i < entries.length; i++) {
+				if (nodes[i] != null && nodes[i].references == 0) {
+					discard(nodes[i]);
+				}
+				if (entries[i] != null && entries[i].references == 0) {
+					discard(entries[i]);
+				}
+			}
+			throw e;
+		}
+		for (int i = 0; i < entries.length; i++) {
+			entries[i].references++;
+			nodes[i].references++;
+		}
+		release(this.tenants.put(key, new Tenant(nodes, indexes)));
+	}
+
+	/**
+	 * Removes the schema of a tenant.
+	 * @param key the tenant
+	 * @return true if there was a schema for the tenant
+	 */
+	public synchronized boolean remove(String key) {
+		Tenant tenant = this.tenants.remove(key);
+		release(tenant);
+		return tenant != null;
+	}
+
+	/**
+	 * The schema of a tenant, inflating the files if they are stored as bytes.
+	 * @param key the tenant
+	 * @return the files in the schema, or null if there is no schema for the tenant
+	 */
+	public synchronized FileDescriptorSet get(String key) {
+		Tenant tenant = this.tenants.get(key);
+		if (tenant == null) {
+			return null;
+		}
+		FileDescriptorSet.Builder builder = FileDescriptorSet.newBuilder();
+		for (Node node : tenant.nodes) {
+			builder.addFile(inflate(node.entry));
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Finds a file in the schema of a tenant, building it and its dependencies if
+	 * necessary.
+	 * @param key the tenant
+	 * @param name the name of the file
+	 * @return the file, or null if there is no such file or tenant
+	 * @throws IllegalStateException if the file or one of its dependencies is invalid
+	 */
+	public synchronized FileDescriptor findFileByName(String key, String name) {
+		Tenant tenant = this.tenants.get(key);
+		if (tenant == null) {
+			return null;
+		}
+		Integer index = tenant.indexes.get(name);
+		return index == null ? null : build(tenant.nodes[index]);
+	}
+
+	/**
+	 * The number of tenants with a schema in the store.
+	 * @return the number of tenants
+	 */
+	public synchronized int size() {
+		return this.tenants.size();
+	}
+
+	/**
+	 * The number of distinct files stored for all the tenants.
+	 * @return the number of files
+	 */
+	public synchronized int getFileCount() {
+		return this.fileCount;
+	}
+
+	/**
+	 * The number of distinct names interned for the files of all the tenants.
+	 * @return the number of names
+	 */
+	public synchronized int getNameCount() {
+		return this.names.size();
+	}
+
+	private void release(Tenant tenant) {
+		if (tenant == null) {
+			return;
+		}
+		for (Node node : tenant.nodes) {
+			if (--node.entry.references == 0) {
+				discard(node.entry);
+			}
+			if (--node.references == 0) {
+				discard(node);
+			}
+		}
+	}
+
+	private FileDescriptor build(Node node) {
+		FileDescriptor result = this.descriptors.get(node);
+		if (result != null) {
+			return result;
+		}
+		FileDescriptorProto proto = inflate(node.entry);
+		FileDescriptor[] dependencies = new FileDescriptor[node.dependencies.length];
+		for (int i = 0; i < dependencies.length; i++) {
+			dependencies[i] = build(node.dependencies[i]);
+		}
+		try {
+			result = FileDescriptor.buildFrom(proto, dependencies);
+		}
+		catch (DescriptorValidationException e) {
+			throw new IllegalStateException("Invalid descriptor: " + proto.getName(), e);
+		}
+		this.descriptors.put(node, result);
+		return result;
+	}
+
+	/**
+	 * The stored file with the same content, or a new one if there is none. A matching
+	 * fingerprint is confirmed by comparing the bytes, and a file that only collides is
+	 * stored next to the other one.
+	 */
+	private Entry entry(FileDescriptorProto file) {
+		byte[] bytes = file.toByteArray();
+		long fingerprint = SchemaFingerprint.hash(bytes);
+		Entry first = this.files.get(fingerprint);
+		for (Entry entry = first; entry != null; entry = entry.next) {
+			if (Arrays.equals(entry.bytes(), bytes)) {
+				return entry;
+			}
+		}
+		String name = (String) intern(file.getName());
+		Entry entry = switch (this.storage) {
+			case HEAP -> new Entry(fingerprint, name, (FileDescriptorProto) intern(file), null);
+			case SERIALIZED -> new Entry(fingerprint, name, null, bytes);
+			case OFF_HEAP ->
+				new Entry(fingerprint, name, null, ByteBuffer.allocateDirect(bytes.length).put(bytes).flip());
+		};
+		entry.next = first;
+		this.files.put(fingerprint, entry);
+		this.fileCount++;
+		return entry;
+	}
+
+	/**
+	 * The node for a file with the given dependencies, or a new one if there is none. A
+	 * matching transitive fingerprint is confirmed by comparing the file and every
+	 * dependency, so a built descriptor is only ever shared by identical closures.
+	 */
+	private Node node(long transitive, Entry entry, Node[] dependencies) {
+		Node first = this.nodes.get(transitive);
+		for (Node node = first; node != null; node = node.next) {
+			if (node.entry == entry && Arrays.equals(node.dependencies, dependencies)) {
+				return node;
+			}
+		}
+		Node node = new Node(transitive, entry, dependencies);
+		node.next = first;
+		this.nodes.put(transitive, node);
+		return node;
+	}
+
+	private void discard(Node node) {
+		Node first = this.nodes.get(node.transitive);
+		if (first == node) {
+			if (node.next == null) {
+				this.nodes.remove(node.transitive);
+			}
+			else {
+				this.nodes.put(node.transitive, node.next);
+			}
+		}
+		else {
+			Node previous = first;
+			while (previous != null && previous.next != node) {
+				previous = previous.next;
+			}
+			if (previous == null) {
+				return;
+			}
+			previous.next = node.next;
+		}
+		this.descriptors.remove(node);
+	}
+
+	private void discard(Entry entry) {
+		Entry first = this.files.get(entry.fingerprint);
+		if (first == entry) {
+			if (entry.next == null) {
+				this.files.remove(entry.fingerprint);
+			}
+			else {
+				this.files.put(entry.fingerprint, entry.next);
+			}
+		}
+		else {
+			Entry previous = first;
+			while (previous != null && previous.next != entry) {
+				previous = previous.next;
+			}
+			if (previous == null) {
+				return;
+			}
+			previous.next = entry.next;
+		}
+		this.fileCount--;
+		unintern(entry.name);
+		if (entry.proto != null) {
+			unintern(entry.proto);
+		}
+	}
+
+	private FileDescriptorProto inflate(Entry entry) {
+		if (entry.proto != null) {
+			return entry.proto;
+		}
+		try {
+			return (entry.bytes instanceof byte[] bytes) ? FileDescriptorProto.parseFrom(bytes)
+					: FileDescriptorProto.parseFrom(((ByteBuffer) entry.bytes).duplicate());
+		}
+		catch (InvalidProtocolBufferException e) {
+			throw new IllegalStateException("Invalid descriptor: " + entry.fingerprint, e);
+		}
+	}
+
+	/**
+	 * Replaces all the strings in a message (recursively) with their interned copies.
+	 */
+	private Message intern(Message message) {
+		Message.Builder builder = null;
+		for (Map.Entry<FieldDescriptor, Object> field : message.getAllFields().entrySet()) {
+			FieldDescriptor descriptor = field.getKey();
+			if (descriptor.getJavaType() != FieldDescriptor.JavaType.STRING
+					&& descriptor.getJavaType() != FieldDescriptor.JavaType.MESSAGE) {
+				continue;
+			}
+			if (builder == null) {
+				builder = message.toBuilder();
+			}
+			if (descriptor.isRepeated()) {
+				List<?> values = (List<?>) field.getValue();
+				for (int i = 0; i < values.size(); i++) {
+					builder.setRepeatedField(descriptor, i, intern(values.get(i)));
+				}
+			}
+			else {
+				builder.setField(descriptor, intern(field.getValue()));
+			}
+		}
+		return builder == null ? message : builder.build();
+	}
+
+	private Object intern(Object value) {
+		if (value instanceof String string) {
+			Name name = this.names.computeIfAbsent(string, Name::new);
+			name.references++;
+			return name.value;
+		}
+		return intern((Message) value);
+	}
+
+	/**
+	 * Releases all the strings in a message (recursively) that were interned by
+	 * {@link #intern(Message)}, so that names no longer used by any file are dropped.
+	 */
+	private void unintern(Object value) {
+		if (value instanceof String string) {
+			Name name = this.names.get(string);
+			if (name != null && --name.references == 0) {
+				this.names.remove(string);
+			}
+			return;
+		}
+		for (Map.Entry<FieldDescriptor, Object> field : ((Message) value).getAllFields().entrySet()) {
+			FieldDescriptor descriptor = field.getKey();
+			if (descriptor.getJavaType() != FieldDescriptor.JavaType.STRING
+					&& descriptor.getJavaType() != FieldDescriptor.JavaType.MESSAGE) {
+				continue;
+			}
+			if (descriptor.isRepeated()) {
+				for (Object item : (List<?>) field.getValue()) {
+					unintern(item);
+				}
+			}
+			else {
+				unintern(field.getValue());
+			}
+		}
+	}
+
+	/**
+	 * How a {@link SchemaStore} keeps the files that it stores.
+	 */
+	public enum Storage {
+
+		/**
+		 * As {@link FileDescriptorProto} objects with interned names. Fastest to access,
+		 * and the most heap per file.
+		 */
+		HEAP,
+
+		/**
+		 * As serialized bytes on the heap, inflated on access.
+		 */
+		SERIALIZED,
+
+		/**
+		 * As serialized bytes in direct buffers outside the heap, inflated on access.
+		 */
+		OFF_HEAP
+
+	}
+
+	private static final class Entry {
+
+		private final long fingerprint;
+
+		private final String name;
+
+		private final FileDescriptorProto proto;
+
+		/**
+		 * The serialized file, either a <code>byte[]</code> or a (direct)
+		 * {@link ByteBuffer}, if it is not stored as an object.
+		 */
+		private final Object bytes;
+
+		private int references;
+
+		/**
+		 * The next file with the same fingerprint, if any.
+		 */
+		private Entry next;
+
+		private Entry(long fingerprint, String name, FileDescriptorProto proto, Object bytes) {
+			this.fingerprint = fingerprint;
+			this.name = name;
+			this.proto = proto;
+			this.bytes = bytes;
+		}
+
+		private byte[] bytes() {
+			if (this.proto != null) {
+				return this.proto.toByteArray();
+			}
+			if (this.bytes instanceof byte[] array) {
+				return array;
+			}
+			ByteBuffer buffer = ((ByteBuffer) this.bytes).duplicate();
+			byte[] array = new byte[buffer.remaining()];
+			buffer.get(array);
+			return array;
+		}
+
+	}
+
+	/**
+	 * An interned name and the number of times that it is used by the stored files.
+	 */
+	private static final class Name {
+
+		private final String value;
+
+		private int references;
+
+		private Name(String value) {
+			this.value = value;
+		}
+
+	}
+
+	/**
+	 * A file together with its dependencies, which is what a built descriptor depends on.
+	 * Nodes are compared by identity, so built descriptors are keyed by node rather than
+	 * by transitive fingerprint.
+	 */
+	private static final class Node {
+
+		private final long transitive;
+
+		private final Entry entry;
+
+		private final Node[] dependencies;
+
+		private int references;
+
+		/**
+		 * The next node with the same transitive fingerprint, if any.
+		 */
+		private Node next;
+
+		private Node(long transitive, Entry entry, Node[] dependencies) {
+			this.transitive = transitive;
+			this.entry = entry;
+			this.dependencies = dependencies;
+		}
+
+	}
+
+	/**
+	 * The files of a tenant, in dependency order, and the index of each file by name.
+	 */
+	private record Tenant(Node[] nodes, Map<String, Integer> indexes) {
+
+	}
+
+}
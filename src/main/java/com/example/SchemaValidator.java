@@ -0,0 +1,523 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+
+import com.example.ProtobufParser.EnumDefContext;
+import com.example.ProtobufParser.EnumFieldContext;
+import com.example.ProtobufParser.FieldContext;
+import com.example.ProtobufParser.ImportStatementContext;
+import com.example.ProtobufParser.MapFieldContext;
+import com.example.ProtobufParser.MessageDefContext;
+import com.example.ProtobufParser.OneofContext;
+import com.example.ProtobufParser.OneofFieldContext;
+import com.example.ProtobufParser.PackageStatementContext;
+import com.example.ProtobufParser.ProtoContext;
+import com.example.ProtobufParser.RpcContext;
+import com.example.ProtobufParser.ServiceDefContext;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.Descriptors.DescriptorValidationException;
+
+/**
+ * Validates every .proto file in a directory tree and reports all the problems it finds,
+ * instead of stopping at the first one like {@link FileDescriptorProtoParser} and
+ * {@link DescriptorCompiler} do. Files are checked in parallel in three phases:
+ * <ol>
+ * <li>every file is parsed with ANTLR error recovery, so all the syntax errors in a file
+ * are reported, with their positions</li>
+ * <li>every import is checked: it must be another file in the tree or be found on the
+ * classpath or relative to the source directory, and imports must not be cyclic</li>
+ * <li>files without errors (and whose imports have no errors) are built with
+ * {@link FileDescriptorProtoParser} and {@link FileDescriptorManager}, and any
+ * {@link DescriptorValidationException} is reported at the position of the problem
+ * symbol</li>
+ * </ol>
+ * A file that depends on a file with errors is not built, and is not reported, since its
+ * problems would only be a consequence of the other file's.
+ *
+ * <p>
+ * <strong>Usage:</strong>
+ * </p>
+ * <pre>
+ * SchemaValidator.Report report = new SchemaValidator(Path.of("src/main/proto")).validate();
+ * if (report.hasErrors()) {
+ *     System.err.print(report.format());
+ * }
+ * </pre>
+ * <p>
+ * Or from the command line, which exits with status 1 if there are any errors:
+ * </p>
+ * <pre>
+ * java com.example.SchemaValidator src/main/proto [threads]
+ * </pre>
+ */
+public class SchemaValidator {
+
+	private final Path source;
+
+	private final int parallelism;
+
+	/**
+	 * Constructs a validator for the .proto files in the given directory, using one
+	 * thread per processor.
+	 * @param source the directory to scan, also used as the base path for imports
+	 */
+	public SchemaValidator(Path source) {
+		this(source, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructs a validator for the .proto files in the given directory.
+	 * @param source the directory to scan, also used as the base path for imports
+	 * @param parallelism the number of threads to validate with
+	 */
+	public SchemaValidator(Path source, int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+		}
+		this.source = source;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Validates all the .proto files in the source directory.
+	 * @return a report of all the problems found
+	 * @throws IllegalStateException if the source directory cannot be read
+	 */
+	public Report validate() {
+		List<String> names = findFiles();
+		ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+		try {
+			Map<String, Unit> units = new LinkedHashMap<>();
+			for (Unit unit : pool.submit(() -> names.parallelStream().map(this::parse).toList()).join()) {
+				units.put(unit.name, unit);
+			}
+			checkImports(units);
+			ThreadLocal<Builder> builders = ThreadLocal.withInitial(Builder::new);
+			pool.submit(() -> units.values()
+				.parallelStream()
+				.filter((unit) -> unit.status == Status.VALID)
+				.forEach((unit) -> builders.get().build(unit))).join();
+			List<Diagnostic> diagnostics = new ArrayList<>();
+			for (Unit unit : units.values()) {
+				diagnostics.addAll(unit.diagnostics);
+			}
+			diagnostics.sort(Comparator.comparing(Diagnostic::file)
+				.thenComparingInt(Diagnostic::line)
+				.thenComparingInt(Diagnostic::column));
+			return new Report(units.size(), Collections.unmodifiableList(diagnostics));
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	private List<String> findFiles() {
+		try (Stream<Path> paths = Files.walk(this.source)) {
+			return paths.filter((file) -> !Files.isDirectory(file) && file.toString().endsWith(".proto"))
+				.map((file) -> this.source.relativize(file).toString().replace('\\', '/'))
+				.sorted()
+				.toList();
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Failed to read source directory: " + this.source, e);
+		}
+	}
+
+	private Unit parse(String name) {
+		Unit unit = new Unit(name);
+		try {
+			unit.text = Files.readString(this.source.resolve(name), StandardCharsets.UTF_8);
+		}
+		catch (IOException e) {
+			unit.error(Kind.IMPORT, 0, 0, "Failed to read file: " + e.getMessage());
+			return unit;
+		}
+		BaseErrorListener errors = new BaseErrorListener() {
+			@Override
+			public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+					int charPositionInLine, String msg, RecognitionException e) {
+				unit.error(Kind.SYNTAX, line, charPositionInLine + 1, msg);
+			}
+		};
+		ProtobufLexer lexer = new ProtobufLexer(CharStreams.fromString(unit.text, name));
+		lexer.removeErrorListeners();
+		lexer.addErrorListener(errors);
+		ProtobufParser parser = new ProtobufParser(new CommonTokenStream(lexer));
+		parser.removeErrorListeners();
+		parser.addErrorListener(errors);
+		ProtoContext tree = parser.proto();
+		for (ImportStatementContext statement : tree.importStatement()) {
+			if (statement.strLit() != null) {
+				String path = statement.strLit().getText().replace("\"", "").replace("'", "");
+				unit.imports.put(path.startsWith("/") ? path.substring(1) : path, statement);
+			}
+		}
+		return unit;
+	}
+
+	private void checkImports(Map<String, Unit> units) {
+		ClassLoader classLoader = getClass().getClassLoader();
+		for (Unit unit : units.values()) {
+			for (Map.Entry<String, ImportStatementContext> entry : unit.imports.entrySet()) {
+				String path = entry.getKey();
+				if (!units.containsKey(path) && classLoader.getResource(path) == null
+						&& !Files.exists(this.source.resolve(path))) {
+					unit.error(Kind.IMPORT, entry.getValue(), "Import not found: " + path);
+				}
+			}
+		}
+		Set<String> done = new HashSet<>();
+		for (Unit unit : units.values()) {
+			checkCycles(units, unit, new ArrayDeque<>(), done);
+		}
+		for (Unit unit : units.values()) {
+			status(units, unit);
+		}
+	}
+
+	private void checkCycles(Map<String, Unit> units, Unit unit, Deque<String> path, Set<String> done) {
+		if (done.contains(unit.name)) {
+			return;
+		}
+		path.addLast(unit.name);
+		for (Map.Entry<String, ImportStatementContext> entry : unit.imports.entrySet()) {
+			Unit dependency = units.get(entry.getKey());
+			if (dependency == null) {
+				continue;
+			}
+			if (path.contains(dependency.name)) {
+				List<String> cycle = new ArrayList<>(path);
+				cycle = cycle.subList(cycle.indexOf(dependency.name), cycle.size());
+				unit.error(Kind.IMPORT, entry.getValue(),
+						"Import cycle: " + String.join(" -> ", cycle) + " -> " + dependency.name);
+			}
+			else {
+				checkCycles(units, dependency, path, done);
+			}
+		}
+		path.removeLast();
+		done.add(unit.name);
+	}
+
+	private Status status(Map<String, Unit> units, Unit unit) {
+		if (unit.status != null) {
+			return unit.status;
+		}
+		if (!unit.diagnostics.isEmpty()) {
+			unit.status = Status.INVALID;
+			return unit.status;
+		}
+		// Cycles have already been reported, so provisionally valid stops the recursion
+		unit.status = Status.VALID;
+		for (String path : unit.imports.keySet()) {
+			Unit dependency = units.get(path);
+			if (dependency != null && status(units, dependency) != Status.VALID) {
+				unit.status = Status.SKIPPED;
+			}
+		}
+		return unit.status;
+	}
+
+	/**
+	 * Prints a report of all the problems in a source directory, and exits with status 1
+	 * if there are any.
+	 * @param args the source directory (default <code>src/main/proto</code>) and the
+	 * number of threads (default one per processor)
+	 */
+	public static void main(String[] args) {
+		Path source = Path.of(args.length > 0 ? args[0] : "src/main/proto");
+		SchemaValidator validator = (args.length > 1) ? new SchemaValidator(source, Integer.parseInt(args[1]))
+				: new SchemaValidator(source);
+		Report report = validator.validate();
+		System.out.print(report.format());
+		if (report.hasErrors()) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * The kinds of problem that can be found in a file.
+	 */
+	public enum Kind {
+
+		/**
+		 * The file is not valid .proto syntax.
+		 */
+		SYNTAX,
+
+		/**
+		 * An import cannot be found or is part of a cycle.
+		 */
+		IMPORT,
+
+		/**
+		 * The file parses but is not a valid descriptor, for example because of an
+		 * unknown type or a duplicate field number.
+		 */
+		DESCRIPTOR
+
+	}
+
+	/**
+	 * A problem in a file.
+	 *
+	 * @param file the name of the file, relative to the source directory
+	 * @param line the line of the problem (starting at 1), or 0 if it is not known
+	 * @param column the column of the problem (starting at 1), or 0 if it is not known
+	 * @param kind the kind of problem
+	 * @param message a description of the problem
+	 */
+	public record Diagnostic(String file, int line, int column, Kind kind, String message) {
+
+		@Override
+		public String toString() {
+			String position = (this.line > 0) ? ":" + this.line + ":" + this.column : "";
+			return this.file + position + ": " + this.kind.name().toLowerCase() + " error: " + this.message;
+		}
+
+	}
+
+	/**
+	 * The result of validating a source directory.
+	 *
+	 * @param files the number of files that were validated
+	 * @param diagnostics the problems found, ordered by file and position
+	 */
+	public record Report(int files, List<Diagnostic> diagnostics) {
+
+		/**
+		 * Whether any problems were found.
+		 * @return true if there are diagnostics
+		 */
+		public boolean hasErrors() {
+			return !this.diagnostics.isEmpty();
+		}
+
+		/**
+		 * The report in the same format as compiler errors, one problem per line
+		 * (<code>file:line:column: kind error: message</code>), followed by a summary.
+		 * @return the formatted report
+		 */
+		public String format() {
+			StringBuilder result = new StringBuilder();
+			Set<String> invalid = new HashSet<>();
+			for (Diagnostic diagnostic : this.diagnostics) {
+				result.append(diagnostic).append(System.lineSeparator());
+				invalid.add(diagnostic.file());
+			}
+			result.append(String.format("%d errors in %d of %d files%n", this.diagnostics.size(), invalid.size(),
+					this.files));
+			return result.toString();
+		}
+
+	}
+
+	private enum Status {
+
+		VALID, INVALID, SKIPPED
+
+	}
+
+	private static final class Unit {
+
+		private final String name;
+
+		private final Map<String, ImportStatementContext> imports = new LinkedHashMap<>();
+
+		private final List<Diagnostic> diagnostics = new ArrayList<>();
+
+		private String text;
+
+		private Status status;
+
+		private Unit(String name) {
+			this.name = name;
+		}
+
+		private void error(Kind kind, int line, int column, String message) {
+			this.diagnostics.add(new Diagnostic(this.name, line, column, kind, message));
+		}
+
+		private void error(Kind kind, ParserRuleContext context, String message) {
+			error(kind, context.getStart().getLine(), context.getStart().getCharPositionInLine() + 1, message);
+		}
+
+	}
+
+	/**
+	 * Builds descriptors for the valid files on one thread. The parser and converter
+	 * cache the dependencies they have seen, so each is only parsed and built once per
+	 * thread.
+	 */
+	private final class Builder {
+
+		private final FileDescriptorProtoParser parser = new FileDescriptorProtoParser(SchemaValidator.this.source);
+
+		private final FileDescriptorManager manager = new FileDescriptorManager();
+
+		private void build(Unit unit) {
+			try {
+				FileDescriptorProto proto = this.parser.parse(unit.name, unit.text);
+				this.manager.convert(this.parser.resolve(proto));
+			}
+			catch (IllegalStateException ex) {
+				if (ex.getCause() instanceof DescriptorValidationException invalid) {
+					if (!ex.getMessage().equals("Invalid descriptor: " + unit.name)) {
+						// A dependency is invalid, and is reported on its own
+						return;
+					}
+					String symbol = invalid.getProblemSymbolName();
+					int[] position = Positions.find(unit.text, symbol);
+					unit.error(Kind.DESCRIPTOR, position[0], position[1], symbol + ": " + invalid.getDescription());
+				}
+				else {
+					unit.error(Kind.DESCRIPTOR, 0, 0, ex.getMessage());
+				}
+			}
+			catch (IllegalArgumentException ex) {
+				unit.error(Kind.DESCRIPTOR, 0, 0, ex.getMessage());
+			}
+		}
+
+	}
+
+	/**
+	 * Finds the positions of the declarations in a file by their full names, so that
+	 * descriptor validation errors can be reported where the problem symbol was declared.
+	 * Only needed for files with errors, so the file is parsed again.
+	 */
+	private static final class Positions extends ProtobufBaseListener {
+
+		private final Map<String, int[]> positions = new HashMap<>();
+
+		private final Deque<String> scope = new ArrayDeque<>();
+
+		private String prefix = "";
+
+		static int[] find(String text, String symbol) {
+			ProtobufParser parser = new ProtobufParser(
+					new CommonTokenStream(new ProtobufLexer(CharStreams.fromString(text))));
+			parser.removeErrorListeners();
+			Positions positions = new Positions();
+			ParseTreeWalker.DEFAULT.walk(positions, parser.proto());
+			// Synthetic symbols (e.g. map entries) are reported at their parent
+			for (String name = symbol; !name.isEmpty(); name = name.substring(0, Math.max(name.lastIndexOf('.'), 0))) {
+				int[] position = positions.positions.get(name);
+				if (position != null) {
+					return position;
+				}
+			}
+			return new int[] { 0, 0 };
+		}
+
+		@Override
+		public void exitPackageStatement(PackageStatementContext ctx) {
+			this.prefix = ctx.fullIdent().getText() + ".";
+		}
+
+		@Override
+		public void enterMessageDef(MessageDefContext ctx) {
+			this.scope.addLast(declare(ctx.messageName().getText(), ctx));
+		}
+
+		@Override
+		public void exitMessageDef(MessageDefContext ctx) {
+			this.scope.removeLast();
+		}
+
+		@Override
+		public void enterEnumDef(EnumDefContext ctx) {
+			declare(ctx.enumName().getText(), ctx);
+		}
+
+		@Override
+		public void enterEnumField(EnumFieldContext ctx) {
+			// Enum values are scoped as siblings of their enum
+			declare(ctx.ident().getText(), ctx);
+		}
+
+		@Override
+		public void enterField(FieldContext ctx) {
+			declare(ctx.fieldName().getText(), ctx);
+		}
+
+		@Override
+		public void enterOneof(OneofContext ctx) {
+			declare(ctx.oneofName().getText(), ctx);
+		}
+
+		@Override
+		public void enterOneofField(OneofFieldContext ctx) {
+			declare(ctx.fieldName().getText(), ctx);
+		}
+
+		@Override
+		public void enterMapField(MapFieldContext ctx) {
+			declare(ctx.mapName().getText(), ctx);
+		}
+
+		@Override
+		public void enterServiceDef(ServiceDefContext ctx) {
+			this.scope.addLast(declare(ctx.serviceName().getText(), ctx));
+		}
+
+		@Override
+		public void exitServiceDef(ServiceDefContext ctx) {
+			this.scope.removeLast();
+		}
+
+		@Override
+		public void enterRpc(RpcContext ctx) {
+			declare(ctx.rpcName().getText(), ctx);
+		}
+
+		private String declare(String name, ParserRuleContext ctx) {
+			String parent = this.scope.isEmpty() ? this.prefix : this.scope.getLast() + ".";
+			String fullName = parent + name;
+			this.positions.putIfAbsent(fullName,
+					new int[] { ctx.getStart().getLine(), ctx.getStart().getCharPositionInLine() + 1 });
+			return fullName;
+		}
+
+	}
+
+}
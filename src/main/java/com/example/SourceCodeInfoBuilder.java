@@ -0,0 +1,463 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import com.example.ProtobufParser.EnumDefContext;
+import com.example.ProtobufParser.EnumElementContext;
+import com.example.ProtobufParser.ExtendDefContext;
+import com.example.ProtobufParser.FieldContext;
+import com.example.ProtobufParser.ImportStatementContext;
+import com.example.ProtobufParser.MapFieldContext;
+import com.example.ProtobufParser.MessageDefContext;
+import com.example.ProtobufParser.MessageElementContext;
+import com.example.ProtobufParser.OneofContext;
+import com.example.ProtobufParser.OneofFieldContext;
+import com.example.ProtobufParser.PackageStatementContext;
+import com.example.ProtobufParser.ProtoContext;
+import com.example.ProtobufParser.RpcContext;
+import com.example.ProtobufParser.ServiceDefContext;
+import com.example.ProtobufParser.ServiceElementContext;
+import com.example.ProtobufParser.TopLevelDefContext;
+import com.google.protobuf.DescriptorProtos.DescriptorProto;
+import com.google.protobuf.DescriptorProtos.EnumDescriptorProto;
+import com.google.protobuf.DescriptorProtos.EnumValueDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FieldDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.MethodDescriptorProto;
+import com.google.protobuf.DescriptorProtos.OneofDescriptorProto;
+import com.google.protobuf.DescriptorProtos.ServiceDescriptorProto;
+import com.google.protobuf.DescriptorProtos.SourceCodeInfo;
+
+/**
+ * Computes the {@link SourceCodeInfo} of a parsed file from its parse tree and tokens
+ * (including the comments on the hidden channel), the first time it is requested. There
+ * is a location for the file, its syntax, package and imports, and every declaration
+ * (messages, fields, oneofs, enums, enum values, services, methods, extend blocks and
+ * extensions), with the same paths, spans and comment attachment rules as
+ * <code>protoc</code>. Spans are zero-based and count a tab as one column. Declarations
+ * are matched to the descriptor by name, so the paths do not depend on the order the
+ * descriptor was built in (e.g. for map entries and synthetic oneofs).
+ */
+class SourceCodeInfoBuilder {
+
+	private ProtoContext tree;
+
+	private CommonTokenStream tokens;
+
+	private SourceCodeInfo info;
+
+	private final Map<Integer, Comments> comments = new HashMap<>();
+
+	SourceCodeInfoBuilder(ProtoContext tree, CommonTokenStream tokens) {
+		this.tree = tree;
+		this.tokens = tokens;
+	}
+
+	/**
+	 * Computes the source code info on the first call (and then releases the parse tree
+	 * and tokens).
+	 * @param file the descriptor that was built from the parse tree
+	 * @return the source code info
+	 */
+	synchronized SourceCodeInfo build(FileDescriptorProto file) {
+		if (this.info == null) {
+			SourceCodeInfo.Builder info = SourceCodeInfo.newBuilder();
+			file(info, file);
+			this.info = info.build();
+			this.tree = null;
+			this.tokens = null;
+			this.comments.clear();
+		}
+		return this.info;
+	}
+
+	private void file(SourceCodeInfo.Builder info, FileDescriptorProto file) {
+		int last = this.tree.getStop().getTokenIndex() - 1;
+		while (this.tokens.get(last).getChannel() != Token.DEFAULT_CHANNEL) {
+			last--;
+		}
+		info.addLocation(
+				SourceCodeInfo.Location.newBuilder().addAllSpan(span(this.tree.getStart(), this.tokens.get(last))));
+		add(info, new int[] { FileDescriptorProto.SYNTAX_FIELD_NUMBER }, this.tree.syntax(), null);
+		Map<String, Integer> messages = index(file.getMessageTypeList(), DescriptorProto::getName);
+		Map<String, Integer> enums = index(file.getEnumTypeList(), EnumDescriptorProto::getName);
+		Map<String, Integer> services = index(file.getServiceList(), ServiceDescriptorProto::getName);
+		Map<String, Integer> extensions = index(file.getExtensionList(), FieldDescriptorProto::getName);
+		int imports = 0;
+		for (ParseTree child : this.tree.children) {
+			if (child instanceof ImportStatementContext statement) {
+				add(info, new int[] { FileDescriptorProto.DEPENDENCY_FIELD_NUMBER, imports++ }, statement, null);
+			}
+			else if (child instanceof PackageStatementContext statement) {
+				add(info, new int[] { FileDescriptorProto.PACKAGE_FIELD_NUMBER }, statement, null);
+			}
+			else if (child instanceof TopLevelDefContext definition) {
+				if (definition.messageDef() != null) {
+					Integer index = messages.get(definition.messageDef().messageName().getText());
+					if (index != null) {
+						message(info, new int[] { FileDescriptorProto.MESSAGE_TYPE_FIELD_NUMBER, index },
+								definition.messageDef(), file.getMessageType(index));
+					}
+				}
+				else if (definition.enumDef() != null) {
+					Integer index = enums.get(definition.enumDef().enumName().getText());
+					if (index != null) {
+						enumType(info, new int[] { FileDescriptorProto.ENUM_TYPE_FIELD_NUMBER, index },
+								definition.enumDef(), file.getEnumType(index));
+					}
+				}
+				else if (definition.serviceDef() != null) {
+					Integer index = services.get(definition.serviceDef().serviceName().getText());
+					if (index != null) {
+						service(info, new int[] { FileDescriptorProto.SERVICE_FIELD_NUMBER, index },
+								definition.serviceDef(), file.getService(index));
+					}
+				}
+				else if (definition.extendDef() != null) {
+					extend(info, new int[] { FileDescriptorProto.EXTENSION_FIELD_NUMBER }, definition.extendDef(),
+							extensions);
+				}
+			}
+		}
+	}
+
+	private void message(SourceCodeInfo.Builder info, int[] path, MessageDefContext context, DescriptorProto type) {
+		add(info, path, context, context.messageBody().LC());
+		Map<String, Integer> fields = index(type.getFieldList(), FieldDescriptorProto::getName);
+		Map<String, Integer> messages = index(type.getNestedTypeList(), DescriptorProto::getName);
+		Map<String, Integer> enums = index(type.getEnumTypeList(), EnumDescriptorProto::getName);
+		Map<String, Integer> extensions = index(type.getExtensionList(), FieldDescriptorProto::getName);
+		Map<String, Integer> oneofs = index(type.getOneofDeclList(), OneofDescriptorProto::getName);
+		for (MessageElementContext element : context.messageBody().messageElement()) {
+			if (element.field() != null) {
+				FieldContext field = element.field();
+				add(info, path, DescriptorProto.FIELD_FIELD_NUMBER, fields.get(field.fieldName().getText()), field,
+						null);
+			}
+			else if (element.mapField() != null) {
+				MapFieldContext field = element.mapField();
+				add(info, path, DescriptorProto.FIELD_FIELD_NUMBER, fields.get(field.mapName().getText()), field, null);
+			}
+			else if (element.oneof() != null) {
+				OneofContext oneof = element.oneof();
+				add(info, path, DescriptorProto.ONEOF_DECL_FIELD_NUMBER, oneofs.get(oneof.oneofName().getText()), oneof,
+						oneof.LC());
+				for (OneofFieldContext field : oneof.oneofField()) {
+					add(info, path, DescriptorProto.FIELD_FIELD_NUMBER, fields.get(field.fieldName().getText()), field,
+							null);
+				}
+			}
+			else if (element.messageDef() != null) {
+				Integer index = messages.get(element.messageDef().messageName().getText());
+				if (index != null) {
+					message(info, append(path, DescriptorProto.NESTED_TYPE_FIELD_NUMBER, index), element.messageDef(),
+							type.getNestedType(index));
+				}
+			}
+			else if (element.enumDef() != null) {
+				Integer index = enums.get(element.enumDef().enumName().getText());
+				if (index != null) {
+					enumType(info, append(path, DescriptorProto.ENUM_TYPE_FIELD_NUMBER, index), element.enumDef(),
+							type.getEnumType(index));
+				}
+			}
+			else if (element.extendDef() != null) {
+				extend(info, append(path, DescriptorProto.EXTENSION_FIELD_NUMBER), element.extendDef(), extensions);
+			}
+		}
+	}
+
+	private void enumType(SourceCodeInfo.Builder info, int[] path, EnumDefContext context, EnumDescriptorProto type) {
+		add(info, path, context, context.enumBody().LC());
+		Map<String, Integer> values = index(type.getValueList(), EnumValueDescriptorProto::getName);
+		for (EnumElementContext element : context.enumBody().enumElement()) {
+			if (element.enumField() != null) {
+				add(info, path, EnumDescriptorProto.VALUE_FIELD_NUMBER,
+						values.get(element.enumField().ident().getText()), element.enumField(), null);
+			}
+		}
+	}
+
+	private void service(SourceCodeInfo.Builder info, int[] path, ServiceDefContext context,
+			ServiceDescriptorProto service) {
+		add(info, path, context, context.LC());
+		Map<String, Integer> methods = index(service.getMethodList(), MethodDescriptorProto::getName);
+		for (ServiceElementContext element : context.serviceElement()) {
+			if (element.rpc() != null) {
+				RpcContext rpc = element.rpc();
+				add(info, path, ServiceDescriptorProto.METHOD_FIELD_NUMBER, methods.get(rpc.rpcName().getText()), rpc,
+						rpc.LC());
+			}
+		}
+	}
+
+	/**
+	 * Adds the location of an extend block, and of the extensions in it.
+	 * @param path the path of the extensions in the enclosing scope
+	 */
+	private void extend(SourceCodeInfo.Builder info, int[] path, ExtendDefContext context,
+			Map<String, Integer> extensions) {
+		add(info, path, context, context.LC());
+		for (FieldContext field : context.field()) {
+			Integer index = extensions.get(field.fieldName().getText());
+			if (index != null) {
+				add(info, append(path, index), field, null);
+			}
+		}
+	}
+
+	private void add(SourceCodeInfo.Builder info, int[] parent, int field, Integer index, ParserRuleContext context,
+			TerminalNode open) {
+		if (index != null) {
+			add(info, append(parent, field, index), context, open);
+		}
+	}
+
+	/**
+	 * Adds the location of a declaration.
+	 * @param open the opening brace of a declaration with a body, which is followed by
+	 * its trailing comment, or null if the trailing comment follows the end of the
+	 * declaration
+	 */
+	private void add(SourceCodeInfo.Builder info, int[] path, ParserRuleContext context, TerminalNode open) {
+		SourceCodeInfo.Location.Builder location = SourceCodeInfo.Location.newBuilder();
+		for (int element : path) {
+			location.addPath(element);
+		}
+		location.addAllSpan(span(context.getStart(), context.getStop()));
+		Comments before = comments(context.getStart().getTokenIndex());
+		if (before.leading != null) {
+			location.setLeadingComments(before.leading);
+		}
+		Token end = (open != null) ? open.getSymbol() : context.getStop();
+		Comments after = comments(next(end.getTokenIndex()));
+		if (after.trailing != null) {
+			location.setTrailingComments(after.trailing);
+		}
+		location.addAllLeadingDetachedComments(before.detached);
+		info.addLocation(location);
+	}
+
+	private static List<Integer> span(Token start, Token stop) {
+		int endLine = endLine(stop);
+		String text = stop.getText();
+		int endColumn = (endLine == stop.getLine()) ? stop.getCharPositionInLine() + text.length()
+				: text.length() - text.lastIndexOf('\n') - 1;
+		if (endLine == start.getLine()) {
+			return List.of(start.getLine() - 1, start.getCharPositionInLine(), endColumn);
+		}
+		return List.of(start.getLine() - 1, start.getCharPositionInLine(), endLine - 1, endColumn);
+	}
+
+	/**
+	 * The index of the next token on the default channel (at worst the end of file).
+	 */
+	private int next(int index) {
+		int next = index + 1;
+		while (this.tokens.get(next).getChannel() != Token.DEFAULT_CHANNEL) {
+			next++;
+		}
+		return next;
+	}
+
+	/**
+	 * The comments between a token on the default channel and the one before it, attached
+	 * as <code>protoc</code> does: a comment on the same line as the previous token (or
+	 * on the next line and followed by a blank line or the end of a scope) is a trailing
+	 * comment for it, the last comment block right before the token is a leading comment
+	 * for it, and anything else separated by blank lines is detached.
+	 */
+	private Comments comments(int next) {
+		Comments cached = this.comments.get(next);
+		if (cached != null) {
+			return cached;
+		}
+		int previous = next - 1;
+		while (previous >= 0 && this.tokens.get(previous).getChannel() != Token.DEFAULT_CHANNEL) {
+			previous--;
+		}
+		Token after = this.tokens.get(next);
+		Comments comments = new Comments(previous >= 0);
+		int index = previous + 1;
+		int line = 1;
+		if (previous >= 0) {
+			int previousLine = endLine(this.tokens.get(previous));
+			Token first = this.tokens.get(index);
+			if (first.getLine() != previousLine) {
+				line = previousLine + 1;
+			}
+			else if (index == next) {
+				// The next token is on the same line, so there are no comments
+				return cache(next, comments);
+			}
+			else if (first.getType() == ProtobufLexer.LINE_COMMENT) {
+				comments.line(first);
+				comments.flush();
+				line = previousLine + 1;
+				index++;
+			}
+			else {
+				if (this.tokens.get(index + 1).getLine() == endLine(first)) {
+					// Something else on the same line, so it is not clear what the
+					// comment is about
+					return cache(next, new Comments(false));
+				}
+				comments.block(first);
+				comments.flush();
+				line = endLine(first) + 1;
+				index++;
+			}
+		}
+		for (; index < next; index++) {
+			Token comment = this.tokens.get(index);
+			if (comment.getLine() > line) {
+				// A blank line
+				comments.flush();
+				comments.attachable = false;
+			}
+			if (comment.getType() == ProtobufLexer.LINE_COMMENT) {
+				comments.line(comment);
+			}
+			else {
+				comments.block(comment);
+			}
+			line = endLine(comment) + 1;
+		}
+		if (after.getLine() > line) {
+			comments.flush();
+			comments.attachable = false;
+		}
+		if (after.getType() == Token.EOF || after.getType() == ProtobufLexer.RC) {
+			// The end of a scope, so nothing to lead
+			comments.flush();
+		}
+		comments.leading = (comments.buffer != null) ? comments.buffer.toString() : null;
+		return cache(next, comments);
+	}
+
+	private Comments cache(int next, Comments comments) {
+		this.comments.put(next, comments);
+		return comments;
+	}
+
+	private static int endLine(Token token) {
+		int line = token.getLine();
+		String text = token.getText();
+		for (int i = 0; i < text.length(); i++) {
+			if (text.charAt(i) == '\n') {
+				line++;
+			}
+		}
+		return line;
+	}
+
+	private static int[] append(int[] path, int... elements) {
+		int[] result = Arrays.copyOf(path, path.length + elements.length);
+		System.arraycopy(elements, 0, result, path.length, elements.length);
+		return result;
+	}
+
+	private static <T> Map<String, Integer> index(List<T> items, Function<T, String> name) {
+		Map<String, Integer> index = new HashMap<>();
+		for (int i = 0; i < items.size(); i++) {
+			index.putIfAbsent(name.apply(items.get(i)), i);
+		}
+		return index;
+	}
+
+	/**
+	 * The comments in the gap between two tokens.
+	 */
+	private static final class Comments {
+
+		private boolean attachable;
+
+		private StringBuilder buffer;
+
+		private boolean lineComment;
+
+		private String leading;
+
+		private String trailing;
+
+		private final List<String> detached = new ArrayList<>();
+
+		private Comments(boolean attachable) {
+			this.attachable = attachable;
+		}
+
+		private void line(Token token) {
+			if (this.buffer != null && !this.lineComment) {
+				flush();
+			}
+			if (this.buffer == null) {
+				this.buffer = new StringBuilder();
+			}
+			this.lineComment = true;
+			this.buffer.append(token.getText(), 2, token.getText().length()).append('\n');
+		}
+
+		private void block(Token token) {
+			flush();
+			this.lineComment = false;
+			this.buffer = new StringBuilder();
+			String text = token.getText();
+			String[] lines = text.substring(2, text.length() - 2).split("\n", -1);
+			this.buffer.append(lines[0]);
+			for (int i = 1; i < lines.length; i++) {
+				// Leading whitespace and one asterisk are removed from continuation lines
+				String line = lines[i];
+				int start = 0;
+				while (start < line.length() && " \t\r\f\u000b".indexOf(line.charAt(start)) >= 0) {
+					start++;
+				}
+				if (start < line.length() && line.charAt(start) == '*') {
+					start++;
+				}
+				this.buffer.append('\n').append(line, start, line.length());
+			}
+		}
+
+		private void flush() {
+			if (this.buffer == null) {
+				return;
+			}
+			if (this.attachable) {
+				this.trailing = this.buffer.toString();
+				this.attachable = false;
+			}
+			else {
+				this.detached.add(this.buffer.toString());
+			}
+			this.buffer = null;
+		}
+
+	}
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import java.io.IOException;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.Descriptors.EnumValueDescriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor.Type;
+import com.google.protobuf.WireFormat;
+
+/**
+ * Reads and writes scalar protobuf values as raw <code>long</code> bits, so that callers
+ * can store them without boxing. Integers are stored as their (sign-extended) value,
+ * booleans as 0 or 1, enums as their number, and floating point values as their raw IEEE
+ * bits (see {@link Float#floatToRawIntBits(float)} and
+ * {@link Double#doubleToRawLongBits(double)}).
+ */
+final class WireScalars {
+
+	private WireScalars() {
+	}
+
+	static boolean isScalar(Type type) {
+		return switch (type) {
+			case STRING, BYTES, MESSAGE, GROUP -> false;
+			default -> true;
+		};
+	}
+
+	static int wireType(Type type) {
+		return switch (type) {
+			case FIXED32, SFIXED32, FLOAT -> WireFormat.WIRETYPE_FIXED32;
+			case FIXED64, SFIXED64, DOUBLE -> WireFormat.WIRETYPE_FIXED64;
+			case STRING, BYTES, MESSAGE -> WireFormat.WIRETYPE_LENGTH_DELIMITED;
+			case GROUP -> WireFormat.WIRETYPE_START_GROUP;
+			default -> WireFormat.WIRETYPE_VARINT;
+		};
+	}
+
+	static int tag(int number, int wireType) {
+		return number << 3 | wireType;
+	}
+
+	static long read(CodedInputStream input, Type type) throws IOException {
+		return switch (type) {
+			case INT32 -> input.readInt32();
+			case INT64 -> input.readInt64();
+			case UINT32 -> input.readUInt32();
+			case UINT64 -> input.readUInt64();
+			case SINT32 -> input.readSInt32();
+			case SINT64 -> input.readSInt64();
+			case FIXED32 -> input.readFixed32();
+			case FIXED64 -> input.readFixed64();
+			case SFIXED32 -> input.readSFixed32();
+			case SFIXED64 -> input.readSFixed64();
+			case BOOL -> input.readBool() ? 1 : 0;
+			case ENUM -> input.readEnum();
+			case FLOAT -> input.readRawLittleEndian32();
+			case DOUBLE -> input.readRawLittleEndian64();
+			default -> throw new IllegalArgumentException("Not a scalar type: " + type);
+		};
+	}
+
+	static void writeNoTag(CodedOutputStream output, Type type, long value) throws IOException {
+		switch (type) {
+			case INT32 -> output.writeInt32NoTag((int) value);
+			case INT64 -> output.writeInt64NoTag(value);
+			case UINT32 -> output.writeUInt32NoTag((int) value);
+			case UINT64 -> output.writeUInt64NoTag(value);
+			case SINT32 -> output.writeSInt32NoTag((int) value);
+			case SINT64 -> output.writeSInt64NoTag(value);
+			case FIXED32 -> output.writeFixed32NoTag((int) value);
+			case FIXED64 -> output.writeFixed64NoTag(value);
+			case SFIXED32 -> output.writeSFixed32NoTag((int) value);
+			case SFIXED64 -> output.writeSFixed64NoTag(value);
+			case BOOL -> output.writeBoolNoTag(value != 0);
+			case ENUM -> output.writeEnumNoTag((int) value);
+			case FLOAT -> output.writeFixed32NoTag((int) value);
+			case DOUBLE -> output.writeFixed64NoTag(value);
+			default -> throw new IllegalArgumentException("Not a scalar type: " + type);
+		}
+	}
+
+	static int sizeNoTag(Type type, long value) {
+		return switch (type) {
+			case INT32 -> CodedOutputStream.computeInt32SizeNoTag((int) value);
+			case INT64 -> CodedOutputStream.computeInt64SizeNoTag(value);
+			case UINT32 -> CodedOutputStream.computeUInt32SizeNoTag((int) value);
+			case UINT64 -> CodedOutputStream.computeUInt64SizeNoTag(value);
+			case SINT32 -> CodedOutputStream.computeSInt32SizeNoTag((int) value);
+			case SINT64 -> CodedOutputStream.computeSInt64SizeNoTag(value);
+			case FIXED32, SFIXED32, FLOAT -> 4;
+			case FIXED64, SFIXED64, DOUBLE -> 8;
+			case BOOL -> 1;
+			case ENUM -> CodedOutputStream.computeEnumSizeNoTag((int) value);
+			default -> throw new IllegalArgumentException("Not a scalar type: " + type);
+		};
+	}
+
+	/**
+	 * Converts a boxed value, as used by {@link com.google.protobuf.DynamicMessage} and
+	 * for field defaults, to raw bits.
+	 */
+	static long bits(Object value) {
+		if (value instanceof Boolean flag) {
+			return flag ? 1 : 0;
+		}
+		if (value instanceof Float number) {
+			return Float.floatToRawIntBits(number);
+		}
+		if (value instanceof Double number) {
+			return Double.doubleToRawLongBits(number);
+		}
+		if (value instanceof EnumValueDescriptor enumValue) {
+			return enumValue.getNumber();
+		}
+		return ((Number) value).longValue();
+	}
+
+}
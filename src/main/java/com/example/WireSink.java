@@ -0,0 +1,217 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.Descriptors.FieldDescriptor.Type;
+
+/**
+ * A growable byte array for encoders that write wire bytes (or text) directly, including
+ * length-delimited values whose length is only known once they have been written.
+ */
+final class WireSink {
+
+	private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+	private byte[] bytes;
+
+	private int size;
+
+	WireSink(int capacity) {
+		this.bytes = new byte[Math.max(capacity, 16)];
+	}
+
+	private void ensure(int extra) {
+		if (this.size + extra > this.bytes.length) {
+			this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.size + extra));
+		}
+	}
+
+	void write(int b) {
+		ensure(1);
+		this.bytes[this.size++] = (byte) b;
+	}
+
+	void write(byte[] value) {
+		ensure(value.length);
+		System.arraycopy(value, 0, this.bytes, this.size, value.length);
+		this.size += value.length;
+	}
+
+	void write(byte[] value, int offset, int length) {
+		ensure(length);
+		System.arraycopy(value, offset, this.bytes, this.size, length);
+		this.size += length;
+	}
+
+	void write(ByteBuffer value) {
+		int length = value.remaining();
+		ensure(length);
+		value.get(value.position(), this.bytes, this.size, length);
+		this.size += length;
+	}
+
+	void writeAscii(String value) {
+		ensure(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			this.bytes[this.size++] = (byte) value.charAt(i);
+		}
+	}
+
+	void writeDecimal(long value) {
+		if (value == Long.MIN_VALUE) {
+			writeAscii(Long.toString(value));
+			return;
+		}
+		ensure(20);
+		if (value < 0) {
+			this.bytes[this.size++] = '-';
+			value = -value;
+		}
+		int digits = 1;
+		for (long remaining = value / 10; remaining > 0; remaining /= 10) {
+			digits++;
+		}
+		for (int i = this.size + digits - 1; i >= this.size; i--) {
+			this.bytes[i] = (byte) ('0' + value % 10);
+			value /= 10;
+		}
+		this.size += digits;
+	}
+
+	void writeUnicodeEscape(int c) {
+		ensure(6);
+		this.bytes[this.size++] = '\\';
+		this.bytes[this.size++] = 'u';
+		for (int shift = 12; shift >= 0; shift -= 4) {
+			this.bytes[this.size++] = HEX[(c >> shift) & 0xf];
+		}
+	}
+
+	void writeUtf8(int codePoint) {
+		if (codePoint < 0x80) {
+			write(codePoint);
+		}
+		else if (codePoint < 0x800) {
+			write(0xc0 | codePoint >> 6);
+			write(0x80 | codePoint & 0x3f);
+		}
+		else if (codePoint < 0x10000) {
+			write(0xe0 | codePoint >> 12);
+			write(0x80 | codePoint >> 6 & 0x3f);
+			write(0x80 | codePoint & 0x3f);
+		}
+		else {
+			write(0xf0 | codePoint >> 18);
+			write(0x80 | codePoint >> 12 & 0x3f);
+			write(0x80 | codePoint >> 6 & 0x3f);
+			write(0x80 | codePoint & 0x3f);
+		}
+	}
+
+	void writeTag(int number, int wireType) {
+		writeVarint(WireScalars.tag(number, wireType));
+	}
+
+	void writeVarint(long value) {
+		ensure(10);
+		while ((value & ~0x7fL) != 0) {
+			this.bytes[this.size++] = (byte) ((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		this.bytes[this.size++] = (byte) value;
+	}
+
+	void writeFixed(long value, int length) {
+		ensure(length);
+		for (int i = 0; i < length; i++) {
+			this.bytes[this.size++] = (byte) (value >>> (8 * i));
+		}
+	}
+
+	void writeScalar(Type type, long value) {
+		switch (type) {
+			case UINT32 -> writeVarint(value & 0xffffffffL);
+			case BOOL -> writeVarint(value != 0 ? 1 : 0);
+			case SINT32 -> writeVarint((((int) value << 1) ^ ((int) value >> 31)) & 0xffffffffL);
+			case SINT64 -> writeVarint((value << 1) ^ (value >> 63));
+			case FIXED32, SFIXED32, FLOAT -> writeFixed(value, 4);
+			case FIXED64, SFIXED64, DOUBLE -> writeFixed(value, 8);
+			default -> writeVarint(value);
+		}
+	}
+
+	/**
+	 * Reserves one byte for the length of a length-delimited value that is about to be
+	 * written.
+	 * @return a mark to pass to {@link #end(int)}
+	 */
+	int begin() {
+		write(0);
+		return this.size - 1;
+	}
+
+	/**
+	 * Writes the length of the value written since {@link #begin()}, moving the value if
+	 * the length takes more than one byte.
+	 */
+	void end(int mark) {
+		int length = this.size - mark - 1;
+		int extra = CodedOutputStream.computeUInt32SizeNoTag(length) - 1;
+		if (extra > 0) {
+			ensure(extra);
+			System.arraycopy(this.bytes, mark + 1, this.bytes, mark + 1 + extra, length);
+			this.size += extra;
+		}
+		int position = mark;
+		while ((length & ~0x7f) != 0) {
+			this.bytes[position++] = (byte) ((length & 0x7f) | 0x80);
+			length >>>= 7;
+		}
+		this.bytes[position] = (byte) length;
+	}
+
+	/**
+	 * The backing array, valid up to {@link #size()}.
+	 * @return the bytes written so far, and spare capacity
+	 */
+	byte[] array() {
+		return this.bytes;
+	}
+
+	int size() {
+		return this.size;
+	}
+
+	void truncate(int size) {
+		this.size = size;
+	}
+
+	byte[] toByteArray() {
+		return Arrays.copyOf(this.bytes, this.size);
+	}
+
+	void writeTo(OutputStream output) throws IOException {
+		output.write(this.bytes, 0, this.size);
+	}
+
+}
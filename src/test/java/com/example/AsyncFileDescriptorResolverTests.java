@@ -0,0 +1,95 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.Descriptors.FileDescriptor;
+
+public class AsyncFileDescriptorResolverTests {
+
+	private final List<Runnable> tasks = new ArrayList<>();
+
+	@Test
+	public void testResolveAndConvert() throws Exception {
+		AsyncFileDescriptorResolver resolver = new AsyncFileDescriptorResolver(
+				new FileDescriptorProtoParser(Path.of("src/test/proto/deps")), new FileDescriptorManager(),
+				Runnable::run);
+		FileDescriptor[] descriptors = resolver.resolve(Path.of("foo.proto")).thenCompose(resolver::convert).get();
+		assertThat(descriptors).hasSize(2);
+		assertThat(descriptors[1].getName()).isEqualTo("foo.proto");
+		assertThat(descriptors[1].findServiceByName("Foo")).isNotNull();
+	}
+
+	@Test
+	public void testSharedInFlight() throws Exception {
+		AsyncFileDescriptorResolver resolver = new AsyncFileDescriptorResolver(
+				new FileDescriptorProtoParser(Path.of("src/test/proto/deps")), new FileDescriptorManager(),
+				this.tasks::add);
+		CompletableFuture<FileDescriptorSet> first = resolver.resolve(Path.of("foo.proto"));
+		CompletableFuture<FileDescriptorSet> second = resolver.resolve(Path.of("foo.proto"));
+		assertThat(this.tasks).hasSize(1);
+		this.tasks.get(0).run();
+		assertThat(first.get()).isSameAs(second.get());
+		assertThat(first.get().getFileCount()).isEqualTo(2);
+		// Once complete the work is no longer shared
+		resolver.resolve(Path.of("foo.proto"));
+		assertThat(this.tasks).hasSize(2);
+	}
+
+	@Test
+	public void testCancelOneCaller() throws Exception {
+		AsyncFileDescriptorResolver resolver = new AsyncFileDescriptorResolver(this.tasks::add);
+		CompletableFuture<FileDescriptorSet> first = resolver.resolve("test.proto", "syntax = \"proto3\";");
+		CompletableFuture<FileDescriptorSet> second = resolver.resolve("test.proto", "syntax = \"proto3\";");
+		first.cancel(true);
+		this.tasks.get(0).run();
+		assertThat(first).isCancelled();
+		assertThat(second.get().getFile(0).getName()).isEqualTo("test.proto");
+	}
+
+	@Test
+	public void testCancelAllCallers() throws Exception {
+		AsyncFileDescriptorResolver resolver = new AsyncFileDescriptorResolver(this.tasks::add);
+		CompletableFuture<FileDescriptorSet> first = resolver.resolve("test.proto", "syntax = \"proto3\";");
+		first.cancel(true);
+		// The shared task was cancelled, so a new request starts new work
+		CompletableFuture<FileDescriptorSet> second = resolver.resolve("test.proto", "syntax = \"proto3\";");
+		assertThat(this.tasks).hasSize(2);
+		this.tasks.forEach(Runnable::run);
+		assertThat(second.get().getFileCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void testFailure() {
+		AsyncFileDescriptorResolver resolver = new AsyncFileDescriptorResolver(Runnable::run);
+		CompletableFuture<FileDescriptorSet> result = resolver.resolve("test.proto", "syntax = \"proto3\"; foo");
+		assertThat(result).failsWithin(Duration.ZERO)
+			.withThrowableOfType(ExecutionException.class)
+			.withCauseInstanceOf(IllegalStateException.class);
+	}
+
+}
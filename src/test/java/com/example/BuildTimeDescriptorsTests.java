@@ -0,0 +1,63 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class BuildTimeDescriptorsTests {
+
+	@Test
+	public void testEmptyWithoutArtifact() {
+		assertThat(BuildTimeDescriptors.get().getFileNames()).isEmpty();
+	}
+
+	@Test
+	public void testPrebuildAll(@TempDir Path dir) throws Exception {
+		new DescriptorCompiler(Path.of("src/test/proto/pkgs")).compile(dir.resolve(PrecompiledDescriptors.LOCATION));
+		try (URLClassLoader classLoader = new URLClassLoader(new URL[] { dir.toUri().toURL() }, null)) {
+			LazyFileDescriptorSet descriptors = BuildTimeDescriptors.initialize(classLoader, null);
+			assertThat(descriptors.isBuilt("foo.proto")).isTrue();
+			assertThat(descriptors.isBuilt("bar.proto")).isTrue();
+		}
+	}
+
+	@Test
+	public void testPrebuildChosen(@TempDir Path dir) throws Exception {
+		new DescriptorCompiler(Path.of("src/test/proto/pkgs")).compile(dir.resolve(PrecompiledDescriptors.LOCATION));
+		try (URLClassLoader classLoader = new URLClassLoader(new URL[] { dir.toUri().toURL() }, null)) {
+			LazyFileDescriptorSet descriptors = BuildTimeDescriptors.initialize(classLoader, "bar.proto");
+			assertThat(descriptors.isBuilt("bar.proto")).isTrue();
+			assertThat(descriptors.isBuilt("foo.proto")).isFalse();
+			assertThrows(IllegalStateException.class,
+					() -> BuildTimeDescriptors.initialize(classLoader, "missing.proto"));
+		}
+	}
+
+	@Test
+	public void testTraining() {
+		assertThat(DescriptorTraining.train()).isEqualTo(3);
+		assertThat(DescriptorTraining.train("src/test/proto/deps")).isEqualTo(2);
+	}
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.DynamicMessage;
+
+public class DelimitedMessageReaderTests {
+
+	private static final int COUNT = 1000;
+
+	private Descriptor type;
+
+	private Path file;
+
+	@BeforeEach
+	void setup(@TempDir Path dir) throws Exception {
+		String input = """
+				syntax = "proto3";
+				message Event {
+					int64 id = 1;
+					string name = 2;
+				}
+				""";
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		this.type = new FileDescriptorManager().convert(parser.resolve(parser.parse("test.proto", input)))[0]
+			.findMessageTypeByName("Event");
+		this.file = dir.resolve("events.bin");
+		try (OutputStream output = Files.newOutputStream(this.file)) {
+			for (int i = 0; i < COUNT; i++) {
+				DynamicMessage.newBuilder(this.type)
+					.setField(this.type.findFieldByName("id"), (long) i)
+					.setField(this.type.findFieldByName("name"), "event-" + "x".repeat(i % 200))
+					.build()
+					.writeDelimitedTo(output);
+			}
+		}
+	}
+
+	@Test
+	public void testDecode() throws Exception {
+		try (DelimitedMessageReader reader = DelimitedMessageReader.open(this.file)) {
+			List<Object> ids = reader.decode(this.type)
+				.map(message -> message.getField(this.type.findFieldByName("id")))
+				.collect(Collectors.toList());
+			assertThat(ids).hasSize(COUNT);
+			assertThat(ids.get(COUNT - 1)).isEqualTo((long) COUNT - 1);
+		}
+	}
+
+	@Test
+	public void testParallelWithSmallWindows() throws Exception {
+		MessageCodec codec = MessageCodec.compile(this.type);
+		MessageCodec.Field id = codec.findFieldByName("id");
+		try (DelimitedMessageReader reader = new DelimitedMessageReader(this.file, 256, 512)) {
+			long[] ids = reader.decode(codec).parallel().mapToLong(id::getLong).toArray();
+			long[] expected = new long[COUNT];
+			Arrays.setAll(expected, i -> i);
+			assertThat(ids).containsExactly(expected);
+		}
+	}
+
+	@Test
+	public void testSplitNearTheMiddle() throws Exception {
+		try (DelimitedMessageReader reader = new DelimitedMessageReader(this.file, 4096, 1024)) {
+			Spliterator<ByteBuffer> suffix = reader.records().spliterator();
+			Spliterator<ByteBuffer> prefix = suffix.trySplit();
+			long size = reader.size();
+			assertThat(prefix.estimateSize()).isBetween(size / 2 - 1024, size / 2 + 1024);
+			assertThat(prefix.estimateSize() + suffix.estimateSize()).isEqualTo(size);
+			Spliterator<ByteBuffer> quarter = prefix.trySplit();
+			assertThat(quarter.estimateSize()).isBetween(size / 4 - 1024, size / 4 + 1024);
+			long count = Stream.of(quarter, prefix, suffix)
+				.mapToLong(records -> StreamSupport.stream(records, false).count())
+				.sum();
+			assertThat(count).isEqualTo(COUNT);
+		}
+	}
+
+	@Test
+	public void testProject() throws Exception {
+		FieldProjection projection = FieldProjection.compile(this.type, "id");
+		try (DelimitedMessageReader reader = new DelimitedMessageReader(this.file, 4096, 4096)) {
+			List<FieldProjection.Columns> batches = reader.project(projection, 100)
+				.parallel()
+				.collect(Collectors.toList());
+			assertThat(batches.stream().mapToInt(FieldProjection.Columns::size).sum()).isEqualTo(COUNT);
+			long sum = batches.stream()
+				.flatMapToLong(columns -> Arrays.stream(columns.getColumn("id").getLongs().toArray()))
+				.sum();
+			assertThat(sum).isEqualTo((long) COUNT * (COUNT - 1) / 2);
+		}
+	}
+
+	@Test
+	public void testSizeTooLarge() throws Exception {
+		// A varint of 2^32, which does not fit in an int
+		Files.write(this.file, new byte[] { (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x10 });
+		try (DelimitedMessageReader reader = DelimitedMessageReader.open(this.file)) {
+			assertThatIllegalStateException().isThrownBy(() -> reader.records().count())
+				.withMessageStartingWith("Invalid record size at offset 0");
+		}
+	}
+
+	@Test
+	public void testTruncated() throws Exception {
+		byte[] bytes = Files.readAllBytes(this.file);
+		Files.write(this.file, Arrays.copyOf(bytes, bytes.length - 3));
+		try (DelimitedMessageReader reader = DelimitedMessageReader.open(this.file)) {
+			assertThatIllegalStateException().isThrownBy(() -> reader.records().count())
+				.withMessageStartingWith("Truncated record at offset");
+		}
+	}
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+
+public class DependencyIndexTests {
+
+	private static final String MONEY = """
+			syntax = "proto3";
+			package common;
+			enum Currency {
+				USD = 0;
+				EUR = 1;
+			}
+			message Money {
+				Currency currency = 1;
+				int64 units = 2;
+			}
+			""";
+
+	private static final String ORDERS = """
+			syntax = "proto3";
+			package shop;
+			import "common/money.proto";
+			message Order {
+				string id = 1;
+				map<string, Line> lines = 2;
+				message Line {
+					.common.Money price = 1;
+				}
+			}
+			message Customer {
+				string name = 1;
+			}
+			message OrderRequest {
+				string id = 1;
+			}
+			service Orders {
+				rpc GetOrder(OrderRequest) returns (Order);
+				rpc GetCustomer(OrderRequest) returns (Customer);
+			}
+			""";
+
+	private static final String REPORTS = """
+			syntax = "proto3";
+			package reports;
+			import "shop/orders.proto";
+			message Report {
+				repeated shop.Order orders = 1;
+			}
+			""";
+
+	@Test
+	public void testImpactOfFile() {
+		FileDescriptorProtoParser parser = parse();
+		DependencyIndex.Impact impact = parser.getDependencyIndex().getImpact("common/money.proto");
+		assertThat(impact.files()).containsExactly("shop/orders.proto", "reports/report.proto");
+		assertThat(impact.types()).containsExactlyInAnyOrder("common.Currency", "common.Money", "shop.Order.Line",
+				"shop.Order", "reports.Report");
+		assertThat(impact.methods()).containsExactly("shop.Orders.GetOrder");
+	}
+
+	@Test
+	public void testImpactOfType() {
+		DependencyIndex index = parse().getDependencyIndex();
+		assertThat(index.getDependentTypes("common.Currency")).containsExactly("common.Money", "shop.Order.Line",
+				"shop.Order", "reports.Report");
+		assertThat(index.getDependentMethods("shop.Customer")).containsExactly("shop.Orders.GetCustomer");
+		assertThat(index.getDependentMethods("shop.OrderRequest")).containsExactly("shop.Orders.GetOrder",
+				"shop.Orders.GetCustomer");
+		assertThat(index.getDependentFiles("reports/report.proto")).isEmpty();
+		assertThat(index.getImpact("missing.proto").files()).isEmpty();
+	}
+
+	@Test
+	public void testUpdatedWhenFileChanges() {
+		FileDescriptorProtoParser parser = parse();
+		parser.parse("shop/orders.proto", ORDERS.replace(".common.Money price", "int64 price"));
+		DependencyIndex index = parser.getDependencyIndex();
+		assertThat(index.getDependentTypes("common.Money")).isEmpty();
+		assertThat(index.getImpact("common/money.proto").methods()).isEmpty();
+		// The import is still there
+		assertThat(index.getDependentFiles("common/money.proto")).containsExactly("shop/orders.proto",
+				"reports/report.proto");
+		assertThat(index.remove("shop/orders.proto")).isTrue();
+		assertThat(index.getDependentFiles("common/money.proto")).isEmpty();
+		assertThat(index.getDependentMethods("shop.Order")).isEmpty();
+	}
+
+	@Test
+	public void testFromFileDescriptorSet() {
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		parser.parse("common/money.proto", MONEY);
+		DependencyIndex index = DependencyIndex.of(parser.resolve(parser.parse("shop/orders.proto", ORDERS)));
+		assertThat(index.getImpact("common/money.proto").methods()).containsExactly("shop.Orders.GetOrder");
+	}
+
+	@Test
+	public void testQueriesWhileParsing() throws Exception {
+		FileDescriptorProtoParser parser = parse();
+		DependencyIndex index = parser.getDependencyIndex();
+		FileDescriptorProto orders = parser.parse("shop/orders.proto", ORDERS);
+		FileDescriptorProto changed = parser.parse("shop/orders.proto",
+				ORDERS.replace(".common.Money price", "int64 price"));
+		Thread writer = new Thread(() -> {
+			for (int i = 0; i < 10000; i++) {
+				index.add((i % 2 == 0) ? orders : changed);
+			}
+		});
+		writer.start();
+		while (writer.isAlive()) {
+			assertThat(index.getImpact("common/money.proto").files()).contains("shop/orders.proto");
+		}
+		writer.join();
+		assertThat(index.getDependentTypes("common.Money")).isEmpty();
+	}
+
+	private FileDescriptorProtoParser parse() {
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		parser.parse("common/money.proto", MONEY);
+		parser.parse("shop/orders.proto", ORDERS);
+		parser.parse("reports/report.proto", REPORTS);
+		return parser;
+	}
+
+}
@@ -22,6 +22,7 @@ import org.junit.jupiter.api.Test;
 
 import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
 import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.Descriptors.Descriptor;
 import com.google.protobuf.Descriptors.FileDescriptor;
 
 public class DescriptorManagerTests {
@@ -68,6 +69,51 @@ public class DescriptorManagerTests {
 			.isEqualTo("Input");
 	}
 
+	@Test
+	public void testSharedDependenciesBuiltOnce() {
+		String input = """
+				syntax = "proto3";
+				import "google/protobuf/type.proto";
+				import "google/protobuf/any.proto";
+				message TestMessage {
+					google.protobuf.Any value = 1;
+					google.protobuf.Type type = 2;
+				}
+				""";
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		FileDescriptorSet files = parser.resolve(parser.parse("test.proto", input));
+		FileDescriptor[] descriptors = new FileDescriptorManager().convert(files);
+		assertThat(descriptors).hasSize(4);
+		FileDescriptor any = descriptors[0];
+		assertThat(any.getName()).isEqualTo("google/protobuf/any.proto");
+		assertThat(descriptors[3].getDependencies()).contains(any);
+		assertThat(descriptors[2].getDependencies()).contains(any);
+	}
+
+	@Test
+	public void testLazy() {
+		String input = """
+				syntax = "proto3";
+				import "google/protobuf/any.proto";
+				package sample;
+				message TestMessage {
+					google.protobuf.Any value = 1;
+				}
+				""";
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		FileDescriptorSet files = parser.resolve(parser.parse("test.proto", input), parser
+			.parse("google/protobuf/empty.proto", getClass().getResourceAsStream("/google/protobuf/empty.proto")));
+		LazyFileDescriptorSet descriptors = new FileDescriptorManager().lazy(files);
+		assertThat(descriptors.getFileNames()).containsExactly("google/protobuf/any.proto", "test.proto",
+				"google/protobuf/empty.proto");
+		assertThat(descriptors.isBuilt("test.proto")).isFalse();
+		Descriptor type = descriptors.findMessageTypeByName("sample.TestMessage");
+		assertThat(type.getFile().getName()).isEqualTo("test.proto");
+		assertThat(descriptors.isBuilt("google/protobuf/any.proto")).isTrue();
+		assertThat(descriptors.isBuilt("google/protobuf/empty.proto")).isFalse();
+		assertThat(descriptors.findFileByName("test.proto")).isSameAs(type.getFile());
+	}
+
 	@Test
 	public void testUnresolvedDependencies() {
 		String input = """
@@ -16,6 +16,7 @@
 package com.example;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import org.junit.jupiter.api.Disabled;
@@ -26,6 +27,13 @@ import com.google.protobuf.DescriptorProtos.EnumDescriptorProto;
 import com.google.protobuf.DescriptorProtos.FieldDescriptorProto;
 import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
 import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.DescriptorProtos.FileOptions;
+import com.google.protobuf.DescriptorProtos.MethodOptions;
+import com.google.protobuf.DescriptorProtos.OneofDescriptorProto;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Descriptors.FileDescriptor;
+import com.google.protobuf.UnknownFieldSet;
 
 public class DescriptorParserTests {
 
@@ -142,9 +150,11 @@ public class DescriptorParserTests {
 				""";
 		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
 		FileDescriptorProto proto = parser.parse("test.proto", input);
-		assertThat(proto.getMessageTypeList()).hasSize(2);
-		DescriptorProto type = proto.getMessageTypeList().get(1);
+		assertThat(proto.getMessageTypeList()).hasSize(1);
+		DescriptorProto type = proto.getMessageTypeList().get(0);
 		assertThat(type.getName().toString()).isEqualTo("TestMessage");
+		assertThat(type.getNestedTypeList()).hasSize(1);
+		assertThat(type.getNestedType(0).getName()).isEqualTo("Foo");
 		assertThat(type.getFieldList()).hasSize(2);
 		assertThat(type.getField(1).getName()).isEqualTo("foo");
 		assertThat(type.getField(1).getNumber()).isEqualTo(2);
@@ -152,6 +162,99 @@ public class DescriptorParserTests {
 		assertThat(type.getField(1).getTypeName()).isEqualTo("Foo");
 	}
 
+	@Test
+	public void testParseNestedTypesBuild() throws Exception {
+		String input = """
+				syntax = "proto3";
+				package demo;
+				message Outer {
+					message Inner {
+						enum Kind {
+							NONE = 0;
+							SOME = 1;
+						}
+						Kind kind = 1;
+					}
+					Inner inner = 1;
+					Inner.Kind kind = 2;
+				}
+				""";
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		FileDescriptorProto proto = parser.parse("test.proto", input);
+		assertThat(proto.getMessageTypeList()).hasSize(1);
+		assertThat(proto.getEnumTypeList()).isEmpty();
+		assertThat(proto.getMessageType(0).getNestedType(0).getEnumTypeList()).hasSize(1);
+		assertThat(proto.getMessageType(0).getField(1).getType()).isEqualTo(FieldDescriptorProto.Type.TYPE_ENUM);
+		Descriptor outer = FileDescriptor.buildFrom(proto, new FileDescriptor[0]).findMessageTypeByName("Outer");
+		assertThat(outer.findFieldByName("kind").getEnumType().getFullName()).isEqualTo("demo.Outer.Inner.Kind");
+		assertThat(outer.findFieldByName("inner").getMessageType().getFullName()).isEqualTo("demo.Outer.Inner");
+	}
+
+	@Test
+	public void testParseOneof() throws Exception {
+		String input = """
+				syntax = "proto3";
+				message TestMessage {
+					string name = 1;
+					oneof value {
+						string text = 2;
+						int32 number = 3;
+					}
+					optional int32 count = 4;
+					oneof other {
+						bool flag = 5;
+					}
+				}
+				""";
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		FileDescriptorProto proto = parser.parse("test.proto", input);
+		DescriptorProto type = proto.getMessageType(0);
+		assertThat(type.getOneofDeclList()).extracting(OneofDescriptorProto::getName)
+			.containsExactly("value", "other", "_count");
+		assertThat(type.getField(0).hasOneofIndex()).isFalse();
+		assertThat(type.getField(1).getOneofIndex()).isEqualTo(0);
+		assertThat(type.getField(2).getOneofIndex()).isEqualTo(0);
+		assertThat(type.getField(3).getProto3Optional()).isTrue();
+		assertThat(type.getField(3).getOneofIndex()).isEqualTo(2);
+		assertThat(type.getField(4).getOneofIndex()).isEqualTo(1);
+		Descriptor descriptor = FileDescriptor.buildFrom(proto, new FileDescriptor[0])
+			.findMessageTypeByName("TestMessage");
+		assertThat(descriptor.getRealOneofs()).hasSize(2);
+		assertThat(descriptor.findFieldByName("count").hasPresence()).isTrue();
+	}
+
+	@Test
+	public void testParseMap() throws Exception {
+		String input = """
+				syntax = "proto3";
+				message Child {
+					string name = 1;
+				}
+				message TestMessage {
+					map<string, int32> counts = 1;
+					map<int64, Child> child_by_id = 2;
+				}
+				""";
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		FileDescriptorProto proto = parser.parse("test.proto", input);
+		DescriptorProto type = proto.getMessageType(1);
+		assertThat(type.getNestedTypeList()).extracting(DescriptorProto::getName)
+			.containsExactly("CountsEntry", "ChildByIdEntry");
+		assertThat(type.getNestedType(1).getOptions().getMapEntry()).isTrue();
+		assertThat(type.getNestedType(1).getField(0).getType()).isEqualTo(FieldDescriptorProto.Type.TYPE_INT64);
+		assertThat(type.getNestedType(1).getField(1).getTypeName()).isEqualTo("Child");
+		assertThat(type.getField(1).getLabel()).isEqualTo(FieldDescriptorProto.Label.LABEL_REPEATED);
+		assertThat(type.getField(1).getTypeName()).isEqualTo("ChildByIdEntry");
+		Descriptor descriptor = FileDescriptor.buildFrom(proto, new FileDescriptor[0])
+			.findMessageTypeByName("TestMessage");
+		assertThat(descriptor.findFieldByName("counts").isMapField()).isTrue();
+		assertThat(descriptor.findFieldByName("child_by_id")
+			.getMessageType()
+			.findFieldByName("value")
+			.getMessageType()
+			.getName()).isEqualTo("Child");
+	}
+
 	@Test
 	public void testParseEnum() {
 		String input = """
@@ -181,7 +284,7 @@ public class DescriptorParserTests {
 	}
 
 	@Test
-	@Disabled
+	@Disabled("Needs validate.proto and google/api/annotations.proto, which are not on the test classpath")
 	public void testParseTrickyOptions() {
 		String input = """
 				syntax = "proto3";
@@ -247,6 +350,33 @@ public class DescriptorParserTests {
 		assertThat(proto.getName()).isEqualTo("google/protobuf/any.proto");
 	}
 
+	@Test
+	public void testResolveEach() {
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		FileDescriptorProto foo = parser.parse("foo.proto", """
+				syntax = "proto3";
+				import "google/protobuf/type.proto";
+				message Foo {
+					google.protobuf.Type value = 1;
+				}
+				""");
+		FileDescriptorProto bar = parser.parse("bar.proto", """
+				syntax = "proto3";
+				import "google/protobuf/any.proto";
+				import "foo.proto";
+				message Bar {
+					google.protobuf.Any value = 1;
+				}
+				""");
+		FileDescriptorSet[] files = parser.resolveEach(foo, bar);
+		assertThat(files).hasSize(2);
+		assertThat(files[0]).isEqualTo(parser.resolve(foo));
+		assertThat(files[1]).isEqualTo(parser.resolve(bar));
+		assertThat(files[1].getFileList()).extracting(FileDescriptorProto::getName)
+			.containsExactly("google/protobuf/any.proto", "google/protobuf/source_context.proto",
+					"google/protobuf/type.proto", "foo.proto", "bar.proto");
+	}
+
 	@Test
 	public void testParsePackage() {
 		String input = """
@@ -261,4 +391,110 @@ public class DescriptorParserTests {
 		assertThat(proto.getPackage()).isEqualTo("sample");
 	}
 
+	@Test
+	public void testParseOptions() {
+		String input = """
+				syntax = "proto3";
+				package sample;
+				option java_package = "com.example.sample";
+				option optimize_for = CODE_SIZE;
+				message TestMessage {
+					option deprecated = true;
+					repeated int32 values = 1 [packed = false, json_name = "vals"];
+					string name = 2 [deprecated = true];
+				}
+				enum Color {
+					option allow_alias = true;
+					RED = 0;
+					CRIMSON = 0 [deprecated = true];
+				}
+				service Painter {
+					option deprecated = true;
+					rpc Paint (TestMessage) returns (TestMessage) {
+						option idempotency_level = IDEMPOTENT;
+					}
+				}
+				""";
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		FileDescriptorProto proto = parser.parse("test.proto", input);
+		assertThat(proto.getOptions().getJavaPackage()).isEqualTo("com.example.sample");
+		assertThat(proto.getOptions().getOptimizeFor()).isEqualTo(FileOptions.OptimizeMode.CODE_SIZE);
+		DescriptorProto type = proto.getMessageType(0);
+		assertThat(type.getOptions().getDeprecated()).isTrue();
+		assertThat(type.getField(0).getOptions().getPacked()).isFalse();
+		assertThat(type.getField(0).getJsonName()).isEqualTo("vals");
+		assertThat(type.getField(1).getOptions().getDeprecated()).isTrue();
+		assertThat(type.getField(1).hasJsonName()).isFalse();
+		assertThat(proto.getEnumType(0).getOptions().getAllowAlias()).isTrue();
+		assertThat(proto.getEnumType(0).getValue(1).getOptions().getDeprecated()).isTrue();
+		assertThat(proto.getService(0).getOptions().getDeprecated()).isTrue();
+		assertThat(proto.getService(0).getMethod(0).getOptions().getIdempotencyLevel())
+			.isEqualTo(MethodOptions.IdempotencyLevel.IDEMPOTENT);
+		FieldDescriptor field = new FileDescriptorManager().convert(parser.resolve(proto))[0]
+			.findMessageTypeByName("TestMessage")
+			.findFieldByName("values");
+		assertThat(field.isPacked()).isFalse();
+		assertThat(field.getJsonName()).isEqualTo("vals");
+	}
+
+	@Test
+	public void testParseCustomOptions() {
+		String input = """
+				syntax = "proto3";
+				import "google/protobuf/descriptor.proto";
+				package sample;
+				extend google.protobuf.FieldOptions {
+					string label = 50000;
+					Rule rule = 50001;
+				}
+				message Rule {
+					int32 min = 1;
+					string name = 2;
+				}
+				message TestMessage {
+					string name = 1 [(label) = "hello", (rule).min = -3];
+					string other = 2 [(sample.rule) = { min: 1 name: "x" }];
+				}
+				""";
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		FileDescriptorProto proto = parser.parse("test.proto", input);
+		assertThat(proto.getExtensionList()).extracting(FieldDescriptorProto::getName).containsExactly("label", "rule");
+		assertThat(proto.getExtension(0).getExtendee()).isEqualTo("google.protobuf.FieldOptions");
+		DescriptorProto type = proto.getMessageTypeList().get(1);
+		UnknownFieldSet options = type.getField(0).getOptions().getUnknownFields();
+		assertThat(options.getField(50000).getLengthDelimitedList().get(0).toStringUtf8()).isEqualTo("hello");
+		assertThat(options.getField(50001).getLengthDelimitedList()).hasSize(1);
+		options = type.getField(1).getOptions().getUnknownFields();
+		assertThat(options.getField(50001).getLengthDelimitedList().get(0).toByteArray())
+			.isEqualTo(new byte[] { 8, 1, 18, 1, 'x' });
+		FileDescriptor[] files = new FileDescriptorManager().convert(parser.resolve(proto));
+		assertThat(files[files.length - 1].getExtensions()).hasSize(2);
+	}
+
+	@Test
+	public void testParseUnknownOption() {
+		String input = """
+				syntax = "proto3";
+				message TestMessage {
+					string name = 1 [(missing) = "hello"];
+				}
+				""";
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		assertThatIllegalStateException().isThrownBy(() -> parser.parse("test.proto", input))
+			.withMessage("Unknown option: (missing) at line 3");
+	}
+
+	@Test
+	public void testParseDefaultValue() {
+		String input = """
+				syntax = "proto3";
+				message TestMessage {
+					int32 count = 1 [default = 5];
+				}
+				""";
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		assertThatIllegalStateException().isThrownBy(() -> parser.parse("test.proto", input))
+			.withMessage("Explicit default values are not allowed in proto3 at line 3");
+	}
+
 }
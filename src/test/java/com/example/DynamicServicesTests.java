@@ -0,0 +1,273 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.DynamicMessage;
+
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.MethodDescriptor.MethodType;
+import io.grpc.MethodDescriptor.PrototypeMarshaller;
+import io.grpc.Server;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.ServerCalls;
+import io.grpc.stub.StreamObserver;
+
+public class DynamicServicesTests {
+
+	private static final String INPUT = """
+			syntax = "proto3";
+			package sample;
+			message EchoRequest {
+				string name = 1;
+				int32 count = 2;
+			}
+			message EchoResponse {
+				string name = 1;
+			}
+			service Echo {
+				rpc Echo(EchoRequest) returns (EchoResponse) {
+					option idempotency_level = NO_SIDE_EFFECTS;
+				}
+				rpc Repeat(EchoRequest) returns (stream EchoResponse);
+				rpc Collect(stream EchoRequest) returns (EchoResponse);
+				rpc Chat(stream EchoRequest) returns (stream EchoResponse);
+			}
+			""";
+
+	private DynamicServices services;
+
+	private final List<Server> servers = new ArrayList<>();
+
+	private final List<ManagedChannel> channels = new ArrayList<>();
+
+	@BeforeEach
+	public void init() {
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		this.services = new DynamicServices(parser.resolve(parser.parse("sample/echo.proto", INPUT)));
+	}
+
+	@AfterEach
+	public void stop() throws Exception {
+		for (ManagedChannel channel : this.channels) {
+			channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+		}
+		for (Server server : this.servers) {
+			server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+		}
+	}
+
+	@Test
+	public void testMethods() {
+		assertThat(this.services.getServiceNames()).containsExactly("sample.Echo");
+		assertThat(this.services.getService("sample.Echo").getMethods()).hasSize(4);
+		MethodDescriptor<DynamicMessage, DynamicMessage> echo = this.services.getMethod("sample.Echo/Echo");
+		assertThat(echo.getType()).isEqualTo(MethodType.UNARY);
+		assertThat(echo.isSafe()).isTrue();
+		assertThat(echo.isIdempotent()).isTrue();
+		assertThat(this.services.getMethod("sample.Echo/Repeat").getType()).isEqualTo(MethodType.SERVER_STREAMING);
+		assertThat(this.services.getMethod("sample.Echo/Repeat").isIdempotent()).isFalse();
+		assertThat(this.services.getMethod("sample.Echo/Collect").getType()).isEqualTo(MethodType.CLIENT_STREAMING);
+		assertThat(this.services.getMethod("sample.Echo/Chat").getType()).isEqualTo(MethodType.BIDI_STREAMING);
+		// The same marshaller for the same type in every method
+		assertThat(this.services.getMethod("sample.Echo/Repeat").getRequestMarshaller())
+			.isSameAs(echo.getRequestMarshaller());
+	}
+
+	@Test
+	public void testMarshaller() throws Exception {
+		MethodDescriptor<DynamicMessage, DynamicMessage> echo = this.services.getMethod("sample.Echo/Echo");
+		DynamicMessage request = request("foo", 3);
+		try (InputStream stream = echo.streamRequest(request)) {
+			assertThat(echo.parseRequest(stream)).isEqualTo(request);
+		}
+	}
+
+	@Test
+	public void testUnaryAndStreamingThroughProxy() throws Exception {
+		String backend = start(this.services.bindService("sample.Echo", (method) -> switch (method.getType()) {
+			case UNARY -> ServerCalls.asyncUnaryCall((request, responses) -> {
+				responses.onNext(response(method, name(request)));
+				responses.onCompleted();
+			});
+			case SERVER_STREAMING -> ServerCalls.asyncServerStreamingCall((request, responses) -> {
+				int count = (Integer) request.getField(request.getDescriptorForType().findFieldByName("count"));
+				for (int i = 0; i < count; i++) {
+					responses.onNext(response(method, name(request) + i));
+				}
+				responses.onCompleted();
+			});
+			default -> ServerCalls.asyncBidiStreamingCall((responses) -> new StreamObserver<DynamicMessage>() {
+
+				@Override
+				public void onNext(DynamicMessage request) {
+					responses.onNext(response(method, name(request)));
+				}
+
+				@Override
+				public void onError(Throwable error) {
+				}
+
+				@Override
+				public void onCompleted() {
+					responses.onCompleted();
+				}
+
+			});
+		}));
+		String proxy = start(this.services.proxy("sample.Echo", channel(backend)));
+		ManagedChannel channel = channel(proxy);
+		DynamicMessage response = ClientCalls.blockingUnaryCall(channel, this.services.getMethod("sample.Echo/Echo"),
+				CallOptions.DEFAULT, request("foo", 0));
+		assertThat(name(response)).isEqualTo("foo");
+		List<String> names = new ArrayList<>();
+		ClientCalls
+			.blockingServerStreamingCall(channel, this.services.getMethod("sample.Echo/Repeat"), CallOptions.DEFAULT,
+					request("bar", 3))
+			.forEachRemaining((message) -> names.add(name(message)));
+		assertThat(names).containsExactly("bar0", "bar1", "bar2");
+		CompletableFuture<List<String>> chat = new CompletableFuture<>();
+		StreamObserver<DynamicMessage> requests = ClientCalls.asyncBidiStreamingCall(
+				channel.newCall(this.services.getMethod("sample.Echo/Chat"), CallOptions.DEFAULT),
+				new StreamObserver<>() {
+
+					private final List<String> names = new ArrayList<>();
+
+					@Override
+					public void onNext(DynamicMessage response) {
+						this.names.add(name(response));
+					}
+
+					@Override
+					public void onError(Throwable error) {
+						chat.completeExceptionally(error);
+					}
+
+					@Override
+					public void onCompleted() {
+						chat.complete(this.names);
+					}
+
+				});
+		requests.onNext(request("one", 0));
+		requests.onNext(request("two", 0));
+		requests.onCompleted();
+		assertThat(chat.get(5, TimeUnit.SECONDS)).containsExactly("one", "two");
+	}
+
+	@Test
+	public void testProxyFlowControl() throws Exception {
+		int total = 1000;
+		AtomicInteger sent = new AtomicInteger();
+		String backend = start(this.services.bindService("sample.Echo",
+				(method) -> ServerCalls.asyncServerStreamingCall((request, observer) -> {
+					ServerCallStreamObserver<DynamicMessage> responses = (ServerCallStreamObserver<DynamicMessage>) observer;
+					responses.setOnReadyHandler(() -> {
+						while (responses.isReady() && sent.get() < total) {
+							responses.onNext(response(method, "message" + sent.getAndIncrement()));
+							if (sent.get() == total) {
+								responses.onCompleted();
+							}
+						}
+					});
+				})));
+		String proxy = start(this.services.proxy("sample.Echo", channel(backend)));
+		ClientCall<DynamicMessage, DynamicMessage> call = channel(proxy)
+			.newCall(this.services.getMethod("sample.Echo/Repeat"), CallOptions.DEFAULT);
+		List<String> names = new CopyOnWriteArrayList<>();
+		CompletableFuture<Status> closed = new CompletableFuture<>();
+		call.start(new ClientCall.Listener<>() {
+
+			@Override
+			public void onMessage(DynamicMessage message) {
+				names.add(name(message));
+			}
+
+			@Override
+			public void onClose(Status status, Metadata trailers) {
+				closed.complete(status);
+			}
+
+		}, new Metadata());
+		call.sendMessage(request("foo", 0));
+		call.halfClose();
+		call.request(1);
+		Thread.sleep(200);
+		// The client asked for one message, so the proxy must not drain the backend
+		assertThat(names).hasSize(1);
+		assertThat(sent.get()).isLessThan(total);
+		call.request(total);
+		assertThat(closed.get(5, TimeUnit.SECONDS).isOk()).isTrue();
+		assertThat(names).hasSize(total).startsWith("message0", "message1").endsWith("message" + (total - 1));
+	}
+
+	private DynamicMessage request(String name, int count) {
+		Descriptor type = type(this.services.getMethod("sample.Echo/Echo").getRequestMarshaller());
+		return DynamicMessage.newBuilder(type)
+			.setField(type.findFieldByName("name"), name)
+			.setField(type.findFieldByName("count"), count)
+			.build();
+	}
+
+	private static DynamicMessage response(MethodDescriptor<DynamicMessage, DynamicMessage> method, String name) {
+		Descriptor type = type(method.getResponseMarshaller());
+		return DynamicMessage.newBuilder(type).setField(type.findFieldByName("name"), name).build();
+	}
+
+	private static Descriptor type(MethodDescriptor.Marshaller<DynamicMessage> marshaller) {
+		return ((PrototypeMarshaller<DynamicMessage>) marshaller).getMessagePrototype().getDescriptorForType();
+	}
+
+	private static String name(DynamicMessage message) {
+		return (String) message.getField(message.getDescriptorForType().findFieldByName("name"));
+	}
+
+	private String start(ServerServiceDefinition service) throws Exception {
+		String name = InProcessServerBuilder.generateName();
+		this.servers.add(InProcessServerBuilder.forName(name).addService(service).build().start());
+		return name;
+	}
+
+	private ManagedChannel channel(String name) {
+		ManagedChannel channel = InProcessChannelBuilder.forName(name).build();
+		this.channels.add(channel);
+		return channel;
+	}
+
+}
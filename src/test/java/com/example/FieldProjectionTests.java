@@ -0,0 +1,167 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.FileDescriptor;
+import com.google.protobuf.DynamicMessage;
+
+public class FieldProjectionTests {
+
+	private Descriptor type;
+
+	private Descriptor user;
+
+	@BeforeEach
+	void setup() {
+		String input = """
+				syntax = "proto3";
+				message User {
+					string name = 1;
+					int64 id = 2;
+					repeated string tags = 3;
+				}
+				message Event {
+					int64 id = 1;
+					User user = 2;
+					double amount = 3;
+					repeated int32 counts = 4;
+					bytes payload = 5;
+					bool flag = 6;
+				}
+				""";
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		FileDescriptor file = new FileDescriptorManager().convert(parser.resolve(parser.parse("test.proto", input)))[0];
+		this.type = file.findMessageTypeByName("Event");
+		this.user = file.findMessageTypeByName("User");
+	}
+
+	@Test
+	public void testProjection() {
+		FieldProjection projection = FieldProjection.compile(this.type, "id", "user.name", "amount");
+		FieldProjection.Columns columns = projection.newColumns();
+		projection.decode(event(1, "alice", 2.5).toByteArray(), columns);
+		projection.decode(event(2, "bob", 0.5).toByteArray(), columns);
+		assertThat(projection.getPaths()).containsExactly("id", "user.name", "amount");
+		assertThat(columns.size()).isEqualTo(2);
+		assertThat(columns.getColumn("id").getLongs().toArray()).containsExactly(1, 2);
+		assertThat(columns.getColumn("user.name").getString(1)).isEqualTo("bob");
+		assertThat(columns.getColumn("amount").getDouble(0)).isEqualTo(2.5);
+		assertThat(columns.getColumn("flag")).isNull();
+	}
+
+	@Test
+	public void testMissingFieldsHaveDefaults() {
+		FieldProjection projection = FieldProjection.compile(this.type, "id", "user.name", "flag");
+		FieldProjection.Columns columns = projection.newColumns();
+		projection.decode(DynamicMessage.newBuilder(this.type)
+			.setField(this.type.findFieldByName("amount"), 1.0)
+			.build()
+			.toByteArray(), columns);
+		assertThat(columns.getColumn("id").getLong(0)).isZero();
+		assertThat(columns.getColumn("id").isPresent(0)).isFalse();
+		assertThat(columns.getColumn("user.name").getString(0)).isEmpty();
+		assertThat(columns.getColumn("flag").getBoolean(0)).isFalse();
+		columns.clear();
+		assertThat(columns.size()).isZero();
+		assertThat(columns.getColumn("id").size()).isZero();
+	}
+
+	@Test
+	public void testLastValueWins() {
+		byte[] first = event(1, "alice", 1).toByteArray();
+		byte[] second = event(2, "bob", 2).toByteArray();
+		byte[] both = new byte[first.length + second.length];
+		System.arraycopy(first, 0, both, 0, first.length);
+		System.arraycopy(second, 0, both, first.length, second.length);
+		FieldProjection projection = FieldProjection.compile(this.type, "user.id", "user.name");
+		FieldProjection.Columns columns = projection.newColumns();
+		projection.decode(both, columns);
+		assertThat(columns.getColumn("user.id").getLong(0)).isEqualTo(20);
+		assertThat(columns.getColumn("user.name").getString(0)).isEqualTo("bob");
+	}
+
+	@Test
+	public void testMalformedInputAppendsNoRow() {
+		FieldProjection projection = FieldProjection.compile(this.type, "user.name");
+		FieldProjection.Columns columns = projection.newColumns();
+		byte[] bytes = event(1, "alice", 1).toByteArray();
+		byte[] truncated = new byte[bytes.length - 2];
+		System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+		assertThatIllegalStateException().isThrownBy(() -> projection.decode(truncated, columns));
+		assertThat(columns.size()).isZero();
+	}
+
+	@Test
+	public void testInvalidPaths() {
+		assertThatIllegalArgumentException().isThrownBy(() -> FieldProjection.compile(this.type, "missing"))
+			.withMessage("Unknown field: missing");
+		assertThatIllegalArgumentException().isThrownBy(() -> FieldProjection.compile(this.type, "counts"))
+			.withMessage("Cannot project repeated field: counts");
+		assertThatIllegalArgumentException().isThrownBy(() -> FieldProjection.compile(this.type, "user"))
+			.withMessage("Cannot project message field: user");
+		assertThatIllegalArgumentException().isThrownBy(() -> FieldProjection.compile(this.type, "id.value"))
+			.withMessage("Not a message field: id.value");
+	}
+
+	@Test
+	public void testNestingLimit() {
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		Descriptor node = new FileDescriptorManager()
+			.convert(parser.resolve(parser.parse("node.proto",
+					"syntax = \"proto3\";\nmessage Node { Node child = 1; int32 value = 2; }")))[0]
+			.findMessageTypeByName("Node");
+		FieldProjection projection = FieldProjection.compile(node, "child.".repeat(101) + "value");
+		FieldProjection.Columns columns = projection.newColumns();
+		projection.decode(nested(node, 100), columns);
+		assertThat(columns.size()).isEqualTo(1);
+		assertThatIllegalStateException().isThrownBy(() -> projection.decode(nested(node, 101), columns))
+			.withMessage("Failed to decode: Node")
+			.havingCause()
+			.withMessage("Message nested too deeply: Node");
+		assertThat(columns.size()).isEqualTo(1);
+	}
+
+	private static byte[] nested(Descriptor node, int depth) {
+		DynamicMessage message = DynamicMessage.newBuilder(node).setField(node.findFieldByName("value"), 1).build();
+		for (int i = 0; i < depth; i++) {
+			message = DynamicMessage.newBuilder(node).setField(node.findFieldByName("child"), message).build();
+		}
+		return message.toByteArray();
+	}
+
+	private DynamicMessage event(long id, String name, double amount) {
+		DynamicMessage user = DynamicMessage.newBuilder(this.user)
+			.setField(this.user.findFieldByName("name"), name)
+			.setField(this.user.findFieldByName("id"), id * 10)
+			.addRepeatedField(this.user.findFieldByName("tags"), "tag")
+			.build();
+		return DynamicMessage.newBuilder(this.type)
+			.setField(this.type.findFieldByName("id"), id)
+			.setField(this.type.findFieldByName("user"), user)
+			.setField(this.type.findFieldByName("amount"), amount)
+			.addRepeatedField(this.type.findFieldByName("counts"), 3)
+			.build();
+	}
+
+}
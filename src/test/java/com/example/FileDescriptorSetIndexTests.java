@@ -0,0 +1,103 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.Descriptors.Descriptor;
+
+public class FileDescriptorSetIndexTests {
+
+	private byte[] bytes;
+
+	private FileDescriptorSetIndex index;
+
+	@BeforeEach
+	void setup(@TempDir Path dir) throws Exception {
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser(Path.of("src/test/proto/pkgs"));
+		FileDescriptorSet files = parser.resolve(Path.of("foo.proto"));
+		FileDescriptorProto other = parser.parse("other.proto", """
+				syntax = "proto3";
+				import "google/protobuf/any.proto";
+				package other;
+				message Other {
+					google.protobuf.Any value = 1;
+				}
+				""");
+		files = files.toBuilder().addAllFile(parser.resolve(other).getFileList()).build();
+		Path file = dir.resolve("descriptors.pb");
+		this.bytes = files.toByteArray();
+		Files.write(file, this.bytes);
+		this.index = FileDescriptorSetIndex.map(file);
+	}
+
+	@Test
+	public void testFileNames() {
+		assertThat(this.index.getFileNames()).containsExactly("bar.proto", "foo.proto", "google/protobuf/any.proto",
+				"other.proto");
+		assertThat(this.index.getFileProto("foo.proto").getPackage()).isEqualTo("main");
+		assertThat(this.index.isBuilt("foo.proto")).isFalse();
+	}
+
+	@Test
+	public void testFindMessageTypeBuildsOnlyClosure() {
+		Descriptor type = this.index.findMessageTypeByName("main.EchoRequest");
+		assertThat(type).isNotNull();
+		assertThat(type.findFieldByName("type").getEnumType().getFullName()).isEqualTo("sample.EchoType");
+		assertThat(this.index.isBuilt("foo.proto")).isTrue();
+		assertThat(this.index.isBuilt("bar.proto")).isTrue();
+		assertThat(this.index.isBuilt("other.proto")).isFalse();
+		assertThat(this.index.isBuilt("google/protobuf/any.proto")).isFalse();
+	}
+
+	@Test
+	public void testFindOtherTypes() {
+		assertThat(this.index.findEnumTypeByName("sample.EchoType")).isNotNull();
+		assertThat(this.index.findServiceByName("main.Foo")).isNotNull();
+		assertThat(this.index.findMessageTypeByName("other.Other").getFile().getDependencies()).hasSize(1);
+		assertThat(this.index.findMessageTypeByName("other.Missing")).isNull();
+		assertThat(this.index.findFileByName("missing.proto")).isNull();
+	}
+
+	@Test
+	public void testBufferWithPosition() {
+		ByteBuffer buffer = ByteBuffer.allocate(this.bytes.length + 7);
+		buffer.position(7);
+		buffer.put(this.bytes);
+		buffer.position(7);
+		FileDescriptorSetIndex index = FileDescriptorSetIndex.of(buffer);
+		assertThat(buffer.position()).isEqualTo(7);
+		assertThat(index.getFileNames()).hasSize(4);
+		assertThat(index.getFileProto("foo.proto").getPackage()).isEqualTo("main");
+		assertThat(index.findMessageTypeByName("other.Other")).isNotNull();
+	}
+
+	@Test
+	public void testMemoized() {
+		assertThat(this.index.findFileByName("other.proto")).isSameAs(this.index.findFileByName("other.proto"));
+	}
+
+}
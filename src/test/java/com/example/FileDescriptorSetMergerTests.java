@@ -0,0 +1,170 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.DescriptorProtos.SourceCodeInfo;
+import com.google.protobuf.Descriptors.FileDescriptor;
+
+public class FileDescriptorSetMergerTests {
+
+	private static final String COMMON = """
+			syntax = "proto3";
+			package common;
+			message Id {
+				string value = 1;
+			}
+			""";
+
+	private static final String ORDERS = """
+			syntax = "proto3";
+			package orders;
+			import "common.proto";
+			import "google/protobuf/timestamp.proto";
+			message Order {
+				common.Id id = 1;
+				google.protobuf.Timestamp created = 2;
+			}
+			""";
+
+	private static final String USERS = """
+			syntax = "proto3";
+			package users;
+			import "common.proto";
+			message User {
+				common.Id id = 1;
+			}
+			""";
+
+	@Test
+	public void testMergeResolvedSets() {
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		parser.parse("common.proto", COMMON);
+		FileDescriptorSet orders = parser.resolve(parser.parse("orders.proto", ORDERS));
+		FileDescriptorProtoParser other = new FileDescriptorProtoParser();
+		other.parse("common.proto", COMMON);
+		FileDescriptorSet users = other.resolve(other.parse("users.proto", USERS));
+		FileDescriptorSetMerger merger = new FileDescriptorSetMerger().add(orders).add(users).add(orders);
+		FileDescriptorSet merged = merger.merge();
+		List<String> names = names(merged);
+		assertThat(names).containsOnlyOnce("common.proto", "orders.proto", "users.proto",
+				"google/protobuf/timestamp.proto");
+		assertThat(merger.getDuplicateCount()).isEqualTo(orders.getFileCount() + 1);
+		assertDependencyOrder(merged);
+		FileDescriptor[] files = new FileDescriptorManager().convert(merged);
+		assertThat(files[names.indexOf("users.proto")].findMessageTypeByName("User")).isNotNull();
+	}
+
+	@Test
+	public void testOutputIsInDependencyOrder() {
+		FileDescriptorSet input = FileDescriptorSet.newBuilder()
+			.addFile(file("app.proto", "service.proto", "model.proto"))
+			.addFile(file("service.proto", "model.proto"))
+			.addFile(file("model.proto", "base.proto"))
+			.addFile(file("base.proto"))
+			.addFile(file("unrelated.proto"))
+			.build();
+		assertThat(names(FileDescriptorSetMerger.merge(input))).containsExactly("base.proto", "model.proto",
+				"service.proto", "app.proto", "unrelated.proto");
+	}
+
+	@Test
+	public void testConflicts() {
+		FileDescriptorSetMerger merger = new FileDescriptorSetMerger().add(file("a.proto"));
+		assertThatIllegalStateException().isThrownBy(() -> merger.add(file("a.proto", "b.proto")))
+			.withMessage("Conflicting definitions of file: a.proto");
+		// Comments and locations do not count
+		merger.add(file("a.proto").toBuilder()
+			.setSourceCodeInfo(SourceCodeInfo.newBuilder()
+				.addLocation(SourceCodeInfo.Location.newBuilder().addPath(4).setLeadingComments(" Docs")))
+			.build());
+		assertThat(merger.getDuplicateCount()).isEqualTo(1);
+		assertThat(merger.merge().getFile(0).hasSourceCodeInfo()).isFalse();
+	}
+
+	@Test
+	public void testFingerprintCollisionIsAConflict() {
+		FileDescriptorProto[] files = SchemaFingerprintTests.collide(file("a.proto"));
+		assertThat(SchemaFingerprint.of(files[0])).isEqualTo(SchemaFingerprint.of(files[1]));
+		FileDescriptorSetMerger merger = new FileDescriptorSetMerger().add(files[0]);
+		assertThatIllegalStateException().isThrownBy(() -> merger.add(files[1]))
+			.withMessage("Conflicting definitions of file: a.proto");
+	}
+
+	@Test
+	public void testMissingAndCyclicDependencies() {
+		assertThatIllegalStateException()
+			.isThrownBy(() -> FileDescriptorSetMerger
+				.merge(FileDescriptorSet.newBuilder().addFile(file("a.proto", "missing.proto")).build()))
+			.withMessage("Missing dependency: missing.proto (imported by a.proto)");
+		FileDescriptorSet cyclic = FileDescriptorSet.newBuilder()
+			.addFile(file("root.proto", "a.proto"))
+			.addFile(file("a.proto", "b.proto"))
+			.addFile(file("b.proto", "c.proto"))
+			.addFile(file("c.proto", "a.proto"))
+			.build();
+		assertThatIllegalStateException().isThrownBy(() -> FileDescriptorSetMerger.merge(cyclic))
+			.withMessage("Cyclic dependency: a.proto -> b.proto -> c.proto -> a.proto");
+	}
+
+	@Test
+	public void testManySets() {
+		// A long import chain, added dependents first, split over many sets that all
+		// contain the same extra file
+		int count = 20_000;
+		List<FileDescriptorSet> sets = new ArrayList<>();
+		FileDescriptorSet.Builder set = FileDescriptorSet.newBuilder();
+		for (int i = count - 1; i >= 0; i--) {
+			set.addFile((i == 0) ? file("f0.proto") : file("f" + i + ".proto", "f" + (i - 1) + ".proto"));
+			if (i % 100 == 0) {
+				sets.add(set.build());
+				set = FileDescriptorSet.newBuilder().addFile(file("f" + count + ".proto", "f0.proto"));
+			}
+		}
+		FileDescriptorSet merged = FileDescriptorSetMerger.merge(sets.toArray(FileDescriptorSet[]::new));
+		assertThat(merged.getFileCount()).isEqualTo(count + 1);
+		assertThat(merged.getFile(0).getName()).isEqualTo("f0.proto");
+		assertDependencyOrder(merged);
+	}
+
+	private static void assertDependencyOrder(FileDescriptorSet set) {
+		Set<String> seen = new HashSet<>();
+		for (FileDescriptorProto file : set.getFileList()) {
+			assertThat(seen.containsAll(file.getDependencyList())).as(file.getName()).isTrue();
+			seen.add(file.getName());
+		}
+	}
+
+	private static List<String> names(FileDescriptorSet set) {
+		return set.getFileList().stream().map(FileDescriptorProto::getName).toList();
+	}
+
+	private static FileDescriptorProto file(String name, String... dependencies) {
+		return FileDescriptorProto.newBuilder().setName(name).addAllDependency(List.of(dependencies)).build();
+	}
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+
+public class FileDescriptorSetWriterTests {
+
+	private final FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+
+	private final FileDescriptorProto proto = this.parser.parse("test.proto", """
+			syntax = "proto3";
+			import "google/protobuf/type.proto";
+			message TestMessage {
+				google.protobuf.Type value = 1;
+			}
+			""");
+
+	@Test
+	public void testSameBytesAsSet() throws Exception {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		try (FileDescriptorSetWriter writer = new FileDescriptorSetWriter(output)) {
+			this.parser.resolve(writer::write, this.proto);
+		}
+		assertThat(output.toByteArray()).isEqualTo(this.parser.resolve(this.proto).toByteArray());
+	}
+
+	@Test
+	public void testDuplicatesSkipped() throws Exception {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		try (FileDescriptorSetWriter writer = new FileDescriptorSetWriter(output)) {
+			writer.write(this.parser.resolve(this.proto));
+			assertThat(writer.write(this.proto)).isFalse();
+		}
+		assertThat(FileDescriptorSet.parseFrom(output.toByteArray()).getFileCount()).isEqualTo(4);
+	}
+
+	@Test
+	public void testGzip() throws Exception {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		try (FileDescriptorSetWriter writer = FileDescriptorSetWriter.gzip(output)) {
+			this.parser.resolve(writer::write, this.proto);
+		}
+		FileDescriptorSet files = FileDescriptorSet
+			.parseFrom(new GZIPInputStream(new ByteArrayInputStream(output.toByteArray())));
+		assertThat(files).isEqualTo(this.parser.resolve(this.proto));
+	}
+
+	@Test
+	public void testFileChannel(@TempDir Path dir) throws Exception {
+		Path file = dir.resolve("descriptors.pb");
+		try (FileDescriptorSetWriter writer = FileDescriptorSetWriter
+			.of(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE))) {
+			this.parser.resolve(writer::write, this.proto);
+		}
+		assertThat(FileDescriptorSet.parseFrom(Files.readAllBytes(file))).isEqualTo(this.parser.resolve(this.proto));
+	}
+
+}
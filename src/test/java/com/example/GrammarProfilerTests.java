@@ -0,0 +1,53 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.junit.jupiter.api.Test;
+
+public class GrammarProfilerTests {
+
+	@Test
+	public void testNoAmbiguities() {
+		GrammarProfiler profiler = new GrammarProfiler();
+		profiler.profile(Path.of("src/test/proto/profile"));
+		assertThat(profiler.getDecisions()).isNotEmpty().allSatisfy((decision) -> {
+			assertThat(decision.ambiguities()).as(decision.rule()).isZero();
+			assertThat(decision.llFallbacks()).as(decision.rule()).isZero();
+		});
+		assertThat(profiler.report(10)).contains("1 files", "0 errors", "0 LL fallbacks", "0 ambiguities");
+	}
+
+	@Test
+	public void testScalarAndMessageTypes() {
+		GrammarProfiler profiler = new GrammarProfiler();
+		profiler.profile("test.proto", CharStreams.fromString("""
+				syntax = "proto3";
+				message Foo {
+					string name = 1;
+					.bar.Baz baz = 2;
+					map<string, bytes> values = 3;
+					bool flag = 4 [deprecated = true];
+				}
+				"""));
+		assertThat(profiler.report(10)).contains("1 files", "0 errors", "0 LL fallbacks");
+	}
+
+}
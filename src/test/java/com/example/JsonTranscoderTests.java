@@ -0,0 +1,228 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.DescriptorProtos.DescriptorProto;
+import com.google.protobuf.DescriptorProtos.FieldDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.MessageOptions;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Descriptors.FileDescriptor;
+import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.util.JsonFormat;
+
+public class JsonTranscoderTests {
+
+	private FileDescriptor file;
+
+	private Descriptor type;
+
+	@BeforeEach
+	void setup() {
+		String input = """
+				syntax = "proto3";
+				enum Color {
+					RED = 0;
+					GREEN = 1;
+				}
+				message Child {
+					string name = 1;
+				}
+				message TestMessage {
+					int32 small_number = 1;
+					int64 big_number = 2;
+					uint32 unsigned = 3;
+					uint64 huge = 4;
+					sint32 zigzag = 5;
+					sfixed64 fixed = 6;
+					bool flag = 7;
+					float ratio = 8;
+					double amount = 9;
+					string text = 10;
+					bytes data = 11;
+					Color color = 12;
+					Child child = 13;
+					repeated int32 counts = 14;
+					repeated string tags = 15;
+					repeated Child children = 16;
+					double missing = 17;
+				}
+				""";
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		this.file = new FileDescriptorManager().convert(parser.resolve(parser.parse("test.proto", input)))[0];
+		this.type = this.file.findMessageTypeByName("TestMessage");
+	}
+
+	@Test
+	public void testToJsonMatchesJsonFormat() throws Exception {
+		DynamicMessage message = sample();
+		String json = new String(JsonTranscoder.compile(this.type).toJson(message.toByteArray()),
+				StandardCharsets.UTF_8);
+		assertThat(json).isEqualTo(JsonFormat.printer().omittingInsignificantWhitespace().print(message));
+	}
+
+	@Test
+	public void testFromJsonMatchesJsonFormat() throws Exception {
+		String json = JsonFormat.printer().print(sample());
+		DynamicMessage.Builder expected = DynamicMessage.newBuilder(this.type);
+		JsonFormat.parser().merge(json, expected);
+		byte[] wire = JsonTranscoder.compile(this.type).fromJson(json);
+		assertThat(DynamicMessage.parseFrom(this.type, wire)).isEqualTo(expected.build());
+	}
+
+	@Test
+	public void testFromJsonAcceptsAlternativeForms() throws Exception {
+		String json = """
+				{"small_number": "12", "bigNumber": 3, "ratio": "NaN", "color": 1, "missing": 0,
+				 "text": "\\u00e9\\ud83d\\ude00", "child": null, "counts": [], "data": "AQI"}
+				""";
+		DynamicMessage message = DynamicMessage.parseFrom(this.type, JsonTranscoder.compile(this.type).fromJson(json));
+		assertThat(message.getField(field("small_number"))).isEqualTo(12);
+		assertThat(message.getField(field("big_number"))).isEqualTo(3L);
+		assertThat((Float) message.getField(field("ratio"))).isNaN();
+		assertThat(message.getField(field("color")))
+			.isEqualTo(this.file.findEnumTypeByName("Color").findValueByNumber(1));
+		assertThat(message.hasField(field("missing"))).isFalse();
+		assertThat(message.hasField(field("child"))).isFalse();
+		assertThat(message.getField(field("text"))).isEqualTo("é😀");
+		assertThat(message.getField(field("data"))).isEqualTo(ByteString.copyFrom(new byte[] { 1, 2 }));
+	}
+
+	@Test
+	public void testFromJsonErrors() {
+		JsonTranscoder transcoder = JsonTranscoder.compile(this.type);
+		assertThatIllegalArgumentException().isThrownBy(() -> transcoder.fromJson("{\"unknown\":1}"))
+			.withMessageContaining("unknown field");
+		assertThatIllegalArgumentException().isThrownBy(() -> transcoder.fromJson("{\"smallNumber\":3000000000}"))
+			.withMessageContaining("out of range");
+		assertThatIllegalArgumentException().isThrownBy(() -> transcoder.fromJson("{\"flag\":true"))
+			.withMessageContaining("expected '}'");
+	}
+
+	@Test
+	public void testMaps() throws Exception {
+		FileDescriptorProto proto = FileDescriptorProto.newBuilder()
+			.setName("map.proto")
+			.setSyntax("proto3")
+			.addMessageType(DescriptorProto.newBuilder()
+				.setName("Holder")
+				.addField(FieldDescriptorProto.newBuilder()
+					.setName("values")
+					.setNumber(1)
+					.setLabel(FieldDescriptorProto.Label.LABEL_REPEATED)
+					.setType(FieldDescriptorProto.Type.TYPE_MESSAGE)
+					.setTypeName(".Holder.ValuesEntry"))
+				.addNestedType(DescriptorProto.newBuilder()
+					.setName("ValuesEntry")
+					.setOptions(MessageOptions.newBuilder().setMapEntry(true))
+					.addField(FieldDescriptorProto.newBuilder()
+						.setName("key")
+						.setNumber(1)
+						.setType(FieldDescriptorProto.Type.TYPE_INT64))
+					.addField(FieldDescriptorProto.newBuilder()
+						.setName("value")
+						.setNumber(2)
+						.setType(FieldDescriptorProto.Type.TYPE_STRING))))
+			.build();
+		Descriptor holder = FileDescriptor.buildFrom(proto, new FileDescriptor[0]).findMessageTypeByName("Holder");
+		DynamicMessage.Builder expected = DynamicMessage.newBuilder(holder);
+		JsonFormat.parser().merge("{\"values\":{\"1\":\"one\",\"-2\":\"\"}}", expected);
+		JsonTranscoder transcoder = JsonTranscoder.compile(holder);
+		byte[] wire = transcoder.fromJson("{\"values\":{\"1\":\"one\",\"-2\":\"\"}}");
+		assertThat(DynamicMessage.parseFrom(holder, wire)).isEqualTo(expected.build());
+		assertThat(new String(transcoder.toJson(wire), StandardCharsets.UTF_8))
+			.isEqualTo(JsonFormat.printer().omittingInsignificantWhitespace().print(expected.build()));
+	}
+
+	@Test
+	public void testMapFollowedBySingularField() throws Exception {
+		Descriptor holder = compile("message M { map<string, int32> m = 1; string s = 2; }", "M");
+		DynamicMessage.Builder expected = DynamicMessage.newBuilder(holder);
+		JsonFormat.parser().merge("{\"m\":{\"a\":1},\"s\":\"x\"}", expected);
+		String json = new String(JsonTranscoder.compile(holder).toJson(expected.build().toByteArray()),
+				StandardCharsets.UTF_8);
+		assertThat(json).isEqualTo("{\"m\":{\"a\":1},\"s\":\"x\"}");
+	}
+
+	@Test
+	public void testNestingLimit() throws Exception {
+		Descriptor node = compile("message Node { Node child = 1; int32 value = 2; }", "Node");
+		JsonTranscoder transcoder = JsonTranscoder.compile(node);
+		String json = "{\"child\":".repeat(100) + "{\"value\":1}" + "}".repeat(100);
+		byte[] wire = transcoder.fromJson(json);
+		assertThat(new String(transcoder.toJson(wire), StandardCharsets.UTF_8)).isEqualTo(json);
+		assertThatIllegalArgumentException().isThrownBy(() -> transcoder.fromJson("{\"child\":" + json + "}"))
+			.withMessageContaining("message nested too deeply");
+		// Wrap the valid message once more on the wire
+		byte[] deeper = DynamicMessage.newBuilder(node)
+			.setField(node.findFieldByName("child"), DynamicMessage.parseFrom(node, wire))
+			.build()
+			.toByteArray();
+		assertThatIllegalStateException().isThrownBy(() -> transcoder.toJson(deeper))
+			.withMessage("Failed to decode: Node");
+		assertThatIllegalArgumentException().isThrownBy(() -> transcoder.fromJson("{\"child\":".repeat(100_000)))
+			.withMessageContaining("message nested too deeply");
+	}
+
+	private static Descriptor compile(String input, String name) {
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		return new FileDescriptorManager()
+			.convert(parser.resolve(parser.parse("holder.proto", "syntax = \"proto3\";\n" + input)))[0]
+			.findMessageTypeByName(name);
+	}
+
+	private DynamicMessage sample() {
+		Descriptor child = this.file.findMessageTypeByName("Child");
+		FieldDescriptor name = child.findFieldByName("name");
+		return DynamicMessage.newBuilder(this.type)
+			.setField(field("small_number"), -5)
+			.setField(field("big_number"), Long.MIN_VALUE)
+			.setField(field("unsigned"), -1)
+			.setField(field("huge"), -1L)
+			.setField(field("zigzag"), -300)
+			.setField(field("fixed"), 42L)
+			.setField(field("flag"), true)
+			.setField(field("ratio"), 0.1f)
+			.setField(field("amount"), 1e21)
+			.setField(field("text"), "quote \" slash \\ <tag> & 'x'=y \n\u0001 é  😀")
+			.setField(field("data"), ByteString.copyFrom(new byte[] { 0, 1, 2, (byte) 0xff }))
+			.setField(field("color"), this.file.findEnumTypeByName("Color").findValueByNumber(1))
+			.setField(field("child"), DynamicMessage.newBuilder(child).setField(name, "nested").build())
+			.addRepeatedField(field("counts"), 1)
+			.addRepeatedField(field("counts"), -2)
+			.addRepeatedField(field("tags"), "a")
+			.addRepeatedField(field("tags"), "b")
+			.addRepeatedField(field("children"), DynamicMessage.newBuilder(child).build())
+			.addRepeatedField(field("children"), DynamicMessage.newBuilder(child).setField(name, "x").build())
+			.build();
+	}
+
+	private FieldDescriptor field(String name) {
+		return this.type.findFieldByName(name);
+	}
+
+}
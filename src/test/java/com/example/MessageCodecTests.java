@@ -0,0 +1,200 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Descriptors.FileDescriptor;
+import com.google.protobuf.DynamicMessage;
+
+public class MessageCodecTests {
+
+	private FileDescriptor file;
+
+	private Descriptor type;
+
+	@BeforeEach
+	void setup() {
+		String input = """
+				syntax = "proto3";
+				enum Color {
+					RED = 0;
+					GREEN = 1;
+				}
+				message Child {
+					string name = 1;
+					Child next = 2;
+				}
+				message TestMessage {
+					int32 i32 = 1;
+					int64 i64 = 2;
+					uint32 u32 = 3;
+					uint64 u64 = 4;
+					sint32 s32 = 5;
+					sint64 s64 = 6;
+					fixed32 f32 = 7;
+					fixed64 f64 = 8;
+					sfixed32 sf32 = 9;
+					sfixed64 sf64 = 10;
+					bool flag = 11;
+					float ratio = 12;
+					double amount = 13;
+					string name = 14;
+					bytes data = 15;
+					Color color = 16;
+					Child child = 17;
+					repeated int32 counts = 18;
+					repeated string tags = 19;
+					repeated Child children = 20;
+					optional int32 maybe = 21;
+					repeated double values = 2000;
+				}
+				""";
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		this.file = new FileDescriptorManager().convert(parser.resolve(parser.parse("test.proto", input)))[0];
+		this.type = this.file.findMessageTypeByName("TestMessage");
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		Descriptor child = this.file.findMessageTypeByName("Child");
+		DynamicMessage nested = DynamicMessage.newBuilder(child)
+			.setField(child.findFieldByName("name"), "a")
+			.setField(child.findFieldByName("next"),
+					DynamicMessage.newBuilder(child).setField(child.findFieldByName("name"), "b").build())
+			.build();
+		DynamicMessage message = DynamicMessage.newBuilder(this.type)
+			.setField(field("i32"), -5)
+			.setField(field("i64"), Long.MIN_VALUE)
+			.setField(field("u32"), -1)
+			.setField(field("u64"), -1L)
+			.setField(field("s32"), -7)
+			.setField(field("s64"), -9L)
+			.setField(field("f32"), 123)
+			.setField(field("f64"), 456L)
+			.setField(field("sf32"), -123)
+			.setField(field("sf64"), -456L)
+			.setField(field("flag"), true)
+			.setField(field("ratio"), 1.5f)
+			.setField(field("amount"), -2.25)
+			.setField(field("name"), "hello")
+			.setField(field("data"), ByteString.copyFromUtf8("bytes"))
+			.setField(field("color"), this.file.findEnumTypeByName("Color").findValueByName("GREEN"))
+			.setField(field("child"), nested)
+			.addRepeatedField(field("counts"), 1)
+			.addRepeatedField(field("counts"), 300)
+			.addRepeatedField(field("tags"), "x")
+			.addRepeatedField(field("tags"), "y")
+			.addRepeatedField(field("children"), nested)
+			.setField(field("maybe"), 3)
+			.addRepeatedField(field("values"), 0.5)
+			.build();
+		byte[] bytes = message.toByteArray();
+		MessageCodec codec = MessageCodec.compile(this.type);
+		CompactMessage compact = codec.decode(bytes);
+		assertThat(codec.findFieldByName("i32").getInt(compact)).isEqualTo(-5);
+		assertThat(codec.findFieldByName("i64").getLong(compact)).isEqualTo(Long.MIN_VALUE);
+		assertThat(codec.findFieldByName("ratio").getFloat(compact)).isEqualTo(1.5f);
+		assertThat(codec.findFieldByName("amount").getDouble(compact)).isEqualTo(-2.25);
+		assertThat(codec.findFieldByName("flag").getBoolean(compact)).isTrue();
+		assertThat(codec.findFieldByName("name").getString(compact)).isEqualTo("hello");
+		assertThat(codec.findFieldByName("color").getInt(compact)).isEqualTo(1);
+		assertThat(codec.findFieldByName("counts").getLongs(compact).toArray()).containsExactly(1, 300);
+		assertThat(codec.findFieldByName("tags").<String>getList(compact)).containsExactly("x", "y");
+		assertThat(codec.findFieldByName("maybe").has(compact)).isTrue();
+		MessageCodec.Field childField = codec.findFieldByName("child");
+		CompactMessage childMessage = childField.getMessage(compact);
+		MessageCodec.Field next = childField.getCodec().findFieldByName("next");
+		assertThat(next.getCodec()).isSameAs(childField.getCodec());
+		assertThat(childField.getCodec().findFieldByName("name").getString(next.getMessage(childMessage)))
+			.isEqualTo("b");
+		assertThat(codec.encode(compact)).isEqualTo(bytes);
+	}
+
+	@Test
+	public void testBuildAndEncode() throws Exception {
+		MessageCodec codec = MessageCodec.compile(this.type);
+		CompactMessage message = codec.newMessage();
+		codec.findFieldByName("i32").setInt(message, 42);
+		codec.findFieldByName("name").setObject(message, "foo");
+		codec.findFieldByName("counts").getLongs(message).add(7);
+		codec.findFieldByName("values").getLongs(message).add(Double.doubleToRawLongBits(1.25));
+		MessageCodec.Field child = codec.findFieldByName("child");
+		CompactMessage nested = child.getCodec().newMessage();
+		child.getCodec().findFieldByName("name").setObject(nested, "bar");
+		child.setObject(message, nested);
+		DynamicMessage parsed = DynamicMessage.parseFrom(this.type, codec.encode(message));
+		assertThat(parsed.getField(field("i32"))).isEqualTo(42);
+		assertThat(parsed.getField(field("name"))).isEqualTo("foo");
+		assertThat(parsed.getRepeatedField(field("counts"), 0)).isEqualTo(7);
+		assertThat(parsed.getRepeatedField(field("values"), 0)).isEqualTo(1.25);
+		assertThat(parsed.hasField(field("maybe"))).isFalse();
+		assertThat(parsed.toByteArray()).isEqualTo(codec.encode(message));
+	}
+
+	@Test
+	public void testUnknownFieldsSkipped() throws Exception {
+		Descriptor child = this.file.findMessageTypeByName("Child");
+		DynamicMessage message = DynamicMessage.newBuilder(this.type)
+			.setField(field("name"), "hello")
+			.setField(field("i32"), 3)
+			.build();
+		// Decode with a codec for a type that only knows about field 1
+		CompactMessage compact = MessageCodec.compile(child).decode(message.toByteArray());
+		assertThat(compact.getCodec().findFieldByName("name").has(compact)).isFalse();
+		assertThat(compact.getCodec().size(compact)).isZero();
+	}
+
+	@Test
+	public void testNestingLimit() {
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		Descriptor node = new FileDescriptorManager()
+			.convert(parser.resolve(parser.parse("node.proto",
+					"syntax = \"proto3\";\nmessage Node { Node child = 1; int32 value = 2; }")))[0]
+			.findMessageTypeByName("Node");
+		MessageCodec codec = MessageCodec.compile(node);
+		CompactMessage message = codec.decode(nested(node, 100));
+		MessageCodec.Field child = codec.findFieldByName("child");
+		for (int i = 0; i < 100; i++) {
+			message = child.getMessage(message);
+		}
+		assertThat(codec.findFieldByName("value").getInt(message)).isEqualTo(1);
+		assertThatIllegalStateException().isThrownBy(() -> codec.decode(nested(node, 101)))
+			.withMessage("Failed to decode: Node")
+			.havingCause()
+			.withMessage("Message nested too deeply: Node");
+	}
+
+	private static byte[] nested(Descriptor node, int depth) {
+		DynamicMessage message = DynamicMessage.newBuilder(node).setField(node.findFieldByName("value"), 1).build();
+		for (int i = 0; i < depth; i++) {
+			message = DynamicMessage.newBuilder(node).setField(node.findFieldByName("child"), message).build();
+		}
+		return message.toByteArray();
+	}
+
+	private FieldDescriptor field(String name) {
+		return this.type.findFieldByName(name);
+	}
+
+}
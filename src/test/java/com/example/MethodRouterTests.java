@@ -0,0 +1,131 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.DescriptorProtos.MethodDescriptorProto;
+import com.google.protobuf.DescriptorProtos.ServiceDescriptorProto;
+
+public class MethodRouterTests {
+
+	private static final String INPUT = """
+			syntax = "proto3";
+			package sample;
+			message EchoRequest {
+				string name = 1;
+			}
+			service Echo {
+				rpc Echo(EchoRequest) returns (EchoRequest);
+				rpc Repeat(EchoRequest) returns (stream EchoRequest);
+			}
+			""";
+
+	@Test
+	public void testFind() {
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		MethodRouter router = MethodRouter.of(parser.resolve(parser.parse("sample/echo.proto", INPUT)));
+		assertThat(router.size()).isEqualTo(2);
+		MethodRouter.Route route = router.find("/sample.Echo/Repeat");
+		assertThat(route.service()).isEqualTo("sample.Echo");
+		assertThat(route.method().getServerStreaming()).isTrue();
+		assertThat(route.file().getName()).isEqualTo("sample/echo.proto");
+		byte[] buffer = "xx/sample.Echo/Echoyy".getBytes(StandardCharsets.US_ASCII);
+		assertThat(router.find(buffer, 2, 17).path()).isEqualTo("/sample.Echo/Echo");
+		assertThat(router.find(new StringBuilder("/sample.Echo/Echo"))).isSameAs(router.find(buffer, 2, 17));
+		assertThat(router.find("/sample.Echo/Ech")).isNull();
+		assertThat(router.find("/sample.Echo/Echoo")).isNull();
+		assertThat(router.find("sample.Echo/Echo")).isNull();
+		assertThat(router.find("/sample.Echo/Écho")).isNull();
+		assertThat(router.find(buffer, 0, buffer.length)).isNull();
+	}
+
+	@Test
+	public void testManyMethods() {
+		FileDescriptorSet files = services(50, 100);
+		MethodRouter router = MethodRouter.of(files);
+		assertThat(router.size()).isEqualTo(5000);
+		for (MethodRouter.Route route : router.getRoutes()) {
+			assertThat(router.find(route.path())).isSameAs(route);
+			byte[] bytes = route.path().getBytes(StandardCharsets.US_ASCII);
+			assertThat(router.find(bytes, 0, bytes.length)).isSameAs(route);
+			assertThat(router.find(route.path() + "x")).isNull();
+		}
+	}
+
+	@Test
+	public void testEmpty() {
+		MethodRouter router = MethodRouter.of(FileDescriptorSet.getDefaultInstance());
+		assertThat(router.size()).isZero();
+		assertThat(router.find("/sample.Echo/Echo")).isNull();
+		assertThat(router.find("")).isNull();
+	}
+
+	@Test
+	public void testReload() {
+		MethodRouter router = MethodRouter.of(services(1, 2));
+		assertThat(router.find("/pkg0.Service/Method1")).isNotNull();
+		router.reload(services(2, 1));
+		assertThat(router.find("/pkg0.Service/Method1")).isNull();
+		assertThat(router.find("/pkg1.Service/Method0")).isNotNull();
+	}
+
+	@Test
+	public void testDoesNotAllocate() {
+		MethodRouter router = MethodRouter.of(services(50, 100));
+		byte[] path = "/pkg42.Service/Method42".getBytes(StandardCharsets.US_ASCII);
+		StringBuilder chars = new StringBuilder("/pkg7.Service/Method99");
+		for (int i = 0; i < 100_000; i++) {
+			router.find(path, 0, path.length);
+			router.find(chars);
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		long before = threads.getThreadAllocatedBytes(thread);
+		int found = 0;
+		for (int i = 0; i < 100_000; i++) {
+			found += (router.find(path, 0, path.length) != null) ? 1 : 0;
+			found += (router.find(chars) != null) ? 1 : 0;
+		}
+		long allocated = threads.getThreadAllocatedBytes(thread) - before;
+		assertThat(found).isEqualTo(200_000);
+		// Anything per lookup would be megabytes
+		assertThat(allocated).isLessThan(10_000);
+	}
+
+	private static FileDescriptorSet services(int packages, int methods) {
+		FileDescriptorSet.Builder files = FileDescriptorSet.newBuilder();
+		for (int i = 0; i < packages; i++) {
+			ServiceDescriptorProto.Builder service = ServiceDescriptorProto.newBuilder().setName("Service");
+			for (int j = 0; j < methods; j++) {
+				service.addMethod(MethodDescriptorProto.newBuilder().setName("Method" + j));
+			}
+			files.addFile(FileDescriptorProto.newBuilder()
+				.setName("pkg" + i + ".proto")
+				.setPackage("pkg" + i)
+				.addService(service));
+		}
+		return files.build();
+	}
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.FileDescriptor;
+import com.google.protobuf.DynamicMessage;
+
+/**
+ * Smoke tests for the native image metadata. They also run on the JVM, but are meant for
+ * <code>mvn -PnativeTest test</code>, which runs only these tests in a native image.
+ */
+public class NativeImageSmokeTests {
+
+	@Test
+	public void testBuildTimeDescriptors() {
+		assertThat(BuildTimeDescriptors.get().getFileNames()).isEmpty();
+	}
+
+	@Test
+	public void testBundledProtoResources() {
+		FileDescriptorSet files = new FileDescriptorProtoParser().resolve(Path.of("google/protobuf/type.proto"));
+		assertThat(files.getFileList()).extracting("name").contains("google/protobuf/type.proto");
+	}
+
+	@Test
+	public void testParseAndRoundTrip() throws Exception {
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		FileDescriptor[] files = new FileDescriptorManager().convert(parser.resolve(parser.parse("sample/echo.proto",
+				"syntax = \"proto3\"; package sample; message EchoRequest { string name = 1; }")));
+		Descriptor type = files[files.length - 1].findMessageTypeByName("EchoRequest");
+		DynamicMessage message = DynamicMessage.newBuilder(type).setField(type.findFieldByName("name"), "foo").build();
+		assertThat(DynamicMessage.parseFrom(type, message.toByteArray())).isEqualTo(message);
+	}
+
+	@Test
+	public void testTraining() {
+		assertThat(DescriptorTraining.train()).isEqualTo(3);
+	}
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+
+public class PrecompiledDescriptorsTests {
+
+	@Test
+	public void testCompileAndLoad(@TempDir Path dir) throws Exception {
+		FileDescriptorSet files = new DescriptorCompiler(Path.of("src/test/proto/pkgs"))
+			.compile(dir.resolve(PrecompiledDescriptors.LOCATION));
+		assertThat(files.getFileCount()).isEqualTo(2);
+		try (URLClassLoader classLoader = new URLClassLoader(new URL[] { dir.toUri().toURL() }, null)) {
+			LazyFileDescriptorSet descriptors = PrecompiledDescriptors.load(classLoader,
+					PrecompiledDescriptors.LOCATION);
+			assertThat(descriptors.getFileNames()).containsExactlyInAnyOrder("foo.proto", "bar.proto");
+			assertThat(descriptors.findServiceByName("main.Foo").findMethodByName("Echo")).isNotNull();
+		}
+	}
+
+	@Test
+	public void testFallbackToSources() throws Exception {
+		try (URLClassLoader classLoader = new URLClassLoader(new URL[0], null)) {
+			LazyFileDescriptorSet descriptors = PrecompiledDescriptors.load(classLoader,
+					PrecompiledDescriptors.LOCATION, Path.of("src/test/proto/multi/bar.proto"));
+			assertThat(descriptors.findMessageTypeByName("AnotherRequest")).isNotNull();
+		}
+	}
+
+	@Test
+	public void testMissing() throws Exception {
+		try (URLClassLoader classLoader = new URLClassLoader(new URL[0], null)) {
+			assertThrows(IllegalStateException.class,
+					() -> PrecompiledDescriptors.load(classLoader, PrecompiledDescriptors.LOCATION));
+		}
+	}
+
+	@Test
+	public void testInvalidSchemaFailsCompile(@TempDir Path dir) throws Exception {
+		Files.writeString(dir.resolve("test.proto"), """
+				syntax = "proto3";
+				message TestMessage {
+					Missing value = 1;
+				}
+				""");
+		assertThat(assertThrows(IllegalStateException.class, () -> new DescriptorCompiler(dir).compile()).getMessage())
+			.contains("Invalid descriptor: test.proto");
+	}
+
+}
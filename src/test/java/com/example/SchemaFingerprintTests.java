@@ -0,0 +1,186 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.junit.jupiter.api.Test;
+
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.DescriptorProtos.FileOptions;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Descriptors.FileDescriptor;
+
+public class SchemaFingerprintTests {
+
+	private static final String DEPENDENCY = """
+			syntax = "proto3";
+			message Child {
+				string name = 1;
+			}
+			""";
+
+	private static final String INPUT = """
+			syntax = "proto3";
+			import "dep.proto";
+			message TestMessage {
+				Child child = 1;
+			}
+			""";
+
+	private static final String OTHER = """
+			syntax = "proto3";
+			message Other {
+			}
+			""";
+
+	@Test
+	public void testSourceFingerprint() {
+		CharStream text = CharStreams.fromString(INPUT + "// caf\u00e9 \ud83d\ude00");
+		long fingerprint = SchemaFingerprint.of(text);
+		assertThat(text.index()).isZero();
+		assertThat(SchemaFingerprint.of(CharStreams.fromString(INPUT + "// caf\u00e9 \ud83d\ude00")))
+			.isEqualTo(fingerprint);
+		assertThat(SchemaFingerprint.of(CharStreams.fromString(INPUT + "// caf\u00e9 \ud83d\ude01")))
+			.isNotEqualTo(fingerprint);
+		assertThat(SchemaFingerprint.of(CharStreams.fromString(INPUT + "// cafe \ud83d\ude00")))
+			.isNotEqualTo(fingerprint);
+	}
+
+	@Test
+	public void testParserReusesUnchangedFiles() {
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		parser.parse("dep.proto", DEPENDENCY);
+		FileDescriptorProto proto = parser.parse("test.proto", INPUT);
+		long fingerprint = parser.fingerprint("test.proto");
+		long transitive = parser.transitiveFingerprint("test.proto");
+		assertThat(transitive).isNotEqualTo(fingerprint);
+		assertThat(parser.parse("test.proto", INPUT)).isSameAs(proto);
+		assertThat(parser.parse("test.proto", "// Comment\n" + INPUT)).isSameAs(proto);
+		assertThat(parser.fingerprint("test.proto")).isEqualTo(fingerprint);
+		parser.parse("dep.proto", DEPENDENCY.replace("name", "label"));
+		assertThat(parser.fingerprint("test.proto")).isEqualTo(fingerprint);
+		assertThat(parser.transitiveFingerprint("test.proto")).isNotEqualTo(transitive);
+		FileDescriptorProto changed = parser.parse("test.proto", INPUT.replace("child", "first"));
+		assertThat(changed).isNotSameAs(proto);
+		assertThat(parser.fingerprint("test.proto")).isNotEqualTo(fingerprint);
+		assertThatIllegalArgumentException().isThrownBy(() -> parser.fingerprint("missing.proto"))
+			.withMessageContaining("Unknown file");
+	}
+
+	@Test
+	public void testFingerprintIsStable() {
+		FileDescriptorProto first = new FileDescriptorProtoParser().parse("test.proto", DEPENDENCY);
+		FileDescriptorProto second = new FileDescriptorProtoParser().parse("test.proto", DEPENDENCY);
+		assertThat(SchemaFingerprint.of(first)).isEqualTo(SchemaFingerprint.of(second));
+		assertThat(SchemaFingerprint.of(first))
+			.isNotEqualTo(SchemaFingerprint.of(first.toBuilder().setName("other.proto").build()));
+		assertThat(SchemaFingerprint.transitive(1L, 2L, 3L)).isNotEqualTo(SchemaFingerprint.transitive(1L, 3L, 2L));
+	}
+
+	@Test
+	public void testManagerReusesUnchangedDescriptors() {
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		parser.parse("dep.proto", DEPENDENCY);
+		FileDescriptorManager manager = new FileDescriptorManager();
+		FileDescriptor[] first = manager
+			.convert(parser.resolve(parser.parse("test.proto", INPUT), parser.parse("other.proto", OTHER)));
+		FileDescriptor[] second = manager
+			.convert(parser.resolve(parser.parse("test.proto", INPUT), parser.parse("other.proto", OTHER)));
+		assertThat(second).containsExactly(first);
+		parser.parse("dep.proto", DEPENDENCY.replace("name", "label"));
+		FileDescriptor[] third = manager
+			.convert(parser.resolve(parser.parse("test.proto", INPUT), parser.parse("other.proto", OTHER)));
+		assertThat(third[0]).isNotSameAs(first[0]);
+		assertThat(third[1]).isNotSameAs(first[1]);
+		assertThat(third[2]).isSameAs(first[2]);
+		assertThat(third[1].findMessageTypeByName("TestMessage").findFieldByName("child").getMessageType())
+			.isSameAs(third[0].findMessageTypeByName("Child"));
+	}
+
+	@Test
+	public void testManagerDoesNotTrustFingerprints() {
+		FileDescriptorProto[] files = collide(new FileDescriptorProtoParser().parse("other.proto", OTHER));
+		FileDescriptorProto file = files[0];
+		FileDescriptorProto collision = files[1];
+		assertThat(collision).isNotEqualTo(file);
+		assertThat(SchemaFingerprint.of(collision)).isEqualTo(SchemaFingerprint.of(file));
+		FileDescriptorManager manager = new FileDescriptorManager();
+		FileDescriptor first = manager.convert(set(file))[0];
+		FileDescriptor second = manager.convert(set(collision))[0];
+		assertThat(second).isNotSameAs(first);
+		assertThat(second.toProto()).isEqualTo(collision);
+	}
+
+	@Test
+	public void testManagerCapacity() {
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		FileDescriptorManager manager = new FileDescriptorManager(SchemaMetrics.NONE, 1);
+		FileDescriptor other = manager.convert(set(parser.parse("other.proto", OTHER)))[0];
+		assertThat(manager.convert(set(parser.parse("other.proto", OTHER)))[0]).isSameAs(other);
+		manager.convert(set(parser.parse("dep.proto", DEPENDENCY)));
+		assertThat(manager.convert(set(parser.parse("other.proto", OTHER)))[0]).isNotSameAs(other);
+	}
+
+	private static FileDescriptorSet set(FileDescriptorProto file) {
+		return FileDescriptorSet.newBuilder().addFile(file).build();
+	}
+
+	/**
+	 * Two different versions of a file with the same structural fingerprint. Each step of
+	 * the hash is invertible, so changing one 8-byte chunk (inside the
+	 * <code>go_package</code> option) can be compensated for in the next one.
+	 */
+	static FileDescriptorProto[] collide(FileDescriptorProto file) {
+		String filler = "x".repeat(32);
+		FileDescriptorProto original = file.toBuilder()
+			.setOptions(FileOptions.newBuilder().setGoPackage(filler))
+			.build();
+		byte[] bytes = original.toByteArray();
+		int start = new String(bytes, StandardCharsets.ISO_8859_1).indexOf(filler);
+		int offset = (start + 7) / 8 * 8;
+		ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+		long state = 0x9e3779b97f4a7c15L ^ bytes.length;
+		for (int i = 0; i < offset; i += 8) {
+			state = mix(state ^ buffer.getLong(i)) * 0xbf58476d1ce4e5b9L;
+		}
+		long before = mix(state ^ buffer.getLong(offset)) * 0xbf58476d1ce4e5b9L;
+		buffer.putLong(offset, buffer.getLong(offset) ^ 1);
+		long after = mix(state ^ buffer.getLong(offset)) * 0xbf58476d1ce4e5b9L;
+		buffer.putLong(offset + 8, buffer.getLong(offset + 8) ^ before ^ after);
+		try {
+			return new FileDescriptorProto[] { original, FileDescriptorProto.parseFrom(bytes) };
+		}
+		catch (InvalidProtocolBufferException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static long mix(long value) {
+		value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+		value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+		return value ^ (value >>> 31);
+	}
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class SchemaMetricsTests {
+
+	private static final String INPUT = """
+			syntax = "proto3";
+			import "google/protobuf/any.proto";
+			message TestMessage {
+				google.protobuf.Any value = 1;
+			}
+			""";
+
+	@Test
+	public void testMetrics() {
+		List<String> events = new ArrayList<>();
+		SchemaMetrics metrics = new SchemaMetrics() {
+			@Override
+			public void stage(Stage stage, String file, long nanos) {
+				assertThat(nanos).isNotNegative();
+				events.add(stage + ":" + file);
+			}
+
+			@Override
+			public void cacheHit(String cache, String file) {
+				events.add("hit:" + cache + ":" + file);
+			}
+
+			@Override
+			public void bytesRead(String file, long bytes) {
+				assertThat(bytes).isPositive();
+				events.add("bytes:" + file);
+			}
+		};
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser(Path.of(""), metrics);
+		FileDescriptorSet files = parser.resolve(parser.parse("test.proto", INPUT));
+		assertThat(events).containsExactly("LEX:test.proto", "PARSE:test.proto", "bytes:google/protobuf/any.proto",
+				"READ:google/protobuf/any.proto", "LEX:google/protobuf/any.proto", "PARSE:google/protobuf/any.proto",
+				"VISIT:google/protobuf/any.proto", "VISIT:test.proto");
+		events.clear();
+		parser.parse("test.proto", INPUT);
+		assertThat(events).containsExactly("hit:parser:test.proto");
+		events.clear();
+		FileDescriptorManager manager = new FileDescriptorManager(metrics);
+		manager.convert(files);
+		assertThat(events).containsExactly("BUILD:google/protobuf/any.proto", "BUILD:test.proto");
+		events.clear();
+		manager.convert(files);
+		assertThat(events).containsExactly("hit:converter:google/protobuf/any.proto", "hit:converter:test.proto");
+	}
+
+	@Test
+	public void testFlightRecorderEvents(@TempDir Path dir) throws Exception {
+		Path output = dir.resolve("schema.jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable("com.example.SchemaStage");
+			recording.start();
+			FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+			new FileDescriptorManager().convert(parser.resolve(parser.parse("test.proto", INPUT)));
+			recording.stop();
+			recording.dump(output);
+		}
+		List<String> stages = new ArrayList<>();
+		for (RecordedEvent event : RecordingFile.readAllEvents(output)) {
+			if (event.getString("file").equals("test.proto")) {
+				assertThat(event.getLong("size")).isPositive();
+				stages.add(event.getString("stage"));
+			}
+		}
+		assertThat(stages).containsExactlyInAnyOrder("LEX", "PARSE", "VISIT", "BUILD");
+	}
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.reflection.v1.ExtensionRequest;
+import io.grpc.reflection.v1.ServerReflectionGrpc;
+import io.grpc.reflection.v1.ServerReflectionRequest;
+import io.grpc.reflection.v1.ServerReflectionResponse;
+import io.grpc.reflection.v1.ServiceResponse;
+import io.grpc.stub.StreamObserver;
+
+public class SchemaReflectionServiceTests {
+
+	private static final String INPUT = """
+			syntax = "proto3";
+			package sample;
+			import "google/protobuf/any.proto";
+			import "google/protobuf/descriptor.proto";
+			extend google.protobuf.FieldOptions {
+				string label = 50001;
+			}
+			message EchoRequest {
+				string name = 1;
+				google.protobuf.Any payload = 2;
+				enum Kind {
+					PLAIN = 0;
+				}
+			}
+			message EchoResponse {
+				string name = 1;
+			}
+			service Echo {
+				rpc Echo(EchoRequest) returns (EchoResponse);
+			}
+			""";
+
+	private SchemaReflectionService service;
+
+	private Server server;
+
+	private ManagedChannel channel;
+
+	@BeforeEach
+	public void start() throws Exception {
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		this.service = new SchemaReflectionService(parser.resolve(parser.parse("sample/echo.proto", INPUT)));
+		String name = InProcessServerBuilder.generateName();
+		this.server = InProcessServerBuilder.forName(name).directExecutor().addService(this.service).build().start();
+		this.channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+	}
+
+	@AfterEach
+	public void stop() throws Exception {
+		this.channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+		this.server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void testListServices() throws Exception {
+		ServerReflectionResponse response = call(ServerReflectionRequest.newBuilder().setListServices("*").build());
+		assertThat(response.getListServicesResponse().getServiceList()).extracting(ServiceResponse::getName)
+			.containsExactly("sample.Echo");
+	}
+
+	@Test
+	public void testFileContainingSymbol() throws Exception {
+		for (String symbol : List.of("sample.Echo", "sample.Echo.Echo", "sample.EchoRequest", "sample.EchoRequest.Kind",
+				"sample.label")) {
+			ServerReflectionResponse response = call(
+					ServerReflectionRequest.newBuilder().setFileContainingSymbol(symbol).build());
+			assertThat(names(response)).as(symbol)
+				.containsExactly("sample/echo.proto", "google/protobuf/any.proto", "google/protobuf/descriptor.proto");
+		}
+		ServerReflectionResponse response = call(
+				ServerReflectionRequest.newBuilder().setFileContainingSymbol("sample.Missing").build());
+		assertThat(response.getErrorResponse().getErrorCode()).isEqualTo(Status.Code.NOT_FOUND.value());
+	}
+
+	@Test
+	public void testFileByFilenameIsNotEncodedAgain() throws Exception {
+		ServerReflectionRequest request = ServerReflectionRequest.newBuilder()
+			.setFileByFilename("google/protobuf/any.proto")
+			.build();
+		ServerReflectionResponse first = call(request);
+		assertThat(names(first)).containsExactly("google/protobuf/any.proto");
+		ByteString bytes = this.service.respond(request).getFileDescriptorResponse().getFileDescriptorProto(0);
+		assertThat(bytes).isSameAs(first.getFileDescriptorResponse().getFileDescriptorProto(0));
+		assertThat(this.service.respond(request).getFileDescriptorResponse().getFileDescriptorProto(0)).isSameAs(bytes);
+	}
+
+	@Test
+	public void testExtensions() throws Exception {
+		ServerReflectionResponse response = call(ServerReflectionRequest.newBuilder()
+			.setFileContainingExtension(ExtensionRequest.newBuilder()
+				.setContainingType("google.protobuf.FieldOptions")
+				.setExtensionNumber(50001))
+			.build());
+		assertThat(names(response)).startsWith("sample/echo.proto");
+		response = call(ServerReflectionRequest.newBuilder()
+			.setAllExtensionNumbersOfType("google.protobuf.FieldOptions")
+			.build());
+		assertThat(response.getAllExtensionNumbersResponse().getExtensionNumberList()).containsExactly(50001);
+	}
+
+	@Test
+	public void testResponsesCanBeBuilt() throws Exception {
+		ServerReflectionResponse response = call(
+				ServerReflectionRequest.newBuilder().setFileContainingSymbol("sample.Echo").build());
+		FileDescriptorSet.Builder files = FileDescriptorSet.newBuilder();
+		List<ByteString> protos = new ArrayList<>(response.getFileDescriptorResponse().getFileDescriptorProtoList());
+		// Dependencies first
+		for (int i = protos.size() - 1; i >= 0; i--) {
+			files.addFile(FileDescriptorProto.parseFrom(protos.get(i)));
+		}
+		assertThat(new FileDescriptorManager().convert(files.build())[2].findServiceByName("Echo")).isNotNull();
+	}
+
+	private List<String> names(ServerReflectionResponse response) throws Exception {
+		List<String> names = new ArrayList<>();
+		for (ByteString bytes : response.getFileDescriptorResponse().getFileDescriptorProtoList()) {
+			names.add(FileDescriptorProto.parseFrom(bytes).getName());
+		}
+		return names;
+	}
+
+	private ServerReflectionResponse call(ServerReflectionRequest request) throws Exception {
+		CompletableFuture<ServerReflectionResponse> result = new CompletableFuture<>();
+		StreamObserver<ServerReflectionRequest> requests = ServerReflectionGrpc.newStub(this.channel)
+			.serverReflectionInfo(new StreamObserver<>() {
+
+				@Override
+				public void onNext(ServerReflectionResponse response) {
+					result.complete(response);
+				}
+
+				@Override
+				public void onError(Throwable error) {
+					result.completeExceptionally(error);
+				}
+
+				@Override
+				public void onCompleted() {
+				}
+
+			});
+		requests.onNext(request);
+		requests.onCompleted();
+		ServerReflectionResponse response = result.get(5, TimeUnit.SECONDS);
+		assertThat(response.getOriginalRequest()).isEqualTo(request);
+		return response;
+	}
+
+}
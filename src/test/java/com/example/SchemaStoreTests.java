@@ -0,0 +1,173 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.Descriptors.FileDescriptor;
+
+public class SchemaStoreTests {
+
+	private static final String INPUT = """
+			syntax = "proto3";
+			package demo;
+			import "google/protobuf/any.proto";
+			message TestMessage {
+				string name = 1;
+				google.protobuf.Any value = 2;
+			}
+			""";
+
+	@Test
+	public void testDeduplicatesAcrossTenants() {
+		SchemaStore store = new SchemaStore();
+		for (int i = 0; i < 10; i++) {
+			// A fresh parser each time, as if every tenant uploaded its own copy
+			FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+			store.put("tenant-" + i, parser.resolve(parser.parse("test.proto", INPUT)));
+		}
+		assertThat(store.size()).isEqualTo(10);
+		assertThat(store.getFileCount()).isEqualTo(2);
+		FileDescriptor file = store.findFileByName("tenant-0", "test.proto");
+		assertThat(file.findMessageTypeByName("TestMessage").getFields()).hasSize(2);
+		assertThat(store.findFileByName("tenant-9", "test.proto")).isSameAs(file);
+		assertThat(store.findFileByName("tenant-9", "missing.proto")).isNull();
+		assertThat(store.findFileByName("missing", "test.proto")).isNull();
+	}
+
+	@Test
+	public void testInternsNames() {
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		SchemaStore store = new SchemaStore();
+		store.put("first", parser.resolve(parser.parse("first.proto", INPUT)));
+		store.put("second", parser.resolve(parser.parse("second.proto", INPUT.replace("TestMessage", "Other"))));
+		FileDescriptorProto first = store.get("first").getFile(1);
+		FileDescriptorProto second = store.get("second").getFile(1);
+		assertThat(store.getFileCount()).isEqualTo(3);
+		assertThat(second.getPackage()).isSameAs(first.getPackage());
+		assertThat(second.getMessageType(0).getField(1).getTypeName())
+			.isSameAs(first.getMessageType(0).getField(1).getTypeName());
+	}
+
+	@Test
+	public void testSerialized() {
+		assertColdStorage(SchemaStore.Storage.SERIALIZED);
+	}
+
+	@Test
+	public void testOffHeap() {
+		assertColdStorage(SchemaStore.Storage.OFF_HEAP);
+	}
+
+	@Test
+	public void testReplaceAndRemove() {
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		SchemaStore store = new SchemaStore();
+		FileDescriptorSet files = parser.resolve(parser.parse("test.proto", INPUT));
+		store.put("tenant", files);
+		store.put("tenant", files);
+		assertThat(store.getFileCount()).isEqualTo(2);
+		assertThat(store.findFileByName("tenant", "test.proto")).isNotNull();
+		assertThat(store.remove("tenant")).isTrue();
+		assertThat(store.remove("tenant")).isFalse();
+		assertThat(store.getFileCount()).isZero();
+		assertThat(store.get("tenant")).isNull();
+		assertThatIllegalArgumentException()
+			.isThrownBy(() -> store.put("tenant", FileDescriptorSet.newBuilder().addFile(files.getFile(1)).build()))
+			.withMessageContaining("Missing dependency: google/protobuf/any.proto");
+	}
+
+	@Test
+	public void testReleasesNames() {
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		SchemaStore store = new SchemaStore();
+		store.put("first", parser.resolve(parser.parse("first.proto", INPUT)));
+		int count = store.getNameCount();
+		store.put("second", parser.resolve(parser.parse("second.proto", INPUT.replace("TestMessage", "Other"))));
+		assertThat(store.getNameCount()).isGreaterThan(count);
+		store.remove("second");
+		assertThat(store.getNameCount()).isEqualTo(count);
+		store.remove("first");
+		assertThat(store.getNameCount()).isZero();
+	}
+
+	@Test
+	public void testFailedPutAddsNothing() {
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		SchemaStore store = new SchemaStore(SchemaStore.Storage.SERIALIZED, 10);
+		FileDescriptorSet files = parser.resolve(parser.parse("test.proto", INPUT));
+		FileDescriptorSet invalid = FileDescriptorSet.newBuilder()
+			.addFile(files.getFile(0))
+			.addFile(files.getFile(1).toBuilder().addDependency("missing.proto"))
+			.build();
+		assertThatIllegalArgumentException().isThrownBy(() -> store.put("tenant", invalid))
+			.withMessageContaining("Missing dependency: missing.proto");
+		assertThat(store.getFileCount()).isZero();
+		assertThat(store.getNameCount()).isZero();
+		// Files that were already stored for another tenant are kept
+		store.put("other", files);
+		assertThatIllegalArgumentException().isThrownBy(() -> store.put("tenant", invalid));
+		assertThat(store.getFileCount()).isEqualTo(2);
+		assertThat(store.findFileByName("other", "test.proto")).isNotNull();
+	}
+
+	@Test
+	public void testFingerprintCollision() {
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		FileDescriptorSet files = parser.resolve(parser.parse("test.proto", INPUT));
+		FileDescriptorProto[] collision = SchemaFingerprintTests.collide(files.getFile(1));
+		assertThat(SchemaFingerprint.of(collision[1])).isEqualTo(SchemaFingerprint.of(collision[0]));
+		SchemaStore store = new SchemaStore(SchemaStore.Storage.SERIALIZED, 10);
+		store.put("first", files.toBuilder().setFile(1, collision[0]).build());
+		store.put("second", files.toBuilder().setFile(1, collision[1]).build());
+		// Both files are stored, and neither tenant gets the other's descriptor
+		assertThat(store.getFileCount()).isEqualTo(3);
+		FileDescriptor first = store.findFileByName("first", "test.proto");
+		FileDescriptor second = store.findFileByName("second", "test.proto");
+		assertThat(first.toProto()).isEqualTo(collision[0]);
+		assertThat(second.toProto()).isEqualTo(collision[1]);
+		assertThat(second.getDependencies().get(0)).isSameAs(first.getDependencies().get(0));
+		assertThat(store.get("second").getFile(1)).isEqualTo(collision[1]);
+		store.remove("first");
+		assertThat(store.getFileCount()).isEqualTo(2);
+		assertThat(store.findFileByName("second", "test.proto")).isSameAs(second);
+		assertThat(store.get("second").getFile(1)).isEqualTo(collision[1]);
+		store.remove("second");
+		assertThat(store.getFileCount()).isZero();
+	}
+
+	private void assertColdStorage(SchemaStore.Storage storage) {
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		FileDescriptorSet files = parser.resolve(parser.parse("test.proto", INPUT));
+		SchemaStore store = new SchemaStore(storage, 1);
+		store.put("first", files);
+		store.put("second", parser.resolve(parser.parse("other.proto", INPUT.replace("TestMessage", "Other"))));
+		assertThat(store.get("first")).isEqualTo(files);
+		FileDescriptor first = store.findFileByName("first", "test.proto");
+		assertThat(first.findMessageTypeByName("TestMessage")).isNotNull();
+		assertThat(store.findFileByName("second", "other.proto").findMessageTypeByName("Other")).isNotNull();
+		// Only one descriptor is retained, so it is built again
+		FileDescriptor again = store.findFileByName("first", "test.proto");
+		assertThat(again).isNotSameAs(first);
+		assertThat(again.toProto()).isEqualTo(first.toProto());
+	}
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.SchemaValidator.Diagnostic;
+import com.example.SchemaValidator.Kind;
+import com.example.SchemaValidator.Report;
+
+public class SchemaValidatorTests {
+
+	@Test
+	public void testValidTree() {
+		Report report = new SchemaValidator(Path.of("src/test/proto/multi"), 2).validate();
+		assertThat(report.files()).isEqualTo(2);
+		assertThat(report.hasErrors()).isFalse();
+		assertThat(report.format()).isEqualTo(String.format("0 errors in 0 of 2 files%n"));
+	}
+
+	@Test
+	public void testReportsEveryError(@TempDir Path dir) throws Exception {
+		Files.writeString(dir.resolve("syntax.proto"), """
+				syntax = "proto3";
+				message First {
+					string foo name = 1;
+				}
+				message Second {
+					int32 = 2;
+				}
+				""");
+		Files.createDirectories(dir.resolve("sub"));
+		Files.writeString(dir.resolve("sub/imports.proto"), """
+				syntax = "proto3";
+				import "missing.proto";
+				import "google/protobuf/any.proto";
+				message Imports {
+					google.protobuf.Any value = 1;
+				}
+				""");
+		Files.writeString(dir.resolve("invalid.proto"), """
+				syntax = "proto3";
+				package demo;
+				message Invalid {
+					string name = 1;
+					int32 age = 1;
+				}
+				""");
+		Files.writeString(dir.resolve("dependent.proto"), """
+				syntax = "proto3";
+				import "invalid.proto";
+				message Dependent {
+					demo.Invalid invalid = 1;
+				}
+				""");
+		Files.writeString(dir.resolve("a.proto"), """
+				syntax = "proto3";
+				import "b.proto";
+				""");
+		Files.writeString(dir.resolve("b.proto"), """
+				syntax = "proto3";
+				import "a.proto";
+				""");
+		Files.writeString(dir.resolve("valid.proto"), """
+				syntax = "proto3";
+				message Valid {
+					string name = 1;
+				}
+				""");
+		Report report = new SchemaValidator(dir, 4).validate();
+		assertThat(report.files()).isEqualTo(7);
+		assertThat(report.diagnostics()).extracting(Diagnostic::file, Diagnostic::line, Diagnostic::kind)
+			.containsExactly(tuple("b.proto", 2, Kind.IMPORT), tuple("invalid.proto", 5, Kind.DESCRIPTOR),
+					tuple("sub/imports.proto", 2, Kind.IMPORT), tuple("syntax.proto", 3, Kind.SYNTAX),
+					tuple("syntax.proto", 6, Kind.SYNTAX));
+		assertThat(report.diagnostics().get(0).message()).isEqualTo("Import cycle: a.proto -> b.proto -> a.proto");
+		assertThat(report.diagnostics().get(1).message()).startsWith("demo.Invalid.age: ");
+		assertThat(report.diagnostics().get(2))
+			.hasToString("sub/imports.proto:2:1: import error: Import not found: missing.proto");
+		assertThat(report.format()).endsWith(String.format("5 errors in 4 of 7 files%n"));
+	}
+
+}
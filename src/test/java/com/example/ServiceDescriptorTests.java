@@ -87,4 +87,21 @@ public class ServiceDescriptorTests {
 		assertThat(service.getMethod(0).getServerStreaming()).isTrue();
 	}
 
+	@Test
+	public void testParseClientAndBidiStreamingService() {
+		String input = """
+				syntax = "proto3";
+				service Foo {
+					rpc Upload (stream Input) returns (Output) {}
+					rpc Chat (stream Input) returns (stream Output) {}
+				};
+				""";
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		ServiceDescriptorProto service = parser.parse("test.proto", input).getService(0);
+		assertThat(service.getMethod(0).getClientStreaming()).isTrue();
+		assertThat(service.getMethod(0).getServerStreaming()).isFalse();
+		assertThat(service.getMethod(1).getClientStreaming()).isTrue();
+		assertThat(service.getMethod(1).getServerStreaming()).isTrue();
+	}
+
 }
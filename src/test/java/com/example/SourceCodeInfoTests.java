@@ -0,0 +1,175 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.DescriptorProtos.SourceCodeInfo;
+import com.google.protobuf.DescriptorProtos.SourceCodeInfo.Location;
+import com.google.protobuf.Descriptors.FileDescriptor;
+
+public class SourceCodeInfoTests {
+
+	// The example from the documentation of SourceCodeInfo.Location in descriptor.proto
+	private static final String COMMENTS = """
+			syntax = "proto3";
+			// Comment attached to foo.
+			message Foo {
+				int32 foo = 1;  // Comment attached to foo.
+				// Comment attached to bar.
+				int32 bar = 2;
+
+				string baz = 3;
+				// Comment attached to baz.
+				// Another line attached to baz.
+
+				// Comment attached to moo.
+				//
+				// Another line attached to moo.
+				double moo = 4;
+
+				// Detached comment for corge. This is not leading or trailing comments
+				// to moo or corge because there are blank lines separating it from
+				// both.
+
+				// Detached comment for corge paragraph 2.
+
+				string corge = 5;
+				/* Block comment attached
+				 * to corge.  Leading asterisks
+				 * will be removed. */
+				/* Block comment attached to
+				 * grault. */
+				int32 grault = 6;
+
+				// ignored detached comments.
+			}
+			""";
+
+	@Test
+	public void testComments() {
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		parser.setSourceCodeInfo(true);
+		parser.parse("test.proto", COMMENTS);
+		SourceCodeInfo info = parser.getSourceCodeInfo("test.proto");
+		assertThat(location(info, 4, 0).getLeadingComments()).isEqualTo(" Comment attached to foo.\n");
+		assertThat(location(info, 4, 0, 2, 0).getTrailingComments()).isEqualTo(" Comment attached to foo.\n");
+		assertThat(location(info, 4, 0, 2, 1).getLeadingComments()).isEqualTo(" Comment attached to bar.\n");
+		assertThat(location(info, 4, 0, 2, 2).getTrailingComments())
+			.isEqualTo(" Comment attached to baz.\n Another line attached to baz.\n");
+		assertThat(location(info, 4, 0, 2, 3).getLeadingComments())
+			.isEqualTo(" Comment attached to moo.\n\n Another line attached to moo.\n");
+		Location corge = location(info, 4, 0, 2, 4);
+		assertThat(corge.hasLeadingComments()).isFalse();
+		assertThat(corge.getLeadingDetachedCommentsList()).containsExactly(
+				" Detached comment for corge. This is not leading or trailing comments\n"
+						+ " to moo or corge because there are blank lines separating it from\n both.\n",
+				" Detached comment for corge paragraph 2.\n");
+		assertThat(corge.getTrailingComments())
+			.isEqualTo(" Block comment attached\n to corge.  Leading asterisks\n will be removed. ");
+		assertThat(location(info, 4, 0, 2, 5).getLeadingComments()).isEqualTo(" Block comment attached to\n grault. ");
+		assertThat(location(info, 4, 0, 2, 5).hasTrailingComments()).isFalse();
+	}
+
+	@Test
+	public void testPathsAndSpans() {
+		String input = """
+				syntax = "proto3";
+				package demo;
+				import "google/protobuf/empty.proto";
+				message Outer {
+					message Inner { optional string name = 1; }
+					enum Kind {
+						UNKNOWN = 0;
+						SPECIAL = 1;
+					}
+					map<string, Inner> inners = 1;
+					oneof choice {
+						Kind kind = 2;
+						int32 count = 3;
+					}
+					Inner inner = 4;
+				}
+				// The service
+				service Demo {
+					rpc Get(Outer) returns (Outer); // Gets
+					rpc List(stream Outer) returns (Outer) {
+					}
+				}
+				""";
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		parser.setSourceCodeInfo(true);
+		parser.parse("demo.proto", input);
+		SourceCodeInfo info = parser.getSourceCodeInfo("demo.proto");
+		assertThat(location(info).getSpanList()).containsExactly(0, 0, 21, 1);
+		assertThat(location(info, 12).getSpanList()).containsExactly(0, 0, 18);
+		assertThat(location(info, 2).getSpanList()).containsExactly(1, 0, 13);
+		assertThat(location(info, 3, 0).getSpanList()).containsExactly(2, 0, 37);
+		assertThat(location(info, 4, 0).getSpanList()).containsExactly(3, 0, 15, 1);
+		assertThat(location(info, 4, 0, 3, 0).getSpanList()).containsExactly(4, 1, 44);
+		assertThat(location(info, 4, 0, 3, 0, 2, 0).getSpanList()).containsExactly(4, 17, 42);
+		assertThat(location(info, 4, 0, 4, 0, 2, 1).getSpanList()).containsExactly(7, 2, 14);
+		// Map fields and fields in a oneof are numbered like any other field
+		assertThat(location(info, 4, 0, 2, 0).getSpanList()).containsExactly(9, 1, 31);
+		assertThat(location(info, 4, 0, 8, 0).getSpanList()).containsExactly(10, 1, 13, 2);
+		assertThat(location(info, 4, 0, 2, 2).getSpanList()).containsExactly(12, 2, 18);
+		assertThat(location(info, 4, 0, 2, 3).getSpanList()).containsExactly(14, 1, 17);
+		assertThat(location(info, 6, 0).getLeadingComments()).isEqualTo(" The service\n");
+		assertThat(location(info, 6, 0, 2, 0).getTrailingComments()).isEqualTo(" Gets\n");
+		assertThat(location(info, 6, 0, 2, 1).getSpanList()).containsExactly(19, 1, 20, 2);
+		FileDescriptorProto proto = parser.parse("demo.proto", input);
+		assertThat(proto.hasSourceCodeInfo()).isFalse();
+		FileDescriptorSet files = parser.withSourceCodeInfo(parser.resolve(proto));
+		// Imports are parsed with the same settings
+		assertThat(files.getFile(0).getName()).isEqualTo("google/protobuf/empty.proto");
+		assertThat(location(files.getFile(0).getSourceCodeInfo(), 4, 0).getLeadingComments()).contains("empty");
+		assertThat(files.getFile(1).getSourceCodeInfo()).isSameAs(info);
+		FileDescriptor file = new FileDescriptorManager().convert(files)[1];
+		assertThat(file.toProto().getSourceCodeInfo()).isEqualTo(info);
+	}
+
+	@Test
+	public void testOffByDefault() {
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		FileDescriptorProto proto = parser.parse("test.proto", COMMENTS);
+		assertThat(parser.getSourceCodeInfo("test.proto")).isEqualTo(SourceCodeInfo.getDefaultInstance());
+		FileDescriptorSet files = parser.resolve(proto);
+		assertThat(parser.withSourceCodeInfo(files)).isEqualTo(files);
+		assertThatIllegalArgumentException().isThrownBy(() -> parser.getSourceCodeInfo("missing.proto"))
+			.withMessage("Unknown file: missing.proto");
+		// Turning it on parses the file again, but the descriptor is the same
+		parser.setSourceCodeInfo(true);
+		assertThat(parser.parse("test.proto", COMMENTS)).isSameAs(proto);
+		assertThat(parser.getSourceCodeInfo("test.proto").getLocationCount()).isGreaterThan(1);
+		assertThat(parser.fingerprint("test.proto")).isEqualTo(SchemaFingerprint.of(proto));
+	}
+
+	private static Location location(SourceCodeInfo info, Integer... path) {
+		return info.getLocationList()
+			.stream()
+			.filter((location) -> location.getPathList().equals(List.of(path)))
+			.findFirst()
+			.orElseThrow(() -> new AssertionError("No location for " + List.of(path)));
+	}
+
+}
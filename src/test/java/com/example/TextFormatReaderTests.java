@@ -0,0 +1,228 @@
+/*
+ * Copyright 2025-current the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.TextFormat;
+
+public class TextFormatReaderTests {
+
+	private Descriptor type;
+
+	private TextFormatReader reader;
+
+	@BeforeEach
+	void setup() {
+		String input = """
+				syntax = "proto3";
+				enum Color {
+					RED = 0;
+					GREEN = 1;
+					BLUE = -2;
+				}
+				message Child {
+					string name = 1;
+					repeated Child children = 2;
+				}
+				message TestMessage {
+					int32 small_number = 1;
+					int64 big_number = 2;
+					uint32 unsigned = 3;
+					uint64 huge = 4;
+					sint32 zigzag = 5;
+					sfixed64 fixed = 6;
+					bool flag = 7;
+					float ratio = 8;
+					double amount = 9;
+					string text = 10;
+					bytes data = 11;
+					Color color = 12;
+					Child child = 13;
+					repeated int32 counts = 14;
+					repeated string tags = 15;
+					repeated Child children = 16;
+					map<string, int32> scores = 17;
+					optional int32 maybe = 18;
+					repeated Color colors = 19;
+				}
+				""";
+		FileDescriptorProtoParser parser = new FileDescriptorProtoParser();
+		this.type = new FileDescriptorManager().convert(parser.resolve(parser.parse("test.proto", input)))[0]
+			.findMessageTypeByName("TestMessage");
+		this.reader = TextFormatReader.compile(this.type);
+	}
+
+	@Test
+	public void testMatchesTextFormat() throws Exception {
+		String text = """
+				# A comment
+				small_number: -42
+				big_number: 9007199254740993
+				unsigned: 0xffffffff
+				huge: 18446744073709551615
+				zigzag: -017
+				fixed: -9223372036854775808
+				flag: true
+				ratio: 0.1
+				amount: 1e-300
+				text: "caf\\303\\251 " 'and \\"quotes\\"\\n' "\\u00e9\\x41"
+				data: "\\000\\001\\377"
+				color: BLUE
+				child { name: "one" children < name: "two" > }
+				counts: [1, 2, 3]
+				counts: 4
+				tags: "a"; tags: "b",
+				children [{ name: "x" }, { name: "y" }]
+				scores { key: "a" value: 1 }
+				scores: { key: "b" value: 2 }
+				maybe: 0
+				colors: [RED, 1, BLUE]
+				""";
+		assertThat(this.reader.parse(text)).isEqualTo(textFormat(text));
+	}
+
+	@Test
+	public void testRoundTripsPrintedMessages() throws Exception {
+		String text = """
+				small_number: 7 big_number: -1 unsigned: 4000000000 huge: 9223372036854775808
+				zigzag: -2147483648 fixed: 12 flag: t ratio: -inf amount: nan
+				text: "\u00e9t\u00e9 \u2603 \ud83d\ude00" data: "\\t\\r\\\\'"
+				color: GREEN child { name: "" } counts: [] tags: "" maybe: 5
+				""";
+		DynamicMessage message = textFormat(text);
+		String printed = TextFormat.printer().printToString(message);
+		assertThat(this.reader.parse(printed)).isEqualTo(message);
+		String escaped = TextFormat.printer().escapingNonAscii(true).printToString(message);
+		assertThat(this.reader.parse(escaped)).isEqualTo(message);
+	}
+
+	@Test
+	public void testFloatingPoint() throws Exception {
+		String text = "ratio: 3.4028235e38 amount: -0";
+		DynamicMessage message = this.reader.parse(text);
+		assertThat(message).isEqualTo(textFormat(text));
+		assertThat(Double.doubleToRawLongBits((Double) message.getField(this.type.findFieldByName("amount"))))
+			.isEqualTo(Double.doubleToRawLongBits(-0.0));
+		for (String value : new String[] { "1.5f", "2", "-7", ".25", "1E3", "-Infinity", "NaN",
+				"123456789012345678" }) {
+			assertThat(this.reader.parse("ratio: " + value + " amount: " + value)).as(value)
+				.isEqualTo(textFormat("ratio: " + value + " amount: " + value));
+		}
+	}
+
+	@Test
+	public void testDefaultsAreNotSerialized() {
+		assertThat(this.reader.toWire("small_number: 0 text: \"\" flag: false color: RED child {}"))
+			.isEqualTo(DynamicMessage.newBuilder(this.type)
+				.setField(this.type.findFieldByName("child"),
+						DynamicMessage.getDefaultInstance(this.type.findFieldByName("child").getMessageType()))
+				.build()
+				.toByteArray());
+		assertThat(this.reader.toWire("maybe: 0")).containsExactly(0x90, 0x01, 0);
+	}
+
+	@Test
+	public void testLastValueWins() throws Exception {
+		String text = "small_number: 5 small_number: 0 text: 'a' text: '' flag: true flag: false color: BLUE color: RED";
+		assertThat(this.reader.parse(text)).isEqualTo(textFormat(text));
+		assertThat(this.reader.parse(text).getAllFields()).isEmpty();
+		text = "small_number: 0 small_number: 5 text: '' text: 'a'";
+		assertThat(this.reader.parse(text)).isEqualTo(textFormat(text));
+		// A default that replaces nothing is still left out
+		assertThat(this.reader.toWire("text: 'a' small_number: 0")).isEqualTo(this.reader.toWire("text: 'a'"));
+	}
+
+	@Test
+	public void testMergeAndStreams() throws Exception {
+		FileDescriptorProto.Builder builder = FileDescriptorProto.newBuilder().setPackage("keep");
+		TextFormatReader files = TextFormatReader.compile(FileDescriptorProto.getDescriptor());
+		files.merge(
+				"name: \"foo.proto\" message_type { name: \"Foo\" field { name: \"bar\" number: 1 type: TYPE_INT32 } }"
+					.getBytes(StandardCharsets.UTF_8),
+				builder);
+		assertThat(builder.getPackage()).isEqualTo("keep");
+		assertThat(builder.getMessageType(0).getField(0).getType().getNumber()).isEqualTo(5);
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		this.reader.toWire(new ByteArrayInputStream("text: \"foo\"".getBytes(StandardCharsets.UTF_8)), output);
+		assertThat(output.toByteArray()).isEqualTo(this.reader.toWire("text: 'foo'"));
+		assertThatIllegalArgumentException()
+			.isThrownBy(() -> files.merge(new byte[0], DynamicMessage.newBuilder(this.type)))
+			.withMessageContaining("Expected a builder for google.protobuf.FileDescriptorProto");
+	}
+
+	@Test
+	public void testLargeInput() throws Exception {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 20_000; i++) {
+			text.append("children { name: \"child ").append(i).append("\" }\n");
+			text.append("counts: ").append(i * 31).append('\n');
+			text.append("scores { key: \"k").append(i).append("\" value: ").append(-i).append(" }\n");
+		}
+		assertThat(this.reader.parse(text.toString())).isEqualTo(textFormat(text.toString()));
+	}
+
+	@Test
+	public void testErrors() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.reader.toWire("small_number: 1\n  nope: 2"))
+			.withMessage("Invalid text format at line 2, column 3: unknown field 'nope' in TestMessage");
+		assertThatIllegalArgumentException().isThrownBy(() -> this.reader.toWire("small_number 1"))
+			.withMessageContaining("expected ':'");
+		assertThatIllegalArgumentException().isThrownBy(() -> this.reader.toWire("small_number: 2147483648"))
+			.withMessageContaining("integer out of range for small_number");
+		assertThatIllegalArgumentException().isThrownBy(() -> this.reader.toWire("unsigned: -1"))
+			.withMessageContaining("integer out of range for unsigned");
+		assertThatIllegalArgumentException().isThrownBy(() -> this.reader.toWire("huge: 0x1ffffffffffffffff"))
+			.withMessageContaining("integer out of range for huge");
+		assertThatIllegalArgumentException().isThrownBy(() -> this.reader.toWire("color: PURPLE"))
+			.withMessageContaining("unknown value for color: PURPLE");
+		assertThatIllegalArgumentException().isThrownBy(() -> this.reader.toWire("flag: yes"))
+			.withMessageContaining("expected boolean for flag");
+		assertThatIllegalArgumentException().isThrownBy(() -> this.reader.toWire("text: \"open\nsmall_number: 1"))
+			.withMessageContaining("line 1, column 7: unterminated string");
+		assertThatIllegalArgumentException().isThrownBy(() -> this.reader.toWire("child { name: \"x\""))
+			.withMessageContaining("expected '}'");
+		assertThatIllegalArgumentException().isThrownBy(() -> this.reader.toWire("small_number: [1]"))
+			.withMessageContaining("field is not repeated: small_number");
+		assertThatIllegalArgumentException().isThrownBy(() -> this.reader.toWire("[ext.field]: 1"))
+			.withMessageContaining("extensions and Any expansions are not supported");
+		assertThatIllegalArgumentException()
+			.isThrownBy(() -> this.reader.toWire("child { " + "children { ".repeat(200)))
+			.withMessageContaining("message nested too deeply");
+		assertThat(this.reader.toWire("data: \"\\x41\\101\"")).containsExactly(11 << 3 | 2, 2, 'A', 'A');
+		assertThat(this.reader.parse("data: \"\\xff\"").getField(this.type.findFieldByName("data")))
+			.isEqualTo(ByteString.copyFrom(new byte[] { (byte) 0xff }));
+	}
+
+	private DynamicMessage textFormat(String text) throws Exception {
+		DynamicMessage.Builder builder = DynamicMessage.newBuilder(this.type);
+		TextFormat.merge(text, builder);
+		return builder.build();
+	}
+
+}